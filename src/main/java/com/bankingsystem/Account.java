@@ -43,28 +43,61 @@ public abstract class Account {
      * @param staffUsername The username of the staff member approving
      */
     public void approve(String staffUsername) {
+        if (this.status != AccountStatus.PENDING) {
+            throw new IllegalStateException("Cannot approve non-pending account");
+        }
+        approve(staffUsername, generateAccountNumber(), java.time.LocalDateTime.now());
+    }
+
+    /**
+     * Record an approval that has already been made in the database, with the account number
+     * it assigned there.
+     *
+     * @param staffUsername The username of the staff member approving
+     * @param accountNumber The account number assigned on approval
+     * @param approvedAt When the approval was made
+     */
+    public void approve(String staffUsername, String accountNumber, java.time.LocalDateTime approvedAt) {
         if (this.status != AccountStatus.PENDING) {
             throw new IllegalStateException("Cannot approve non-pending account");
         }
         this.status = AccountStatus.APPROVED;
-        this.accountNumber = generateAccountNumber();
-        this.approvalDateTime = java.time.LocalDateTime.now();
+        this.accountNumber = accountNumber;
+        this.approvalDateTime = approvedAt;
         this.approvalStaffUsername = staffUsername;
         this.showApprovalNotification = true;
     }
 
+    /**
+     * A new account number for this type of account, without assigning it.
+     * Used when the number is written by a conditional update before the object changes.
+     */
+    public String nextAccountNumber() {
+        return generateAccountNumber();
+    }
+
     /**
      * Reject this account.
      * 
      * @param staffUsername The username of the staff member rejecting
      */
     public void reject(String staffUsername) {
+        reject(staffUsername, java.time.LocalDateTime.now());
+    }
+
+    /**
+     * Record a rejection, e.g. one that has already been made in the database.
+     *
+     * @param staffUsername The username of the staff member rejecting
+     * @param rejectedAt When the rejection was made
+     */
+    public void reject(String staffUsername, java.time.LocalDateTime rejectedAt) {
         if (this.status != AccountStatus.PENDING) {
             throw new IllegalStateException("Cannot reject non-pending account");
         }
         this.status = AccountStatus.REJECTED;
         this.approvalStaffUsername = staffUsername;
-        this.approvalDateTime = java.time.LocalDateTime.now();
+        this.approvalDateTime = rejectedAt;
     }
 
     public AccountStatus getStatus() {
@@ -132,12 +165,12 @@ public abstract class Account {
             if (!to.transactions.isEmpty()) {
                 to.transactions.remove(to.transactions.size() - 1);
             }
-            to.transactions.add(new Transaction(Transaction.Type.TRANSFER, amount, to.balance, 
+            to.transactions.add(new Transaction(Transaction.Type.TRANSFER, Transaction.Direction.CREDIT, amount, to.balance,
                 "Transfer from " + this.accountNumber));
             
             // Record transfer transaction on source account
             String description = "Transfer to " + to.getAccountNumber();
-            transactions.add(new Transaction(Transaction.Type.TRANSFER, amount, balance, description));
+            transactions.add(new Transaction(Transaction.Type.TRANSFER, Transaction.Direction.DEBIT, amount, balance, description));
             
             return true;
         }
@@ -163,6 +196,20 @@ public abstract class Account {
         return interest;
     }
 
+    /**
+     * Mirror a transaction that has already been posted to the database.
+     * Applies the signed change rather than the posted running balance, so concurrent
+     * postings mirrored in any order still converge on the stored balance.
+     *
+     * @param posted The committed transaction
+     * @param delta Signed balance change (negative for debits)
+     */
+    public synchronized void applyPosted(Transaction posted, double delta) {
+        Objects.requireNonNull(posted);
+        balance += delta;
+        transactions.add(posted);
+    }
+
     public java.util.List<Transaction> getTransactions() {
         return java.util.Collections.unmodifiableList(transactions);
     }
@@ -1,11 +1,16 @@
 package com.bankingsystem;
 
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.utils.LedgerEventBus;
+
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * Service for managing account approval workflow.
  * Handles approval/rejection of pending accounts by staff members.
+ * Each decision is published on the LedgerEventBus, which is how the customer's dashboard
+ * learns about it.
  */
 public class AccountApprovalService {
 
@@ -29,6 +34,7 @@ public class AccountApprovalService {
 
     /**
      * Approve a pending account. Validates eligibility and assigns account number.
+     * Only changes the object; accounts already stored go through approveStoredAccount.
      * 
      * @param account The account to approve
      * @param staffUsername The username of the staff member approving
@@ -46,12 +52,53 @@ public class AccountApprovalService {
 
         try {
             account.approve(staffUsername);
+            publish(LedgerEventBus.Kind.ACCOUNT_APPROVED, account);
             return true;
         } catch (IllegalStateException e) {
             return false;
         }
     }
 
+    /**
+     * Approve a pending account stored in the database. The approval is a conditional update that
+     * only succeeds while the row is still pending, so when several staff members approve the
+     * same account at once exactly one of them succeeds and it gets exactly one account number.
+     * The account object is left unchanged unless this call made the approval.
+     *
+     * @param account The account to approve, as loaded from the database
+     * @param staffUsername The username of the staff member approving
+     * @return true if this call approved the account
+     */
+    public static boolean approveStoredAccount(Account account, String staffUsername) {
+        if (account == null || account.getStatus() != AccountStatus.PENDING
+                || !isAccountEligibleForApproval(account)) {
+            return false;
+        }
+        if (!new AccountDAOImpl().approveAccount(account, staffUsername)) {
+            return false;
+        }
+        publish(LedgerEventBus.Kind.ACCOUNT_APPROVED, account);
+        return true;
+    }
+
+    /**
+     * Reject a pending account stored in the database, if it is still pending there.
+     *
+     * @param account The account to reject, as loaded from the database
+     * @param staffUsername The username of the staff member rejecting
+     * @return true if this call rejected the account
+     */
+    public static boolean rejectStoredAccount(Account account, String staffUsername) {
+        if (account == null || account.getStatus() != AccountStatus.PENDING) {
+            return false;
+        }
+        if (!new AccountDAOImpl().rejectAccount(account, staffUsername)) {
+            return false;
+        }
+        publish(LedgerEventBus.Kind.ACCOUNT_REJECTED, account);
+        return true;
+    }
+
     /**
      * Reject a pending account.
      * 
@@ -66,12 +113,18 @@ public class AccountApprovalService {
 
         try {
             account.reject(staffUsername);
+            publish(LedgerEventBus.Kind.ACCOUNT_REJECTED, account);
             return true;
         } catch (IllegalStateException e) {
             return false;
         }
     }
 
+    private static void publish(LedgerEventBus.Kind kind, Account account) {
+        String customerId = account.getOwner() != null ? account.getOwner().getCustomerID() : null;
+        LedgerEventBus.getInstance().publish(kind, account.getAccountNumber(), null, customerId, 0, account.getBalance());
+    }
+
     /**
      * Check if an account is eligible for approval based on its type and balance.
      * Investment accounts must have minimum P1000 balance.
@@ -1,39 +1,93 @@
 package com.bankingsystem;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.utils.IDGenerator;
+import com.bankingsystem.utils.LedgerEventBus;
+import com.bankingsystem.utils.PersistentVector;
 
+/**
+ * The bank's in-memory registry of customers, accounts, requests and staff.
+ *
+ * All collections live in one immutable {@link Snapshot} of persistent vectors behind an
+ * atomic root reference. Readers grab the current snapshot (one volatile read) and can iterate
+ * it for as long as they like without locks or ConcurrentModificationException; writers build
+ * the next version, sharing every untouched node with the old one, and publish it with CAS.
+ * The lists returned by the getters are such snapshots and cannot be modified.
+ * Interest postings and account request decisions are announced on the LedgerEventBus.
+ */
 public class Bank {
     private String branchCode;
-    private List<Customer> customers = new ArrayList<>();
-    private List<Account> accounts = new ArrayList<>();
-    private List<AccountRequest> requests = new ArrayList<>();
-    private List<CustomerRegistrationRequest> customerRequests = new ArrayList<>();
-    private List<Staff> staff = new ArrayList<>();
+    private final AtomicReference<Snapshot> state;
 
     public Bank(String bankName, String branchCode) {
         this.branchCode = branchCode;
         // seed a default staff user for demo
-        staff.add(new Staff("staff1", "adminpass"));
+        this.state = new AtomicReference<>(new Snapshot(PersistentVector.empty(), PersistentVector.empty(),
+                PersistentVector.empty(), PersistentVector.empty(),
+                PersistentVector.<Staff>empty().plus(new Staff("staff1", "adminpass"))));
+    }
+
+    /**
+     * Rebuild a bank from previously saved collections (used by BankStorage)
+     */
+    public static Bank restore(String branchCode, List<Customer> customers, List<Account> accounts,
+                               List<AccountRequest> requests, List<CustomerRegistrationRequest> customerRequests,
+                               List<Staff> staff) {
+        Bank bank = new Bank(null, branchCode);
+        bank.state.set(new Snapshot(PersistentVector.of(customers), PersistentVector.of(accounts),
+                PersistentVector.of(requests), PersistentVector.of(customerRequests),
+                staff.isEmpty() ? bank.state.get().staff : PersistentVector.of(staff)));
+        return bank;
+    }
+
+    public String getBranchCode() {
+        return branchCode;
+    }
+
+    /**
+     * Consistent point-in-time view of every collection in the bank
+     */
+    public Snapshot snapshot() {
+        return state.get();
+    }
+
+    /**
+     * Publish a new version of the state; the change is re-applied if another writer won the race
+     */
+    private Snapshot update(UnaryOperator<Snapshot> change) {
+        while (true) {
+            Snapshot current = state.get();
+            Snapshot next = change.apply(current);
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
     }
 
     public void registerCustomer(Customer c) {
-        if (c != null) customers.add(c);
+        if (c != null) update(s -> s.withCustomers(s.customers.plus(c)));
     }
 
     public CustomerRegistrationRequest submitCustomerRegistration(CustomerRegistrationRequest req) {
-        String id = "CREQ" + (1000 + customerRequests.size());
-        CustomerRegistrationRequest r = new CustomerRegistrationRequest(id, req.getKind(), req.getFirstName(), req.getLastName(), req.getNationalId(), req.getCompanyName(), req.getRegistrationNumber(), req.getBusinessDetails(), req.getIndustry(), req.getEmployeesRange(), req.getRevenueRange(), req.getYearsInOperation(), req.getDirectors(), req.getSignatories());
-        customerRequests.add(r);
-        return r;
+        CustomerRegistrationRequest[] created = new CustomerRegistrationRequest[1];
+        update(s -> {
+            // the ID depends on the list size, so it is derived inside the CAS retry loop
+            String id = "CREQ" + (1000 + s.customerRequests.size());
+            created[0] = new CustomerRegistrationRequest(id, req.getKind(), req.getFirstName(), req.getLastName(), req.getNationalId(), req.getCompanyName(), req.getRegistrationNumber(), req.getBusinessDetails(), req.getIndustry(), req.getEmployeesRange(), req.getRevenueRange(), req.getYearsInOperation(), req.getDirectors(), req.getSignatories());
+            return s.withCustomerRequests(s.customerRequests.plus(created[0]));
+        });
+        return created[0];
     }
 
-    public java.util.List<CustomerRegistrationRequest> getCustomerRequests() { return java.util.Collections.unmodifiableList(customerRequests); }
+    public java.util.List<CustomerRegistrationRequest> getCustomerRequests() { return state.get().customerRequests; }
 
     public boolean approveCustomerRegistration(String requestId, String staffUser, String username, String password, String staffNotes) {
-        CustomerRegistrationRequest req = customerRequests.stream().filter(r -> r.getId().equals(requestId)).findFirst().orElse(null);
+        CustomerRegistrationRequest req = getCustomerRequests().stream().filter(r -> r.getId().equals(requestId)).findFirst().orElse(null);
         if (req == null) return false;
         if (req.getKind().equalsIgnoreCase("individual")) {
             // require staff to set credentials
@@ -54,7 +108,7 @@ public class Bank {
                 req.setApprovedAt(java.time.LocalDateTime.now());
                 return false;
             }
-            String id = "CUST" + (1000 + customers.size());
+            String id = IDGenerator.generateCustomerID();
             IndividualCustomer ic = new IndividualCustomer(id, req.getFirstName(), req.getLastName(), req.getNationalId());
             ic.setUsername(username);
             ic.setPassword(password);
@@ -88,7 +142,7 @@ public class Bank {
                 req.setApprovedAt(java.time.LocalDateTime.now());
                 return false;
             }
-            String id = "CUST" + (1000 + customers.size());
+            String id = IDGenerator.generateCustomerID();
             CompanyCustomer cc = new CompanyCustomer(id, req.getCompanyName(), req.getRegistrationNumber());
             // Use reflection to set username and pin for company customer
             try {
@@ -122,11 +176,11 @@ public class Bank {
 
     public boolean usernameExists(String username) {
         if (username == null) return false;
-        return customers.stream().filter(c -> c instanceof IndividualCustomer).map(c -> (IndividualCustomer) c).anyMatch(ic -> username.equals(ic.getUsername()));
+        return getCustomers().stream().filter(c -> c instanceof IndividualCustomer).map(c -> (IndividualCustomer) c).anyMatch(ic -> username.equals(ic.getUsername()));
     }
 
     public boolean rejectCustomerRegistration(String requestId, String staffUser, String reason) {
-        CustomerRegistrationRequest req = customerRequests.stream().filter(r -> r.getId().equals(requestId)).findFirst().orElse(null);
+        CustomerRegistrationRequest req = getCustomerRequests().stream().filter(r -> r.getId().equals(requestId)).findFirst().orElse(null);
         if (req == null) return false;
         req.setStatus(CustomerRegistrationRequest.Status.REJECTED);
         req.setApprover(staffUser);
@@ -168,80 +222,168 @@ public class Bank {
             }
         }
         if (a != null) {
-            accounts.add(a);
+            Account opened = a;
+            update(s -> s.withAccounts(s.accounts.plus(opened)));
             customer.addAccount(a);
         }
         return a;
     }
 
     public boolean rejectAccountRequest(String requestId, String staffUser, String reason) {
-        AccountRequest req = requests.stream().filter(r -> r.getId().equals(requestId)).findFirst().orElse(null);
+        AccountRequest req = getRequests().stream().filter(r -> r.getId().equals(requestId)).findFirst().orElse(null);
         if (req == null) return false;
         req.setStatus(AccountRequest.Status.REJECTED);
         // optionally record staffUser and reason somewhere; for now we print
         System.err.println("Account request " + requestId + " rejected by " + staffUser + ": " + reason);
+        LedgerEventBus.getInstance().publish(LedgerEventBus.Kind.ACCOUNT_REJECTED, null, null, req.getCustomerId(), 0, 0);
         return true;
     }
 
     // Request-based opening: customer requests an account which staff approves later.
     public AccountRequest requestAccountOpen(Customer customer, String type, double initialDeposit, EmploymentInfo employmentInfo) {
-        String id = "REQ" + (1000 + requests.size());
-        AccountRequest req = new AccountRequest(id, customer.getCustomerID(), type, initialDeposit, employmentInfo);
-        requests.add(req);
-        return req;
+        AccountRequest[] created = new AccountRequest[1];
+        update(s -> {
+            String id = "REQ" + (1000 + s.requests.size());
+            created[0] = new AccountRequest(id, customer.getCustomerID(), type, initialDeposit, employmentInfo);
+            return s.withRequests(s.requests.plus(created[0]));
+        });
+        if ("cheque".equalsIgnoreCase(type)) {
+            // Start the employer check now, so the approval later finds it done and cached
+            EmploymentVerificationService.getInstance().verifyAsync(employmentInfo);
+        }
+        return created[0];
     }
 
-    public java.util.List<AccountRequest> getRequests() { return java.util.Collections.unmodifiableList(requests); }
+    public java.util.List<AccountRequest> getRequests() { return state.get().requests; }
 
     public boolean approveRequest(String requestId, String staffUser) {
-        AccountRequest req = requests.stream().filter(r -> r.getId().equals(requestId)).findFirst().orElse(null);
-        if (req == null) return false;
+        return approveRequestAsync(requestId, staffUser).join();
+    }
+
+    /**
+     * Approve an account request without blocking on its employment check.
+     * Cheque requests are checked by EmploymentVerificationService on its own threads; an employer
+     * seen before (usually at request time) is answered from its cache, so only the first approval
+     * for an employer waits on the verifier.
+     * @return Completes with true if the account was opened; false if the request was rejected, or
+     *         left pending because the employer could not be checked in time
+     */
+    public CompletableFuture<Boolean> approveRequestAsync(String requestId, String staffUser) {
+        AccountRequest req = getRequests().stream().filter(r -> r.getId().equals(requestId)).findFirst().orElse(null);
+        if (req == null) return CompletableFuture.completedFuture(false);
         // find customer
-        Customer c = customers.stream().filter(x -> x.getCustomerID().equals(req.getCustomerId())).findFirst().orElse(null);
-        if (c == null) return false;
+        Customer c = getCustomers().stream().filter(x -> x.getCustomerID().equals(req.getCustomerId())).findFirst().orElse(null);
+        if (c == null) return CompletableFuture.completedFuture(false);
+        if (!"cheque".equalsIgnoreCase(req.getType())) return CompletableFuture.completedFuture(completeApproval(req, c));
         // perform employment verification if cheque
-        if ("cheque".equalsIgnoreCase(req.getType())) {
-            if (req.getEmploymentInfo() == null || !EmploymentVerificationService.verify(req.getEmploymentInfo())) {
-                req.setStatus(AccountRequest.Status.REJECTED);
-                return false;
+        return EmploymentVerificationService.getInstance().verifyAsync(req.getEmploymentInfo()).thenApply(outcome -> {
+            switch (outcome) {
+                case VERIFIED:
+                    return completeApproval(req, c);
+                case REJECTED:
+                    req.setStatus(AccountRequest.Status.REJECTED);
+                    LedgerEventBus.getInstance().publish(LedgerEventBus.Kind.ACCOUNT_REJECTED, null, null, c.getCustomerID(), 0, 0);
+                    return false;
+                default:
+                    // Not a verdict on the employer: the request stays pending for another try
+                    System.err.println("Employment check unavailable for request " + requestId + ", left pending");
+                    return false;
             }
-        }
+        });
+    }
+
+    private boolean completeApproval(AccountRequest req, Customer c) {
         Account a = openAccount(c, req.getType(), req.getInitialDeposit());
         if (a != null) {
             req.setStatus(AccountRequest.Status.APPROVED);
+            LedgerEventBus.getInstance().publish(LedgerEventBus.Kind.ACCOUNT_APPROVED, a.getAccountNumber(), null,
+                    c.getCustomerID(), 0, a.getBalance());
             return true;
         }
         req.setStatus(AccountRequest.Status.REJECTED);
+        LedgerEventBus.getInstance().publish(LedgerEventBus.Kind.ACCOUNT_REJECTED, null, null, c.getCustomerID(), 0, 0);
         return false;
     }
 
     public boolean authenticateStaff(String username, String password) {
-        return staff.stream().anyMatch(s -> s.authenticate(username, password));
+        return state.get().staff.stream().anyMatch(s -> s.authenticate(username, password));
     }
 
     public void applyInterest() {
-        for (Account a : accounts) {
+        for (Account a : getAccounts()) {
             if (a instanceof PayInterest) {
                 PayInterest pi = (PayInterest) a;
                 double interest = pi.calculateInterest();
                 if (interest > 0) {
                     // record interest properly via Account helper
                     a.recordInterest(interest);
+                    LedgerEventBus.getInstance().publish(LedgerEventBus.Kind.INTEREST, a.getAccountNumber(), null,
+                            a.getOwner() != null ? a.getOwner().getCustomerID() : null, interest, a.getBalance());
                 }
             }
         }
     }
 
     public Account findAccount(String accountNumber) {
-        Optional<Account> o = accounts.stream().filter(ac -> ac.getAccountNumber().equals(accountNumber)).findFirst();
+        Optional<Account> o = getAccounts().stream().filter(ac -> accountNumber != null && accountNumber.equals(ac.getAccountNumber())).findFirst();
         return o.orElse(null);
     }
 
+    /**
+     * Point-in-time snapshot of the customers; safe to iterate while others register customers
+     */
     public List<Customer> getCustomers() {
-        return customers;
+        return state.get().customers;
     }
 
+    /**
+     * Point-in-time snapshot of the accounts; safe to iterate while others open accounts
+     */
     public List<Account> getAccounts() {
-        return accounts;
+        return state.get().accounts;
+    }
+
+    /**
+     * Immutable version of the bank's collections
+     */
+    public static final class Snapshot {
+        private final PersistentVector<Customer> customers;
+        private final PersistentVector<Account> accounts;
+        private final PersistentVector<AccountRequest> requests;
+        private final PersistentVector<CustomerRegistrationRequest> customerRequests;
+        private final PersistentVector<Staff> staff;
+
+        private Snapshot(PersistentVector<Customer> customers, PersistentVector<Account> accounts,
+                         PersistentVector<AccountRequest> requests,
+                         PersistentVector<CustomerRegistrationRequest> customerRequests,
+                         PersistentVector<Staff> staff) {
+            this.customers = customers;
+            this.accounts = accounts;
+            this.requests = requests;
+            this.customerRequests = customerRequests;
+            this.staff = staff;
+        }
+
+        private Snapshot withCustomers(PersistentVector<Customer> customers) {
+            return new Snapshot(customers, accounts, requests, customerRequests, staff);
+        }
+
+        private Snapshot withAccounts(PersistentVector<Account> accounts) {
+            return new Snapshot(customers, accounts, requests, customerRequests, staff);
+        }
+
+        private Snapshot withRequests(PersistentVector<AccountRequest> requests) {
+            return new Snapshot(customers, accounts, requests, customerRequests, staff);
+        }
+
+        private Snapshot withCustomerRequests(PersistentVector<CustomerRegistrationRequest> customerRequests) {
+            return new Snapshot(customers, accounts, requests, customerRequests, staff);
+        }
+
+        public List<Customer> getCustomers() { return customers; }
+        public List<Account> getAccounts() { return accounts; }
+        public List<AccountRequest> getRequests() { return requests; }
+        public List<CustomerRegistrationRequest> getCustomerRequests() { return customerRequests; }
+        public List<Staff> getStaff() { return staff; }
     }
 }
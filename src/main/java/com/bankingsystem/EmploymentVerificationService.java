@@ -1,6 +1,85 @@
 package com.bankingsystem;
 
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Employment checks for cheque account requests.
+ * The static verify is the local check that the employment details are complete. verifyAsync
+ * adds the employer check behind a pluggable EmploymentVerifier, without blocking the caller:
+ *  - checks run on a fixed pool of daemon threads, so at most maxConcurrent are in flight
+ *  - each check has a timeout; a check that times out or fails is UNAVAILABLE, not a rejection
+ *  - concurrent checks of the same employer share one call
+ *  - outcomes are cached per employer, verified ones for VERIFIED_TTL_MILLIS and unknown ones
+ *    for the shorter REJECTED_TTL_MILLIS
+ */
 public class EmploymentVerificationService {
+    public enum Outcome { VERIFIED, REJECTED, UNAVAILABLE }
+
+    public static final int DEFAULT_MAX_CONCURRENT = 8;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5_000;
+    public static final long VERIFIED_TTL_MILLIS = 24 * 60 * 60_000L;
+    public static final long REJECTED_TTL_MILLIS = 5 * 60_000L;
+    // Expired entries are swept when the cache grows past this
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    private static final EmploymentVerificationService INSTANCE = new EmploymentVerificationService();
+
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private volatile Pipeline pipeline;
+
+    /**
+     * The verifier with the pool and timeout it runs under; replaced as a whole by configure
+     */
+    private static final class Pipeline {
+        final EmploymentVerifier verifier;
+        final ExecutorService executor;
+        final long timeoutMillis;
+
+        Pipeline(EmploymentVerifier verifier, int maxConcurrent, long timeoutMillis) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.verifier = verifier;
+            this.executor = Executors.newFixedThreadPool(maxConcurrent, r -> {
+                Thread t = new Thread(r, "EmploymentVerifier-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+    private static final class Cached {
+        final Outcome outcome;
+        final long expiresAt;
+
+        Cached(Outcome outcome, long expiresAt) {
+            this.outcome = outcome;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static EmploymentVerificationService getInstance() {
+        return INSTANCE;
+    }
+
+    private EmploymentVerificationService() {
+        // Until a real verifier is configured, employers are only checked for complete details
+        this.pipeline = new Pipeline(EmploymentVerificationService::verify, DEFAULT_MAX_CONCURRENT, DEFAULT_TIMEOUT_MILLIS);
+    }
+
     /**
      * Simple stub verification: verifies if employer name and address are present.
      * In real system this would call external APIs or HR checks.
@@ -11,4 +90,119 @@ public class EmploymentVerificationService {
         if (info.getEmployerAddress() == null || info.getEmployerAddress().isBlank()) return false;
         return true;
     }
+
+    /**
+     * Use another verifier. Clears the cache; checks already running finish on the old one.
+     * @param maxConcurrent Most checks in flight at once
+     * @param timeoutMillis How long a check may take before it counts as unavailable
+     */
+    public synchronized void configure(EmploymentVerifier verifier, int maxConcurrent, long timeoutMillis) {
+        Pipeline old = pipeline;
+        pipeline = new Pipeline(verifier, maxConcurrent, timeoutMillis);
+        old.executor.shutdown();
+        cache.clear();
+    }
+
+    /**
+     * Check an employer without blocking the caller
+     * @return Completes with VERIFIED or REJECTED, or UNAVAILABLE if the check failed or timed
+     *         out (nothing is cached then, so the next call tries again); never completes exceptionally
+     */
+    public CompletableFuture<Outcome> verifyAsync(EmploymentInfo info) {
+        if (!verify(info)) return CompletableFuture.completedFuture(Outcome.REJECTED);
+        String key = employerKey(info);
+        Outcome cached = cachedOutcome(key);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<Outcome> call = new CompletableFuture<>();
+        CompletableFuture<Outcome> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return running;
+        }
+        // A call for this employer may have finished between the cache check and claiming the slot
+        cached = cachedOutcome(key);
+        if (cached != null) {
+            inFlight.remove(key, call);
+            cacheHits.incrementAndGet();
+            call.complete(cached);
+            return call;
+        }
+        start(key, info, call);
+        return call;
+    }
+
+    private void start(String key, EmploymentInfo info, CompletableFuture<Outcome> call) {
+        Pipeline current = pipeline;
+        calls.incrementAndGet();
+        // The verifier's answer; only the timeout completes it exceptionally
+        CompletableFuture<Outcome> answer = new CompletableFuture<>();
+        Future<?> task = current.executor.submit(() -> {
+            try {
+                answer.complete(current.verifier.verify(info) ? Outcome.VERIFIED : Outcome.REJECTED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                answer.complete(Outcome.UNAVAILABLE);
+            } catch (Exception e) {
+                System.err.println("Error verifying employer " + info.getEmployerName() + ": " + e.getMessage());
+                answer.complete(Outcome.UNAVAILABLE);
+            }
+        });
+        answer.orTimeout(current.timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((outcome, error) -> {
+            if (error != null) {
+                // Stop waiting on the verifier and free its thread
+                timeouts.incrementAndGet();
+                task.cancel(true);
+                outcome = Outcome.UNAVAILABLE;
+            } else if (outcome != Outcome.UNAVAILABLE) {
+                long ttl = outcome == Outcome.VERIFIED ? VERIFIED_TTL_MILLIS : REJECTED_TTL_MILLIS;
+                cache.put(key, new Cached(outcome, System.currentTimeMillis() + ttl));
+                if (cache.size() > SWEEP_THRESHOLD) {
+                    long now = System.currentTimeMillis();
+                    cache.values().removeIf(entry -> entry.expiresAt < now);
+                }
+            }
+            // Cached before leaving the in-flight map, so a newcomer finds one or the other
+            inFlight.remove(key, call);
+            call.complete(outcome);
+        });
+    }
+
+    private Outcome cachedOutcome(String key) {
+        Cached cached = cache.get(key);
+        return cached != null && cached.expiresAt > System.currentTimeMillis() ? cached.outcome : null;
+    }
+
+    private static String employerKey(EmploymentInfo info) {
+        return info.getEmployerName().trim().toLowerCase(Locale.ROOT) + "|"
+                + info.getEmployerAddress().trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks handed to the verifier so far
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    /**
+     * Checks answered from the cache
+     */
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Checks that joined a call already in flight for the same employer
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
 }
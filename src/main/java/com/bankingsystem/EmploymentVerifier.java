@@ -0,0 +1,17 @@
+package com.bankingsystem;
+
+/**
+ * A source of truth for employment checks, e.g. an employer registry or an HR system.
+ * Implementations may block for as long as the remote check takes; EmploymentVerificationService
+ * calls them off the approving thread, with a bounded number of calls in flight and a timeout.
+ */
+@FunctionalInterface
+public interface EmploymentVerifier {
+
+    /**
+     * Check that the employer exists at the given address
+     * @return true if verified, false if the employer is unknown
+     * @throws Exception if the check could not be made; the result is then treated as unavailable
+     */
+    boolean verify(EmploymentInfo info) throws Exception;
+}
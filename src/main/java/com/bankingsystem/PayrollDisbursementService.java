@@ -0,0 +1,566 @@
+package com.bankingsystem;
+
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.BulkDisbursementDAO;
+import com.bankingsystem.persistence.BulkDisbursementDAO.LineStatus;
+import com.bankingsystem.persistence.RecentActivityCache;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+import com.bankingsystem.persistence.TransactionManager;
+import com.bankingsystem.persistence.UnitOfWork;
+import com.bankingsystem.utils.IDGenerator;
+import com.bankingsystem.utils.LedgerEventBus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service for bulk payroll disbursement from a company account.
+ * One debit covers the whole file; recipients are validated with one set-based query and
+ * credited in batched statements, one transaction per chunk of lines. Credits that fail after
+ * the debit (e.g. a recipient closed mid-run) are refunded to the company account at the end,
+ * so the money moved always equals the sum of the CREDITED lines.
+ *
+ * Every staged line's status in disbursement_lines commits together with the debit, credit or
+ * refund that settles it, so a run interrupted by a crash is finished by recoverInterrupted.
+ *
+ * CSV format, one instruction per line: account_number,amount[,reference]
+ * A header line, blank lines and lines starting with '#' are skipped.
+ */
+public class PayrollDisbursementService {
+    public static final int DEFAULT_CHUNK_SIZE = 5_000;
+
+    public enum Outcome { CREDITED, REJECTED, FAILED }
+
+    // Batches being disbursed or recovered by this process; recovery leaves them alone
+    private static final Set<String> RUNNING = ConcurrentHashMap.newKeySet();
+
+    private final Bank bank;
+    private final AccountDAOImpl accountDAO;
+    private final TransactionDAOImpl transactionDAO;
+    private final BulkDisbursementDAO disbursementDAO;
+    private final int chunkSize;
+
+    public PayrollDisbursementService(Bank bank) {
+        this(bank, DEFAULT_CHUNK_SIZE);
+    }
+
+    public PayrollDisbursementService(Bank bank, int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException("Chunk size must be positive");
+        this.bank = bank;
+        this.accountDAO = new AccountDAOImpl();
+        this.transactionDAO = new TransactionDAOImpl();
+        this.disbursementDAO = new BulkDisbursementDAO();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parse disbursement instructions from CSV.
+     * Lines that cannot be parsed are returned already REJECTED so they appear in the report.
+     */
+    public static List<Line> parseCsv(Reader reader) throws IOException {
+        List<Line> lines = new ArrayList<>();
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String raw;
+        int lineNumber = 0;
+        boolean first = true;
+        while ((raw = in.readLine()) != null) {
+            lineNumber++;
+            String text = raw.trim();
+            if (text.isEmpty() || text.startsWith("#")) continue;
+
+            String[] fields = text.split(",", 3);
+            if (first) {
+                first = false;
+                if (fields.length > 1 && fields[1].trim().equalsIgnoreCase("amount")) continue; // header
+            }
+
+            String accountNumber = fields[0].trim();
+            String reference = fields.length > 2 ? fields[2].trim() : null;
+            if (fields.length < 2 || accountNumber.isEmpty()) {
+                lines.add(Line.rejected(lineNumber, accountNumber, 0, reference, "Expected account_number,amount"));
+                continue;
+            }
+            try {
+                BigDecimal amount = new BigDecimal(fields[1].trim());
+                if (amount.signum() <= 0) {
+                    lines.add(Line.rejected(lineNumber, accountNumber, amount.doubleValue(), reference, "Amount must be positive"));
+                } else if (amount.stripTrailingZeros().scale() > 2) {
+                    lines.add(Line.rejected(lineNumber, accountNumber, amount.doubleValue(), reference, "Amount has more than two decimals"));
+                } else {
+                    lines.add(new Line(lineNumber, accountNumber, amount.movePointRight(2).longValueExact(), reference));
+                }
+            } catch (NumberFormatException | ArithmeticException e) {
+                lines.add(Line.rejected(lineNumber, accountNumber, 0, reference, "Invalid amount: " + fields[1].trim()));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Disburse the lines from a company account.
+     * @param sourceAccountNumber Approved, withdrawable account of a CompanyCustomer
+     * @param lines Parsed instructions; each line's outcome is filled in
+     * @return Per-line report plus totals
+     * @throws IllegalArgumentException if the source account cannot pay out
+     */
+    public Report disburse(String sourceAccountNumber, List<Line> lines) {
+        long started = System.nanoTime();
+        Account source = sourceAccountNumber != null ? bank.findAccount(sourceAccountNumber) : null;
+        if (source == null) {
+            throw new IllegalArgumentException("Source account not found");
+        }
+        if (!(source.getOwner() instanceof CompanyCustomer)) {
+            throw new IllegalArgumentException("Bulk disbursement is only available to company customers");
+        }
+        if (!(source instanceof Withdrawable) || source.getStatus() != AccountStatus.APPROVED) {
+            throw new IllegalArgumentException("Source account cannot make payments");
+        }
+
+        String batchId = "PAY-" + IDGenerator.generateTransactionID();
+        RUNNING.add(batchId);
+        try {
+            return run(batchId, source, lines, started);
+        } finally {
+            RUNNING.remove(batchId);
+        }
+    }
+
+    private Report run(String batchId, Account source, List<Line> lines, long started) {
+        String sourceAccountNumber = source.getAccountNumber();
+        Report report = new Report(batchId, sourceAccountNumber, lines);
+
+        List<Line> candidates = new ArrayList<>();
+        for (Line line : lines) {
+            if (line.outcome != null) continue;
+            if (line.accountNumber.equals(sourceAccountNumber)) {
+                line.reject("Recipient is the source account");
+            } else {
+                candidates.add(line);
+            }
+        }
+
+        // 1. Stage and validate every recipient with one join
+        List<Line> rejected = new ArrayList<>();
+        try {
+            Map<Integer, String> statuses = disbursementDAO.stageAndValidate(batchId, sourceAccountNumber, candidates);
+            report.transactions++;
+            List<Line> valid = new ArrayList<>(candidates.size());
+            for (Line line : candidates) {
+                String status = statuses.get(line.lineNumber);
+                if (status == null) {
+                    line.reject("Recipient account not found");
+                    rejected.add(line);
+                } else if (!AccountStatus.APPROVED.name().equals(status)) {
+                    line.reject("Recipient account is " + status);
+                    rejected.add(line);
+                } else {
+                    valid.add(line);
+                }
+            }
+            candidates = valid;
+        } catch (SQLException e) {
+            System.err.println("Error validating disbursement recipients: " + e.getMessage());
+            for (Line line : candidates) line.fail("Validation failed: " + e.getMessage());
+            return report.finish(started);
+        }
+        if (candidates.isEmpty()) {
+            settle(batchId, rejected, LineStatus.REJECTED);
+            return report.finish(started);
+        }
+
+        // 2. One conditional debit for the whole file; the lines it covers become PENDING with it
+        long totalCents = 0;
+        for (Line line : candidates) totalCents += line.amountCents;
+        double total = totalCents / 100.0;
+        Transaction debit = post(sourceAccountNumber, total, true,
+                "Payroll disbursement " + batchId + " (" + candidates.size() + " payments)", connection -> {
+                    disbursementDAO.markLines(batchId, rejected, LineStatus.REJECTED);
+                    disbursementDAO.markStaged(batchId, LineStatus.PENDING);
+                    return null;
+                });
+        report.transactions++;
+        if (debit == null) {
+            for (Line line : candidates) {
+                line.reject("Insufficient funds in source account");
+                rejected.add(line);
+            }
+            settle(batchId, rejected, LineStatus.REJECTED);
+            return report.finish(started);
+        }
+        source.applyPosted(debit, -total);
+        publish(source, -total, debit);
+        report.debitedCents = totalCents;
+
+        // 3. Credits in bounded chunks
+        creditAll(batchId, sourceAccountNumber, candidates, report);
+
+        // 4. Refund anything debited but not credited
+        if (candidates.stream().anyMatch(line -> line.outcome != Outcome.CREDITED)) {
+            refund(batchId, sourceAccountNumber, source, report);
+        }
+
+        mirrorCredits(candidates);
+        return report.finish(started);
+    }
+
+    /**
+     * Finish disbursements left unsettled by a crash or restart, driven by the line statuses alone:
+     * lines staged but never debited are rejected, debited lines still PENDING are credited, and
+     * FAILED lines are refunded to the source account. Batches running in this process are skipped,
+     * so call it at startup before any other process starts disbursing.
+     * @return One report per batch that was resumed
+     */
+    public List<Report> recoverInterrupted() {
+        List<Report> reports = new ArrayList<>();
+        Map<String, String> batches;
+        try {
+            batches = disbursementDAO.unfinishedBatches();
+        } catch (SQLException e) {
+            System.err.println("Error finding interrupted disbursements: " + e.getMessage());
+            e.printStackTrace();
+            return reports;
+        }
+        for (Map.Entry<String, String> batch : batches.entrySet()) {
+            if (!RUNNING.add(batch.getKey())) continue;
+            try {
+                reports.add(resume(batch.getKey(), batch.getValue()));
+            } finally {
+                RUNNING.remove(batch.getKey());
+            }
+        }
+        return reports;
+    }
+
+    private Report resume(String batchId, String sourceAccountNumber) {
+        long started = System.nanoTime();
+        List<Line> lines = new ArrayList<>();
+        Report report = new Report(batchId, sourceAccountNumber, lines);
+        List<Line> pending;
+        try {
+            // Nothing moved for lines the debit never covered
+            List<Line> staged = disbursementDAO.linesInStatus(batchId, LineStatus.STAGED);
+            for (Line line : staged) line.reject("Disbursement interrupted before the debit");
+            disbursementDAO.markLines(batchId, staged, LineStatus.REJECTED);
+            report.transactions++;
+
+            pending = disbursementDAO.linesInStatus(batchId, LineStatus.PENDING);
+            List<Line> failed = disbursementDAO.linesInStatus(batchId, LineStatus.FAILED);
+            for (Line line : failed) line.fail("Not credited before the interruption");
+            lines.addAll(staged);
+            lines.addAll(pending);
+            lines.addAll(failed);
+            for (Line line : pending) report.debitedCents += line.amountCents;
+            for (Line line : failed) report.debitedCents += line.amountCents;
+        } catch (SQLException e) {
+            System.err.println("Error loading interrupted disbursement " + batchId + ": " + e.getMessage());
+            return report.finish(started);
+        }
+
+        creditAll(batchId, sourceAccountNumber, pending, report);
+        refund(batchId, sourceAccountNumber, bank.findAccount(sourceAccountNumber), report);
+        mirrorCredits(pending);
+        lines.sort(Comparator.comparingInt((Line l) -> l.lineNumber));
+        return report.finish(started);
+    }
+
+    /**
+     * Credit debited lines in bounded chunks, in account-number order to match the lock order of transfers
+     */
+    private void creditAll(String batchId, String sourceAccountNumber, List<Line> lines, Report report) {
+        List<Line> ordered = new ArrayList<>(lines);
+        ordered.sort(Comparator.comparing((Line l) -> l.accountNumber).thenComparingInt(l -> l.lineNumber));
+        for (int from = 0; from < ordered.size(); from += chunkSize) {
+            List<Line> chunk = ordered.subList(from, Math.min(from + chunkSize, ordered.size()));
+            creditChunk(batchId, sourceAccountNumber, chunk);
+            report.transactions++;
+        }
+    }
+
+    /**
+     * Credit one chunk, write its ledger rows and record the line statuses in a single unit of work.
+     * If the unit fails, every line of the chunk is marked FAILED (and later refunded); if even that
+     * cannot be recorded the lines stay PENDING and are credited again by recoverInterrupted.
+     */
+    private void creditChunk(String batchId, String sourceAccountNumber, List<Line> chunk) {
+        List<Line> credited = new ArrayList<>(chunk.size());
+        List<Line> failed = new ArrayList<>();
+        try {
+            UnitOfWork.execute(connection -> {
+                credited.clear();
+                failed.clear();
+                int[] counts = disbursementDAO.creditBatch(chunk);
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (counts[i] == 0) {
+                        chunk.get(i).fail("Recipient account is no longer approved");
+                        failed.add(chunk.get(i));
+                    } else {
+                        credited.add(chunk.get(i));
+                    }
+                }
+                disbursementDAO.markLines(batchId, failed, LineStatus.FAILED);
+                if (credited.isEmpty()) return null;
+
+                // Walk each account's lines backwards from its post-chunk balance to get running balances
+                Map<String, Double> balances = disbursementDAO.balancesInRange(
+                        chunk.get(0).accountNumber, chunk.get(chunk.size() - 1).accountNumber);
+                List<String> accountNumbers = new ArrayList<>(credited.size());
+                List<Transaction> ledger = new ArrayList<>(credited.size());
+                Transaction[] posted = new Transaction[credited.size()];
+                Map<String, Double> running = new HashMap<>(balances);
+                for (int i = credited.size() - 1; i >= 0; i--) {
+                    Line line = credited.get(i);
+                    double balanceAfter = running.getOrDefault(line.accountNumber, 0.0);
+                    running.put(line.accountNumber, balanceAfter - line.getAmount());
+                    posted[i] = new Transaction(Transaction.Type.TRANSFER, Transaction.Direction.CREDIT, line.getAmount(), balanceAfter,
+                            "Payroll from " + sourceAccountNumber + (line.reference != null ? " (" + line.reference + ")" : ""));
+                }
+                for (int i = 0; i < credited.size(); i++) {
+                    accountNumbers.add(credited.get(i).accountNumber);
+                    ledger.add(posted[i]);
+                    credited.get(i).posted = posted[i];
+                }
+                transactionDAO.saveTransactionBatch(accountNumbers, ledger);
+                disbursementDAO.markLines(batchId, credited, LineStatus.CREDITED);
+                return null;
+            });
+            for (Line line : credited) line.outcome = Outcome.CREDITED;
+        } catch (SQLException e) {
+            System.err.println("Error crediting disbursement chunk: " + e.getMessage());
+            for (Line line : chunk) {
+                line.posted = null;
+                line.fail("Chunk rolled back: " + e.getMessage());
+            }
+            settle(batchId, chunk, LineStatus.FAILED);
+        }
+    }
+
+    /**
+     * Refund every FAILED line of the batch to the source account. The credit, its ledger row and
+     * the lines turning REFUNDED commit together, so a refund is never lost or paid twice.
+     * @param source In-memory source account to mirror the refund into, or null
+     */
+    private void refund(String batchId, String sourceAccountNumber, Account source, Report report) {
+        long[] refundCents = new long[1];
+        Transaction credit;
+        try {
+            credit = UnitOfWork.execute(connection -> {
+                refundCents[0] = disbursementDAO.refundFailed(batchId);
+                if (refundCents[0] == 0) {
+                    return null;
+                }
+                double refund = refundCents[0] / 100.0;
+                OptionalDouble balance = accountDAO.creditBalance(sourceAccountNumber, refund);
+                if (balance.isEmpty()) {
+                    UnitOfWork.setRollbackOnly();
+                    return null;
+                }
+                Transaction transaction = new Transaction(Transaction.Type.TRANSFER, Transaction.Direction.CREDIT, refund,
+                        balance.getAsDouble(),
+                        "Payroll refund " + batchId);
+                if (!transactionDAO.recordTransaction(sourceAccountNumber, transaction)) {
+                    UnitOfWork.setRollbackOnly();
+                    return null;
+                }
+                return transaction;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error refunding disbursement " + batchId + ": " + e.getMessage());
+            credit = null;
+        }
+        report.transactions++;
+        if (credit != null) {
+            double refund = refundCents[0] / 100.0;
+            if (source != null) {
+                source.applyPosted(credit, refund);
+                publish(source, refund, credit);
+            }
+            report.refundedCents += refundCents[0];
+        } else if (refundCents[0] > 0) {
+            System.err.println("Error refunding disbursement " + batchId + ": BWP " + refundCents[0] / 100.0
+                    + " stays owed to " + sourceAccountNumber + " until recovery succeeds");
+        }
+    }
+
+    /**
+     * Record line statuses in their own unit of work, after the step that decided them failed.
+     * Best effort: lines left STAGED or PENDING are settled by recoverInterrupted.
+     */
+    private void settle(String batchId, List<Line> lines, LineStatus status) {
+        try {
+            disbursementDAO.markLines(batchId, lines, status);
+        } catch (SQLException e) {
+            System.err.println("Error recording disbursement line status: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Conditional balance change plus its ledger row in one unit of work
+     * @param alongside Further writes that must commit with the posting
+     */
+    private Transaction post(String accountNumber, double amount, boolean debit, String description,
+                             TransactionManager.SQLFunction<Connection, Void> alongside) {
+        try {
+            return UnitOfWork.execute(connection -> {
+                OptionalDouble balance = debit
+                        ? accountDAO.debitBalance(accountNumber, amount)
+                        : accountDAO.creditBalance(accountNumber, amount);
+                if (balance.isEmpty()) {
+                    return null;
+                }
+                Transaction transaction = new Transaction(Transaction.Type.TRANSFER,
+                        debit ? Transaction.Direction.DEBIT : Transaction.Direction.CREDIT, amount, balance.getAsDouble(), description);
+                if (!transactionDAO.recordTransaction(accountNumber, transaction)) {
+                    UnitOfWork.setRollbackOnly();
+                    return null;
+                }
+                alongside.apply(connection);
+                return transaction;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error posting disbursement: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Mirror committed credits into the in-memory accounts
+     */
+    private void mirrorCredits(List<Line> lines) {
+        Map<String, Account> accounts = new HashMap<>();
+        for (Account account : bank.getAccounts()) {
+            if (account.getAccountNumber() != null) accounts.put(account.getAccountNumber(), account);
+        }
+        for (Line line : lines) {
+            if (line.outcome != Outcome.CREDITED) continue;
+            Account account = accounts.get(line.accountNumber);
+            if (account != null) {
+                account.applyPosted(line.posted, line.getAmount());
+                publish(account, line.getAmount(), line.posted);
+            }
+        }
+    }
+
+    /**
+     * Announce a committed payroll leg on the ledger event bus
+     */
+    private void publish(Account account, double delta, Transaction posted) {
+        String customerId = account.getOwner() != null ? account.getOwner().getCustomerID() : null;
+        RecentActivityCache.getInstance().record(account.getAccountNumber(), posted);
+        LedgerEventBus.getInstance().publish(LedgerEventBus.Kind.TRANSFER, account.getAccountNumber(), null,
+                customerId, delta, posted.getBalanceAfter());
+    }
+
+    /**
+     * One instruction line and its outcome
+     */
+    public static final class Line {
+        private final int lineNumber;
+        private final String accountNumber;
+        private final long amountCents;
+        private final String reference;
+        private Outcome outcome;
+        private String message;
+        private Transaction posted;
+
+        public Line(int lineNumber, String accountNumber, long amountCents, String reference) {
+            this.lineNumber = lineNumber;
+            this.accountNumber = accountNumber;
+            this.amountCents = amountCents;
+            this.reference = reference;
+        }
+
+        static Line rejected(int lineNumber, String accountNumber, double amount, String reference, String message) {
+            Line line = new Line(lineNumber, accountNumber, Math.round(amount * 100), reference);
+            line.reject(message);
+            return line;
+        }
+
+        private void reject(String message) {
+            this.outcome = Outcome.REJECTED;
+            this.message = message;
+        }
+
+        private void fail(String message) {
+            this.outcome = Outcome.FAILED;
+            this.message = message;
+        }
+
+        public int getLineNumber() { return lineNumber; }
+        public String getAccountNumber() { return accountNumber; }
+        public double getAmount() { return amountCents / 100.0; }
+        public String getReference() { return reference; }
+        public Outcome getOutcome() { return outcome; }
+        public String getMessage() { return message; }
+    }
+
+    /**
+     * Outcome of one disbursement run
+     */
+    public static final class Report {
+        private final String batchId;
+        private final String sourceAccountNumber;
+        private final List<Line> lines;
+        private long debitedCents;
+        private long refundedCents;
+        private int transactions;
+        private long elapsedNanos;
+
+        Report(String batchId, String sourceAccountNumber, List<Line> lines) {
+            this.batchId = batchId;
+            this.sourceAccountNumber = sourceAccountNumber;
+            this.lines = lines;
+        }
+
+        Report finish(long startedNanos) {
+            elapsedNanos = System.nanoTime() - startedNanos;
+            return this;
+        }
+
+        public String getBatchId() { return batchId; }
+        public String getSourceAccountNumber() { return sourceAccountNumber; }
+        public List<Line> getLines() { return Collections.unmodifiableList(lines); }
+        public double getTotalDebited() { return debitedCents / 100.0; }
+        public double getTotalRefunded() { return refundedCents / 100.0; }
+        public double getTotalCredited() { return (debitedCents - refundedCents) / 100.0; }
+        /** Number of database transactions the run used */
+        public int getTransactionCount() { return transactions; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public long count(Outcome outcome) {
+            return lines.stream().filter(l -> l.outcome == outcome).count();
+        }
+
+        /**
+         * Write the per-line outcome report as CSV
+         */
+        public void writeCsv(Writer out) throws IOException {
+            out.write("line,account_number,amount,outcome,message\n");
+            for (Line line : lines) {
+                out.write(line.lineNumber + "," + line.accountNumber + "," + String.format("%.2f", line.getAmount())
+                        + "," + line.outcome + "," + (line.message != null ? line.message.replace(',', ';') : "") + "\n");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Disbursement %s from %s: %d credited, %d rejected, %d failed; " +
+                            "debited BWP %.2f, refunded BWP %.2f in %d transactions (%d ms)",
+                    batchId, sourceAccountNumber, count(Outcome.CREDITED), count(Outcome.REJECTED),
+                    count(Outcome.FAILED), getTotalDebited(), getTotalRefunded(), transactions, getElapsedMillis());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.bankingsystem;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a remote employment check, for development and load tests.
+ * Sleeps for a fixed latency per call, then verifies every employer except the ones listed
+ * as unknown.
+ */
+public class SimulatedEmploymentVerifier implements EmploymentVerifier {
+    private final long latencyMillis;
+    private final Set<String> unknownEmployers;
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * @param latencyMillis Time each check takes
+     * @param unknownEmployers Employer names (any case) that fail verification
+     */
+    public SimulatedEmploymentVerifier(long latencyMillis, Set<String> unknownEmployers) {
+        this.latencyMillis = latencyMillis;
+        this.unknownEmployers = unknownEmployers.stream()
+                .map(name -> name.toLowerCase(Locale.ROOT)).collect(java.util.stream.Collectors.toSet());
+    }
+
+    @Override
+    public boolean verify(EmploymentInfo info) throws InterruptedException {
+        calls.incrementAndGet();
+        Thread.sleep(latencyMillis);
+        return !unknownEmployers.contains(info.getEmployerName().trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Number of checks made so far
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+}
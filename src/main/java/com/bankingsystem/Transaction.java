@@ -4,16 +4,36 @@ import java.time.LocalDateTime;
 
 public class Transaction {
     public enum Type { DEPOSIT, WITHDRAW, INTEREST, TRANSFER }
+    /** Whether a row put money into its account or took money out */
+    public enum Direction { CREDIT, DEBIT }
 
     private final LocalDateTime timestamp;
     private final Type type;
+    private final Direction direction;
     private final double amount;
     private final double balanceAfter;
     private final String description;
 
+    /**
+     * Deposits and interest are credits and withdrawals debits; a transfer leg must state its direction.
+     */
     public Transaction(Type type, double amount, double balanceAfter, String description) {
-        this.timestamp = LocalDateTime.now();
+        this(type, directionOf(type), amount, balanceAfter, description);
+    }
+
+    public Transaction(Type type, Direction direction, double amount, double balanceAfter, String description) {
+        this(type, direction, amount, balanceAfter, description, LocalDateTime.now());
+    }
+
+    /**
+     * Rebuild a transaction that was recorded earlier (e.g. loaded from the database).
+     */
+    public Transaction(Type type, Direction direction, double amount, double balanceAfter, String description,
+                       LocalDateTime timestamp) {
+        if (direction == null) throw new IllegalArgumentException("Transaction direction is required");
+        this.timestamp = timestamp;
         this.type = type;
+        this.direction = direction;
         this.amount = amount;
         this.balanceAfter = balanceAfter;
         this.description = description;
@@ -21,10 +41,40 @@ public class Transaction {
 
     public LocalDateTime getTimestamp() { return timestamp; }
     public Type getType() { return type; }
+    public Direction getDirection() { return direction; }
     public double getAmount() { return amount; }
     public double getBalanceAfter() { return balanceAfter; }
     public String getDescription() { return description; }
 
+    /**
+     * Whether this row took money out of its account
+     */
+    public boolean isDebit() {
+        return direction == Direction.DEBIT;
+    }
+
+    private static Direction directionOf(Type type) {
+        switch (type) {
+            case WITHDRAW: return Direction.DEBIT;
+            case DEPOSIT:
+            case INTEREST: return Direction.CREDIT;
+            default: throw new IllegalArgumentException("A " + type + " must state its direction");
+        }
+    }
+
+    /**
+     * Direction of a row recorded before directions were stored, from the descriptions the
+     * application wrote then: the sending leg of a transfer and the debit of a payroll disbursement.
+     * Only for reading such old rows (schema upgrades, version 1 archive segments, old data files);
+     * new rows always carry their direction.
+     */
+    public static Direction legacyDirection(Type type, String description) {
+        if (type == Type.WITHDRAW) return Direction.DEBIT;
+        boolean debit = type == Type.TRANSFER && description != null
+                && (description.startsWith("Transfer to ") || description.startsWith("Payroll disbursement"));
+        return debit ? Direction.DEBIT : Direction.CREDIT;
+    }
+
     @Override
     public String toString() {
         return String.format("%s %s %.2f -> bal: %.2f %s", timestamp.toLocalDate(), type, amount, balanceAfter, description == null ? "" : ("(" + description + ")"));
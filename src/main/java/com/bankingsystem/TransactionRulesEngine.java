@@ -0,0 +1,373 @@
+package com.bankingsystem;
+
+import com.bankingsystem.dao.TransactionDAOInterface;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Velocity and fraud rules evaluated inline before a deposit, withdrawal or transfer is posted.
+ *
+ * Rules:
+ *  - AMOUNT_THRESHOLD: a single deposit, withdrawal or transfer above a fixed amount
+ *  - DEBIT_COUNT: too many debits from one account within the sliding window
+ *  - DEBIT_VALUE: too much money out of one account within the sliding window
+ *  - NEW_COUNTERPARTY: a large transfer to an account the payer has not recently paid
+ *  - RAPID_IN_OUT: most of a large credit moved straight back out (a pass-through account)
+ *
+ * Each account keeps its recent debits, credits and payees in fixed-size primitive ring
+ * buffers, so evaluation is a handful of array scans under the account's own monitor and
+ * allocates nothing once the account has been seen. An account's rings are seeded from its
+ * most recent ledger rows the first time it is touched, so the windows survive a restart.
+ *
+ * An allowed debit is recorded at check time, so concurrent debits on one account see each
+ * other; if the posting then fails, cancelDebit() takes it back out. Credits cannot be
+ * declined by the window rules and are recorded with recordCredit() once they have posted.
+ */
+public class TransactionRulesEngine {
+    // The rings remember this many recent debits, credits and payees per account; debit
+    // count limits above DEBIT_SLOTS never trigger
+    public static final int DEBIT_SLOTS = 64;
+    public static final int CREDIT_SLOTS = 32;
+    public static final int PAYEE_SLOTS = 32;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final String TRANSFER_TO = "Transfer to ";
+
+    private static final TransactionRulesEngine INSTANCE =
+            new TransactionRulesEngine(Limits.DEFAULTS, new TransactionDAOImpl());
+
+    public enum Rule {
+        AMOUNT_THRESHOLD("amount exceeds the single-transaction limit"),
+        DEBIT_COUNT("too many debits from this account in a short period"),
+        DEBIT_VALUE("amount withdrawn from this account in a short period exceeds the limit"),
+        NEW_COUNTERPARTY("large transfer to a new recipient"),
+        RAPID_IN_OUT("funds received are being moved straight back out");
+
+        private final String description;
+
+        Rule(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Rule thresholds (amounts in BWP)
+     */
+    public static final class Limits {
+        public static final Limits DEFAULTS = new Limits(100_000, 20, 60 * 60_000L, 200_000,
+                20_000, 10 * 60_000L, 10_000, 0.9);
+        // Every rule still runs, none ever declines (used by throughput load tests)
+        public static final Limits NONE = new Limits(Double.MAX_VALUE, Integer.MAX_VALUE, 60 * 60_000L,
+                Double.MAX_VALUE, Double.MAX_VALUE, 10 * 60_000L, Double.MAX_VALUE, 1.0);
+
+        final double maxSingleAmount;
+        final int maxDebitsPerWindow;
+        final long debitWindowMillis;
+        final double maxDebitValuePerWindow;
+        final double maxNewCounterpartyAmount;
+        final long rapidWindowMillis;
+        final double rapidMinCredit;
+        final double rapidOutRatio;
+
+        /**
+         * @param maxSingleAmount Largest single deposit, withdrawal or transfer
+         * @param maxDebitsPerWindow Debits allowed per account within debitWindowMillis
+         * @param debitWindowMillis Sliding window for the debit count and value rules
+         * @param maxDebitValuePerWindow Total debits allowed per account within debitWindowMillis
+         * @param maxNewCounterpartyAmount Largest transfer to a recipient not recently paid
+         * @param rapidWindowMillis How soon after a credit moving it out counts as pass-through
+         * @param rapidMinCredit Credits within rapidWindowMillis below this total are ignored
+         * @param rapidOutRatio Fraction of those credits whose debit within the window is declined
+         */
+        public Limits(double maxSingleAmount, int maxDebitsPerWindow, long debitWindowMillis,
+                      double maxDebitValuePerWindow, double maxNewCounterpartyAmount,
+                      long rapidWindowMillis, double rapidMinCredit, double rapidOutRatio) {
+            if (debitWindowMillis <= 0 || rapidWindowMillis <= 0) {
+                throw new IllegalArgumentException("Rule windows must be positive");
+            }
+            this.maxSingleAmount = maxSingleAmount;
+            this.maxDebitsPerWindow = maxDebitsPerWindow;
+            this.debitWindowMillis = debitWindowMillis;
+            this.maxDebitValuePerWindow = maxDebitValuePerWindow;
+            this.maxNewCounterpartyAmount = maxNewCounterpartyAmount;
+            this.rapidWindowMillis = rapidWindowMillis;
+            this.rapidMinCredit = rapidMinCredit;
+            this.rapidOutRatio = rapidOutRatio;
+        }
+    }
+
+    private final TransactionDAOInterface history;
+    private final Map<String, AccountWindow> windows = new ConcurrentHashMap<>();
+    private volatile Limits limits;
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder[] declines = new LongAdder[Rule.values().length];
+
+    public static TransactionRulesEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param limits Rule thresholds
+     * @param history Ledger used to seed an account's windows on first use, or null to start empty
+     */
+    public TransactionRulesEngine(Limits limits, TransactionDAOInterface history) {
+        this.limits = limits;
+        this.history = history;
+        for (int i = 0; i < declines.length; i++) {
+            declines[i] = new LongAdder();
+        }
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+
+    public void setLimits(Limits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Check a deposit (only the amount threshold applies to credits)
+     * @return null if allowed, otherwise the rule that declines it
+     */
+    public Rule checkCredit(String accountNumber, double amount) {
+        evaluations.increment();
+        if (amount > limits.maxSingleAmount) {
+            return decline(Rule.AMOUNT_THRESHOLD);
+        }
+        return null;
+    }
+
+    /**
+     * Record a credit that has posted
+     */
+    public void recordCredit(String accountNumber, double amount) {
+        AccountWindow window = window(accountNumber);
+        synchronized (window) {
+            window.addCredit(System.currentTimeMillis(), amount);
+        }
+    }
+
+    /**
+     * Check a withdrawal or the debit leg of a transfer and, if allowed, record it.
+     * Call cancelDebit() if the debit then fails to post.
+     * @param counterparty Destination account of a transfer, or null for a withdrawal
+     * @return null if allowed, otherwise the rule that declines it
+     */
+    public Rule checkDebit(String accountNumber, double amount, String counterparty) {
+        evaluations.increment();
+        Limits current = limits;
+        if (amount > current.maxSingleAmount) {
+            return decline(Rule.AMOUNT_THRESHOLD);
+        }
+        long payee = counterparty != null ? hash(counterparty) : 0;
+        AccountWindow window = window(accountNumber);
+        synchronized (window) {
+            long now = System.currentTimeMillis();
+            long debitCutoff = now - current.debitWindowMillis;
+            long rapidCutoff = now - current.rapidWindowMillis;
+
+            int count = 0;
+            double value = 0;
+            double rapidOut = amount;
+            for (int i = 0; i < DEBIT_SLOTS; i++) {
+                long time = window.debitTimes[i];
+                if (time >= debitCutoff) {
+                    count++;
+                    value += window.debitAmounts[i];
+                }
+                if (time >= rapidCutoff) {
+                    rapidOut += window.debitAmounts[i];
+                }
+            }
+            if (count >= current.maxDebitsPerWindow) {
+                return decline(Rule.DEBIT_COUNT);
+            }
+            if (value + amount > current.maxDebitValuePerWindow) {
+                return decline(Rule.DEBIT_VALUE);
+            }
+
+            boolean newPayee = payee != 0 && !window.knowsPayee(payee);
+            if (newPayee && amount > current.maxNewCounterpartyAmount) {
+                return decline(Rule.NEW_COUNTERPARTY);
+            }
+
+            double rapidIn = 0;
+            for (int i = 0; i < CREDIT_SLOTS; i++) {
+                if (window.creditTimes[i] >= rapidCutoff) {
+                    rapidIn += window.creditAmounts[i];
+                }
+            }
+            if (rapidIn >= current.rapidMinCredit && rapidOut >= rapidIn * current.rapidOutRatio) {
+                return decline(Rule.RAPID_IN_OUT);
+            }
+
+            window.addDebit(now, amount, newPayee ? payee : 0);
+            return null;
+        }
+    }
+
+    /**
+     * Take back a debit recorded by checkDebit() that did not post
+     */
+    public void cancelDebit(String accountNumber, double amount) {
+        AccountWindow window = windows.get(accountNumber);
+        if (window == null) return;
+        synchronized (window) {
+            window.removeDebit(amount);
+        }
+    }
+
+    /**
+     * Seed an account's windows from its ledger ahead of its first transaction, so the
+     * one-off read doesn't land on the posting path
+     */
+    public void warmUp(String accountNumber) {
+        window(accountNumber);
+    }
+
+    public long getEvaluationCount() {
+        return evaluations.sum();
+    }
+
+    public long getDeclineCount(Rule rule) {
+        return declines[rule.ordinal()].sum();
+    }
+
+    private Rule decline(Rule rule) {
+        declines[rule.ordinal()].increment();
+        return rule;
+    }
+
+    private AccountWindow window(String accountNumber) {
+        AccountWindow window = windows.get(accountNumber);
+        if (window != null) return window;
+        // First sight of the account: seed outside the map so a ledger read never blocks other accounts
+        AccountWindow seeded = new AccountWindow();
+        seed(accountNumber, seeded);
+        AccountWindow raced = windows.putIfAbsent(accountNumber, seeded);
+        return raced != null ? raced : seeded;
+    }
+
+    /**
+     * Replay the account's most recent ledger rows, oldest first, into its rings
+     */
+    private void seed(String accountNumber, AccountWindow window) {
+        if (history == null) return;
+        List<Transaction> recent = history.getTransactionPageAfter(
+                TransactionHistoryQuery.forAccount(accountNumber), null, DEBIT_SLOTS).getTransactions();
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            Transaction t = recent.get(i);
+            long time = t.getTimestamp().atZone(ZONE).toInstant().toEpochMilli();
+            if (t.isDebit()) {
+                window.addDebit(time, t.getAmount(), payee(t));
+            } else if (t.getType() == Transaction.Type.DEPOSIT || t.getType() == Transaction.Type.TRANSFER) {
+                window.addCredit(time, t.getAmount());
+            }
+        }
+    }
+
+    /**
+     * Payee hash of a recorded debit: the destination of a transfer sent by TransactionController,
+     * whose ledger rows name it as "Transfer to <account>"; 0 for any other debit
+     */
+    private static long payee(Transaction debit) {
+        String description = debit.getDescription();
+        if (debit.getType() != Transaction.Type.TRANSFER || description == null
+                || !description.startsWith(TRANSFER_TO)) {
+            return 0;
+        }
+        return hash(description.substring(TRANSFER_TO.length()));
+    }
+
+    /**
+     * 64-bit FNV-1a of an account number; never 0, which marks an empty payee slot
+     */
+    private static long hash(String accountNumber) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            h ^= accountNumber.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h != 0 ? h : 1;
+    }
+
+    /**
+     * One account's rings. Guarded by its own monitor.
+     */
+    private static final class AccountWindow {
+        final long[] debitTimes = new long[DEBIT_SLOTS];
+        final double[] debitAmounts = new double[DEBIT_SLOTS];
+        // Payee first seen with this debit, so cancelling it forgets the payee again
+        final long[] debitNewPayees = new long[DEBIT_SLOTS];
+        int debitNext;
+        final long[] creditTimes = new long[CREDIT_SLOTS];
+        final double[] creditAmounts = new double[CREDIT_SLOTS];
+        int creditNext;
+        final long[] payees = new long[PAYEE_SLOTS];
+        int payeeNext;
+
+        AccountWindow() {
+            Arrays.fill(debitTimes, EMPTY);
+            Arrays.fill(creditTimes, EMPTY);
+        }
+
+        void addDebit(long time, double amount, long newPayee) {
+            debitTimes[debitNext] = time;
+            debitAmounts[debitNext] = amount;
+            debitNewPayees[debitNext] = newPayee;
+            debitNext = (debitNext + 1) % DEBIT_SLOTS;
+            if (newPayee != 0 && !knowsPayee(newPayee)) {
+                payees[payeeNext] = newPayee;
+                payeeNext = (payeeNext + 1) % PAYEE_SLOTS;
+            }
+        }
+
+        void removeDebit(double amount) {
+            // Newest first: the debit being cancelled was recorded moments ago
+            for (int n = 1; n <= DEBIT_SLOTS; n++) {
+                int i = (debitNext - n + DEBIT_SLOTS) % DEBIT_SLOTS;
+                if (debitTimes[i] != EMPTY && debitAmounts[i] == amount) {
+                    debitTimes[i] = EMPTY;
+                    debitAmounts[i] = 0;
+                    if (debitNewPayees[i] != 0) {
+                        forgetPayee(debitNewPayees[i]);
+                        debitNewPayees[i] = 0;
+                    }
+                    return;
+                }
+            }
+        }
+
+        void addCredit(long time, double amount) {
+            creditTimes[creditNext] = time;
+            creditAmounts[creditNext] = amount;
+            creditNext = (creditNext + 1) % CREDIT_SLOTS;
+        }
+
+        boolean knowsPayee(long payee) {
+            for (long known : payees) {
+                if (known == payee) return true;
+            }
+            return false;
+        }
+
+        private void forgetPayee(long payee) {
+            for (int i = 0; i < PAYEE_SLOTS; i++) {
+                if (payees[i] == payee) payees[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.bankingsystem.api;
+
+import com.bankingsystem.Account;
+import com.bankingsystem.AccountApprovalService;
+import com.bankingsystem.Bank;
+import com.bankingsystem.Transaction;
+import com.bankingsystem.controller.PostingResult;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.dao.TransactionPage;
+import com.bankingsystem.mvc.controller.LoginController;
+import com.bankingsystem.mvc.controller.LoginResult;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.BankStorage;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.GsonFactory;
+import com.bankingsystem.persistence.RecentActivityCache;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BankingApiServer - HTTP/JSON API over the existing controllers and DAOs
+ * Runs on the JDK's built-in HTTP server with one virtual thread per request, so a request that
+ * waits on the database parks its virtual thread instead of holding a platform thread.
+ * Responses are written with Gson's streaming JsonWriter into pooled buffers.
+ *
+ * Endpoints (all JSON; everything but login needs "Authorization: Bearer <token>"):
+ *  POST /api/login                          {username, credential, userType: Individual|Staff}
+ *  POST /api/logout
+ *  GET  /api/accounts/{number}/balance
+ *  GET  /api/accounts/{number}/history      ?limit=50&cursor=...&sort=timestamp|amount&ascending=false
+ *  GET  /api/accounts/{number}/mini-statement  ?limit=10 (newest first, at most 20)
+ *  GET  /api/customers/{id}/history         ?limit=50&cursor=... (all the customer's accounts, newest first)
+ *  POST /api/accounts/{number}/deposit      {amount}
+ *  POST /api/accounts/{number}/withdraw     {amount}
+ *  POST /api/transfers                      {from, to, amount}
+ *  GET  /api/approvals                      (staff)
+ *  POST /api/approvals/{number}/approve     (staff)
+ *  POST /api/approvals/{number}/reject      (staff)
+ * Money movements honour an optional Idempotency-Key header. Customers can only use their own
+ * accounts; staff can use any.
+ */
+public class BankingApiServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int DEFAULT_MINI_STATEMENT_SIZE = 10;
+    private static final int BACKLOG = 1_024;
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final long SESSION_IDLE_MILLIS = 30 * 60_000L;
+
+    private final Bank bank;
+    private final TransactionController transactions;
+    private final LoginController logins;
+    private final AccountDAOImpl accountDAO = new AccountDAOImpl();
+    private final TransactionDAOImpl transactionDAO = new TransactionDAOImpl();
+    private final Gson gson = GsonFactory.builder().create();
+    private final ResponseBufferPool buffers = new ResponseBufferPool(1_024);
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * A logged-in client
+     */
+    private static final class Session {
+        final LoginResult.Role role;
+        final String customerId;
+        final String username;
+        volatile long expiresAt;
+
+        Session(LoginResult.Role role, String customerId, String username) {
+            this.role = role;
+            this.customerId = customerId;
+            this.username = username;
+        }
+
+        boolean isStaff() {
+            return role == LoginResult.Role.STAFF;
+        }
+    }
+
+    /**
+     * A request that cannot be served; becomes an error response
+     */
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Writes a response body
+     */
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonWriter out) throws IOException;
+    }
+
+    public BankingApiServer(Bank bank) {
+        this.bank = bank;
+        this.transactions = new TransactionController(bank);
+        this.logins = new LoginController(bank);
+    }
+
+    /**
+     * Start serving
+     * @param address Address to bind; port 0 picks a free port
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (server != null) return;
+        server = HttpServer.create(address, BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+        System.out.println("Banking API listening on " + server.getAddress());
+    }
+
+    /**
+     * Stop accepting requests, give running ones a second to finish, and release the threads
+     */
+    public synchronized void stop() {
+        if (server == null) return;
+        server.stop(1);
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling API request " + exchange.getRequestURI() + ": " + e.getMessage());
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+
+        if (path.length == 1 && path[0].equals("login")) {
+            requireMethod(method, "POST");
+            login(exchange);
+            return;
+        }
+        Session session = authenticate(exchange);
+        switch (path[0]) {
+            case "logout":
+                requireMethod(method, "POST");
+                sessions.remove(token(exchange));
+                send(exchange, 200, out -> out.beginObject().name("ok").value(true).endObject());
+                return;
+            case "accounts":
+                if (path.length == 3) {
+                    String accountNumber = path[1];
+                    Account account = ownedAccount(session, accountNumber);
+                    switch (path[2]) {
+                        case "balance":
+                            requireMethod(method, "GET");
+                            send(exchange, 200, out -> out.beginObject()
+                                    .name("accountNumber").value(accountNumber)
+                                    .name("balance").value(account.getBalance())
+                                    .endObject());
+                            return;
+                        case "history":
+                            requireMethod(method, "GET");
+                            history(exchange, accountNumber);
+                            return;
+                        case "mini-statement":
+                            requireMethod(method, "GET");
+                            miniStatement(exchange, accountNumber);
+                            return;
+                        case "deposit":
+                            requireMethod(method, "POST");
+                            sendResult(exchange, transactions.postDeposit(accountNumber,
+                                    amount(readJson(exchange)), idempotencyKey(exchange)));
+                            return;
+                        case "withdraw":
+                            requireMethod(method, "POST");
+                            sendResult(exchange, transactions.postWithdrawal(accountNumber,
+                                    amount(readJson(exchange)), idempotencyKey(exchange)));
+                            return;
+                        default:
+                            break;
+                    }
+                }
+                break;
+            case "customers":
+                if (path.length == 3 && path[2].equals("history")) {
+                    requireMethod(method, "GET");
+                    if (!session.isStaff() && !path[1].equals(session.customerId)) {
+                        throw new ApiException(403, "Not your history");
+                    }
+                    customerHistory(exchange, path[1]);
+                    return;
+                }
+                break;
+            case "transfers":
+                if (path.length == 1) {
+                    requireMethod(method, "POST");
+                    JsonObject body = readJson(exchange);
+                    String from = string(body, "from");
+                    ownedAccount(session, from);
+                    sendResult(exchange, transactions.postTransfer(from, string(body, "to"), amount(body),
+                            idempotencyKey(exchange)));
+                    return;
+                }
+                break;
+            case "approvals":
+                if (!session.isStaff()) throw new ApiException(403, "Staff only");
+                if (path.length == 1) {
+                    requireMethod(method, "GET");
+                    pendingAccounts(exchange);
+                    return;
+                }
+                if (path.length == 3 && (path[2].equals("approve") || path[2].equals("reject"))) {
+                    requireMethod(method, "POST");
+                    decide(exchange, session, path[1], path[2].equals("approve"));
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new ApiException(404, "No such endpoint");
+    }
+
+    private void login(HttpExchange exchange) throws IOException {
+        JsonObject body = readJson(exchange);
+        String username = string(body, "username");
+        LoginResult result = logins.login(username, string(body, "credential"),
+                body.has("userType") ? string(body, "userType") : "Individual");
+        if (result == null) throw new ApiException(401, "Invalid username or credential");
+
+        String customerId = result.getCoreBankCustomer() != null ? result.getCoreBankCustomer().getCustomerID() : null;
+        Session session = new Session(result.getRole(), customerId, username);
+        session.expiresAt = System.currentTimeMillis() + SESSION_IDLE_MILLIS;
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, session);
+        if (sessions.size() % 1_024 == 0) {
+            long now = System.currentTimeMillis();
+            sessions.values().removeIf(s -> s.expiresAt < now);
+        }
+        send(exchange, 200, out -> out.beginObject()
+                .name("token").value(token)
+                .name("role").value(session.role.name())
+                .name("customerId").value(customerId)
+                .endObject());
+    }
+
+    private Session authenticate(HttpExchange exchange) {
+        String token = token(exchange);
+        Session session = token != null ? sessions.get(token) : null;
+        long now = System.currentTimeMillis();
+        if (session == null || session.expiresAt < now) {
+            if (session != null) sessions.remove(token);
+            throw new ApiException(401, "Login required");
+        }
+        session.expiresAt = now + SESSION_IDLE_MILLIS;
+        return session;
+    }
+
+    private static String token(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+    }
+
+    /**
+     * The account, if the session may use it
+     */
+    private Account ownedAccount(Session session, String accountNumber) {
+        Account account = bank.findAccount(accountNumber);
+        if (account == null) throw new ApiException(404, "Account not found");
+        if (!session.isStaff() && (account.getOwner() == null
+                || !account.getOwner().getCustomerID().equals(session.customerId))) {
+            throw new ApiException(403, "Not your account");
+        }
+        return account;
+    }
+
+    private void history(HttpExchange exchange, String accountNumber) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, intParam(params, "limit", DEFAULT_PAGE_SIZE)));
+        TransactionHistoryQuery.SortField sort = "amount".equalsIgnoreCase(params.get("sort"))
+                ? TransactionHistoryQuery.SortField.AMOUNT : TransactionHistoryQuery.SortField.TIMESTAMP;
+        TransactionHistoryQuery query = TransactionHistoryQuery.forAccount(accountNumber)
+                .sortedBy(sort, Boolean.parseBoolean(params.get("ascending")));
+        TransactionPage page = transactionDAO.getTransactionPageAfter(query, decodeCursor(params.get("cursor")), limit);
+
+        send(exchange, 200, out -> {
+            out.beginObject().name("accountNumber").value(accountNumber).name("transactions").beginArray();
+            for (Transaction transaction : page.getTransactions()) {
+                gson.toJson(transaction, Transaction.class, out);
+            }
+            out.endArray();
+            out.name("next").value(page.hasMore() ? encodeCursor(page.getEnd()) : null);
+            out.endObject();
+        });
+    }
+
+    /**
+     * One page of the merged history of every account the customer holds
+     */
+    private void customerHistory(HttpExchange exchange, String customerId) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        int limit = Math.min(MAX_PAGE_SIZE, Math.max(1, intParam(params, "limit", DEFAULT_PAGE_SIZE)));
+        TransactionPage page = transactionDAO.getCustomerHistoryPage(customerId, decodeCursor(params.get("cursor")), limit);
+
+        send(exchange, 200, out -> {
+            out.beginObject().name("customerId").value(customerId).name("transactions").beginArray();
+            for (Transaction transaction : page.getTransactions()) {
+                gson.toJson(transaction, Transaction.class, out);
+            }
+            out.endArray();
+            out.name("next").value(page.hasMore() ? encodeCursor(page.getEnd()) : null);
+            out.endObject();
+        });
+    }
+
+    /**
+     * The newest few transactions, from the RecentActivityCache rather than the database
+     */
+    private void miniStatement(HttpExchange exchange, String accountNumber) throws IOException {
+        int limit = Math.min(RecentActivityCache.CAPACITY,
+                Math.max(1, intParam(queryParams(exchange), "limit", DEFAULT_MINI_STATEMENT_SIZE)));
+        List<Transaction> recent = RecentActivityCache.getInstance().recent(accountNumber, limit);
+
+        send(exchange, 200, out -> {
+            out.beginObject().name("accountNumber").value(accountNumber).name("transactions").beginArray();
+            for (Transaction transaction : recent) {
+                gson.toJson(transaction, Transaction.class, out);
+            }
+            out.endArray().endObject();
+        });
+    }
+
+    private void pendingAccounts(HttpExchange exchange) throws IOException {
+        List<Account> pending = accountDAO.getPendingAccounts();
+        send(exchange, 200, out -> {
+            out.beginObject().name("accounts").beginArray();
+            for (Account account : pending) {
+                out.beginObject()
+                        .name("accountNumber").value(account.getAccountNumber())
+                        .name("type").value(account.getClass().getSimpleName())
+                        .name("customerId").value(account.getOwner() != null ? account.getOwner().getCustomerID() : null)
+                        .name("balance").value(account.getBalance())
+                        .name("dateOpened").value(account.getDateOpened() != null ? account.getDateOpened().toString() : null)
+                        .endObject();
+            }
+            out.endArray().endObject();
+        });
+    }
+
+    /**
+     * Approve or reject a pending account
+     */
+    private void decide(HttpExchange exchange, Session session, String accountNumber, boolean approve) throws IOException {
+        Optional<Account> found = accountDAO.findAccountByNumber(accountNumber);
+        if (found.isEmpty()) throw new ApiException(404, "Account not found");
+        Account account = found.get();
+        // A conditional update: if another staff member decided the account first, this one fails
+        boolean done = approve ? AccountApprovalService.approveStoredAccount(account, session.username)
+                : AccountApprovalService.rejectStoredAccount(account, session.username);
+        if (!done) throw new ApiException(409, "Account is no longer pending or is not eligible for approval");
+        send(exchange, 200, out -> out.beginObject()
+                .name("ok").value(true)
+                .name("accountNumber").value(account.getAccountNumber())
+                .name("status").value(account.getStatus().name())
+                .endObject());
+    }
+
+    /**
+     * A posting that was applied (or replayed) is 200; a rejected or failed one is 422
+     */
+    private void sendResult(HttpExchange exchange, PostingResult result) throws IOException {
+        boolean ok = result.isApplied();
+        send(exchange, ok ? 200 : 422, out -> out.beginObject()
+                .name("ok").value(ok)
+                .name("message").value(result.getMessage())
+                .endObject());
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, out -> out.beginObject().name("error").value(message).endObject());
+    }
+
+    private void send(HttpExchange exchange, int status, JsonBody body) throws IOException {
+        ResponseBufferPool.Buffer buffer = buffers.acquire();
+        try {
+            JsonWriter writer = gson.newJsonWriter(buffer.writer());
+            // Absent values are sent as null (e.g. "next" on the last page) rather than left out
+            writer.setSerializeNulls(true);
+            body.write(writer);
+            writer.flush();
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, buffer.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                buffer.writeTo(out);
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private JsonObject readJson(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) throw new ApiException(413, "Request body too large");
+            JsonElement element = gson.fromJson(new InputStreamReader(
+                    new java.io.ByteArrayInputStream(bytes), StandardCharsets.UTF_8), JsonElement.class);
+            if (element == null || !element.isJsonObject()) throw new ApiException(400, "Expected a JSON object");
+            return element.getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new ApiException(400, "Malformed JSON");
+        }
+    }
+
+    private static String string(JsonObject body, String name) {
+        JsonElement element = body.get(name);
+        if (element == null || !element.isJsonPrimitive()) throw new ApiException(400, "Missing field: " + name);
+        return element.getAsString();
+    }
+
+    private static double amount(JsonObject body) {
+        JsonElement element = body.get("amount");
+        if (element == null || !element.isJsonPrimitive() || !element.getAsJsonPrimitive().isNumber()) {
+            throw new ApiException(400, "Missing or invalid field: amount");
+        }
+        return element.getAsDouble();
+    }
+
+    private static String idempotencyKey(HttpExchange exchange) {
+        return exchange.getRequestHeaders().getFirst("Idempotency-Key");
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!expected.equals(method)) throw new ApiException(405, "Use " + expected);
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid parameter: " + name);
+        }
+    }
+
+    /**
+     * Opaque page cursor: the last row's sort value and ID, and its position
+     */
+    private static String encodeCursor(TransactionPage.Cursor cursor) {
+        Object sortValue = cursor.getSortValue();
+        String value = sortValue instanceof Timestamp ? "T" + sortValue : "N" + ((Number) sortValue).doubleValue();
+        String raw = value + "|" + cursor.getTransactionId() + "|" + cursor.getPosition();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TransactionPage.Cursor decodeCursor(String encoded) {
+        if (encoded == null || encoded.isEmpty()) return null;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split("\\|");
+            Object sortValue = parts[0].charAt(0) == 'T' ? Timestamp.valueOf(parts[0].substring(1))
+                    : (Object) Double.parseDouble(parts[0].substring(1));
+            return new TransactionPage.Cursor(sortValue, parts[1], Integer.parseInt(parts[2]));
+        } catch (RuntimeException e) {
+            throw new ApiException(400, "Invalid cursor");
+        }
+    }
+
+    /**
+     * Serve the API headless, on the bank data file MainApp uses
+     * Usage: BankingApiServer [port] [bindAddress]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        String host = args.length > 1 ? args[1] : "127.0.0.1";
+        File dataFile = new File(System.getProperty("user.home"), "banking-data.json");
+        Bank bank = dataFile.exists() ? new BankStorage(dataFile).load() : null;
+        if (bank == null) bank = new Bank("Banking API", "001");
+
+        BankingApiServer server = new BankingApiServer(bank);
+        server.start(new InetSocketAddress(host, port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            DatabaseConnection.getInstance().closeConnection();
+        }, "BankingApiShutdown"));
+    }
+}
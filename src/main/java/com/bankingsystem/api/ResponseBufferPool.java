@@ -0,0 +1,68 @@
+package com.bankingsystem.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of response buffers for the HTTP API.
+ * A response is written into a buffer so its length is known before the headers are sent
+ * (no chunked encoding), then copied to the socket. Requests run on virtual threads, which are
+ * never reused, so buffers are pooled in a shared queue rather than per thread. Buffers that grew
+ * past MAX_RETAINED_BYTES for a large response are dropped instead of being kept.
+ */
+class ResponseBufferPool {
+    static final int INITIAL_BYTES = 4 * 1024;
+    static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+    private final ArrayBlockingQueue<Buffer> pool;
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * A byte buffer with a UTF-8 writer over it; both are reused
+     */
+    static final class Buffer extends ByteArrayOutputStream {
+        private final Writer writer = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+
+        private Buffer() {
+            super(INITIAL_BYTES);
+        }
+
+        Writer writer() {
+            return writer;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    ResponseBufferPool(int maxPooled) {
+        this.pool = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    Buffer acquire() {
+        Buffer buffer = pool.poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            buffer = new Buffer();
+        }
+        return buffer;
+    }
+
+    void release(Buffer buffer) {
+        if (buffer.capacity() > MAX_RETAINED_BYTES) return;
+        buffer.reset();
+        pool.offer(buffer);
+    }
+
+    /**
+     * Buffers created so far; stays near the peak number of concurrent responses
+     */
+    long getAllocatedCount() {
+        return allocated.get();
+    }
+}
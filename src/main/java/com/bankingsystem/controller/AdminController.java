@@ -3,9 +3,11 @@ package com.bankingsystem.controller;
 import com.bankingsystem.AccountRequest;
 import com.bankingsystem.CustomerRegistrationRequest;
 import com.bankingsystem.Bank;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public class AdminController {
     private final Bank bank;
@@ -28,14 +30,21 @@ public class AdminController {
         return bank.getCustomerRequests().stream().filter(r -> r.getStatus() != CustomerRegistrationRequest.Status.PENDING).toList();
     }
 
-    public String approve(String requestId) {
-        boolean ok = bank.approveRequest(requestId, "staff1");
-        return ok ? "Request approved" : "Approve failed";
+    public void approve(String requestId, Consumer<String> onResult) {
+        approveRequest(requestId, "staff1", onResult);
     }
 
-    public String approveRequest(String requestId, String staffUser) {
-        boolean ok = bank.approveRequest(requestId, staffUser);
-        return ok ? "Request approved" : "Approve failed";
+    /**
+     * Approve an account request without blocking the caller on its employment check
+     * @param onResult Receives the outcome message on the FX thread
+     */
+    public void approveRequest(String requestId, String staffUser, Consumer<String> onResult) {
+        bank.approveRequestAsync(requestId, staffUser)
+                .exceptionally(e -> {
+                    System.err.println("Error approving request " + requestId + ": " + e.getMessage());
+                    return false;
+                })
+                .thenAccept(ok -> Platform.runLater(() -> onResult.accept(ok ? "Request approved" : "Approve failed")));
     }
 
     public String approveCustomer(String requestId) {
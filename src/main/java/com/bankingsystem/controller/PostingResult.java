@@ -0,0 +1,49 @@
+package com.bankingsystem.controller;
+
+/**
+ * Outcome of a deposit, withdrawal or transfer: whether it was posted, and the message shown to
+ * the user. Callers decide on the status; the message is for display only.
+ */
+public final class PostingResult {
+
+    public enum Status {
+        /** Posted and committed */
+        APPLIED,
+        /** Refused before anything was posted: invalid input, unknown account, a rule, a reused key */
+        REJECTED,
+        /** Tried but not committed, e.g. insufficient funds; nothing was posted */
+        FAILED
+    }
+
+    private final Status status;
+    private final String message;
+
+    private PostingResult(Status status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public static PostingResult applied(String message) {
+        return new PostingResult(Status.APPLIED, message);
+    }
+
+    public static PostingResult rejected(String message) {
+        return new PostingResult(Status.REJECTED, message);
+    }
+
+    public static PostingResult failed(String message) {
+        return new PostingResult(Status.FAILED, message);
+    }
+
+    public Status getStatus() { return status; }
+    public String getMessage() { return message; }
+
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -3,34 +3,84 @@ package com.bankingsystem.controller;
 import com.bankingsystem.Account;
 import com.bankingsystem.Transaction;
 import com.bankingsystem.Bank;
+import com.bankingsystem.PayrollDisbursementService;
+import com.bankingsystem.TransactionRulesEngine;
 import com.bankingsystem.dao.AccountDAOInterface;
-import com.bankingsystem.dao.AccountDAO;
 import com.bankingsystem.dao.TransactionDAOInterface;
-import com.bankingsystem.dao.TransactionDAO;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.GroupCommitWriter;
+import com.bankingsystem.persistence.IdempotencyKeyDAO;
+import com.bankingsystem.persistence.RecentActivityCache;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+import com.bankingsystem.persistence.UnitOfWork;
+import com.bankingsystem.utils.IdempotencyCache;
+import com.bankingsystem.utils.LedgerEventBus;
+import com.bankingsystem.utils.TransactionPageCache;
 import com.bankingsystem.utils.ValidationHelper;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.function.Supplier;
 
 /**
  * Controller for transaction-related operations.
  * Handles deposits, withdrawals, transfers, and transaction history.
  * Follows MVC pattern: View -> Controller -> DAO -> Model
+ *
+ * Each operation persists its balance updates and ledger rows inside a single
+ * UnitOfWork: one pooled connection and one commit per business operation.
+ * Balances are changed by conditional single-statement updates in the DAO; the in-memory
+ * account mirrors each committed change without holding a lock across the database call,
+ * so concurrent deposits into one (possibly striped) account are not serialised here.
+ *
+ * Before anything is posted the operation is checked by the TransactionRulesEngine
+ * (amount thresholds, velocity windows, new recipients, pass-through patterns).
+ *
+ * Deposits, withdrawals and transfers optionally take an idempotency key. The key is stored
+ * in the same unit of work as the ledger rows, and a repeated request with the same key (a
+ * double-click, a retry after a timeout) gets the original result back from the in-memory
+ * IdempotencyCache or the idempotency_keys table without touching the ledger again.
+ *
+ * When the GroupCommitWriter is running, the units of work of concurrent callers are committed
+ * together in one database transaction; each call still returns only after its own commit.
+ *
+ * Every committed movement is published on the LedgerEventBus (one event per leg) so that
+ * dashboards, audit and metrics see it without polling.
  */
 public class TransactionController {
+    private static final String KEY_REUSED = "Idempotency key was already used for a different request";
+    // Shared by every controller in the process, like the idempotency_keys table
+    private static final IdempotencyCache<PostingResult> IDEMPOTENCY_CACHE =
+            new IdempotencyCache<>(IdempotencyCache.DEFAULT_TTL_MILLIS, IdempotencyCache.DEFAULT_MAX_ENTRIES);
+
     private final AccountDAOInterface accountDAO;
     private final TransactionDAOInterface transactionDAO;
     private final Bank bank; // For account lookup
+    private final TransactionRulesEngine rules;
+    private final IdempotencyKeyDAO idempotencyDAO = IdempotencyKeyDAO.getInstance();
+    private final LedgerEventBus events = LedgerEventBus.getInstance();
+    private final GroupCommitWriter ledgerWriter = GroupCommitWriter.getInstance();
 
     public TransactionController(Bank bank) {
-        this.bank = bank;
-        this.accountDAO = new AccountDAO();
-        this.transactionDAO = new TransactionDAO();
+        this(bank, new AccountDAOImpl(), new TransactionDAOImpl());
     }
 
     public TransactionController(Bank bank, AccountDAOInterface accountDAO, TransactionDAOInterface transactionDAO) {
+        this(bank, accountDAO, transactionDAO, TransactionRulesEngine.getInstance());
+    }
+
+    public TransactionController(Bank bank, AccountDAOInterface accountDAO, TransactionDAOInterface transactionDAO,
+                                 TransactionRulesEngine rules) {
         // Allow dependency injection for testing
         this.bank = bank;
         this.accountDAO = accountDAO;
         this.transactionDAO = transactionDAO;
+        this.rules = rules;
     }
 
     /**
@@ -40,38 +90,65 @@ public class TransactionController {
      * @return Result message (success or error)
      */
     public String deposit(String accountNumber, double amount) {
+        return deposit(accountNumber, amount, null);
+    }
+
+    /**
+     * Deposit money into an account at most once per idempotency key.
+     * @param idempotencyKey Client-chosen key for this request, or null for no deduplication
+     * @return Result message; for a repeated key, the message of the original request
+     */
+    public String deposit(String accountNumber, double amount, String idempotencyKey) {
+        return postDeposit(accountNumber, amount, idempotencyKey).getMessage();
+    }
+
+    /**
+     * Deposit money into an account at most once per idempotency key.
+     * @param idempotencyKey Client-chosen key for this request, or null for no deduplication
+     * @return The outcome; for a repeated key, the outcome of the original request
+     */
+    public PostingResult postDeposit(String accountNumber, double amount, String idempotencyKey) {
+        String request = "DEPOSIT " + accountNumber + " " + amount;
+        return idempotent(idempotencyKey, request, () -> applyDeposit(accountNumber, amount, idempotencyKey, request));
+    }
+
+    private PostingResult applyDeposit(String accountNumber, double amount, String idempotencyKey, String request) {
         // Validate inputs
         String error = ValidationHelper.validateAccountNumber(accountNumber);
-        if (error != null) return error;
+        if (error != null) return PostingResult.rejected(error);
 
         error = ValidationHelper.validatePositiveAmount(amount, "Deposit amount");
-        if (error != null) return error;
+        if (error != null) return PostingResult.rejected(error);
 
         // Find account
         Account account = bank.findAccount(accountNumber);
         if (account == null) {
-            return "Account not found";
+            return PostingResult.rejected("Account not found");
         }
 
-        try {
-            // Perform deposit
-            account.deposit(amount);
-            
-            // Update account in database via DAO
-            accountDAO.updateAccount(account);
-            
-            // Record transaction via DAO
-            List<Transaction> transactions = account.getTransactions();
-            if (!transactions.isEmpty()) {
-                Transaction lastTransaction = transactions.get(transactions.size() - 1);
-                transactionDAO.recordTransaction(lastTransaction);
-            }
+        TransactionRulesEngine.Rule declined = rules.checkCredit(accountNumber, amount);
+        if (declined != null) {
+            return PostingResult.rejected("Deposit declined: " + declined.getDescription());
+        }
 
-            return String.format("Successfully deposited BWP %.2f. New balance: BWP %.2f", 
-                               amount, account.getBalance());
-        } catch (IllegalArgumentException e) {
-            return "Deposit failed: " + e.getMessage();
+        // Credit in one conditional UPDATE and write the ledger row in the same unit of work
+        Transaction posted = post(() -> {
+            Transaction leg = postLeg(accountNumber, Transaction.Type.DEPOSIT, amount, false, null);
+            return leg != null && recordKey(idempotencyKey, request, depositMessage(amount, leg)) ? leg : null;
+        });
+        if (posted == null) {
+            return PostingResult.failed("Deposit failed: account is not approved or could not be updated");
         }
+        account.applyPosted(posted, amount);
+        rules.recordCredit(accountNumber, amount);
+        publish(LedgerEventBus.Kind.DEPOSIT, account, null, amount, posted);
+
+        return PostingResult.applied(depositMessage(amount, posted));
+    }
+
+    private static String depositMessage(double amount, Transaction posted) {
+        return String.format("Successfully deposited BWP %.2f. New balance: BWP %.2f",
+                           amount, posted.getBalanceAfter());
     }
 
     /**
@@ -81,42 +158,71 @@ public class TransactionController {
      * @return Result message (success or error)
      */
     public String withdraw(String accountNumber, double amount) {
+        return withdraw(accountNumber, amount, null);
+    }
+
+    /**
+     * Withdraw money from an account at most once per idempotency key.
+     * @param idempotencyKey Client-chosen key for this request, or null for no deduplication
+     * @return Result message; for a repeated key, the message of the original request
+     */
+    public String withdraw(String accountNumber, double amount, String idempotencyKey) {
+        return postWithdrawal(accountNumber, amount, idempotencyKey).getMessage();
+    }
+
+    /**
+     * Withdraw money from an account at most once per idempotency key.
+     * @param idempotencyKey Client-chosen key for this request, or null for no deduplication
+     * @return The outcome; for a repeated key, the outcome of the original request
+     */
+    public PostingResult postWithdrawal(String accountNumber, double amount, String idempotencyKey) {
+        String request = "WITHDRAW " + accountNumber + " " + amount;
+        return idempotent(idempotencyKey, request, () -> applyWithdrawal(accountNumber, amount, idempotencyKey, request));
+    }
+
+    private PostingResult applyWithdrawal(String accountNumber, double amount, String idempotencyKey, String request) {
         // Validate inputs
         String error = ValidationHelper.validateAccountNumber(accountNumber);
-        if (error != null) return error;
+        if (error != null) return PostingResult.rejected(error);
 
         error = ValidationHelper.validatePositiveAmount(amount, "Withdrawal amount");
-        if (error != null) return error;
+        if (error != null) return PostingResult.rejected(error);
 
         // Find account
         Account account = bank.findAccount(accountNumber);
         if (account == null) {
-            return "Account not found";
+            return PostingResult.rejected("Account not found");
         }
 
         // Check if account allows withdrawals (SavingsAccount does not)
         if (!(account instanceof com.bankingsystem.Withdrawable)) {
-            return "This account type does not allow withdrawals";
+            return PostingResult.rejected("This account type does not allow withdrawals");
         }
 
-        // Perform withdrawal
-        boolean success = account.withdraw(amount);
-        if (!success) {
-            return "Withdrawal failed. Insufficient funds or invalid amount.";
+        TransactionRulesEngine.Rule declined = rules.checkDebit(accountNumber, amount, null);
+        if (declined != null) {
+            return PostingResult.rejected("Withdrawal declined: " + declined.getDescription());
         }
 
-        // Update account in database via DAO
-        accountDAO.updateAccount(account);
-        
-        // Record transaction via DAO
-        List<Transaction> transactions = account.getTransactions();
-        if (!transactions.isEmpty()) {
-            Transaction lastTransaction = transactions.get(transactions.size() - 1);
-            transactionDAO.recordTransaction(lastTransaction);
+        // Debit in one conditional UPDATE; the balance rules are SQL predicates, so two
+        // concurrent withdrawals can never both pass a check made against a stale balance
+        Transaction posted = post(() -> {
+            Transaction leg = postLeg(accountNumber, Transaction.Type.WITHDRAW, amount, true, null);
+            return leg != null && recordKey(idempotencyKey, request, withdrawalMessage(amount, leg)) ? leg : null;
+        });
+        if (posted == null) {
+            rules.cancelDebit(accountNumber, amount);
+            return PostingResult.failed("Withdrawal failed. Insufficient funds or invalid amount.");
         }
+        account.applyPosted(posted, -amount);
+        publish(LedgerEventBus.Kind.WITHDRAW, account, null, -amount, posted);
 
-        return String.format("Successfully withdrew BWP %.2f. New balance: BWP %.2f", 
-                           amount, account.getBalance());
+        return PostingResult.applied(withdrawalMessage(amount, posted));
+    }
+
+    private static String withdrawalMessage(double amount, Transaction posted) {
+        return String.format("Successfully withdrew BWP %.2f. New balance: BWP %.2f",
+                           amount, posted.getBalanceAfter());
     }
 
     /**
@@ -127,66 +233,240 @@ public class TransactionController {
      * @return Result message (success or error)
      */
     public String transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return transfer(fromAccountNumber, toAccountNumber, amount, null);
+    }
+
+    /**
+     * Transfer money between accounts at most once per idempotency key.
+     * @param idempotencyKey Client-chosen key for this request, or null for no deduplication
+     * @return Result message; for a repeated key, the message of the original request
+     */
+    public String transfer(String fromAccountNumber, String toAccountNumber, double amount, String idempotencyKey) {
+        return postTransfer(fromAccountNumber, toAccountNumber, amount, idempotencyKey).getMessage();
+    }
+
+    /**
+     * Transfer money between accounts at most once per idempotency key.
+     * @param idempotencyKey Client-chosen key for this request, or null for no deduplication
+     * @return The outcome; for a repeated key, the outcome of the original request
+     */
+    public PostingResult postTransfer(String fromAccountNumber, String toAccountNumber, double amount,
+                                      String idempotencyKey) {
+        String request = "TRANSFER " + fromAccountNumber + " " + toAccountNumber + " " + amount;
+        return idempotent(idempotencyKey, request,
+                () -> applyTransfer(fromAccountNumber, toAccountNumber, amount, idempotencyKey, request));
+    }
+
+    private PostingResult applyTransfer(String fromAccountNumber, String toAccountNumber, double amount,
+                                        String idempotencyKey, String request) {
         // Validate inputs
         String error = ValidationHelper.validateAccountNumber(fromAccountNumber);
-        if (error != null) return "Source " + error;
+        if (error != null) return PostingResult.rejected("Source " + error);
 
         error = ValidationHelper.validateAccountNumber(toAccountNumber);
-        if (error != null) return "Destination " + error;
+        if (error != null) return PostingResult.rejected("Destination " + error);
 
         if (fromAccountNumber.equals(toAccountNumber)) {
-            return "Cannot transfer to the same account";
+            return PostingResult.rejected("Cannot transfer to the same account");
         }
 
         error = ValidationHelper.validatePositiveAmount(amount, "Transfer amount");
-        if (error != null) return error;
+        if (error != null) return PostingResult.rejected(error);
 
         // Find accounts
         Account fromAccount = bank.findAccount(fromAccountNumber);
         if (fromAccount == null) {
-            return "Source account not found";
+            return PostingResult.rejected("Source account not found");
         }
 
         Account toAccount = bank.findAccount(toAccountNumber);
         if (toAccount == null) {
-            return "Destination account not found";
+            return PostingResult.rejected("Destination account not found");
         }
 
         // Check if source account allows withdrawals
         if (!(fromAccount instanceof com.bankingsystem.Withdrawable)) {
-            return "Source account type does not allow transfers";
-        }
-
-        // Perform transfer
-        boolean success = fromAccount.transferTo(toAccount, amount);
-        if (!success) {
-            return "Transfer failed. Insufficient funds or invalid amount.";
-        }
-
-        // Update both accounts in database via DAO
-        accountDAO.updateAccount(fromAccount);
-        accountDAO.updateAccount(toAccount);
-        
-        // Record transactions via DAO
-        List<Transaction> fromTransactions = fromAccount.getTransactions();
-        List<Transaction> toTransactions = toAccount.getTransactions();
-        if (!fromTransactions.isEmpty()) {
-            Transaction lastFromTransaction = fromTransactions.get(fromTransactions.size() - 1);
-            if (lastFromTransaction.getType() == Transaction.Type.TRANSFER) {
-                transactionDAO.recordTransaction(lastFromTransaction);
-            }
+            return PostingResult.rejected("Source account type does not allow transfers");
         }
-        if (!toTransactions.isEmpty()) {
-            Transaction lastToTransaction = toTransactions.get(toTransactions.size() - 1);
-            if (lastToTransaction.getType() == Transaction.Type.TRANSFER) {
-                transactionDAO.recordTransaction(lastToTransaction);
+
+        TransactionRulesEngine.Rule declined = rules.checkDebit(fromAccountNumber, amount, toAccountNumber);
+        if (declined != null) {
+            return PostingResult.rejected("Transfer declined: " + declined.getDescription());
+        }
+
+        // Both legs in one unit of work, rows touched in account-number order so opposing
+        // transfers cannot deadlock
+        boolean fromFirst = fromAccountNumber.compareTo(toAccountNumber) < 0;
+        Transaction[] legs = post(() -> {
+            Transaction out = null;
+            Transaction in = null;
+            if (!fromFirst) {
+                in = postLeg(toAccountNumber, Transaction.Type.TRANSFER, amount, false,
+                        "Transfer from " + fromAccountNumber);
+            }
+            if (fromFirst || in != null) {
+                out = postLeg(fromAccountNumber, Transaction.Type.TRANSFER, amount, true,
+                        "Transfer to " + toAccountNumber);
             }
+            if (fromFirst && out != null) {
+                in = postLeg(toAccountNumber, Transaction.Type.TRANSFER, amount, false,
+                        "Transfer from " + fromAccountNumber);
+            }
+            if (out == null || in == null) return null;
+            Transaction[] posted = {out, in};
+            return recordKey(idempotencyKey, request,
+                    transferMessage(fromAccountNumber, toAccountNumber, amount, posted)) ? posted : null;
+        });
+        if (legs == null) {
+            rules.cancelDebit(fromAccountNumber, amount);
+            return PostingResult.failed("Transfer failed. Insufficient funds or invalid amount.");
         }
+        fromAccount.applyPosted(legs[0], -amount);
+        toAccount.applyPosted(legs[1], amount);
+        rules.recordCredit(toAccountNumber, amount);
+        publish(LedgerEventBus.Kind.TRANSFER, fromAccount, toAccountNumber, -amount, legs[0]);
+        publish(LedgerEventBus.Kind.TRANSFER, toAccount, fromAccountNumber, amount, legs[1]);
+
+        return PostingResult.applied(transferMessage(fromAccountNumber, toAccountNumber, amount, legs));
+    }
 
+    private static String transferMessage(String fromAccountNumber, String toAccountNumber, double amount,
+                                         Transaction[] legs) {
         return String.format("Successfully transferred BWP %.2f from %s to %s. " +
                            "Source balance: BWP %.2f, Destination balance: BWP %.2f",
                            amount, fromAccountNumber, toAccountNumber,
-                           fromAccount.getBalance(), toAccount.getBalance());
+                           legs[0].getBalanceAfter(), legs[1].getBalanceAfter());
+    }
+
+    /**
+     * Pay many recipients from a company account in one bulk disbursement.
+     * @param sourceAccountNumber The company's paying account
+     * @param csv Instructions, one "account_number,amount[,reference]" per line
+     * @param reportOut Receives the per-line outcome report as CSV (may be null)
+     * @return Result message (summary or error)
+     */
+    public String disbursePayroll(String sourceAccountNumber, Reader csv, Writer reportOut) {
+        String error = ValidationHelper.validateAccountNumber(sourceAccountNumber);
+        if (error != null) return "Source " + error;
+
+        try {
+            List<PayrollDisbursementService.Line> lines = PayrollDisbursementService.parseCsv(csv);
+            if (lines.isEmpty()) {
+                return "Disbursement file contains no payment lines";
+            }
+            PayrollDisbursementService.Report report = new PayrollDisbursementService(bank)
+                    .disburse(sourceAccountNumber, lines);
+            if (reportOut != null) {
+                report.writeCsv(reportOut);
+            }
+            return report.toString();
+        } catch (IllegalArgumentException e) {
+            return "Disbursement failed: " + e.getMessage();
+        } catch (IOException e) {
+            return "Disbursement failed: could not read or write file: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Run a money movement at most once per idempotency key.
+     * The first request with a key runs; requests with the same key arriving meanwhile wait for
+     * its result, and later ones get the stored result from the cache or the idempotency_keys
+     * table. Only a successful operation keeps its key, so a request that failed can be retried.
+     * @param request What is being asked for; reusing a key for a different request is refused
+     */
+    private PostingResult idempotent(String idempotencyKey, String request, Supplier<PostingResult> operation) {
+        if (idempotencyKey == null) return operation.get();
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > IdempotencyKeyDAO.MAX_KEY_LENGTH) {
+            return PostingResult.rejected("Invalid idempotency key");
+        }
+
+        IdempotencyCache.Entry<PostingResult> existing = IDEMPOTENCY_CACHE.claim(idempotencyKey, request);
+        if (existing != null) {
+            return existing.getRequest().equals(request) ? existing.await() : PostingResult.rejected(KEY_REUSED);
+        }
+        PostingResult result = PostingResult.failed("Operation failed");
+        boolean applied = false;
+        try {
+            // Committed before this process cached it (a restart, or another server)
+            Optional<IdempotencyKeyDAO.StoredResult> stored = idempotencyDAO.find(idempotencyKey);
+            if (stored.isEmpty()) {
+                result = operation.get();
+                applied = result.isApplied();
+                if (!applied) {
+                    // The operation rolls back if someone else committed the key while it ran
+                    stored = idempotencyDAO.find(idempotencyKey);
+                }
+            }
+            if (stored.isPresent()) {
+                applied = stored.get().getRequest().equals(request);
+                result = applied ? PostingResult.applied(stored.get().getResult())
+                        : PostingResult.rejected(KEY_REUSED);
+            }
+            return result;
+        } finally {
+            IDEMPOTENCY_CACHE.complete(idempotencyKey, result, applied);
+        }
+    }
+
+    /**
+     * Store an idempotency key with its result in the current unit of work; a key that is
+     * already taken marks the unit rollback-only
+     */
+    private boolean recordKey(String idempotencyKey, String request, String result) {
+        if (idempotencyKey == null) return true;
+        if (!idempotencyDAO.record(idempotencyKey, request, result)) {
+            UnitOfWork.setRollbackOnly();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run ledger work in a single unit of work, group-committed with concurrent callers' work
+     * when the GroupCommitWriter is running.
+     * @return The work's result, or null if it failed or the unit was rolled back
+     */
+    private <T> T post(Supplier<T> work) {
+        try {
+            return ledgerWriter.submit(work);
+        } catch (SQLException e) {
+            System.err.println("Error posting transaction: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Announce a committed leg on the ledger event bus
+     */
+    private void publish(LedgerEventBus.Kind kind, Account account, String counterparty, double delta,
+                         Transaction posted) {
+        String customerId = account.getOwner() != null ? account.getOwner().getCustomerID() : null;
+        RecentActivityCache.getInstance().record(account.getAccountNumber(), posted);
+        events.publish(kind, account.getAccountNumber(), counterparty, customerId, delta, posted.getBalanceAfter());
+    }
+
+    /**
+     * Apply one conditional balance mutation and write its ledger row.
+     * Must run inside a unit of work; any failure marks the unit rollback-only so
+     * the other leg of a transfer is undone as well.
+     * @return The posted transaction carrying the balance computed by the database, or null
+     */
+    private Transaction postLeg(String accountNumber, Transaction.Type type, double amount,
+                                boolean debit, String description) {
+        OptionalDouble newBalance = debit
+                ? accountDAO.debitBalance(accountNumber, amount)
+                : accountDAO.creditBalance(accountNumber, amount);
+        if (newBalance.isEmpty()) {
+            UnitOfWork.setRollbackOnly();
+            return null;
+        }
+        Transaction transaction = new Transaction(type, debit ? Transaction.Direction.DEBIT : Transaction.Direction.CREDIT,
+                amount, newBalance.getAsDouble(), description);
+        if (!transactionDAO.recordTransaction(accountNumber, transaction)) {
+            UnitOfWork.setRollbackOnly();
+            return null;
+        }
+        return transaction;
     }
 
     /**
@@ -202,6 +482,31 @@ public class TransactionController {
         return account.getTransactions();
     }
 
+    /**
+     * Get an account's newest transactions for a mini-statement.
+     * Served from the RecentActivityCache; only the first read of an account queries the database.
+     * @param accountNumber The account number
+     * @param count How many transactions, newest first
+     * @return The transactions, or an empty list if the account is not found
+     */
+    public List<Transaction> getMiniStatement(String accountNumber, int count) {
+        if (bank.findAccount(accountNumber) == null) {
+            return List.of();
+        }
+        return RecentActivityCache.getInstance().recent(accountNumber, count);
+    }
+
+    /**
+     * Open a paged view of an account's ledger history.
+     * Rows are fetched from the database a page at a time as they are read, with the query's
+     * filter and sort order applied by the database, so long histories are never loaded whole.
+     * @param query Account, filter and sort order
+     * @return Page cache positioned on the first page
+     */
+    public TransactionPageCache openHistory(TransactionHistoryQuery query) {
+        return new TransactionPageCache(transactionDAO, query);
+    }
+
     /**
      * Get account balance.
      * @param accountNumber The account number
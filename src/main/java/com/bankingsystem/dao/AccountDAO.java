@@ -4,6 +4,7 @@ import com.bankingsystem.Account;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 
 /**
  * Implementation of AccountDAOInterface.
@@ -68,6 +69,34 @@ public class AccountDAO implements AccountDAOInterface {
         return false;
     }
 
+    @Override
+    public synchronized OptionalDouble creditBalance(String accountNumber, double amount) {
+        // TODO: Replace with SQL UPDATE ... SET balance = balance + ? WHERE account_number=? AND status='APPROVED'
+        // In-memory: the stored object is the model itself, so only compute the new balance here
+        Optional<Account> account = findAccountByNumber(accountNumber);
+        if (account.isEmpty() || account.get().getStatus() != com.bankingsystem.AccountStatus.APPROVED) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(account.get().getBalance() + amount);
+    }
+
+    @Override
+    public synchronized OptionalDouble debitBalance(String accountNumber, double amount) {
+        // TODO: Replace with SQL UPDATE ... SET balance = balance - ? WHERE ... AND balance - ? >= ?
+        Optional<Account> account = findAccountByNumber(accountNumber);
+        if (account.isEmpty() || account.get().getStatus() != com.bankingsystem.AccountStatus.APPROVED
+                || !(account.get() instanceof com.bankingsystem.Withdrawable)) {
+            return OptionalDouble.empty();
+        }
+        Account a = account.get();
+        boolean overdraft = a instanceof com.bankingsystem.ChequeAccount
+                && ((com.bankingsystem.ChequeAccount) a).isOverdraftAllowed();
+        if (!overdraft && a.getBalance() - amount < 0) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(a.getBalance() - amount);
+    }
+
     @Override
     public Optional<Account> findAccountByNumber(String accountNumber) {
         if (accountNumber == null) return Optional.empty();
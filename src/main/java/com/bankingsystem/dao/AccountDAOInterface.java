@@ -3,6 +3,7 @@ package com.bankingsystem.dao;
 import com.bankingsystem.Account;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 
 /**
  * Data Access Object interface for Account operations.
@@ -31,6 +32,24 @@ public interface AccountDAOInterface {
      */
     boolean updateAccountBalance(String accountNumber, double newBalance);
 
+    /**
+     * Credit an approved account in a single conditional update.
+     * @param accountNumber The account number
+     * @param amount The positive amount to add
+     * @return The balance after the credit, or empty if the account is missing or not approved
+     */
+    OptionalDouble creditBalance(String accountNumber, double amount);
+
+    /**
+     * Debit an approved account in a single conditional update.
+     * The withdrawal rules (withdrawable account type, no overdraft unless allowed)
+     * are checked by the store together with the update, so concurrent debits cannot overdraw.
+     * @param accountNumber The account number
+     * @param amount The positive amount to subtract
+     * @return The balance after the debit, or empty if the rules reject it or the account is missing
+     */
+    OptionalDouble debitBalance(String accountNumber, double amount);
+
     /**
      * Find an account by account number.
      * @param accountNumber The account number to search for
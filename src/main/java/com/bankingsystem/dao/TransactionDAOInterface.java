@@ -1,6 +1,7 @@
 package com.bankingsystem.dao;
 
 import com.bankingsystem.Transaction;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,6 +16,18 @@ public interface TransactionDAOInterface {
      */
     boolean recordTransaction(Transaction transaction);
 
+    /**
+     * Record a new transaction against a specific account.
+     * Transactions do not carry their account number, so database-backed
+     * implementations need it passed alongside.
+     * @param accountNumber The account the transaction belongs to
+     * @param transaction The transaction to record
+     * @return true if successful, false otherwise
+     */
+    default boolean recordTransaction(String accountNumber, Transaction transaction) {
+        return recordTransaction(transaction);
+    }
+
     /**
      * Get all transactions for a specific account.
      * @param accountNumber The account number
@@ -29,6 +42,24 @@ public interface TransactionDAOInterface {
      */
     List<Transaction> getTransactionsByCustomer(String customerID);
 
+    /**
+     * Fetch the page of a customer's history, across all their accounts, that follows a cursor.
+     * The default pages getTransactionsByCustomer in memory; database-backed implementations
+     * should merge per-account index scans and continue from the cursor's keyset.
+     * @param customerID The customer ID
+     * @param after Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum rows in the page
+     * @return The page, newest first, and the cursor after its last row
+     */
+    default TransactionPage getCustomerHistoryPage(String customerID, TransactionPage.Cursor after, int limit) {
+        List<Transaction> all = getTransactionsByCustomer(customerID);
+        int from = Math.min(after != null ? Math.max(after.getPosition(), 0) : 0, all.size());
+        int to = Math.min(from + Math.max(limit, 0), all.size());
+        List<Transaction> rows = all.subList(from, to);
+        TransactionPage.Cursor end = rows.isEmpty() ? null : new TransactionPage.Cursor(null, null, to);
+        return new TransactionPage(rows, end, to < all.size());
+    }
+
     /**
      * Get transactions within a date range for an account.
      * @param accountNumber The account number
@@ -45,5 +76,54 @@ public interface TransactionDAOInterface {
      * @return List of all transactions, ordered by timestamp (newest first)
      */
     List<Transaction> getAllTransactions();
-}
 
+    /**
+     * Count the transactions matching a history query.
+     * The default filters getTransactionsByAccount in memory; database-backed
+     * implementations should count with the query's WHERE clause.
+     * @param query Account, filter and sort order
+     * @return Number of matching transactions
+     */
+    default int countTransactions(TransactionHistoryQuery query) {
+        int count = 0;
+        for (Transaction transaction : getTransactionsByAccount(query.getAccountNumber())) {
+            if (query.matches(transaction)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Fetch the page of a history query that starts at a row offset.
+     * Used to jump into the middle of a history; sequential paging should continue
+     * from a cursor with {@link #getTransactionPageAfter}.
+     * The default filters and sorts getTransactionsByAccount in memory.
+     * @param query Account, filter and sort order
+     * @param offset Number of matching rows to skip
+     * @param limit Maximum rows in the page
+     * @return The page and the cursor after its last row
+     */
+    default TransactionPage getTransactionPage(TransactionHistoryQuery query, int offset, int limit) {
+        List<Transaction> matching = new ArrayList<>();
+        for (Transaction transaction : getTransactionsByAccount(query.getAccountNumber())) {
+            if (query.matches(transaction)) matching.add(transaction);
+        }
+        matching.sort(query.comparator());
+        int from = Math.min(Math.max(offset, 0), matching.size());
+        int to = Math.min(from + Math.max(limit, 0), matching.size());
+        List<Transaction> rows = matching.subList(from, to);
+        TransactionPage.Cursor end = rows.isEmpty() ? null : new TransactionPage.Cursor(null, null, to);
+        return new TransactionPage(rows, end, to < matching.size());
+    }
+
+    /**
+     * Fetch the page of a history query that follows a cursor.
+     * @param query Account, filter and sort order
+     * @param after Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum rows in the page
+     * @return The page and the cursor after its last row
+     */
+    default TransactionPage getTransactionPageAfter(TransactionHistoryQuery query,
+                                                    TransactionPage.Cursor after, int limit) {
+        return getTransactionPage(query, after != null ? after.getPosition() : 0, limit);
+    }
+}
@@ -0,0 +1,120 @@
+package com.bankingsystem.dao;
+
+import com.bankingsystem.Transaction;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Filter and sort order of a paged transaction history.
+ * Immutable; the with* methods return a modified copy. Database-backed DAOs translate it into
+ * the WHERE and ORDER BY of a keyset query so filtering and sorting never happen in the UI.
+ */
+public final class TransactionHistoryQuery {
+
+    /**
+     * Sortable history columns. Each maps to an indexed ledger column; ties are broken by
+     * transaction ID so the order is total and keyset pagination never skips or repeats rows.
+     */
+    public enum SortField {
+        TIMESTAMP("transaction_timestamp"),
+        AMOUNT("amount");
+
+        private final String column;
+
+        SortField(String column) {
+            this.column = column;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+    }
+
+    private final String accountNumber;
+    private final Transaction.Type type;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final String descriptionContains;
+    private final SortField sortField;
+    private final boolean ascending;
+
+    private TransactionHistoryQuery(String accountNumber, Transaction.Type type, LocalDateTime from,
+                                    LocalDateTime to, String descriptionContains,
+                                    SortField sortField, boolean ascending) {
+        this.accountNumber = accountNumber;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+        this.descriptionContains = descriptionContains;
+        this.sortField = sortField;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Unfiltered history of one account, newest first
+     */
+    public static TransactionHistoryQuery forAccount(String accountNumber) {
+        if (accountNumber == null) throw new IllegalArgumentException("Account number is required");
+        return new TransactionHistoryQuery(accountNumber, null, null, null, null, SortField.TIMESTAMP, false);
+    }
+
+    /**
+     * Only transactions of one type; null clears the filter
+     */
+    public TransactionHistoryQuery withType(Transaction.Type type) {
+        return new TransactionHistoryQuery(accountNumber, type, from, to, descriptionContains, sortField, ascending);
+    }
+
+    /**
+     * Only transactions inside a timestamp range (inclusive); either bound may be null
+     */
+    public TransactionHistoryQuery withDateRange(LocalDateTime from, LocalDateTime to) {
+        return new TransactionHistoryQuery(accountNumber, type, from, to, descriptionContains, sortField, ascending);
+    }
+
+    /**
+     * Only transactions whose description contains the text (case-insensitive); blank clears the filter
+     */
+    public TransactionHistoryQuery withDescriptionContaining(String text) {
+        String filter = text == null || text.isBlank() ? null : text.trim();
+        return new TransactionHistoryQuery(accountNumber, type, from, to, filter, sortField, ascending);
+    }
+
+    public TransactionHistoryQuery sortedBy(SortField field, boolean ascending) {
+        if (field == null) throw new IllegalArgumentException("Sort field is required");
+        return new TransactionHistoryQuery(accountNumber, type, from, to, descriptionContains, field, ascending);
+    }
+
+    public String getAccountNumber() { return accountNumber; }
+    public Transaction.Type getType() { return type; }
+    public LocalDateTime getFrom() { return from; }
+    public LocalDateTime getTo() { return to; }
+    public String getDescriptionContains() { return descriptionContains; }
+    public SortField getSortField() { return sortField; }
+    public boolean isAscending() { return ascending; }
+
+    /**
+     * Evaluate the filter against an in-memory transaction (used by non-database DAOs)
+     */
+    public boolean matches(Transaction transaction) {
+        if (type != null && transaction.getType() != type) return false;
+        if (from != null && transaction.getTimestamp().isBefore(from)) return false;
+        if (to != null && transaction.getTimestamp().isAfter(to)) return false;
+        if (descriptionContains != null) {
+            String description = transaction.getDescription();
+            return description != null
+                    && description.toLowerCase().contains(descriptionContains.toLowerCase());
+        }
+        return true;
+    }
+
+    /**
+     * In-memory equivalent of the query's ORDER BY (used by non-database DAOs)
+     */
+    public Comparator<Transaction> comparator() {
+        Comparator<Transaction> order = sortField == SortField.AMOUNT
+                ? Comparator.comparingDouble(Transaction::getAmount)
+                : Comparator.comparing(Transaction::getTimestamp);
+        return ascending ? order : order.reversed();
+    }
+}
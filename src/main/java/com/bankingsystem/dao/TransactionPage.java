@@ -0,0 +1,55 @@
+package com.bankingsystem.dao;
+
+import com.bankingsystem.Transaction;
+import java.util.List;
+
+/**
+ * One page of a transaction history query plus the cursor needed to fetch the page after it.
+ */
+public final class TransactionPage {
+
+    /**
+     * Position just after the last row of a page.
+     * Database-backed DAOs continue from the sort value and transaction ID (keyset pagination,
+     * an index range scan that costs the same on page 1 and page 10,000); in-memory DAOs use
+     * the row position.
+     */
+    public static final class Cursor {
+        private final Object sortValue;
+        private final String transactionId;
+        private final int position;
+
+        public Cursor(Object sortValue, String transactionId, int position) {
+            this.sortValue = sortValue;
+            this.transactionId = transactionId;
+            this.position = position;
+        }
+
+        public Object getSortValue() { return sortValue; }
+        public String getTransactionId() { return transactionId; }
+
+        /**
+         * Number of rows of the query that come before this cursor
+         */
+        public int getPosition() { return position; }
+    }
+
+    private final List<Transaction> transactions;
+    private final Cursor end;
+    private final boolean hasMore;
+
+    public TransactionPage(List<Transaction> transactions, Cursor end, boolean hasMore) {
+        this.transactions = List.copyOf(transactions);
+        this.end = end;
+        this.hasMore = hasMore;
+    }
+
+    public List<Transaction> getTransactions() { return transactions; }
+
+    /**
+     * Cursor after the last row, or null for an empty page
+     */
+    public Cursor getEnd() { return end; }
+
+    public boolean hasMore() { return hasMore; }
+}
@@ -5,7 +5,18 @@ import com.bankingsystem.mvc.view.LoginView;
 import com.bankingsystem.mvc.controller.LoginController;
 import com.bankingsystem.mvc.view.StaffDashboardView;
 import com.bankingsystem.mvc.view.CustomerDashboardView;
+import com.bankingsystem.persistence.BalanceCheckpointDAO;
+import com.bankingsystem.persistence.CustomerPositionCache;
+import com.bankingsystem.persistence.CustomerSearchIndex;
+import com.bankingsystem.persistence.DatabaseConnection;
 import com.bankingsystem.persistence.DatabaseInitializer;
+import com.bankingsystem.persistence.GroupCommitWriter;
+import com.bankingsystem.persistence.IdempotencyKeyDAO;
+import com.bankingsystem.persistence.LedgerArchive;
+import com.bankingsystem.persistence.LedgerRollupDAO;
+import com.bankingsystem.utils.LedgerAuditTrail;
+import com.bankingsystem.utils.LedgerEventBus;
+import com.bankingsystem.utils.LedgerMetrics;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -16,6 +27,7 @@ import javafx.stage.Stage;
  */
 public class MainApp extends Application {
     private static Bank bank;
+    private LedgerAuditTrail auditTrail;
 
     @Override
     public void start(Stage primaryStage) {
@@ -24,6 +36,54 @@ public class MainApp extends Application {
         
         // Initialize database with test data for staff dashboard
         DatabaseInitializer.initializeWithTestData();
+
+        // Move ledger history older than 90 days to compressed monthly files; history reads merge them back in.
+        // Only for a persistent database: the embedded in-memory one starts empty every run
+        if ("MySQL".equals(DatabaseConnection.getInstance().getDatabaseType())) {
+            java.io.File archiveDir = new java.io.File(System.getProperty("user.home"), "banking-ledger-archive");
+            if (LedgerArchive.getInstance().open(archiveDir.toPath())) {
+                LedgerArchive.getInstance().start(LedgerArchive.DEFAULT_MAX_AGE_DAYS);
+            }
+        }
+
+        // Finish payroll disbursements a crash or restart interrupted; only a persistent database can have any
+        if ("MySQL".equals(DatabaseConnection.getInstance().getDatabaseType())) {
+            Thread payrollRecovery = new Thread(
+                    () -> new PayrollDisbursementService(bank).recoverInterrupted().forEach(System.out::println),
+                    "PayrollRecovery");
+            payrollRecovery.setDaemon(true);
+            payrollRecovery.start();
+        }
+
+        // Daily branch and product totals for staff analytics: committed ledger rows are added every
+        // second, and closed days are rebuilt from the ledger every hour, all in the background
+        LedgerRollupDAO.getInstance().startUpdater(1_000L, 60 * 60_000L);
+
+        // Build the staff customer search index in the background so the first lookup doesn't wait
+        CustomerSearchIndex.getInstance().loadInBackground();
+
+        // Customer positions for the dashboards: follow the ledger from now on, load the rest in the background
+        CustomerPositionCache.getInstance().start();
+        Thread positionLoader = new Thread(
+                () -> CustomerPositionCache.getInstance().rebuild(CustomerPositionCache.DEFAULT_REBUILD_WORKERS),
+                "CustomerPositionLoader");
+        positionLoader.setDaemon(true);
+        positionLoader.start();
+
+        // Idempotency keys protect against replays for a day
+        IdempotencyKeyDAO.getInstance().startPurger(24 * 60 * 60_000L, 60 * 60_000L);
+
+        // Start-of-day balances for statements and disputes; checked hourly, written once a day
+        BalanceCheckpointDAO.getInstance().startWriter(60 * 60_000L);
+
+        // Group-commit ledger writes where every commit costs a log sync; the embedded H2 database has none
+        if ("MySQL".equals(DatabaseConnection.getInstance().getDatabaseType())) {
+            GroupCommitWriter.getInstance().start(GroupCommitWriter.DEFAULT_WINDOW_NANOS, GroupCommitWriter.DEFAULT_MAX_BATCH);
+        }
+
+        // Ledger event subscribers: running totals and an audit file
+        LedgerMetrics.getInstance().start(LedgerEventBus.getInstance());
+        startAuditTrail();
         
         // Create login view with callback to route to appropriate dashboard.
         // Use a scene holder to avoid referencing the view before it's initialized.
@@ -32,8 +92,8 @@ public class MainApp extends Application {
 
         java.util.function.Consumer<com.bankingsystem.mvc.controller.LoginResult> onSuccess = loginResult -> {
             if (loginResult.getRole() == com.bankingsystem.mvc.controller.LoginResult.Role.STAFF) {
-                // Staff dashboard for account approval - pass primaryStage and loginSceneHolder for logout
-                StaffDashboardView staffDashboard = new StaffDashboardView(bank, primaryStage, loginSceneHolder[0]);
+                // Staff dashboard for account approval - pass the staff member, primaryStage and loginSceneHolder for logout
+                StaffDashboardView staffDashboard = new StaffDashboardView(bank, loginResult.getStaff().getUsername(), primaryStage, loginSceneHolder[0]);
                 Scene staffScene = new Scene(staffDashboard, 1000, 600);
                 primaryStage.setScene(staffScene);
                 primaryStage.setTitle("Banking System - Staff Dashboard");
@@ -73,7 +133,22 @@ public class MainApp extends Application {
         primaryStage.show();
         
         // Save on exit
-        primaryStage.setOnCloseRequest(e -> saveBank());
+        primaryStage.setOnCloseRequest(e -> {
+            saveBank();
+            if (auditTrail != null) {
+                auditTrail.stop();
+            }
+        });
+    }
+
+    private void startAuditTrail() {
+        try {
+            java.io.File auditFile = new java.io.File(System.getProperty("user.home"), "banking-ledger-audit.csv");
+            auditTrail = new LedgerAuditTrail(new java.io.FileWriter(auditFile, true));
+            auditTrail.start(LedgerEventBus.getInstance());
+        } catch (java.io.IOException e) {
+            System.err.println("Failed to open ledger audit trail: " + e.getMessage());
+        }
     }
 
     private void initializeBank() {
@@ -256,9 +331,11 @@ public class MainApp extends Application {
         System.out.println("5. Botswana Tech Ltd (techcompany/password) - 1 approved, 1 pending");
         System.out.println("6. Mining Services Corp (miningcorp/password) - 0 approved, 2 pending");
         System.out.println("Staff: staff1 / adminpass");
-        System.out.println("\nTotal Approved Accounts: " + bank.getAccounts().stream()
+        // Both totals come from one snapshot so they describe the same moment
+        Bank.Snapshot snapshot = bank.snapshot();
+        System.out.println("\nTotal Approved Accounts: " + snapshot.getAccounts().stream()
             .filter(a -> a.getStatus() == AccountStatus.APPROVED).count());
-        System.out.println("Total Pending Accounts: " + bank.getAccounts().stream()
+        System.out.println("Total Pending Accounts: " + snapshot.getAccounts().stream()
             .filter(a -> a.getStatus() == AccountStatus.PENDING).count());
         System.out.println("============================\n");
     }
@@ -8,8 +8,18 @@ import com.bankingsystem.mvc.model.Customer;
  * Supports both password and PIN-based authentication
  */
 public class LoginController {
+    private final Bank bank;
 
-    public LoginController() {}
+    public LoginController() {
+        this(null);
+    }
+
+    /**
+     * @param bank Bank to authenticate against; null for the one loaded by MainApp
+     */
+    public LoginController(Bank bank) {
+        this.bank = bank;
+    }
 
     /**
      * Login using username and password/PIN
@@ -21,12 +31,13 @@ public class LoginController {
     public LoginResult login(String username, String credential, String userType) {
         try {
             // First try to authenticate against core Bank system
-            Bank bank = com.bankingsystem.gui.MainApp.getBank();
+            Bank bank = this.bank != null ? this.bank : com.bankingsystem.gui.MainApp.getBank();
             
             if ("Staff".equalsIgnoreCase(userType)) {
                 // Try staff authentication
                 if (bank.authenticateStaff(username, credential)) {
                     LoginResult lr = new LoginResult(LoginResult.Role.STAFF);
+                    lr.setStaff(new com.bankingsystem.mvc.model.Staff(null, username, null));
                     return lr;
                 }
             } else {
@@ -1,62 +1,93 @@
 package com.bankingsystem.mvc.utils;
 
-import javafx.application.Platform;
-import java.util.Timer;
-import java.util.TimerTask;
+import com.bankingsystem.utils.LedgerEventBus;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * DashboardRefreshManager - Provides auto-refresh capabilities for staff/customer dashboards
- * Periodically polls the database for new or updated accounts
+ * Refreshes when a relevant ledger or account event arrives on the LedgerEventBus, instead of
+ * polling the database. All managers share one RefreshScheduler, so a burst of events causes one
+ * refresh per view at the next tick, whatever the number of open views.
+ *
+ * A view whose window is hidden, minimised or showing another scene is not refreshed; it catches
+ * up once it is showing again. As a fallback for changes made outside this process, the view is
+ * also polled every refresh interval. Each poll with no relevant event since the last refresh
+ * doubles the interval, up to MAX_BACKOFF_FACTOR times the configured one; an event resets it.
  */
 public class DashboardRefreshManager {
-    private Timer refreshTimer;
-    private final long REFRESH_INTERVAL_MS = 5000; // Refresh every 5 seconds
-    private boolean isRunning = false;
+    public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 30_000;
+    public static final int MAX_BACKOFF_FACTOR = 16;
+    // How often a hidden view that has something to refresh is checked again
+    private static final long HIDDEN_RECHECK_MILLIS = 1_000;
+
+    private final RefreshScheduler scheduler;
+    private final Node view;
+    private final Predicate<LedgerEventBus.Event> filter;
     private final Runnable refreshAction;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean running;
+    private volatile long refreshIntervalMillis = DEFAULT_REFRESH_INTERVAL_MILLIS;
+    // Written on the JavaFX thread, read by the scheduler's tick
+    private volatile long currentIntervalMillis = DEFAULT_REFRESH_INTERVAL_MILLIS;
+    private volatile long nextPollAt;
+    private volatile long nextCheckAt;
+
+    /**
+     * Create a refresh manager that refreshes on every event
+     * @param view The dashboard; refreshes are skipped while it is not showing
+     * @param refreshAction The action to execute on refresh (e.g., reload table data)
+     */
+    public DashboardRefreshManager(Node view, Runnable refreshAction) {
+        this(view, event -> true, refreshAction);
+    }
 
     /**
-     * Create a refresh manager with a custom refresh action
+     * Create a refresh manager that refreshes on the events a dashboard cares about
+     * @param view The dashboard; refreshes are skipped while it is not showing
+     * @param filter Selects relevant events; called on the bus thread, must be quick
      * @param refreshAction The action to execute on refresh (e.g., reload table data)
      */
-    public DashboardRefreshManager(Runnable refreshAction) {
+    public DashboardRefreshManager(Node view, Predicate<LedgerEventBus.Event> filter, Runnable refreshAction) {
+        this(RefreshScheduler.getInstance(), view, filter, refreshAction);
+    }
+
+    public DashboardRefreshManager(RefreshScheduler scheduler, Node view, Predicate<LedgerEventBus.Event> filter,
+                                   Runnable refreshAction) {
+        this.scheduler = scheduler;
+        this.view = view;
+        this.filter = filter;
         this.refreshAction = refreshAction;
     }
 
     /**
-     * Start auto-refresh polling
+     * Start refreshing on events
      */
-    public void startAutoRefresh() {
-        if (isRunning) {
+    public synchronized void startAutoRefresh() {
+        if (running) {
             return; // Already running
         }
-
-        isRunning = true;
-        refreshTimer = new Timer("DashboardRefreshTimer", true);
-        
-        refreshTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                // Execute on JavaFX thread
-                Platform.runLater(() -> {
-                    try {
-                        refreshAction.run();
-                    } catch (Exception e) {
-                        System.err.println("Error during dashboard refresh: " + e.getMessage());
-                    }
-                });
-            }
-        }, REFRESH_INTERVAL_MS, REFRESH_INTERVAL_MS);
-
-        System.out.println("Dashboard auto-refresh started (interval: " + REFRESH_INTERVAL_MS + "ms)");
+        running = true;
+        currentIntervalMillis = refreshIntervalMillis;
+        nextPollAt = System.currentTimeMillis() + currentIntervalMillis;
+        scheduler.register(this);
+        System.out.println("Dashboard auto-refresh started (event-driven)");
     }
 
     /**
-     * Stop auto-refresh polling
+     * Stop refreshing on events
      */
-    public void stopAutoRefresh() {
-        if (refreshTimer != null) {
-            refreshTimer.cancel();
-            isRunning = false;
+    public synchronized void stopAutoRefresh() {
+        if (running) {
+            running = false;
+            scheduler.unregister(this);
             System.out.println("Dashboard auto-refresh stopped");
         }
     }
@@ -65,18 +96,88 @@ public class DashboardRefreshManager {
      * Check if auto-refresh is running
      */
     public boolean isAutoRefreshRunning() {
-        return isRunning;
+        return running;
+    }
+
+    /**
+     * Set the fallback polling interval; takes effect from the next poll
+     * @param millis Interval in milliseconds, or 0 to refresh on events only
+     */
+    public void setRefreshInterval(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Refresh interval cannot be negative");
+        refreshIntervalMillis = millis;
+        currentIntervalMillis = millis;
+        nextPollAt = System.currentTimeMillis() + millis;
+    }
+
+    /**
+     * Current polling interval, after any backoff
+     */
+    public long getCurrentRefreshInterval() {
+        return currentIntervalMillis;
+    }
+
+    /**
+     * Refreshes run so far
+     */
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    /**
+     * Refreshes skipped because the view was not showing
+     */
+    public long getSkippedRefreshCount() {
+        return skipped.get();
     }
 
     /**
-     * Set refresh interval (in milliseconds)
+     * Called on the bus thread for every event
      */
-    public void setRefreshInterval(long intervalMs) {
-        if (intervalMs < 1000) {
-            System.err.println("Refresh interval too short, minimum is 1000ms");
+    void offer(LedgerEventBus.Event event) {
+        if (!dirty.get() && filter.test(event)) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Called on the scheduler's tick
+     */
+    boolean isDue(long now) {
+        if (!running || now < nextCheckAt) return false;
+        return dirty.get() || (refreshIntervalMillis > 0 && now >= nextPollAt);
+    }
+
+    /**
+     * Called on the JavaFX thread
+     */
+    void refreshIfShowing(long now) {
+        if (!running) return;
+        if (!isShowing()) {
+            // Stays dirty or due, so it refreshes once it is showing again
+            skipped.incrementAndGet();
+            nextCheckAt = now + HIDDEN_RECHECK_MILLIS;
             return;
         }
-        // Would need to restart timer to apply new interval
-        System.out.println("Note: Refresh interval change requires restart");
+        if (dirty.getAndSet(false)) {
+            currentIntervalMillis = refreshIntervalMillis;
+        } else {
+            // A poll: nothing was announced since the last refresh, so back off
+            currentIntervalMillis = Math.min(currentIntervalMillis * 2, refreshIntervalMillis * MAX_BACKOFF_FACTOR);
+        }
+        nextPollAt = now + currentIntervalMillis;
+        refreshes.incrementAndGet();
+        try {
+            refreshAction.run();
+        } catch (Exception e) {
+            System.err.println("Error during dashboard refresh: " + e.getMessage());
+        }
+    }
+
+    private boolean isShowing() {
+        Scene scene = view.getScene();
+        Window window = scene != null ? scene.getWindow() : null;
+        if (window == null || !window.isShowing()) return false;
+        return !(window instanceof Stage) || !((Stage) window).isIconified();
     }
 }
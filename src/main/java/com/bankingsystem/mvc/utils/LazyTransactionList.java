@@ -0,0 +1,128 @@
+package com.bankingsystem.mvc.utils;
+
+import com.bankingsystem.Transaction;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.utils.TransactionPageCache;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+import java.util.Collections;
+import java.util.function.Function;
+
+/**
+ * LazyTransactionList - Virtualized TableView data source for transaction history
+ * The list reports the full row count but only holds the pages around the visible rows
+ * (see TransactionPageCache). Rows whose page is still loading are null; when the page
+ * arrives the rows are replaced and the table repaints them. The list starts with the first
+ * page and grows to the full count once the background count completes.
+ *
+ * Sorting and filtering are pushed to the database: install the sort policy on the table and
+ * tag each sortable column with its TransactionHistoryQuery.SortField as user data.
+ */
+public class LazyTransactionList extends ObservableListBase<Transaction> {
+    private final Function<TransactionHistoryQuery, TransactionPageCache> opener;
+    private TransactionPageCache cache;
+
+    /**
+     * @param opener Opens a page cache for a query, e.g. TransactionController::openHistory
+     * @param query Initial filter and sort order
+     */
+    public LazyTransactionList(Function<TransactionHistoryQuery, TransactionPageCache> opener,
+                               TransactionHistoryQuery query) {
+        this.opener = opener;
+        this.cache = open(query);
+    }
+
+    @Override
+    public Transaction get(int index) {
+        return cache.get(index);
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    public TransactionHistoryQuery getQuery() {
+        return cache.getQuery();
+    }
+
+    /**
+     * Re-run the history with a new filter or sort order (FX thread)
+     */
+    public void setQuery(TransactionHistoryQuery query) {
+        int oldSize = cache.size();
+        cache.close();
+        cache = open(query);
+        beginChange();
+        nextReplace(0, cache.size(), Collections.<Transaction>nCopies(oldSize, null));
+        endChange();
+    }
+
+    /**
+     * Reload the current query, picking up transactions posted since it was opened
+     */
+    public void refresh() {
+        setQuery(cache.getQuery());
+    }
+
+    /**
+     * Stop background fetching when the owning view is closed
+     */
+    public void close() {
+        cache.close();
+    }
+
+    /**
+     * Let the table's column sorting re-query the database instead of sorting the items in memory.
+     * Columns without a SortField user data are made unsortable.
+     */
+    public void installSortPolicy(TableView<Transaction> table) {
+        for (TableColumn<Transaction, ?> column : table.getColumns()) {
+            column.setSortable(column.getUserData() instanceof TransactionHistoryQuery.SortField);
+        }
+        table.setSortPolicy(t -> {
+            TransactionHistoryQuery query = getQuery();
+            TransactionHistoryQuery sorted = query.sortedBy(TransactionHistoryQuery.SortField.TIMESTAMP, false);
+            if (!t.getSortOrder().isEmpty()) {
+                TableColumn<Transaction, ?> column = t.getSortOrder().get(0);
+                sorted = query.sortedBy((TransactionHistoryQuery.SortField) column.getUserData(),
+                        column.getSortType() == TableColumn.SortType.ASCENDING);
+            }
+            if (sorted.getSortField() != query.getSortField() || sorted.isAscending() != query.isAscending()) {
+                setQuery(sorted);
+            }
+            return true;
+        });
+    }
+
+    private TransactionPageCache open(TransactionHistoryQuery query) {
+        TransactionPageCache opened = opener.apply(query);
+        opened.setListener(new TransactionPageCache.Listener() {
+            @Override
+            public void pageLoaded(int fromIndex, int toIndex) {
+                Platform.runLater(() -> {
+                    if (cache != opened) return;
+                    beginChange();
+                    nextReplace(fromIndex, toIndex, Collections.<Transaction>nCopies(toIndex - fromIndex, null));
+                    endChange();
+                });
+            }
+
+            @Override
+            public void sizeChanged(int oldSize, int newSize) {
+                Platform.runLater(() -> {
+                    if (cache != opened) return;
+                    // The size grows here, together with the change the table is told about
+                    opened.applySize(newSize);
+                    beginChange();
+                    nextAdd(oldSize, newSize);
+                    endChange();
+                });
+            }
+        });
+        return opened;
+    }
+}
@@ -0,0 +1,104 @@
+package com.bankingsystem.mvc.utils;
+
+import com.bankingsystem.utils.LedgerEventBus;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * RefreshScheduler - One refresh loop shared by every open dashboard
+ * Holds a single LedgerEventBus subscription and a single daemon tick thread for all registered
+ * DashboardRefreshManagers, however many views are open. Events only mark the views they concern
+ * as dirty; every tick, the views that are dirty or due a poll are refreshed together in one
+ * Platform.runLater, so a burst of events across views costs one pass on the JavaFX thread.
+ * The subscription and the thread exist only while some view is registered.
+ */
+public class RefreshScheduler {
+    public static final long DEFAULT_TICK_MILLIS = 200;
+
+    private static final RefreshScheduler INSTANCE = new RefreshScheduler(LedgerEventBus.getInstance(), DEFAULT_TICK_MILLIS);
+
+    private final LedgerEventBus bus;
+    private final long tickMillis;
+    private final List<DashboardRefreshManager> managers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean passQueued = new AtomicBoolean();
+    private LedgerEventBus.Subscription subscription;
+    private ScheduledExecutorService ticker;
+
+    public static RefreshScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    public RefreshScheduler(LedgerEventBus bus, long tickMillis) {
+        this.bus = bus;
+        this.tickMillis = tickMillis;
+    }
+
+    synchronized void register(DashboardRefreshManager manager) {
+        if (managers.contains(manager)) return;
+        managers.add(manager);
+        if (ticker == null) {
+            subscription = bus.subscribe("DashboardRefresh", this::onEvent);
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "DashboardRefreshScheduler");
+                t.setDaemon(true);
+                return t;
+            });
+            ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void unregister(DashboardRefreshManager manager) {
+        managers.remove(manager);
+        if (managers.isEmpty() && ticker != null) {
+            subscription.close();
+            subscription = null;
+            ticker.shutdown();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Number of views currently refreshed by this scheduler
+     */
+    public int getViewCount() {
+        return managers.size();
+    }
+
+    private void onEvent(LedgerEventBus.Event event, boolean endOfBatch) {
+        for (DashboardRefreshManager manager : managers) {
+            try {
+                manager.offer(event);
+            } catch (Exception e) {
+                // One view's filter must not keep the event from the others
+                System.err.println("Error filtering dashboard refresh event: " + e.getMessage());
+            }
+        }
+    }
+
+    private void tick() {
+        // While the last pass is still waiting on the JavaFX thread, leave it to the next tick
+        if (!passQueued.compareAndSet(false, true)) return;
+        long now = System.currentTimeMillis();
+        List<DashboardRefreshManager> due = new ArrayList<>();
+        for (DashboardRefreshManager manager : managers) {
+            if (manager.isDue(now)) due.add(manager);
+        }
+        if (due.isEmpty()) {
+            passQueued.set(false);
+            return;
+        }
+        Platform.runLater(() -> {
+            passQueued.set(false);
+            for (DashboardRefreshManager manager : due) {
+                manager.refreshIfShowing(now);
+            }
+        });
+    }
+}
@@ -1,7 +1,12 @@
 package com.bankingsystem.mvc.view;
 
 import com.bankingsystem.*;
+import com.bankingsystem.dao.TransactionHistoryQuery;
 import com.bankingsystem.mvc.utils.DashboardRefreshManager;
+import com.bankingsystem.mvc.utils.LazyTransactionList;
+import com.bankingsystem.persistence.CustomerPositionCache;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+import com.bankingsystem.utils.TransactionPageCache;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -209,7 +214,16 @@ public class CustomerDashboardView extends BorderPane {
         if (accounts.isEmpty()) {
             messageLabel.setText("You have no accounts yet. Please visit a branch to open an account.");
         } else {
-            messageLabel.setText(accounts.size() + " account(s) found");
+            // Consolidated figures come from the position cache, not from re-adding the rows
+            CustomerPositionCache.Position position = CustomerPositionCache.getInstance().getPosition(customer.getCustomerID());
+            String summary = accounts.size() + " account(s) found";
+            if (position != null) {
+                summary += " | Total balance: P" + position.getFormattedTotal();
+                if (position.getLastActivity() != null) {
+                    summary += " | Last activity: " + position.getLastActivity().withNano(0).toString().replace('T', ' ');
+                }
+            }
+            messageLabel.setText(summary);
         }
         // Update add-account button state
         if (addAccountButton != null) {
@@ -442,7 +456,6 @@ public class CustomerDashboardView extends BorderPane {
         }
         
         Account account = selected.getAccount();
-        List<Transaction> transactions = account.getTransactions();
         
         Dialog<Void> historyDialog = new Dialog<>();
         historyDialog.setTitle("Transaction History");
@@ -454,33 +467,46 @@ public class CustomerDashboardView extends BorderPane {
         TableView<Transaction> transactionTable = new TableView<>();
         transactionTable.setPrefHeight(400);
         
+        // Rows are paged in from the ledger as the table scrolls; a null row is still loading
         TableColumn<Transaction, String> timestampCol = new TableColumn<>("Date/Time");
         timestampCol.setCellValueFactory(cv -> new javafx.beans.property.SimpleStringProperty(
-            cv.getValue().getTimestamp().toString()));
+            cv.getValue() != null ? cv.getValue().getTimestamp().toString() : "Loading..."));
+        timestampCol.setUserData(TransactionHistoryQuery.SortField.TIMESTAMP);
         timestampCol.setPrefWidth(180);
         
         TableColumn<Transaction, String> typeCol = new TableColumn<>("Type");
         typeCol.setCellValueFactory(cv -> new javafx.beans.property.SimpleStringProperty(
-            cv.getValue().getType().toString()));
+            cv.getValue() != null ? cv.getValue().getType().toString() : ""));
         typeCol.setPrefWidth(90);
         
         TableColumn<Transaction, String> amountCol = new TableColumn<>("Amount (P)");
         amountCol.setCellValueFactory(cv -> new javafx.beans.property.SimpleStringProperty(
-            String.format("%.2f", cv.getValue().getAmount())));
+            cv.getValue() != null ? String.format("%.2f", cv.getValue().getAmount()) : ""));
+        amountCol.setUserData(TransactionHistoryQuery.SortField.AMOUNT);
         amountCol.setPrefWidth(100);
         
         TableColumn<Transaction, String> balanceCol = new TableColumn<>("Balance After (P)");
         balanceCol.setCellValueFactory(cv -> new javafx.beans.property.SimpleStringProperty(
-            String.format("%.2f", cv.getValue().getBalanceAfter())));
+            cv.getValue() != null ? String.format("%.2f", cv.getValue().getBalanceAfter()) : ""));
         balanceCol.setPrefWidth(130);
         
         TableColumn<Transaction, String> descCol = new TableColumn<>("Description");
         descCol.setCellValueFactory(cv -> new javafx.beans.property.SimpleStringProperty(
-            cv.getValue().getDescription() != null ? cv.getValue().getDescription() : "-"));
+            cv.getValue() == null ? "" : cv.getValue().getDescription() != null ? cv.getValue().getDescription() : "-"));
         descCol.setPrefWidth(150);
         
         transactionTable.getColumns().addAll(Arrays.asList(timestampCol, typeCol, amountCol, balanceCol, descCol));
-        transactionTable.getItems().addAll(transactions);
+        LazyTransactionList history = null;
+        if (account.getAccountNumber() != null) {
+            TransactionDAOImpl transactionDAO = new TransactionDAOImpl();
+            history = new LazyTransactionList(query -> new TransactionPageCache(transactionDAO, query),
+                TransactionHistoryQuery.forAccount(account.getAccountNumber()));
+            transactionTable.setItems(history);
+            history.installSortPolicy(transactionTable);
+        } else {
+            // Pending accounts have no ledger rows yet
+            transactionTable.getItems().addAll(account.getTransactions());
+        }
         
         ScrollPane scrollPane = new ScrollPane(transactionTable);
         scrollPane.setFitToWidth(true);
@@ -509,6 +535,9 @@ public class CustomerDashboardView extends BorderPane {
         historyDialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
         
         historyDialog.showAndWait();
+        if (history != null) {
+            history.close();
+        }
     }
 
     private void showAddAccountDialog() {
@@ -582,6 +611,7 @@ public class CustomerDashboardView extends BorderPane {
         confirmAlert.setContentText("Are you sure you want to logout?");
         
         if (confirmAlert.showAndWait().get() == ButtonType.OK) {
+            stopAutoRefresh();
             if (primaryStage != null && loginScene != null) {
                 primaryStage.setScene(loginScene);
                 primaryStage.setTitle("Banking System - Login");
@@ -613,10 +643,11 @@ public class CustomerDashboardView extends BorderPane {
 
     /**
      * Start auto-refresh of customer dashboard
-     * Polls database every 5 seconds for approval updates
+     * Refreshes when one of this customer's accounts is approved, rejected or moves money
      */
     private void startAutoRefresh() {
-        refreshManager = new DashboardRefreshManager(() -> {
+        String customerId = customer.getCustomerID();
+        refreshManager = new DashboardRefreshManager(this, event -> customerId.equals(event.getCustomerId()), () -> {
             loadAccountsAndCheckApproval();
         });
         refreshManager.startAutoRefresh();
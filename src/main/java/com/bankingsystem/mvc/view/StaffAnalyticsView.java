@@ -0,0 +1,141 @@
+package com.bankingsystem.mvc.view;
+
+import com.bankingsystem.persistence.LedgerRollupDAO;
+import com.bankingsystem.persistence.LedgerRollupDAO.Dimension;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Staff analytics panel: ledger counts and totals by day, month, branch, account type or
+ * transaction type over any range of days. Reads only the ledger rollups, never the ledger.
+ */
+public class StaffAnalyticsView extends VBox {
+    private static final Map<String, Dimension[]> GROUPINGS = new LinkedHashMap<>();
+
+    static {
+        GROUPINGS.put("Month", new Dimension[]{Dimension.MONTH});
+        GROUPINGS.put("Day", new Dimension[]{Dimension.DAY});
+        GROUPINGS.put("Branch", new Dimension[]{Dimension.BRANCH});
+        GROUPINGS.put("Account type", new Dimension[]{Dimension.ACCOUNT_TYPE});
+        GROUPINGS.put("Transaction type", new Dimension[]{Dimension.TRANSACTION_TYPE});
+        GROUPINGS.put("Branch and account type", new Dimension[]{Dimension.BRANCH, Dimension.ACCOUNT_TYPE});
+        GROUPINGS.put("Day, branch and account type", new Dimension[]{Dimension.DAY, Dimension.BRANCH, Dimension.ACCOUNT_TYPE});
+    }
+
+    private final LedgerRollupDAO rollups = LedgerRollupDAO.getInstance();
+    private final DatePicker fromPicker = new DatePicker(LocalDate.now().minusYears(1));
+    private final DatePicker toPicker = new DatePicker(LocalDate.now());
+    private final ComboBox<String> groupingBox = new ComboBox<>();
+    private final TableView<TotalRow> table = new TableView<>();
+    private final Label summaryLabel = new Label();
+
+    public StaffAnalyticsView() {
+        setPadding(new Insets(10));
+        setSpacing(10);
+
+        groupingBox.getItems().addAll(GROUPINGS.keySet());
+        groupingBox.setValue("Month");
+        groupingBox.setOnAction(e -> refresh());
+
+        Button showButton = new Button("Show");
+        showButton.setStyle("-fx-padding: 6 12; -fx-font-size: 11;");
+        showButton.setOnAction(e -> refresh());
+
+        HBox controls = new HBox(10, new Label("From:"), fromPicker, new Label("To:"), toPicker,
+                new Label("Group by:"), groupingBox, showButton);
+        controls.setAlignment(Pos.CENTER_LEFT);
+
+        TableColumn<TotalRow, String> groupCol = new TableColumn<>("Group");
+        groupCol.setCellValueFactory(new PropertyValueFactory<>("group"));
+        groupCol.setPrefWidth(260);
+
+        TableColumn<TotalRow, String> countCol = new TableColumn<>("Transactions");
+        countCol.setCellValueFactory(new PropertyValueFactory<>("count"));
+        countCol.setPrefWidth(100);
+
+        TableColumn<TotalRow, String> creditsCol = new TableColumn<>("Credits (P)");
+        creditsCol.setCellValueFactory(new PropertyValueFactory<>("credits"));
+        creditsCol.setPrefWidth(120);
+
+        TableColumn<TotalRow, String> debitsCol = new TableColumn<>("Debits (P)");
+        debitsCol.setCellValueFactory(new PropertyValueFactory<>("debits"));
+        debitsCol.setPrefWidth(120);
+
+        TableColumn<TotalRow, String> netCol = new TableColumn<>("Net (P)");
+        netCol.setCellValueFactory(new PropertyValueFactory<>("net"));
+        netCol.setPrefWidth(120);
+
+        table.getColumns().addAll(List.of(groupCol, countCol, creditsCol, debitsCol, netCol));
+        table.setPlaceholder(new Label("No ledger activity in this range"));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        summaryLabel.setStyle("-fx-text-fill: #666;");
+        getChildren().addAll(controls, table, summaryLabel);
+        refresh();
+    }
+
+    /**
+     * Reload the table for the chosen range and grouping
+     */
+    public void refresh() {
+        LocalDate from = fromPicker.getValue();
+        LocalDate to = toPicker.getValue();
+        if (from == null || to == null || from.isAfter(to)) {
+            summaryLabel.setText("Choose a start date on or before the end date");
+            return;
+        }
+        long started = System.nanoTime();
+        List<LedgerRollupDAO.Total> totals = rollups.totals(from, to, GROUPINGS.get(groupingBox.getValue()));
+        long millis = (System.nanoTime() - started) / 1_000_000;
+
+        table.getItems().clear();
+        long transactions = 0;
+        for (LedgerRollupDAO.Total total : totals) {
+            table.getItems().add(new TotalRow(total));
+            transactions += total.getCount();
+        }
+        summaryLabel.setText(String.format("%,d groups, %,d transactions (loaded in %d ms)", totals.size(), transactions, millis));
+    }
+
+    public static class TotalRow {
+        private final String group;
+        private final String count;
+        private final String credits;
+        private final String debits;
+        private final String net;
+
+        public TotalRow(LedgerRollupDAO.Total total) {
+            StringBuilder label = new StringBuilder();
+            for (String value : total.getGroup()) {
+                if (label.length() > 0) label.append(" / ");
+                label.append(value == null || value.isEmpty() ? "(no branch)" : value);
+            }
+            this.group = label.length() > 0 ? label.toString() : "All";
+            this.count = String.format("%,d", total.getCount());
+            this.credits = String.format("%,.2f", total.getCredits());
+            this.debits = String.format("%,.2f", total.getDebits());
+            this.net = String.format("%,.2f", total.getNet());
+        }
+
+        public String getGroup() { return group; }
+        public String getCount() { return count; }
+        public String getCredits() { return credits; }
+        public String getDebits() { return debits; }
+        public String getNet() { return net; }
+    }
+}
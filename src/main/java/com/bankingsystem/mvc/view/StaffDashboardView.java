@@ -2,10 +2,15 @@ package com.bankingsystem.mvc.view;
 
 import com.bankingsystem.*;
 import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.ApprovalWorkQueue;
 import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.persistence.CustomerPositionCache;
+import com.bankingsystem.persistence.CustomerSearchIndex;
 import com.bankingsystem.mvc.utils.DashboardRefreshManager;
+import com.bankingsystem.utils.IDGenerator;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -19,34 +24,46 @@ import javafx.scene.layout.BorderStrokeStyle;
 import javafx.scene.layout.BorderWidths;
 import javafx.stage.Stage;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Staff Dashboard for approving and rejecting pending accounts
  */
 public class StaffDashboardView extends BorderPane {
     private final Bank bank;
+    // Logged-in staff member; owns the approval leases this view takes
+    private final String staffUsername;
     private final TableView<AccountRow> accountTable;
     private final TableView<AccountRow> approvedTable;
     private final Label statusLabel;
     private final Stage primaryStage;
     private final Scene loginScene;
     private final AccountDAOImpl accountDAO;
+    private final CustomerDAOImpl customerDAO;
+    private final ApprovalWorkQueue workQueue;
     private DashboardRefreshManager refreshManager;
 
-    public StaffDashboardView(Bank bank) {
-        this(bank, null, null);
+    public StaffDashboardView(Bank bank, String staffUsername) {
+        this(bank, staffUsername, null, null);
     }
 
-    public StaffDashboardView(Bank bank, Stage primaryStage, Scene loginScene) {
+    public StaffDashboardView(Bank bank, String staffUsername, Stage primaryStage, Scene loginScene) {
         this.bank = bank;
+        this.staffUsername = staffUsername;
         this.primaryStage = primaryStage;
         this.loginScene = loginScene;
         this.accountTable = new TableView<>();
         this.approvedTable = new TableView<>();
         this.statusLabel = new Label("Pending Accounts");
         this.accountDAO = new AccountDAOImpl();
+        this.customerDAO = new CustomerDAOImpl();
+        this.workQueue = new ApprovalWorkQueue();
         
         initializeUI();
         loadPendingAccounts();
@@ -94,7 +111,11 @@ public class StaffDashboardView extends BorderPane {
         dateColA.setCellValueFactory(new PropertyValueFactory<>("dateCreated"));
         dateColA.setPrefWidth(120);
 
-        approvedTable.getColumns().addAll(Arrays.asList(customerColA, typeColA, balanceColA, interestColA, statusColA, dateColA));
+        TableColumn<AccountRow, String> holdingsColA = new TableColumn<>("Customer Holdings (P)");
+        holdingsColA.setCellValueFactory(cv -> new javafx.beans.property.SimpleStringProperty(customerHoldings(cv.getValue())));
+        holdingsColA.setPrefWidth(130);
+
+        approvedTable.getColumns().addAll(Arrays.asList(customerColA, typeColA, balanceColA, holdingsColA, interestColA, statusColA, dateColA));
 
         ScrollPane pendingScroll = new ScrollPane(accountTable);
         pendingScroll.setFitToWidth(true);
@@ -109,7 +130,9 @@ public class StaffDashboardView extends BorderPane {
         pendingTab.setClosable(false);
         Tab approvedTab = new Tab("Approved", approvedScroll);
         approvedTab.setClosable(false);
-        tabPane.getTabs().addAll(pendingTab, approvedTab);
+        Tab analyticsTab = new Tab("Analytics", new StaffAnalyticsView());
+        analyticsTab.setClosable(false);
+        tabPane.getTabs().addAll(pendingTab, approvedTab, analyticsTab);
         setCenter(tabPane);
         
         // Bottom: Status and buttons
@@ -127,13 +150,94 @@ public class StaffDashboardView extends BorderPane {
         Label descLabel = new Label("Review and approve pending customer accounts");
         descLabel.setStyle("-fx-font-size: 12; -fx-text-fill: #666;");
         
-        vbox.getChildren().addAll(titleLabel, descLabel);
+        vbox.getChildren().addAll(titleLabel, descLabel, createCustomerSearch());
         return vbox;
     }
 
+    /**
+     * Type-ahead customer lookup: suggestions update on every keystroke from the in-memory
+     * search index, and picking one shows the customer's details and accounts
+     */
+    private HBox createCustomerSearch() {
+        Label searchLabel = new Label("Find customer:");
+        TextField searchField = new TextField();
+        searchField.setPromptText("Name, national ID, registration no., email or phone");
+        searchField.setPrefWidth(320);
+
+        ContextMenu suggestions = new ContextMenu();
+        searchField.textProperty().addListener((obs, oldText, newText) -> {
+            List<CustomerSearchIndex.Hit> hits = customerDAO.searchCustomers(newText, CustomerSearchIndex.DEFAULT_LIMIT);
+            if (hits.isEmpty() && newText != null && !newText.isBlank() && !CustomerSearchIndex.getInstance().isLoaded()) {
+                // The index is still being built; searching never waits for it
+                MenuItem indexing = new MenuItem("Indexing customers...");
+                indexing.setDisable(true);
+                suggestions.getItems().setAll(indexing);
+                if (!suggestions.isShowing()) {
+                    suggestions.show(searchField, Side.BOTTOM, 0, 0);
+                }
+                return;
+            }
+            if (hits.isEmpty()) {
+                suggestions.hide();
+                return;
+            }
+            suggestions.getItems().clear();
+            for (CustomerSearchIndex.Hit hit : hits) {
+                MenuItem item = new MenuItem(hit.getLabel());
+                item.setOnAction(e -> {
+                    searchField.clear();
+                    showCustomerDetails(hit.getCustomerId());
+                });
+                suggestions.getItems().add(item);
+            }
+            if (!suggestions.isShowing()) {
+                suggestions.show(searchField, Side.BOTTOM, 0, 0);
+            }
+        });
+        searchField.focusedProperty().addListener((obs, wasFocused, focused) -> {
+            if (!focused) suggestions.hide();
+        });
+
+        HBox hbox = new HBox(10, searchLabel, searchField);
+        hbox.setAlignment(Pos.CENTER_LEFT);
+        return hbox;
+    }
+
+    private void showCustomerDetails(String customerId) {
+        Optional<Customer> customerOpt = customerDAO.findCustomerById(customerId);
+        if (customerOpt.isEmpty()) {
+            showAlert(Alert.AlertType.WARNING, "Not Found", "Customer " + customerId + " no longer exists");
+            return;
+        }
+        Customer customer = customerOpt.get();
+        StringBuilder details = new StringBuilder();
+        if (customer instanceof CompanyCustomer) {
+            CompanyCustomer company = (CompanyCustomer) customer;
+            details.append("Company: ").append(company.getCompanyName()).append("\n");
+            details.append("Registration No: ").append(company.getRegistrationNumber()).append("\n");
+        } else {
+            details.append("Name: ").append(customer.getFirstName()).append(" ").append(customer.getLastName()).append("\n");
+            details.append("National ID: ").append(customer.getNationalID()).append("\n");
+        }
+        details.append("Customer ID: ").append(customer.getCustomerID()).append("\n");
+        details.append("Email: ").append(customer.getEmail() != null ? customer.getEmail() : "-").append("\n");
+        details.append("Phone: ").append(customer.getPhone() != null ? customer.getPhone() : "-").append("\n\n");
+
+        List<Account> accounts = accountDAO.findAccountsByCustomerId(customerId);
+        details.append("Accounts (").append(accounts.size()).append("):\n");
+        for (Account account : accounts) {
+            details.append("  ").append(account.getAccountNumber() != null ? account.getAccountNumber() : "(unassigned)")
+                    .append("  ").append(getAccountType(account))
+                    .append("  P").append(String.format("%.2f", account.getBalance()))
+                    .append("  ").append(account.getStatus()).append("\n");
+        }
+        showAlert(Alert.AlertType.INFORMATION, "Customer Details", details.toString());
+    }
+
     private void setupTable() {
         accountTable.setColumnResizePolicy(TableView.UNCONSTRAINED_RESIZE_POLICY);
         accountTable.setPrefHeight(400);
+        accountTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         
         // Column: Customer Name
         TableColumn<AccountRow, String> customerCol = new TableColumn<>("Customer");
@@ -165,7 +269,22 @@ public class StaffDashboardView extends BorderPane {
         dateCol.setCellValueFactory(new PropertyValueFactory<>("dateCreated"));
         dateCol.setPrefWidth(120);
         
-        accountTable.getColumns().addAll(Arrays.asList(customerCol, typeCol, balanceCol, interestCol, statusCol, dateCol));
+        // Column: the customer's existing holdings, to weigh an approval against
+        TableColumn<AccountRow, String> holdingsCol = new TableColumn<>("Customer Holdings (P)");
+        holdingsCol.setCellValueFactory(cv -> new javafx.beans.property.SimpleStringProperty(customerHoldings(cv.getValue())));
+        holdingsCol.setPrefWidth(130);
+        
+        accountTable.getColumns().addAll(Arrays.asList(customerCol, typeCol, balanceCol, holdingsCol, interestCol, statusCol, dateCol));
+    }
+
+    /**
+     * Total balance of the row's customer across approved accounts, from the position cache
+     */
+    private String customerHoldings(AccountRow row) {
+        Customer owner = row.getAccount().getOwner();
+        CustomerPositionCache.Position position = owner != null
+                ? CustomerPositionCache.getInstance().getPosition(owner.getCustomerID()) : null;
+        return position != null ? position.getFormattedTotal() + " (" + position.getAccountCount() + ")" : "0.00 (0)";
     }
 
     private VBox createBottomSection() {
@@ -187,6 +306,11 @@ public class StaffDashboardView extends BorderPane {
         HBox buttonBox = new HBox(10);
         buttonBox.setAlignment(Pos.CENTER_LEFT);
         
+        Button claimButton = new Button("Claim Next " + ApprovalWorkQueue.DEFAULT_BATCH_SIZE);
+        claimButton.setPrefWidth(120);
+        claimButton.setStyle("-fx-padding: 8; -fx-font-size: 11;");
+        claimButton.setOnAction(e -> handleClaimNext());
+        
         Button approveButton = new Button("Approve Selected");
         approveButton.setPrefWidth(120);
         approveButton.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-padding: 8; -fx-font-size: 11;");
@@ -217,7 +341,7 @@ public class StaffDashboardView extends BorderPane {
         logoutButton.setStyle("-fx-padding: 8; -fx-font-size: 11;");
         logoutButton.setOnAction(e -> handleLogout());
         
-        buttonBox.getChildren().addAll(approveButton, rejectButton, closeAccountButton, newCustomerButton, refreshButton, logoutButton);
+        buttonBox.getChildren().addAll(claimButton, approveButton, rejectButton, closeAccountButton, newCustomerButton, refreshButton, logoutButton);
         
         vbox.getChildren().addAll(statusLabel, buttonBox);
         return vbox;
@@ -277,103 +401,104 @@ public class StaffDashboardView extends BorderPane {
         return "Unknown";
     }
 
-    private void handleApprove() {
-        AccountRow selected = accountTable.getSelectionModel().getSelectedItem();
-        if (selected == null) {
-            showAlert(Alert.AlertType.WARNING, "No Selection", "Please select an account to approve");
+    /**
+     * Claim the next batch of pending accounts nobody else is working on and select them
+     */
+    private void handleClaimNext() {
+        List<String> claimed = workQueue.claimNext(staffUsername, ApprovalWorkQueue.DEFAULT_BATCH_SIZE);
+        if (claimed.isEmpty()) {
+            showAlert(Alert.AlertType.INFORMATION, "Queue Empty", "No unclaimed pending accounts");
             return;
         }
-        
-        Account account = selected.getAccount();
-        Customer owner = account.getOwner();
-
-        // Check eligibility
-        if (!AccountApprovalService.isAccountEligibleForApproval(account)) {
-            if (account instanceof InvestmentAccount) {
-                showAlert(Alert.AlertType.WARNING, "Ineligible Account", 
-                    "Investment account requires minimum balance of P1000 for approval.\n" +
-                    "Current balance: P" + String.format("%.2f", account.getBalance()));
+        loadPendingAccounts();
+        Set<String> numbers = new HashSet<>(claimed);
+        accountTable.getSelectionModel().clearSelection();
+        for (AccountRow row : accountTable.getItems()) {
+            if (numbers.contains(row.getAccount().getAccountNumber())) {
+                accountTable.getSelectionModel().select(row);
             }
-            return;
         }
+        statusLabel.setText(String.format("Claimed %d accounts for %d minutes", claimed.size(),
+                ApprovalWorkQueue.DEFAULT_LEASE_MILLIS / 60_000));
+    }
 
-        // If company account, show company info for review
-        if (owner instanceof CompanyCustomer) {
-            CompanyCustomer companyCustomer = (CompanyCustomer) owner;
-            CompanyRegistration companyReg = companyCustomer.getCompanyRegistration();
-            
-            if (companyReg != null) {
-                Alert reviewAlert = new Alert(Alert.AlertType.INFORMATION);
-                reviewAlert.setTitle("Company Account Review");
-                reviewAlert.setHeaderText("Review Company Information");
-                reviewAlert.setContentText(companyReg.getFormattedInfo());
-                reviewAlert.showAndWait();
-            }
+    private void handleApprove() {
+        List<AccountRow> selected = new ArrayList<>(accountTable.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
+            showAlert(Alert.AlertType.WARNING, "No Selection", "Please select an account to approve");
+            return;
         }
 
-        // Show account number assignment dialog
-        TextInputDialog accountNumberDialog = new TextInputDialog();
-        accountNumberDialog.setTitle("Assign Account Number");
-        accountNumberDialog.setHeaderText("Enter Account Number");
-        accountNumberDialog.setContentText("Auto-generated or custom account number:");
-        
-        // Suggest auto-generated account number
-        String suggestedNumber = generateAccountNumber(account);
-        accountNumberDialog.getEditor().setText(suggestedNumber);
-        
-        accountNumberDialog.showAndWait().ifPresent(accountNumber -> {
-            if (accountNumber.trim().isEmpty()) {
-                showAlert(Alert.AlertType.WARNING, "Invalid", "Account number cannot be empty");
-                return;
-            }
-            
-            // Assign account number in DB for the pending account row
-            com.bankingsystem.persistence.AccountDAOImpl accDao = new com.bankingsystem.persistence.AccountDAOImpl();
-            boolean assigned = accDao.assignAccountNumber(account, accountNumber.trim());
-            if (!assigned) {
-                showAlert(Alert.AlertType.ERROR, "Error", "Failed to assign account number in database");
-                return;
+        // Ineligible accounts are left pending; the rest of the selection is still approved
+        StringBuilder ineligible = new StringBuilder();
+        StringBuilder companyReview = new StringBuilder();
+        for (Iterator<AccountRow> it = selected.iterator(); it.hasNext(); ) {
+            Account account = it.next().getAccount();
+            if (!AccountApprovalService.isAccountEligibleForApproval(account)) {
+                ineligible.append("\n").append(account.getAccountNumber())
+                    .append(" - ").append(getAccountType(account));
+                if (account instanceof InvestmentAccount) {
+                    ineligible.append(" - requires minimum balance of P1000 (current balance: P")
+                        .append(String.format("%.2f", account.getBalance())).append(")");
+                }
+                it.remove();
+                continue;
             }
 
-            // Approve account
-            boolean success = AccountApprovalService.approveAccount(account, "staff1");
-            if (success) {
-                // Persist approval to database
-                try {
-                    accountDAO.updateAccount(account);
-                } catch (Exception ex) {
-                    System.err.println("Failed to persist approved account: " + ex.getMessage());
+            // Company accounts are reviewed together before anything is claimed
+            if (account.getOwner() instanceof CompanyCustomer) {
+                CompanyRegistration companyReg = ((CompanyCustomer) account.getOwner()).getCompanyRegistration();
+                if (companyReg != null) {
+                    if (companyReview.length() > 0) companyReview.append("\n\n");
+                    companyReview.append(account.getAccountNumber()).append("\n")
+                        .append(companyReg.getFormattedInfo());
                 }
-                showAlert(Alert.AlertType.INFORMATION, "Success", 
-                    "Account approved!\n\n" +
-                    "Customer: " + account.getOwner().getFirstName() + " " + account.getOwner().getLastName() + "\n" +
-                    "Account Type: " + getAccountType(account) + "\n" +
-                    "Account Number: " + account.getAccountNumber() + "\n" +
-                    "Balance: P" + String.format("%.2f", account.getBalance()));
-                loadPendingAccounts();
-            } else {
-                showAlert(Alert.AlertType.ERROR, "Error", "Failed to approve account");
             }
-        });
-    }
+        }
 
-    private String generateAccountNumber(Account account) {
-        String prefix;
-        if (account instanceof SavingsAccount) {
-            prefix = "SAV";
-        } else if (account instanceof InvestmentAccount) {
-            prefix = "INV";
-        } else if (account instanceof ChequeAccount) {
-            prefix = "CHQ";
-        } else {
-            prefix = "ACC";
+        if (ineligible.length() > 0) {
+            showAlert(Alert.AlertType.WARNING, "Ineligible Accounts",
+                "The following accounts are not eligible for approval and were skipped:\n" + ineligible);
+        }
+        if (selected.isEmpty()) return;
+
+        if (companyReview.length() > 0) {
+            TextArea reviewText = new TextArea(companyReview.toString());
+            reviewText.setEditable(false);
+            reviewText.setWrapText(true);
+            Alert reviewAlert = new Alert(Alert.AlertType.CONFIRMATION);
+            reviewAlert.setTitle("Company Account Review");
+            reviewAlert.setHeaderText("Review Company Information");
+            reviewAlert.getDialogPane().setContent(reviewText);
+            Optional<ButtonType> result = reviewAlert.showAndWait();
+            if (result.isEmpty() || result.get() != ButtonType.OK) return;
+        }
+
+        List<String> claimed = claimSelected(selected);
+        if (claimed.isEmpty()) return;
+
+        // Account numbers are assigned and every status written in one transaction
+        ApprovalWorkQueue.Decision decision = workQueue.approve(staffUsername, claimed);
+        removeDecidedRows(claimed, decision);
+        if (decision.getDecided().isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Failed to approve account");
+            return;
         }
-        return prefix + "-" + System.currentTimeMillis() % 1000000;
+        StringBuilder summary = new StringBuilder(decision.getDecided().size() == 1 ? "Account approved!\n" : 
+            decision.getDecided().size() + " accounts approved!\n");
+        for (Account account : decision.getDecided()) {
+            summary.append("\n")
+                .append(account.getOwner().getFirstName()).append(" ").append(account.getOwner().getLastName())
+                .append(" - ").append(getAccountType(account))
+                .append(" - ").append(account.getAccountNumber())
+                .append(" - P").append(String.format("%.2f", account.getBalance()));
+        }
+        showAlert(Alert.AlertType.INFORMATION, "Success", summary.toString());
     }
 
     private void handleReject() {
-        AccountRow selected = accountTable.getSelectionModel().getSelectedItem();
-        if (selected == null) {
+        List<AccountRow> selected = new ArrayList<>(accountTable.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) {
             showAlert(Alert.AlertType.WARNING, "No Selection", "Please select an account to reject");
             return;
         }
@@ -381,24 +506,54 @@ public class StaffDashboardView extends BorderPane {
         // Confirm rejection
         Alert confirmAlert = new Alert(Alert.AlertType.CONFIRMATION);
         confirmAlert.setTitle("Confirm Rejection");
-        confirmAlert.setHeaderText("Reject Account?");
-        confirmAlert.setContentText("Are you sure you want to reject this account?");
+        confirmAlert.setHeaderText(selected.size() == 1 ? "Reject Account?" : "Reject " + selected.size() + " Accounts?");
+        confirmAlert.setContentText("Are you sure you want to reject " + (selected.size() == 1 ? "this account?" : "these accounts?"));
         
         if (confirmAlert.showAndWait().get() == ButtonType.OK) {
-            Account account = selected.getAccount();
-            boolean success = AccountApprovalService.rejectAccount(account, "staff1");
-            if (success) {
-                    // Persist rejection
-                    try { accountDAO.updateAccount(account); } catch (Exception ex) { System.err.println("Failed to persist rejected account: " + ex.getMessage()); }
-                    showAlert(Alert.AlertType.INFORMATION, "Success", 
-                    "Account rejected for customer: " + account.getOwner().getFirstName());
-                loadPendingAccounts();
-            } else {
+            List<String> claimed = claimSelected(selected);
+            if (claimed.isEmpty()) return;
+
+            ApprovalWorkQueue.Decision decision = workQueue.reject(staffUsername, claimed);
+            removeDecidedRows(claimed, decision);
+            if (decision.getDecided().isEmpty()) {
                 showAlert(Alert.AlertType.ERROR, "Error", "Failed to reject account");
+            } else if (decision.getDecided().size() == 1) {
+                showAlert(Alert.AlertType.INFORMATION, "Success", 
+                    "Account rejected for customer: " + decision.getDecided().get(0).getOwner().getFirstName());
+            } else {
+                showAlert(Alert.AlertType.INFORMATION, "Success", decision.getDecided().size() + " accounts rejected");
             }
         }
     }
 
+    /**
+     * Claim the selected accounts, warning about any another staff member is working on
+     * @return Numbers of the accounts now claimed by this staff member
+     */
+    private List<String> claimSelected(List<AccountRow> selected) {
+        List<String> numbers = new ArrayList<>(selected.size());
+        for (AccountRow row : selected) {
+            numbers.add(row.getAccount().getAccountNumber());
+        }
+        List<String> claimed = workQueue.claim(staffUsername, numbers);
+        if (claimed.size() < numbers.size()) {
+            showAlert(Alert.AlertType.WARNING, "Already Claimed", 
+                (numbers.size() - claimed.size()) + " of the selected accounts are being handled by another staff member " +
+                "or were already decided");
+        }
+        return claimed;
+    }
+
+    /**
+     * Drop decided rows from the pending table; the event-driven refresh reloads it shortly after
+     */
+    private void removeDecidedRows(List<String> claimed, ApprovalWorkQueue.Decision decision) {
+        Set<String> decided = new HashSet<>(claimed);
+        decided.removeAll(decision.getSkipped());
+        accountTable.getItems().removeIf(row -> decided.contains(row.getAccount().getAccountNumber()));
+        statusLabel.setText(String.format("Pending Accounts: %d", accountTable.getItems().size()));
+    }
+
     private void handleCloseAccount() {
         AccountRow selected = accountTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
@@ -422,6 +577,7 @@ public class StaffDashboardView extends BorderPane {
             // Mark account as closed (we'll use REJECTED status for closed accounts)
             account.reject("staff1");
             try { accountDAO.updateAccount(account); } catch (Exception ex) { System.err.println("Failed to persist closed account: " + ex.getMessage()); }
+            CustomerPositionCache.getInstance().remove(account.getAccountNumber());
             showAlert(Alert.AlertType.INFORMATION, "Success", 
                 "Account closed successfully for customer: " + account.getOwner().getFirstName());
             loadPendingAccounts();
@@ -537,7 +693,7 @@ public class StaffDashboardView extends BorderPane {
                             return null;
                         }
                         
-                        String custId = "CUST" + (1000 + bank.getCustomers().size());
+                        String custId = IDGenerator.generateCustomerID();
                         IndividualCustomer newCustomer = new IndividualCustomer(custId, fname, lname, nid);
                         newCustomer.setEmail(email);
                         newCustomer.setPhone(phone);
@@ -614,6 +770,9 @@ public class StaffDashboardView extends BorderPane {
         confirmAlert.setContentText("Are you sure you want to logout?");
         
         if (confirmAlert.showAndWait().get() == ButtonType.OK) {
+            // Hand undecided claims back to the queue for the other staff members
+            workQueue.release(staffUsername);
+            stopAutoRefresh();
             if (primaryStage != null && loginScene != null) {
                 primaryStage.setScene(loginScene);
                 primaryStage.setTitle("Banking System - Login");
@@ -637,10 +796,10 @@ public class StaffDashboardView extends BorderPane {
 
     /**
      * Start auto-refresh of dashboard data
-     * Polls database every 5 seconds for new accounts
+     * Refreshes when accounts are opened, decided on or change balance
      */
     private void startAutoRefresh() {
-        refreshManager = new DashboardRefreshManager(() -> {
+        refreshManager = new DashboardRefreshManager(this, () -> {
             loadPendingAccounts();
             loadApprovedAccounts();
         });
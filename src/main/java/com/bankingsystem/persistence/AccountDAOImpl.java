@@ -1,16 +1,41 @@
 package com.bankingsystem.persistence;
 
 import com.bankingsystem.*;
+import com.bankingsystem.dao.AccountDAOInterface;
+import com.bankingsystem.utils.LedgerEventBus;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 
 /**
  * AccountDAOImpl - JDBC implementation for Account persistence
  * Handles CRUD operations for accounts in H2 database
  */
-public class AccountDAOImpl {
+public class AccountDAOImpl implements AccountDAOInterface {
+    // Single-statement balance mutations: the business rules are part of the WHERE clause,
+    // so the check and the write happen atomically under the row lock taken by the UPDATE.
+    private static final String CREDIT_SQL =
+            "UPDATE accounts SET balance = balance + ? WHERE account_number = ? AND status = 'APPROVED'";
+    // Only cheque and investment accounts are withdrawable; neither may go below the floor
+    // unless the cheque account has an overdraft facility.
+    private static final String DEBIT_SQL =
+            "UPDATE accounts SET balance = balance - ? WHERE account_number = ? AND status = 'APPROVED' " +
+            "AND account_type IN ('ChequeAccount', 'InvestmentAccount') " +
+            "AND (overdraft_allowed = TRUE OR balance - ? >= ?)";
+    private static final double WITHDRAWAL_FLOOR = 0.0;
+    // Account decisions are conditional transitions out of PENDING: of several staff members or
+    // processes deciding the same account at once, exactly one UPDATE matches the row.
+    private static final String APPROVE_SQL =
+            "UPDATE accounts SET account_number = ?, status = 'APPROVED', approval_timestamp = ?, " +
+            "approval_staff_username = ?, claimed_by = NULL, claim_expires_at = NULL " +
+            "WHERE account_number = ? AND status = 'PENDING'";
+    private static final String REJECT_SQL =
+            "UPDATE accounts SET status = 'REJECTED', approval_timestamp = ?, " +
+            "approval_staff_username = ?, claimed_by = NULL, claim_expires_at = NULL " +
+            "WHERE account_number = ? AND status = 'PENDING'";
+
     private CustomerDAOImpl customerDAO;
 
     public AccountDAOImpl() {
@@ -62,12 +87,25 @@ public class AccountDAOImpl {
                 pstmt.setDouble(9, 0);
                 pstmt.setDouble(10, 0);
             }
+            if (!(account instanceof ChequeAccount)) {
+                pstmt.setString(11, null);
+                pstmt.setString(12, null);
+                pstmt.setBoolean(13, false);
+            }
 
             pstmt.setTimestamp(14, account.getApprovalDateTime() != null ?
                     Timestamp.valueOf(account.getApprovalDateTime()) : null);
             pstmt.setString(15, account.getApprovalStaffUsername());
 
             int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                // Listeners must not see an account whose insert may still roll back
+                String accountNumber = account.getAccountNumber();
+                String customerId = account.getOwner().getCustomerID();
+                double balance = account.getBalance();
+                UnitOfWork.afterCommit(() -> LedgerEventBus.getInstance().publish(LedgerEventBus.Kind.ACCOUNT_OPENED,
+                        accountNumber, null, customerId, 0, balance));
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error saving account: " + e.getMessage());
@@ -80,19 +118,29 @@ public class AccountDAOImpl {
      * Update existing account
      */
     public boolean updateAccount(Account account) {
-        if (account == null) return false;
+        return updateAccount(account, account != null ? account.getAccountNumber() : null);
+    }
+
+    /**
+     * Update an existing account stored under a different number, e.g. a pending account whose
+     * approval assigned its real account number
+     * @param storedAccountNumber Number the account's row currently has
+     */
+    public boolean updateAccount(Account account, String storedAccountNumber) {
+        if (account == null || storedAccountNumber == null) return false;
 
-        String sql = "UPDATE accounts SET balance=?, status=?, approval_timestamp=?, " +
+        String sql = "UPDATE accounts SET account_number=?, balance=?, status=?, approval_timestamp=?, " +
                 "approval_staff_username=? WHERE account_number=?";
 
         try (Connection connection = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDouble(1, account.getBalance());
-            pstmt.setString(2, account.getStatus().toString());
-            pstmt.setTimestamp(3, account.getApprovalDateTime() != null ?
+            pstmt.setString(1, account.getAccountNumber());
+            pstmt.setDouble(2, account.getBalance());
+            pstmt.setString(3, account.getStatus().toString());
+            pstmt.setTimestamp(4, account.getApprovalDateTime() != null ?
                     Timestamp.valueOf(account.getApprovalDateTime()) : null);
-            pstmt.setString(4, account.getApprovalStaffUsername());
-            pstmt.setString(5, account.getAccountNumber());
+            pstmt.setString(5, account.getApprovalStaffUsername());
+            pstmt.setString(6, storedAccountNumber);
 
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
@@ -103,6 +151,56 @@ public class AccountDAOImpl {
         }
     }
 
+    /**
+     * Approve a stored pending account, assigning its account number, if it is still pending in
+     * the database. The account object is only updated when the approval took effect.
+     * @return true if this call approved the account, false if it was already decided (or on error)
+     */
+    public boolean approveAccount(Account account, String staffUsername) {
+        if (account == null || account.getStatus() != AccountStatus.PENDING) return false;
+
+        String newAccountNumber = account.nextAccountNumber();
+        java.time.LocalDateTime approvedAt = java.time.LocalDateTime.now();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(APPROVE_SQL)) {
+            pstmt.setString(1, newAccountNumber);
+            pstmt.setTimestamp(2, Timestamp.valueOf(approvedAt));
+            pstmt.setString(3, staffUsername);
+            pstmt.setString(4, account.getAccountNumber());
+            if (pstmt.executeUpdate() == 0) return false;
+        } catch (SQLException e) {
+            System.err.println("Error approving account: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        account.approve(staffUsername, newAccountNumber, approvedAt);
+        return true;
+    }
+
+    /**
+     * Reject a stored pending account if it is still pending in the database. The account object
+     * is only updated when the rejection took effect.
+     * @return true if this call rejected the account, false if it was already decided (or on error)
+     */
+    public boolean rejectAccount(Account account, String staffUsername) {
+        if (account == null || account.getStatus() != AccountStatus.PENDING) return false;
+
+        java.time.LocalDateTime rejectedAt = java.time.LocalDateTime.now();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(REJECT_SQL)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(rejectedAt));
+            pstmt.setString(2, staffUsername);
+            pstmt.setString(3, account.getAccountNumber());
+            if (pstmt.executeUpdate() == 0) return false;
+        } catch (SQLException e) {
+            System.err.println("Error rejecting account: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        account.reject(staffUsername, rejectedAt);
+        return true;
+    }
+
     /**
      * Assign or change the account number for an existing pending account row.
      * This finds the pending account row for the given customer and updates its primary key to the provided new number.
@@ -169,6 +267,86 @@ public class AccountDAOImpl {
         }
     }
 
+    /**
+     * Credit an approved account with a single conditional UPDATE
+     * Striped hot accounts take the credit on one of their sub-balance slots instead.
+     * @return The new balance, or empty if the account is missing or not approved
+     */
+    @Override
+    public OptionalDouble creditBalance(String accountNumber, double amount) {
+        if (accountNumber == null || amount <= 0) return OptionalDouble.empty();
+        StripedBalanceDAO stripes = StripedBalanceDAO.getInstance();
+        if (stripes.isStriped(accountNumber)) {
+            // Hot account: land the credit on a sub-balance slot instead of the accounts row
+            try {
+                return UnitOfWork.execute(connection -> stripes.credit(connection, accountNumber, amount));
+            } catch (SQLException e) {
+                System.err.println("Error crediting account: " + e.getMessage());
+                e.printStackTrace();
+                return OptionalDouble.empty();
+            }
+        }
+        return mutateBalance(CREDIT_SQL, accountNumber, amount, false, "Error crediting account: ");
+    }
+
+    /**
+     * Debit an approved account with a single conditional UPDATE
+     * Striped hot accounts are folded first, so the rules are checked against the full total.
+     * @return The new balance, or empty if the withdrawal rules reject it or the account is missing
+     */
+    @Override
+    public OptionalDouble debitBalance(String accountNumber, double amount) {
+        if (accountNumber == null || amount <= 0) return OptionalDouble.empty();
+        return mutateBalance(DEBIT_SQL, accountNumber, amount, true, "Error debiting account: ");
+    }
+
+    /**
+     * Run a conditional balance UPDATE and read back the resulting balance in the same transaction.
+     * On H2 the balance comes back from the UPDATE itself (SELECT ... FROM FINAL TABLE); MySQL has no
+     * RETURNING, so the row is re-read on the same connection while the UPDATE still holds its lock.
+     * Joins the caller's unit of work so the ledger row can be written in the same transaction.
+     */
+    private OptionalDouble mutateBalance(String updateSql, String accountNumber, double amount,
+                                         boolean debit, String errorPrefix) {
+        boolean returning = "H2".equals(DatabaseConnection.getInstance().getDatabaseType());
+        boolean foldFirst = debit && StripedBalanceDAO.getInstance().isStriped(accountNumber);
+        try {
+            return UnitOfWork.execute(connection -> {
+                if (foldFirst) {
+                    StripedBalanceDAO.getInstance().fold(connection, accountNumber);
+                }
+                String sql = returning ? "SELECT balance FROM FINAL TABLE (" + updateSql + ")" : updateSql;
+                try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                    pstmt.setDouble(1, amount);
+                    pstmt.setString(2, accountNumber);
+                    if (debit) {
+                        pstmt.setDouble(3, amount);
+                        pstmt.setDouble(4, WITHDRAWAL_FLOOR);
+                    }
+                    if (returning) {
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            return rs.next() ? OptionalDouble.of(rs.getDouble(1)) : OptionalDouble.empty();
+                        }
+                    }
+                    if (pstmt.executeUpdate() == 0) {
+                        return OptionalDouble.empty();
+                    }
+                }
+                try (PreparedStatement select = connection.prepareStatement(
+                        "SELECT balance FROM accounts WHERE account_number = ?")) {
+                    select.setString(1, accountNumber);
+                    try (ResultSet rs = select.executeQuery()) {
+                        return rs.next() ? OptionalDouble.of(rs.getDouble(1)) : OptionalDouble.empty();
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println(errorPrefix + e.getMessage());
+            e.printStackTrace();
+            return OptionalDouble.empty();
+        }
+    }
+
     /**
      * Find account by account number
      */
@@ -221,6 +399,14 @@ public class AccountDAOImpl {
         return accounts;
     }
 
+    /**
+     * Find all accounts for a customer (AccountDAOInterface naming)
+     */
+    @Override
+    public List<Account> findAccountsByCustomerID(String customerID) {
+        return findAccountsByCustomerId(customerID);
+    }
+
     /**
      * Get all accounts
      */
@@ -380,7 +566,13 @@ public class AccountDAOImpl {
 
                 java.lang.reflect.Field balanceField = Account.class.getDeclaredField("balance");
                 balanceField.setAccessible(true);
-                balanceField.set(account, rs.getDouble("balance"));
+                double balance = rs.getDouble("balance");
+                String number = rs.getString("account_number");
+                if (StripedBalanceDAO.getInstance().isStriped(number)) {
+                    // Include credits still sitting in the hot account's sub-balance slots
+                    balance += StripedBalanceDAO.getInstance().pendingDelta(rs.getStatement().getConnection(), number);
+                }
+                balanceField.set(account, balance);
 
                 java.lang.reflect.Field statusField = Account.class.getDeclaredField("status");
                 statusField.setAccessible(true);
@@ -0,0 +1,283 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.Account;
+import com.bankingsystem.AccountApprovalService;
+import com.bankingsystem.AccountStatus;
+import com.bankingsystem.utils.LedgerEventBus;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ApprovalWorkQueue - Pending accounts shared out between staff members
+ * A staff member claims a batch of pending accounts with SELECT ... FOR UPDATE SKIP LOCKED, so
+ * rows another staff member is claiming at the same moment are skipped instead of waited on.
+ * A claim is a lease (accounts.claimed_by / claim_expires_at): nobody else can claim the account
+ * until the lease runs out, and an abandoned claim frees itself.
+ *
+ * Claimed accounts are approved or rejected in bulk: one transaction running one batched
+ * conditional UPDATE that assigns account numbers and statuses. Each row is only touched while it
+ * is still pending and still claimed by the caller, so an account is never decided twice; rows
+ * that fail the condition are reported back as skipped.
+ */
+public class ApprovalWorkQueue {
+    public static final long DEFAULT_LEASE_MILLIS = 10 * 60_000L;
+    public static final int DEFAULT_BATCH_SIZE = 10;
+
+    private static final String NEXT_SQL =
+            "SELECT account_number FROM accounts WHERE status = 'PENDING' " +
+            "AND (claimed_by IS NULL OR claim_expires_at < ?) " +
+            "ORDER BY date_opened, account_number LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String CLAIM_SQL =
+            "UPDATE accounts SET claimed_by = ?, claim_expires_at = ? WHERE account_number = ?";
+    // A specific account can be claimed when it is free, its lease ran out, or it is already ours
+    private static final String CLAIM_ACCOUNT_SQL =
+            "UPDATE accounts SET claimed_by = ?, claim_expires_at = ? WHERE account_number = ? " +
+            "AND status = 'PENDING' AND (claimed_by IS NULL OR claimed_by = ? OR claim_expires_at < ?)";
+    private static final String RENEW_SQL =
+            "UPDATE accounts SET claim_expires_at = ? WHERE claimed_by = ? AND status = 'PENDING'";
+    private static final String RELEASE_SQL =
+            "UPDATE accounts SET claimed_by = NULL, claim_expires_at = NULL WHERE claimed_by = ? AND status = 'PENDING'";
+    private static final String DECIDE_SQL =
+            "UPDATE accounts SET account_number = ?, status = ?, approval_timestamp = ?, approval_staff_username = ?, " +
+            "claimed_by = NULL, claim_expires_at = NULL " +
+            "WHERE account_number = ? AND status = 'PENDING' AND claimed_by = ?";
+
+    private final AccountDAOImpl accountDAO = new AccountDAOImpl();
+    private final long leaseMillis;
+
+    /**
+     * Outcome of a bulk decision
+     */
+    public static final class Decision {
+        private final List<Account> decided;
+        private final List<String> skipped;
+
+        Decision(List<Account> decided, List<String> skipped) {
+            this.decided = decided;
+            this.skipped = skipped;
+        }
+
+        /**
+         * Accounts approved or rejected, with their new status and (if approved) account number
+         */
+        public List<Account> getDecided() { return decided; }
+
+        /**
+         * Numbers of the accounts left alone: not claimed by the caller, no longer pending, or
+         * not eligible for approval
+         */
+        public List<String> getSkipped() { return skipped; }
+    }
+
+    public ApprovalWorkQueue() {
+        this(DEFAULT_LEASE_MILLIS);
+    }
+
+    /**
+     * @param leaseMillis How long a claim lasts without being renewed
+     */
+    public ApprovalWorkQueue(long leaseMillis) {
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * Claim the oldest pending accounts nobody holds a lease on
+     * @return Numbers of the accounts claimed; fewer than max (or none) when the queue runs dry
+     */
+    public List<String> claimNext(String staffUsername, int max) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            return UnitOfWork.execute(connection -> {
+                List<String> claimed = new ArrayList<>(max);
+                try (PreparedStatement pstmt = connection.prepareStatement(NEXT_SQL)) {
+                    pstmt.setTimestamp(1, Timestamp.valueOf(now));
+                    pstmt.setInt(2, max);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            claimed.add(rs.getString(1));
+                        }
+                    }
+                }
+                if (claimed.isEmpty()) return claimed;
+                // The rows stay locked until commit, so the claims cannot collide
+                try (PreparedStatement pstmt = connection.prepareStatement(CLAIM_SQL)) {
+                    for (String accountNumber : claimed) {
+                        pstmt.setString(1, staffUsername);
+                        pstmt.setTimestamp(2, Timestamp.valueOf(now.plusNanos(leaseMillis * 1_000_000L)));
+                        pstmt.setString(3, accountNumber);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                return claimed;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error claiming pending accounts: " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Claim particular pending accounts, e.g. the rows a staff member selected
+     * @return Numbers of the accounts now claimed by the caller; the rest are held by someone else
+     *         or no longer pending
+     */
+    public List<String> claim(String staffUsername, List<String> accountNumbers) {
+        if (accountNumbers.isEmpty()) return Collections.emptyList();
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int[] counts = UnitOfWork.execute(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(CLAIM_ACCOUNT_SQL)) {
+                    for (String accountNumber : accountNumbers) {
+                        pstmt.setString(1, staffUsername);
+                        pstmt.setTimestamp(2, Timestamp.valueOf(now.plusNanos(leaseMillis * 1_000_000L)));
+                        pstmt.setString(3, accountNumber);
+                        pstmt.setString(4, staffUsername);
+                        pstmt.setTimestamp(5, Timestamp.valueOf(now));
+                        pstmt.addBatch();
+                    }
+                    return pstmt.executeBatch();
+                }
+            });
+            List<String> claimed = new ArrayList<>(accountNumbers.size());
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) claimed.add(accountNumbers.get(i));
+            }
+            return claimed;
+        } catch (SQLException e) {
+            System.err.println("Error claiming accounts: " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Extend the lease on every account the staff member still has claimed
+     * @return Number of leases renewed, or -1 on error
+     */
+    public int renewLeases(String staffUsername) {
+        try {
+            return UnitOfWork.execute(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(RENEW_SQL)) {
+                    pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now().plusNanos(leaseMillis * 1_000_000L)));
+                    pstmt.setString(2, staffUsername);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error renewing approval leases: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Hand back every undecided account the staff member has claimed, e.g. on logout
+     * @return Number of accounts released, or -1 on error
+     */
+    public int release(String staffUsername) {
+        try {
+            return UnitOfWork.execute(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(RELEASE_SQL)) {
+                    pstmt.setString(1, staffUsername);
+                    return pstmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error releasing approval claims: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Approve claimed accounts, assigning their account numbers, in one transaction
+     */
+    public Decision approve(String staffUsername, List<String> accountNumbers) {
+        return decide(staffUsername, accountNumbers, true);
+    }
+
+    /**
+     * Reject claimed accounts in one transaction
+     */
+    public Decision reject(String staffUsername, List<String> accountNumbers) {
+        return decide(staffUsername, accountNumbers, false);
+    }
+
+    private Decision decide(String staffUsername, List<String> accountNumbers, boolean approve) {
+        List<Account> accounts = new ArrayList<>(accountNumbers.size());
+        List<String> storedNumbers = new ArrayList<>(accountNumbers.size());
+        List<String> newNumbers = new ArrayList<>(accountNumbers.size());
+        List<String> skipped = new ArrayList<>();
+        LocalDateTime decidedAt = LocalDateTime.now();
+        int[] counts;
+        try {
+            // One unit of work, so the account loads (and their nested customer lookups) share its
+            // connection instead of each taking a second one from the pool
+            counts = UnitOfWork.execute(connection -> {
+                accounts.clear();
+                storedNumbers.clear();
+                newNumbers.clear();
+                skipped.clear();
+                for (String accountNumber : accountNumbers) {
+                    Account account = accountDAO.findAccountByNumber(accountNumber).orElse(null);
+                    if (account == null || account.getStatus() != AccountStatus.PENDING
+                            || (approve && !AccountApprovalService.isAccountEligibleForApproval(account))) {
+                        skipped.add(accountNumber);
+                        continue;
+                    }
+                    accounts.add(account);
+                    storedNumbers.add(accountNumber);
+                    newNumbers.add(approve ? account.nextAccountNumber() : accountNumber);
+                }
+                if (accounts.isEmpty()) return new int[0];
+                // Re-checks that each row is still pending and still ours
+                try (PreparedStatement pstmt = connection.prepareStatement(DECIDE_SQL)) {
+                    for (int i = 0; i < accounts.size(); i++) {
+                        pstmt.setString(1, newNumbers.get(i));
+                        pstmt.setString(2, approve ? AccountStatus.APPROVED.toString() : AccountStatus.REJECTED.toString());
+                        pstmt.setTimestamp(3, Timestamp.valueOf(decidedAt));
+                        pstmt.setString(4, staffUsername);
+                        pstmt.setString(5, storedNumbers.get(i));
+                        pstmt.setString(6, staffUsername);
+                        pstmt.addBatch();
+                    }
+                    return pstmt.executeBatch();
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Error deciding pending accounts: " + e.getMessage());
+            e.printStackTrace();
+            return new Decision(Collections.emptyList(), new ArrayList<>(accountNumbers));
+        }
+
+        List<Account> decided = new ArrayList<>(accounts.size());
+        LedgerEventBus.Kind kind = approve ? LedgerEventBus.Kind.ACCOUNT_APPROVED : LedgerEventBus.Kind.ACCOUNT_REJECTED;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] <= 0) {
+                skipped.add(storedNumbers.get(i));
+                continue;
+            }
+            // The object only changes for rows the UPDATE actually decided
+            Account account = accounts.get(i);
+            if (approve) {
+                account.approve(staffUsername, newNumbers.get(i), decidedAt);
+            } else {
+                account.reject(staffUsername, decidedAt);
+            }
+            decided.add(account);
+            // Published once committed, like every other bus event
+            LedgerEventBus.getInstance().publish(kind, account.getAccountNumber(), null,
+                    account.getOwner() != null ? account.getOwner().getCustomerID() : null, 0, account.getBalance());
+        }
+        return new Decision(decided, skipped);
+    }
+}
@@ -0,0 +1,260 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.Transaction;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.OptionalDouble;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BalanceCheckpointDAO - Start-of-day balance checkpoints and point-in-time balance queries
+ * A checkpoint holds an approved account's balance at midnight, i.e. including every ledger row
+ * timestamped before it. balanceAsOf seeks the nearest checkpoint at or before the requested
+ * moment and adds only the ledger rows after it, so its cost depends on one day's activity
+ * rather than the length of the history.
+ *
+ * Checkpoints are computed backwards from the current balance (balance plus stripe deltas minus
+ * every row since the checkpoint) in one statement, so they need no earlier checkpoint and never
+ * accumulate error. The writer waits SETTLE_MILLIS past midnight, so rows stamped just before
+ * midnight but committed just after are included. Rows moved to the LedgerArchive are added to
+ * the table's sums, so balances stay right for moments before the archive horizon.
+ */
+public class BalanceCheckpointDAO {
+    public static final long SETTLE_MILLIS = 5 * 60_000L;
+    // Days the writer fills in after the application has been down
+    public static final int MAX_CATCH_UP_DAYS = 31;
+
+    /** Whether a ledger row took money out of its account */
+    static final String DEBIT_SQL = "(direction = 'DEBIT')";
+    /** A ledger row's effect on its account's balance */
+    static final String SIGNED_AMOUNT_SQL = "CASE WHEN " + DEBIT_SQL + " THEN -amount ELSE amount END";
+
+    private static final String WRITE_SQL =
+            "INSERT INTO balance_checkpoints (account_number, checkpoint_at, balance) " +
+            "SELECT a.account_number, ?, a.balance + COALESCE(s.pending, 0) - COALESCE(t.net, 0) FROM accounts a " +
+            "LEFT JOIN (SELECT account_number, SUM(delta) AS pending FROM account_balance_stripes " +
+            "GROUP BY account_number) s ON s.account_number = a.account_number " +
+            "LEFT JOIN (SELECT account_number, SUM(" + SIGNED_AMOUNT_SQL + ") AS net FROM transactions " +
+            "WHERE transaction_timestamp >= ? GROUP BY account_number) t ON t.account_number = a.account_number " +
+            "WHERE a.status = 'APPROVED' AND a.date_opened < ? AND NOT EXISTS (SELECT 1 FROM balance_checkpoints c " +
+            "WHERE c.account_number = a.account_number AND c.checkpoint_at = ?)";
+    private static final String LATEST_SQL = "SELECT MAX(checkpoint_at) FROM balance_checkpoints";
+    private static final String ACCOUNT_SQL =
+            "SELECT date_opened, balance + (SELECT COALESCE(SUM(delta), 0) FROM account_balance_stripes " +
+            "WHERE account_number = ?) FROM accounts WHERE account_number = ?";
+    private static final String FLOOR_SQL =
+            "SELECT checkpoint_at, balance FROM balance_checkpoints WHERE account_number = ? AND checkpoint_at <= ? " +
+            "ORDER BY checkpoint_at DESC LIMIT 1";
+    private static final String CEILING_SQL =
+            "SELECT checkpoint_at, balance FROM balance_checkpoints WHERE account_number = ? AND checkpoint_at > ? " +
+            "ORDER BY checkpoint_at LIMIT 1";
+    // Rows the checkpoint does not include, up to and including the moment asked for
+    private static final String NET_AFTER_CHECKPOINT_SQL =
+            "SELECT COALESCE(SUM(" + SIGNED_AMOUNT_SQL + "), 0) FROM transactions " +
+            "WHERE account_number = ? AND transaction_timestamp >= ? AND transaction_timestamp <= ?";
+    // Rows after the moment asked for that the next checkpoint includes
+    private static final String NET_BEFORE_CHECKPOINT_SQL =
+            "SELECT COALESCE(SUM(" + SIGNED_AMOUNT_SQL + "), 0) FROM transactions " +
+            "WHERE account_number = ? AND transaction_timestamp > ? AND transaction_timestamp < ?";
+    private static final String NET_SINCE_SQL =
+            "SELECT COALESCE(SUM(" + SIGNED_AMOUNT_SQL + "), 0) FROM transactions " +
+            "WHERE account_number = ? AND transaction_timestamp > ?";
+
+    private static final BalanceCheckpointDAO INSTANCE = new BalanceCheckpointDAO();
+
+    private ScheduledExecutorService writer;
+
+    public static BalanceCheckpointDAO getInstance() {
+        return INSTANCE;
+    }
+
+    private BalanceCheckpointDAO() {
+    }
+
+    /**
+     * Balance of an account at a moment in the past, including rows timestamped at that moment
+     * @return The balance, 0 before the account was opened, or empty if the account does not exist
+     */
+    public OptionalDouble balanceAsOf(String accountNumber, LocalDateTime asOf) {
+        if (accountNumber == null || asOf == null) return OptionalDouble.empty();
+        return LedgerArchive.getInstance().consistentRead(() -> computeBalanceAsOf(accountNumber, asOf));
+    }
+
+    private OptionalDouble computeBalanceAsOf(String accountNumber, LocalDateTime asOf) {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            LocalDate opened;
+            double current;
+            try (PreparedStatement pstmt = connection.prepareStatement(ACCOUNT_SQL)) {
+                pstmt.setString(1, accountNumber);
+                pstmt.setString(2, accountNumber);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) return OptionalDouble.empty();
+                    opened = rs.getDate(1).toLocalDate();
+                    current = rs.getDouble(2);
+                }
+            }
+            if (asOf.isBefore(opened.atStartOfDay())) return OptionalDouble.of(0);
+
+            // Forwards from the checkpoint at or before the moment
+            Checkpoint floor = checkpoint(connection, FLOOR_SQL, accountNumber, asOf);
+            if (floor != null) {
+                return OptionalDouble.of(floor.balance + net(connection, NET_AFTER_CHECKPOINT_SQL, accountNumber, floor.at, asOf)
+                        + archivedNet(accountNumber, floor.at, true, asOf, true));
+            }
+            // Before the account's first checkpoint: back from the next one
+            Checkpoint ceiling = checkpoint(connection, CEILING_SQL, accountNumber, asOf);
+            if (ceiling != null) {
+                return OptionalDouble.of(ceiling.balance - net(connection, NET_BEFORE_CHECKPOINT_SQL, accountNumber, asOf, ceiling.at)
+                        - archivedNet(accountNumber, asOf, false, ceiling.at, false));
+            }
+            // No checkpoints yet: back from the current balance
+            try (PreparedStatement pstmt = connection.prepareStatement(NET_SINCE_SQL)) {
+                pstmt.setString(1, accountNumber);
+                pstmt.setTimestamp(2, Timestamp.valueOf(asOf));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return OptionalDouble.of(current - (rs.next() ? rs.getDouble(1) : 0)
+                            - archivedNet(accountNumber, asOf, false, null, true));
+                }
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("Error reading balance as of " + asOf + ": " + e.getMessage());
+            e.printStackTrace();
+            return OptionalDouble.empty();
+        }
+    }
+
+    /**
+     * Write a checkpoint at a moment for every approved account opened before its day that has none yet
+     * @return Number of checkpoints written, or -1 on error
+     */
+    public int writeCheckpoints(LocalDateTime at) {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(WRITE_SQL)) {
+            Timestamp timestamp = Timestamp.valueOf(at);
+            pstmt.setTimestamp(1, timestamp);
+            pstmt.setTimestamp(2, timestamp);
+            pstmt.setDate(3, Date.valueOf(at.toLocalDate()));
+            pstmt.setTimestamp(4, timestamp);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error writing balance checkpoints: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Write the midnight checkpoints that are due: every day since the latest checkpoint (at most
+     * MAX_CATCH_UP_DAYS back), up to the last midnight that is at least SETTLE_MILLIS old
+     * @return Number of checkpoints written
+     */
+    public int writeDueCheckpoints() {
+        LocalDateTime due = LocalDateTime.now().minusNanos(SETTLE_MILLIS * 1_000_000L).toLocalDate().atStartOfDay();
+        LocalDateTime from = due;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(LATEST_SQL)) {
+            Timestamp latest = rs.next() ? rs.getTimestamp(1) : null;
+            if (latest != null) {
+                from = latest.toLocalDateTime().toLocalDate().plusDays(1).atStartOfDay();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading latest balance checkpoint: " + e.getMessage());
+            return 0;
+        }
+        if (from.isBefore(due.minusDays(MAX_CATCH_UP_DAYS))) {
+            from = due.minusDays(MAX_CATCH_UP_DAYS);
+        }
+        int written = 0;
+        for (LocalDateTime at = from; !at.isAfter(due); at = at.plusDays(1)) {
+            written += Math.max(0, writeCheckpoints(at));
+        }
+        return written;
+    }
+
+    /**
+     * Start a daemon that writes due checkpoints now and then at a fixed interval
+     * @param intervalMillis Time between checks; each check is one query when nothing is due
+     */
+    public synchronized void startWriter(long intervalMillis) {
+        if (writer != null) return;
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "BalanceCheckpointWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::writeDueCheckpoints, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background writer
+     */
+    public synchronized void stopWriter() {
+        if (writer != null) {
+            writer.shutdownNow();
+            writer = null;
+        }
+    }
+
+    private static Checkpoint checkpoint(Connection connection, String sql, String accountNumber,
+                                         LocalDateTime asOf) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, accountNumber);
+            pstmt.setTimestamp(2, Timestamp.valueOf(asOf));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new Checkpoint(rs.getTimestamp(1).toLocalDateTime(), rs.getDouble(2)) : null;
+            }
+        }
+    }
+
+    private static double net(Connection connection, String sql, String accountNumber, LocalDateTime from,
+                              LocalDateTime to) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, accountNumber);
+            pstmt.setTimestamp(2, Timestamp.valueOf(from));
+            pstmt.setTimestamp(3, Timestamp.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Net effect of the account's archived rows between two moments; the SQL sums cover only the table
+     * @param to Upper bound, or null for none
+     */
+    private static double archivedNet(String accountNumber, LocalDateTime from, boolean fromInclusive,
+                                      LocalDateTime to, boolean toInclusive) throws IOException {
+        LedgerArchive archive = LedgerArchive.getInstance();
+        if (!archive.mayHold(accountNumber, from, to)) return 0;
+        double net = 0;
+        for (LedgerArchive.Entry entry : archive.read(accountNumber, from, to)) {
+            Transaction transaction = entry.getTransaction();
+            if (!fromInclusive && transaction.getTimestamp().equals(from)) continue;
+            if (!toInclusive && transaction.getTimestamp().equals(to)) continue;
+            net += transaction.isDebit() ? -transaction.getAmount() : transaction.getAmount();
+        }
+        return net;
+    }
+
+    private static final class Checkpoint {
+        final LocalDateTime at;
+        final double balance;
+
+        Checkpoint(LocalDateTime at, double balance) {
+            this.at = at;
+            this.balance = balance;
+        }
+    }
+}
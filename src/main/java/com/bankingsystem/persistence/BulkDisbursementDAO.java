@@ -0,0 +1,260 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.PayrollDisbursementService.Line;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BulkDisbursementDAO - Set-based JDBC operations behind bulk payroll disbursement
+ * Instruction lines are staged into disbursement_lines with batched inserts so the recipients
+ * of a whole file can be validated with one join, and credits are applied with batched
+ * conditional UPDATEs. All methods join the caller's unit of work.
+ *
+ * Each staged line carries a status that changes in the same transaction as the money it
+ * describes, so an interrupted run can be finished from the table alone:
+ *  STAGED   - validated or not, nothing moved yet
+ *  PENDING  - covered by the source debit, not yet credited
+ *  CREDITED - credited to the recipient
+ *  FAILED   - covered by the source debit but not credited; owed back to the source
+ *  REFUNDED - failed and refunded to the source
+ *  REJECTED - never debited
+ */
+public class BulkDisbursementDAO {
+    private static final int INSERT_BATCH_SIZE = 1_000;
+
+    public enum LineStatus { STAGED, PENDING, CREDITED, FAILED, REFUNDED, REJECTED }
+
+    private static final String STAGE_SQL =
+            "INSERT INTO disbursement_lines (batch_id, line_no, source_account, account_number, amount, reference, status) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 'STAGED')";
+    private static final String VALIDATE_SQL =
+            "SELECT s.line_no, a.status FROM disbursement_lines s " +
+            "LEFT JOIN accounts a ON a.account_number = s.account_number WHERE s.batch_id = ?";
+    private static final String CREDIT_SQL =
+            "UPDATE accounts SET balance = balance + ? WHERE account_number = ? AND status = 'APPROVED'";
+    // Balance as every other reader sees it: the folded balance plus any unfolded stripe deltas
+    private static final String BALANCES_SQL =
+            "SELECT a.account_number, a.balance + COALESCE(SUM(s.delta), 0) FROM accounts a " +
+            "LEFT JOIN account_balance_stripes s ON s.account_number = a.account_number " +
+            "WHERE a.account_number BETWEEN ? AND ? GROUP BY a.account_number, a.balance";
+    private static final String MARK_SQL =
+            "UPDATE disbursement_lines SET status = ?, message = ? WHERE batch_id = ? AND line_no = ?";
+    private static final String MARK_STAGED_SQL =
+            "UPDATE disbursement_lines SET status = ? WHERE batch_id = ? AND status = 'STAGED'";
+    private static final String UNFINISHED_SQL =
+            "SELECT DISTINCT batch_id, source_account FROM disbursement_lines " +
+            "WHERE status IN ('STAGED', 'PENDING', 'FAILED')";
+    private static final String LINES_SQL =
+            "SELECT line_no, account_number, amount, reference FROM disbursement_lines " +
+            "WHERE batch_id = ? AND status = ? ORDER BY line_no";
+    private static final String LOCK_FAILED_SQL =
+            "SELECT amount FROM disbursement_lines WHERE batch_id = ? AND status = 'FAILED' FOR UPDATE";
+    private static final String REFUNDED_SQL =
+            "UPDATE disbursement_lines SET status = 'REFUNDED' WHERE batch_id = ? AND status = 'FAILED'";
+
+    /**
+     * Stage the lines of a disbursement and look up every recipient's status in one query
+     * @return Line number to recipient account status; the status is null when the account does not exist
+     */
+    public Map<Integer, String> stageAndValidate(String batchId, String sourceAccount, List<Line> lines)
+            throws SQLException {
+        return UnitOfWork.execute(connection -> {
+            try (PreparedStatement stage = connection.prepareStatement(STAGE_SQL)) {
+                int pending = 0;
+                for (Line line : lines) {
+                    stage.setString(1, batchId);
+                    stage.setInt(2, line.getLineNumber());
+                    stage.setString(3, sourceAccount);
+                    stage.setString(4, line.getAccountNumber());
+                    stage.setDouble(5, line.getAmount());
+                    stage.setString(6, line.getReference());
+                    stage.addBatch();
+                    if (++pending == INSERT_BATCH_SIZE) {
+                        stage.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stage.executeBatch();
+                }
+            }
+
+            Map<Integer, String> statuses = new HashMap<>(lines.size() * 2);
+            try (PreparedStatement validate = connection.prepareStatement(VALIDATE_SQL)) {
+                validate.setString(1, batchId);
+                try (ResultSet rs = validate.executeQuery()) {
+                    while (rs.next()) {
+                        statuses.put(rs.getInt(1), rs.getString(2));
+                    }
+                }
+            }
+            return statuses;
+        });
+    }
+
+    /**
+     * Apply the credits of one chunk with a single batched conditional UPDATE.
+     * Striped hot accounts take their credit on a sub-balance slot, as AccountDAOImpl.creditBalance does.
+     * Must run inside the chunk's unit of work.
+     * @param chunk Lines sorted by account number, so row locks are taken in a consistent order
+     * @return Update count per line; 0 means the recipient was no longer approved
+     */
+    public int[] creditBatch(List<Line> chunk) throws SQLException {
+        StripedBalanceDAO stripes = StripedBalanceDAO.getInstance();
+        int[] counts = new int[chunk.size()];
+        List<Integer> batched = new ArrayList<>(chunk.size());
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement credit = connection.prepareStatement(CREDIT_SQL)) {
+            for (int i = 0; i < chunk.size(); i++) {
+                Line line = chunk.get(i);
+                if (stripes.isStriped(line.getAccountNumber())) {
+                    counts[i] = stripes.credit(connection, line.getAccountNumber(), line.getAmount()).isPresent() ? 1 : 0;
+                    continue;
+                }
+                credit.setDouble(1, line.getAmount());
+                credit.setString(2, line.getAccountNumber());
+                credit.addBatch();
+                batched.add(i);
+            }
+            if (!batched.isEmpty()) {
+                int[] updated = credit.executeBatch();
+                for (int i = 0; i < updated.length; i++) {
+                    counts[batched.get(i)] = updated[i];
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Read the current balances of all accounts in an account-number range (the span of one
+     * sorted chunk) with a primary-key range scan
+     */
+    public Map<String, Double> balancesInRange(String firstAccount, String lastAccount)
+            throws SQLException {
+        Map<String, Double> balances = new HashMap<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(BALANCES_SQL)) {
+            pstmt.setString(1, firstAccount);
+            pstmt.setString(2, lastAccount);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(rs.getString(1), rs.getDouble(2));
+                }
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Set the status of staged lines, keeping each line's message.
+     * Joins the caller's unit of work, so the status commits with the money it describes.
+     */
+    public void markLines(String batchId, List<Line> lines, LineStatus status) throws SQLException {
+        if (lines.isEmpty()) return;
+        UnitOfWork.execute(connection -> {
+            try (PreparedStatement mark = connection.prepareStatement(MARK_SQL)) {
+                int pending = 0;
+                for (Line line : lines) {
+                    mark.setString(1, status.name());
+                    mark.setString(2, line.getMessage());
+                    mark.setString(3, batchId);
+                    mark.setInt(4, line.getLineNumber());
+                    mark.addBatch();
+                    if (++pending == INSERT_BATCH_SIZE) {
+                        mark.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    mark.executeBatch();
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Move every line of a batch that is still STAGED to a new status with one UPDATE.
+     * Joins the caller's unit of work.
+     */
+    public void markStaged(String batchId, LineStatus status) throws SQLException {
+        UnitOfWork.execute(connection -> {
+            try (PreparedStatement mark = connection.prepareStatement(MARK_STAGED_SQL)) {
+                mark.setString(1, status.name());
+                mark.setString(2, batchId);
+                mark.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Batches with lines that are not settled yet (STAGED, PENDING or FAILED)
+     * @return Batch id to source account
+     */
+    public Map<String, String> unfinishedBatches() throws SQLException {
+        return UnitOfWork.execute(connection -> {
+            Map<String, String> batches = new LinkedHashMap<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(UNFINISHED_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    batches.put(rs.getString(1), rs.getString(2));
+                }
+            }
+            return batches;
+        });
+    }
+
+    /**
+     * Load the lines of a batch that are in one status, in line order
+     */
+    public List<Line> linesInStatus(String batchId, LineStatus status) throws SQLException {
+        return UnitOfWork.execute(connection -> {
+            List<Line> lines = new ArrayList<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(LINES_SQL)) {
+                pstmt.setString(1, batchId);
+                pstmt.setString(2, status.name());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        lines.add(new Line(rs.getInt(1), rs.getString(2), Math.round(rs.getDouble(3) * 100), rs.getString(4)));
+                    }
+                }
+            }
+            return lines;
+        });
+    }
+
+    /**
+     * Lock the FAILED lines of a batch and mark them REFUNDED.
+     * Must run inside the unit of work that credits the refund to the source account.
+     * @return Total refunded, in cents
+     */
+    public long refundFailed(String batchId) throws SQLException {
+        long cents = 0;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            try (PreparedStatement lock = connection.prepareStatement(LOCK_FAILED_SQL)) {
+                lock.setString(1, batchId);
+                try (ResultSet rs = lock.executeQuery()) {
+                    while (rs.next()) {
+                        cents += Math.round(rs.getDouble(1) * 100);
+                    }
+                }
+            }
+            if (cents > 0) {
+                try (PreparedStatement refunded = connection.prepareStatement(REFUNDED_SQL)) {
+                    refunded.setString(1, batchId);
+                    refunded.executeUpdate();
+                }
+            }
+        }
+        return cents;
+    }
+}
@@ -67,6 +67,9 @@ public class CustomerDAOImpl {
             }
 
             int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                CustomerSearchIndex.getInstance().index(customer);
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error saving customer: " + e.getMessage());
@@ -112,6 +115,9 @@ public class CustomerDAOImpl {
 
             pstmt.setString(10, customer.getCustomerID());
             int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                CustomerSearchIndex.getInstance().index(customer);
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error updating customer: " + e.getMessage());
@@ -168,6 +174,15 @@ public class CustomerDAOImpl {
         return Optional.empty();
     }
 
+    /**
+     * Type-ahead search over names, company name, national ID, registration number, email
+     * and phone, served from the in-memory CustomerSearchIndex
+     * @return Matching customers' IDs and display labels, best matches first
+     */
+    public List<CustomerSearchIndex.Hit> searchCustomers(String query, int limit) {
+        return CustomerSearchIndex.getInstance().search(query, limit);
+    }
+
     /**
      * Get all customers
      */
@@ -202,6 +217,9 @@ public class CustomerDAOImpl {
              PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, customerId);
             int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                CustomerSearchIndex.getInstance().remove(customerId);
+            }
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting customer: " + e.getMessage());
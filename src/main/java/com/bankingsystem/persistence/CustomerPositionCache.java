@@ -0,0 +1,491 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.AccountStatus;
+import com.bankingsystem.utils.LedgerEventBus;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * CustomerPositionCache - Consolidated position of every customer, kept current from ledger events
+ * A position is the customer's total balance, balance per account type, number of approved
+ * accounts and time of the last ledger activity. Dashboards read a position with one map lookup
+ * instead of walking and re-formatting the customer's accounts on every refresh.
+ *
+ * The cache subscribes to the LedgerEventBus, where TransactionController, payroll and interest
+ * runs publish every posting, and account decisions are announced. Postings are published after
+ * their commit by the threads that made them, so two postings to one account can arrive in
+ * either order and the balance an event carries may already be stale. An event therefore only
+ * marks its account: at the end of each batch the balances of the marked accounts are read back
+ * from the database in one query, under the cache's lock, so a later read can never be replaced
+ * by an earlier one. Each balance rebuilds that customer's position, so an update costs
+ * O(types), whatever the number of customers. Positions are immutable and swapped in whole.
+ *
+ * rebuild() loads approved accounts from the database over key ranges of account numbers scanned
+ * in parallel. Changes applied during a rebuild are replayed onto the new positions, and the
+ * balances of the accounts they touched are read again before the new positions are swapped in,
+ * as the scan may have seen a newer balance than a change made meanwhile.
+ */
+public class CustomerPositionCache {
+    public static final int DEFAULT_REBUILD_WORKERS = 4;
+    private static final int FETCH_SIZE = 5_000;
+    // Most accounts whose balances are read back in one query
+    private static final int REFRESH_BATCH = 500;
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM accounts WHERE status = 'APPROVED'";
+    private static final String BOUNDARY_SQL =
+            "SELECT account_number FROM accounts WHERE status = 'APPROVED' ORDER BY account_number";
+    // Striped accounts keep part of their balance in stripe rows; last activity uses idx_transactions_account_ts_desc
+    private static final String ACCOUNTS_SQL =
+            "SELECT a.account_number, a.customer_id, a.account_type, a.balance, " +
+            "(SELECT COALESCE(SUM(s.delta), 0) FROM account_balance_stripes s WHERE s.account_number = a.account_number) AS pending, " +
+            "(SELECT MAX(t.transaction_timestamp) FROM transactions t WHERE t.account_number = a.account_number) AS last_activity " +
+            "FROM accounts a WHERE a.status = 'APPROVED' AND %s";
+    private static final String BALANCE_SQL =
+            "a.balance + (SELECT COALESCE(SUM(s.delta), 0) FROM account_balance_stripes s WHERE s.account_number = a.account_number)";
+    private static final String ACCOUNT_SQL =
+            "SELECT a.customer_id, a.account_type, a.status, " + BALANCE_SQL + " AS balance FROM accounts a " +
+            "WHERE a.account_number = ?";
+    private static final String BALANCES_SQL =
+            "SELECT a.account_number, " + BALANCE_SQL + " FROM accounts a WHERE a.account_number IN (%s)";
+
+    private static final CustomerPositionCache INSTANCE = new CustomerPositionCache();
+
+    /**
+     * A customer's holdings at one point in time
+     */
+    public static final class Position {
+        private final String customerId;
+        private final double totalBalance;
+        private final Map<String, Double> balanceByType;
+        private final int accountCount;
+        private final LocalDateTime lastActivity;
+        private final String formattedTotal;
+
+        Position(String customerId, double totalBalance, Map<String, Double> balanceByType, int accountCount,
+                 LocalDateTime lastActivity) {
+            this.customerId = customerId;
+            this.totalBalance = totalBalance;
+            this.balanceByType = balanceByType;
+            this.accountCount = accountCount;
+            this.lastActivity = lastActivity;
+            this.formattedTotal = String.format("%.2f", totalBalance);
+        }
+
+        public String getCustomerId() { return customerId; }
+        public double getTotalBalance() { return totalBalance; }
+
+        /**
+         * Total balance formatted for display; formatted once per change, not per refresh
+         */
+        public String getFormattedTotal() { return formattedTotal; }
+
+        /**
+         * Balances keyed by account type as stored (e.g. "SavingsAccount"); unmodifiable
+         */
+        public Map<String, Double> getBalanceByType() { return balanceByType; }
+
+        public double getBalance(String accountType) {
+            return balanceByType.getOrDefault(accountType, 0.0);
+        }
+
+        public int getAccountCount() { return accountCount; }
+
+        /**
+         * Time of the last posting to any of the customer's accounts, or null if none
+         */
+        public LocalDateTime getLastActivity() { return lastActivity; }
+    }
+
+    /**
+     * What the cache knows about one approved account
+     */
+    private static final class Holding {
+        final String customerId;
+        final String accountType;
+        final double balance;
+        final LocalDateTime lastActivity;
+
+        Holding(String customerId, String accountType, double balance, LocalDateTime lastActivity) {
+            this.customerId = customerId;
+            this.accountType = accountType;
+            this.balance = balance;
+            this.lastActivity = lastActivity;
+        }
+    }
+
+    /**
+     * A change to one account, as applied to the live state and replayed after a rebuild
+     */
+    private static final class Change {
+        final String accountNumber;
+        final Holding holding; // null removes the account
+        final boolean balanceOnly;
+
+        Change(String accountNumber, Holding holding, boolean balanceOnly) {
+            this.accountNumber = accountNumber;
+            this.holding = holding;
+            this.balanceOnly = balanceOnly;
+        }
+    }
+
+    /**
+     * Holdings and the positions derived from them; only changed under the cache's lock
+     */
+    private static final class State {
+        // Concurrent so the bus thread can check for an account without taking the lock
+        final Map<String, Holding> holdings = new ConcurrentHashMap<>();
+        // customer ID -> account numbers, to rebuild a position without scanning every holding
+        final Map<String, List<String>> accountsByCustomer = new HashMap<>();
+        final Map<String, Position> positions = new ConcurrentHashMap<>();
+
+        void apply(Change change) {
+            Holding old = holdings.get(change.accountNumber);
+            Holding next = change.holding;
+            if (change.balanceOnly) {
+                if (old == null) return;
+                next = new Holding(old.customerId, old.accountType, next.balance,
+                        next.lastActivity != null ? next.lastActivity : old.lastActivity);
+            }
+            if (old != null) {
+                holdings.remove(change.accountNumber);
+                accountsByCustomer.get(old.customerId).remove(change.accountNumber);
+            }
+            if (next != null) {
+                holdings.put(change.accountNumber, next);
+                accountsByCustomer.computeIfAbsent(next.customerId, id -> new ArrayList<>(4)).add(change.accountNumber);
+                recompute(next.customerId);
+            }
+            if (old != null && (next == null || !old.customerId.equals(next.customerId))) {
+                recompute(old.customerId);
+            }
+        }
+
+        void recompute(String customerId) {
+            List<String> numbers = accountsByCustomer.get(customerId);
+            if (numbers == null || numbers.isEmpty()) {
+                accountsByCustomer.remove(customerId);
+                positions.remove(customerId);
+                return;
+            }
+            double total = 0;
+            Map<String, Double> byType = new HashMap<>(4);
+            LocalDateTime last = null;
+            for (String number : numbers) {
+                Holding holding = holdings.get(number);
+                total += holding.balance;
+                byType.merge(holding.accountType, holding.balance, Double::sum);
+                if (holding.lastActivity != null && (last == null || holding.lastActivity.isAfter(last))) {
+                    last = holding.lastActivity;
+                }
+            }
+            positions.put(customerId, new Position(customerId, total, Collections.unmodifiableMap(byType),
+                    numbers.size(), last));
+        }
+    }
+
+    private final LedgerEventBus bus;
+    private volatile State state = new State();
+    // Changes applied while a rebuild is scanning; replayed onto the new state before it is swapped in
+    private List<Change> changesDuringRebuild;
+    private LedgerEventBus.Subscription subscription;
+    // Accounts posted to in the current batch and the time of their last posting; bus thread only
+    private final Map<String, LocalDateTime> posted = new HashMap<>();
+
+    public static CustomerPositionCache getInstance() {
+        return INSTANCE;
+    }
+
+    private CustomerPositionCache() {
+        this.bus = LedgerEventBus.getInstance();
+    }
+
+    /**
+     * Keep positions current from ledger events published from now on
+     */
+    public synchronized void start() {
+        if (subscription != null) return;
+        subscription = bus.subscribe("PositionCache", this::onEvent);
+    }
+
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+
+    /**
+     * Events published but not applied yet
+     */
+    public synchronized long getLag() {
+        return subscription != null ? subscription.getLag() : 0;
+    }
+
+    /**
+     * Position of a customer
+     * @return The position, or null if the customer has no approved accounts
+     */
+    public Position getPosition(String customerId) {
+        return customerId != null ? state.positions.get(customerId) : null;
+    }
+
+    /**
+     * Number of customers with a position
+     */
+    public int size() {
+        return state.positions.size();
+    }
+
+    /**
+     * Drop an account that was closed; closing is not announced on the bus
+     */
+    public void remove(String accountNumber) {
+        if (accountNumber != null) apply(new Change(accountNumber, null, false));
+    }
+
+    /**
+     * Rebuild every position from the database
+     * @param workers Threads scanning key ranges of accounts in parallel (each holds one pooled connection)
+     * @return false if the scan failed; the old positions are then kept
+     */
+    public boolean rebuild(int workers) {
+        if (workers < 1) throw new IllegalArgumentException("Workers must be positive");
+        synchronized (this) {
+            if (changesDuringRebuild != null) return false; // another rebuild is running
+            changesDuringRebuild = new ArrayList<>();
+        }
+
+        State fresh = new State();
+        boolean ok = true;
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "PositionCacheLoader");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<String> boundaries = partitionBoundaries(workers);
+            List<Future<Map<String, Holding>>> tasks = new ArrayList<>(boundaries.size());
+            for (int i = 0; i < boundaries.size(); i++) {
+                String from = boundaries.get(i);
+                String to = i + 1 < boundaries.size() ? boundaries.get(i + 1) : null;
+                tasks.add(pool.submit(() -> loadRange(from, to)));
+            }
+            for (Future<Map<String, Holding>> task : tasks) {
+                for (Map.Entry<String, Holding> entry : task.get().entrySet()) {
+                    Holding holding = entry.getValue();
+                    fresh.holdings.put(entry.getKey(), holding);
+                    fresh.accountsByCustomer.computeIfAbsent(holding.customerId, id -> new ArrayList<>(4)).add(entry.getKey());
+                }
+            }
+            fresh.accountsByCustomer.keySet().parallelStream().forEach(fresh::recompute);
+        } catch (SQLException | ExecutionException e) {
+            System.err.println("Error rebuilding customer positions: " + e.getMessage());
+            e.printStackTrace();
+            ok = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ok = false;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        synchronized (this) {
+            if (ok) {
+                Map<String, LocalDateTime> touched = new HashMap<>();
+                for (Change change : changesDuringRebuild) {
+                    fresh.apply(change);
+                    if (change.holding != null) touched.put(change.accountNumber, null);
+                }
+                try {
+                    for (Change change : balances(touched)) {
+                        fresh.apply(change);
+                    }
+                    state = fresh;
+                } catch (SQLException e) {
+                    System.err.println("Error rebuilding customer positions: " + e.getMessage());
+                    e.printStackTrace();
+                    ok = false;
+                }
+            }
+            changesDuringRebuild = null;
+        }
+        return ok;
+    }
+
+    private void onEvent(LedgerEventBus.Event event, boolean endOfBatch) {
+        String accountNumber = event.getAccountNumber();
+        if (accountNumber != null) {
+            if (event.getKind().isMoneyMovement()) {
+                LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTimestampMillis()), ZoneId.systemDefault());
+                posted.merge(accountNumber, at, (a, b) -> a.isAfter(b) ? a : b);
+            } else if (event.getKind() == LedgerEventBus.Kind.ACCOUNT_APPROVED || event.getKind() == LedgerEventBus.Kind.ACCOUNT_OPENED) {
+                // Decisions are rare; look the account's type and status up rather than carry them on every event
+                refreshAccount(accountNumber, null);
+            } else if (event.getKind() == LedgerEventBus.Kind.ACCOUNT_REJECTED) {
+                posted.remove(accountNumber);
+                apply(new Change(accountNumber, null, false));
+            }
+        }
+        if (endOfBatch || posted.size() >= REFRESH_BATCH) {
+            refreshPosted();
+        }
+    }
+
+    /**
+     * Read back the balances of the accounts posted to since the last refresh
+     */
+    private synchronized void refreshPosted() {
+        if (posted.isEmpty()) return;
+        Map<String, LocalDateTime> known = new HashMap<>();
+        for (Map.Entry<String, LocalDateTime> account : posted.entrySet()) {
+            if (state.holdings.containsKey(account.getKey())) {
+                known.put(account.getKey(), account.getValue());
+            } else {
+                // First posting seen for an account the cache does not know yet (approved before a rebuild)
+                refreshAccount(account.getKey(), account.getValue());
+            }
+        }
+        posted.clear();
+        try {
+            for (Change change : balances(known)) {
+                apply(change);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error refreshing customer positions: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Load an account's holding with its current balance and apply it, if the account is approved
+     */
+    private synchronized void refreshAccount(String accountNumber, LocalDateTime lastActivity) {
+        Holding holding = loadHolding(accountNumber, lastActivity);
+        if (holding != null) apply(new Change(accountNumber, holding, false));
+    }
+
+    private synchronized void apply(Change change) {
+        state.apply(change);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    /**
+     * Balance-only changes with the current balances of some accounts
+     * @param accounts Account number -> time of its last posting, or null to keep the one known
+     */
+    private static List<Change> balances(Map<String, LocalDateTime> accounts) throws SQLException {
+        List<Change> changes = new ArrayList<>(accounts.size());
+        if (accounts.isEmpty()) return changes;
+        List<String> numbers = new ArrayList<>(accounts.keySet());
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            for (int start = 0; start < numbers.size(); start += REFRESH_BATCH) {
+                List<String> chunk = numbers.subList(start, Math.min(start + REFRESH_BATCH, numbers.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                try (PreparedStatement pstmt = connection.prepareStatement(String.format(BALANCES_SQL, placeholders))) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            String accountNumber = rs.getString(1);
+                            changes.add(new Change(accountNumber,
+                                    new Holding(null, null, rs.getDouble(2), accounts.get(accountNumber)), true));
+                        }
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * An account's holding with its current balance, if the account is approved
+     */
+    private Holding loadHolding(String accountNumber, LocalDateTime lastActivity) {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(ACCOUNT_SQL)) {
+            pstmt.setString(1, accountNumber);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || !AccountStatus.APPROVED.toString().equals(rs.getString("status"))) return null;
+                return new Holding(rs.getString("customer_id"), rs.getString("account_type"), rs.getDouble("balance"),
+                        lastActivity);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading account for position cache: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * First account number of each key range, a few ranges per worker
+     */
+    private List<String> partitionBoundaries(int workers) throws SQLException {
+        List<String> boundaries = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            long count;
+            try (PreparedStatement pstmt = connection.prepareStatement(COUNT_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                count = rs.next() ? rs.getLong(1) : 0;
+            }
+            long perPartition = Math.max(1, count / (workers * 4L));
+            try (PreparedStatement pstmt = streaming(connection, BOUNDARY_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                long i = 0;
+                while (rs.next()) {
+                    if (i++ % perPartition == 0) boundaries.add(rs.getString(1));
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * Approved accounts in [from, to); to is null for the last range
+     */
+    private Map<String, Holding> loadRange(String from, String to) throws SQLException {
+        Map<String, Holding> range = new HashMap<>();
+        String clause = to != null ? "a.account_number >= ? AND a.account_number < ?" : "a.account_number >= ?";
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = streaming(connection, String.format(ACCOUNTS_SQL, clause))) {
+            pstmt.setString(1, from);
+            if (to != null) pstmt.setString(2, to);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp last = rs.getTimestamp("last_activity");
+                    range.put(rs.getString("account_number"), new Holding(rs.getString("customer_id"),
+                            rs.getString("account_type"), rs.getDouble("balance") + rs.getDouble("pending"),
+                            last != null ? last.toLocalDateTime() : null));
+                }
+            }
+        }
+        return range;
+    }
+
+    private static PreparedStatement streaming(Connection connection, String sql) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // MySQL Connector/J only streams with this sentinel; other drivers treat it as a batch size
+        boolean mysql = "MySQL".equals(DatabaseConnection.getInstance().getDatabaseType());
+        pstmt.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+        return pstmt;
+    }
+}
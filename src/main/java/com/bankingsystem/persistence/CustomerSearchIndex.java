@@ -0,0 +1,518 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.CompanyCustomer;
+import com.bankingsystem.Customer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * CustomerSearchIndex - In-memory type-ahead index for staff customer lookup
+ * Indexes first/last name, company name, national ID, registration number, email and phone,
+ * so lookups never run LIKE '%x%' scans over the customers table.
+ *
+ * Every field is split into lowercase tokens (emails also into local part and domain labels,
+ * phones into their digits). Two structures point at dense document numbers:
+ *  - a prefix trie over the first four characters of every token
+ *  - trigram posting lists (sorted int arrays) over every token
+ * A query first looks for documents where every term starts a token (trie node of the term's
+ * first four characters, plus the trigrams of the rest), and only if that yields too few hits
+ * for documents containing each term of three or more characters anywhere (its trigrams).
+ * Candidates are verified against the document's token text. Multi-word queries AND their terms.
+ *
+ * The index is built by one streaming scan of the customers table in the background (by
+ * loadInBackground(), or by the first search) and kept current by CustomerDAOImpl on save,
+ * update and delete. Searches return nothing until the first build has finished, so a
+ * keystroke handler never waits for the scan; isLoaded() tells it why. An updated
+ * customer gets a new document number and its old postings are skipped as dead entries
+ * until the next rebuild compacts them.
+ */
+public class CustomerSearchIndex {
+    public static final int DEFAULT_LIMIT = 10;
+
+    private static final int PREFIX_DEPTH = 4;
+    // Candidates verified per pass before the hits found so far are returned
+    private static final int SCAN_BUDGET = 1_000;
+    private static final String SCAN_SQL =
+            "SELECT customer_id, customer_type, first_name, last_name, national_id, email, phone, " +
+            "company_name, registration_number FROM customers";
+
+    private static final CustomerSearchIndex INSTANCE = new CustomerSearchIndex();
+
+    /**
+     * One search result
+     */
+    public static final class Hit {
+        private final String customerId;
+        private final String label;
+
+        Hit(String customerId, String label) {
+            this.customerId = customerId;
+            this.label = label;
+        }
+
+        public String getCustomerId() { return customerId; }
+
+        /**
+         * Display text, e.g. "Jane Smith (987654321)" or "Tech Solutions Ltd (TCH-2023-001)"
+         */
+        public String getLabel() { return label; }
+
+        @Override
+        public String toString() { return label; }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    // Changes made while a rebuild is scanning; replayed onto the new state before it is swapped in
+    private List<Entry> changesDuringRebuild;
+    private volatile boolean loaded;
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    public static CustomerSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    private CustomerSearchIndex() {
+    }
+
+    /**
+     * Find customers matching a type-ahead query
+     * @param query One or more terms; terms of one or two characters match token prefixes,
+     *              longer terms match anywhere inside a field
+     * @param limit Maximum number of hits
+     * @return Hits, token-prefix matches first; none while the index is still being built
+     */
+    public List<Hit> search(String query, int limit) {
+        String[] terms = terms(query);
+        if (terms.length == 0 || limit < 1) return List.of();
+        if (!loaded) {
+            loadInBackground();
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return state.search(terms, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add a customer, or replace the indexed fields of one already present
+     */
+    public void index(Customer customer) {
+        if (customer == null || customer.getCustomerID() == null) return;
+        apply(Entry.of(customer));
+    }
+
+    /**
+     * Remove a customer from the index
+     */
+    public void remove(String customerId) {
+        if (customerId == null) return;
+        apply(Entry.removal(customerId));
+    }
+
+    /**
+     * Whether the first build has finished, so searches see every customer
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Start building the index on a background thread, unless it is built or being built
+     */
+    public void loadInBackground() {
+        if (loaded || !loading.compareAndSet(false, true)) return;
+        Thread loader = new Thread(() -> {
+            try {
+                rebuild();
+            } finally {
+                // A failed build is retried by the next search
+                loading.set(false);
+            }
+        }, "CustomerSearchIndexLoader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Number of live customers in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the index from a streaming scan of the customers table.
+     * Searches keep using the old index during the scan; changes made meanwhile are
+     * applied to both and the new index is swapped in at the end.
+     */
+    public synchronized boolean rebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State fresh = new State();
+        boolean ok = true;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(SCAN_SQL)) {
+            pstmt.setFetchSize(1_000);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    boolean company = "COMPANY".equals(rs.getString("customer_type"));
+                    fresh.apply(Entry.of(rs.getString("customer_id"), company,
+                            rs.getString("first_name"), rs.getString("last_name"), rs.getString("national_id"),
+                            rs.getString("email"), rs.getString("phone"),
+                            rs.getString("company_name"), rs.getString("registration_number")));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error building customer search index: " + e.getMessage());
+            e.printStackTrace();
+            ok = false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (ok) {
+                for (Entry change : changesDuringRebuild) {
+                    fresh.apply(change);
+                }
+                state = fresh;
+                loaded = true;
+            }
+            changesDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return ok;
+    }
+
+    private void apply(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            state.apply(entry);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String[] terms(String query) {
+        if (query == null) return new String[0];
+        return Arrays.stream(query.toLowerCase(Locale.ROOT).trim().split("\\s+"))
+                .filter(term -> !term.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * The searchable form of one customer, or a removal marker (tokens == null)
+     */
+    private static final class Entry {
+        final String customerId;
+        final String label;
+        final List<String> tokens;
+
+        private Entry(String customerId, String label, List<String> tokens) {
+            this.customerId = customerId;
+            this.label = label;
+            this.tokens = tokens;
+        }
+
+        static Entry removal(String customerId) {
+            return new Entry(customerId, null, null);
+        }
+
+        static Entry of(Customer customer) {
+            if (customer instanceof CompanyCustomer) {
+                CompanyCustomer company = (CompanyCustomer) customer;
+                return of(customer.getCustomerID(), true, null, null, null, customer.getEmail(), customer.getPhone(),
+                        company.getCompanyName(), company.getRegistrationNumber());
+            }
+            return of(customer.getCustomerID(), false, customer.getFirstName(), customer.getLastName(),
+                    customer.getNationalID(), customer.getEmail(), customer.getPhone(), null, null);
+        }
+
+        static Entry of(String customerId, boolean company, String firstName, String lastName, String nationalId,
+                        String email, String phone, String companyName, String registrationNumber) {
+            List<String> tokens = new ArrayList<>(12);
+            words(firstName, tokens);
+            words(lastName, tokens);
+            words(companyName, tokens);
+            identifier(nationalId, tokens);
+            identifier(registrationNumber, tokens);
+            if (email != null && !email.isBlank()) {
+                String normalized = email.trim().toLowerCase(Locale.ROOT);
+                tokens.add(normalized);
+                for (String part : normalized.split("[@.]")) {
+                    if (!part.isEmpty()) tokens.add(part);
+                }
+            }
+            if (phone != null) {
+                String digits = phone.replaceAll("\\D", "");
+                if (!digits.isEmpty()) tokens.add(digits);
+            }
+
+            String label;
+            if (company) {
+                label = (companyName != null ? companyName : customerId)
+                        + (registrationNumber != null ? " (" + registrationNumber + ")" : "");
+            } else {
+                String name = ((firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "")).trim();
+                label = (name.isEmpty() ? customerId : name) + (nationalId != null ? " (" + nationalId + ")" : "");
+            }
+            return new Entry(customerId, label, tokens);
+        }
+
+        private static void words(String text, List<String> tokens) {
+            if (text == null) return;
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) tokens.add(word);
+            }
+        }
+
+        private static void identifier(String text, List<String> tokens) {
+            if (text == null || text.isBlank()) return;
+            String normalized = text.trim().toLowerCase(Locale.ROOT);
+            tokens.add(normalized);
+            // "TCH-2023-001" is also findable as "tch2023001"
+            String compact = normalized.replaceAll("[^\\p{L}\\p{N}]", "");
+            if (!compact.equals(normalized) && !compact.isEmpty()) tokens.add(compact);
+        }
+    }
+
+    /**
+     * The index proper. Not thread-safe; guarded by the outer read/write lock.
+     */
+    private static final class State {
+        String[] customerIds = new String[1024];
+        String[] labels = new String[1024];
+        // " token token ..." so a token prefix test is contains(" " + term)
+        String[] texts = new String[1024];
+        int docCount;
+        int live;
+        final Map<String, Integer> docByCustomer = new HashMap<>();
+        final TrieNode trie = new TrieNode();
+        final Map<String, IntList> trigrams = new HashMap<>();
+
+        void apply(Entry entry) {
+            Integer previous = docByCustomer.remove(entry.customerId);
+            if (previous != null) {
+                customerIds[previous] = null;
+                labels[previous] = null;
+                texts[previous] = null;
+                live--;
+            }
+            if (entry.tokens != null) {
+                add(entry);
+            }
+        }
+
+        private void add(Entry entry) {
+            int doc = docCount++;
+            if (doc == customerIds.length) {
+                int capacity = doc * 2;
+                customerIds = Arrays.copyOf(customerIds, capacity);
+                labels = Arrays.copyOf(labels, capacity);
+                texts = Arrays.copyOf(texts, capacity);
+            }
+            StringBuilder text = new StringBuilder(64);
+            for (String token : entry.tokens) {
+                text.append(' ').append(token);
+                // Documents are added in increasing order, so a doc already in a posting list
+                // is always its last element and addLast() de-duplicates
+                TrieNode node = trie;
+                for (int i = 0; i < Math.min(PREFIX_DEPTH, token.length()); i++) {
+                    node = node.child(token.charAt(i), true);
+                    node.postings.addLast(doc);
+                }
+                for (int i = 0; i + 3 <= token.length(); i++) {
+                    trigrams.computeIfAbsent(token.substring(i, i + 3), k -> new IntList()).addLast(doc);
+                }
+            }
+            customerIds[doc] = entry.customerId;
+            labels[doc] = entry.label;
+            texts[doc] = text.toString();
+            docByCustomer.put(entry.customerId, doc);
+            live++;
+        }
+
+        List<Hit> search(String[] terms, int limit) {
+            List<Hit> hits = new ArrayList<>(limit);
+            // Token-prefix matches first; their candidates come from the trie, so the pass
+            // barely touches documents that only contain a term somewhere in the middle
+            List<IntList> lists = new ArrayList<>();
+            boolean possible = true;
+            for (String term : terms) {
+                possible &= prefixPostings(term, lists);
+            }
+            if (possible) {
+                collect(lists, terms, true, limit, hits);
+            }
+            if (hits.size() < limit) {
+                lists.clear();
+                for (String term : terms) {
+                    if (!substringPostings(term, lists)) return hits;
+                }
+                collect(lists, terms, false, limit, hits);
+            }
+            return hits;
+        }
+
+        /**
+         * Walk the documents present in every posting list, rarest list leading and the others
+         * galloping behind it, and add the verified ones to hits. The lists are never
+         * materialized, so a common list such as "com" costs only as much as the hits taken from it.
+         * @param prefixPass Whether every term must start a token; the substring pass skips those
+         *                   documents, as the prefix pass has already had them
+         */
+        private void collect(List<IntList> lists, String[] terms, boolean prefixPass, int limit, List<Hit> hits) {
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+            IntList lead = lists.get(0);
+            int[] cursors = new int[lists.size()];
+            String[] tokenStarts = new String[terms.length];
+            for (int t = 0; t < terms.length; t++) {
+                tokenStarts[t] = " " + terms[t];
+            }
+            int budget = SCAN_BUDGET;
+            candidates:
+            for (int i = 0; i < lead.size && hits.size() < limit && budget > 0; i++) {
+                int doc = lead.data[i];
+                for (int l = 1; l < cursors.length; l++) {
+                    IntList list = lists.get(l);
+                    cursors[l] = list.seek(doc, cursors[l]);
+                    if (cursors[l] == list.size) return;
+                    if (list.data[cursors[l]] != doc) continue candidates;
+                }
+                String text = texts[doc];
+                if (text == null) continue; // removed or replaced
+                budget--;
+                boolean prefix = true;
+                for (int t = 0; t < terms.length; t++) {
+                    if (text.contains(tokenStarts[t])) continue;
+                    prefix = false;
+                    if (terms[t].length() <= 2 || !text.contains(terms[t])) continue candidates;
+                }
+                if (prefix == prefixPass) {
+                    hits.add(new Hit(customerIds[doc], labels[doc]));
+                }
+            }
+        }
+
+        /**
+         * Lists a token-prefix match must be in: the trie node of the term's first PREFIX_DEPTH
+         * characters, plus the trigrams of anything longer
+         * @return false if some list is missing, so no token starts with the term
+         */
+        private boolean prefixPostings(String term, List<IntList> lists) {
+            TrieNode node = trie;
+            for (int i = 0; i < Math.min(PREFIX_DEPTH, term.length()) && node != null; i++) {
+                node = node.child(term.charAt(i), false);
+            }
+            if (node == null || node.postings.size == 0) return false;
+            lists.add(node.postings);
+            return term.length() <= PREFIX_DEPTH || trigramPostings(term, lists);
+        }
+
+        /**
+         * Lists a substring match must be in: the term's trigrams. One- and two-character terms
+         * only ever match token prefixes.
+         */
+        private boolean substringPostings(String term, List<IntList> lists) {
+            return term.length() <= 2 ? prefixPostings(term, lists) : trigramPostings(term, lists);
+        }
+
+        private boolean trigramPostings(String term, List<IntList> lists) {
+            for (int i = 0; i + 3 <= term.length(); i++) {
+                IntList list = trigrams.get(term.substring(i, i + 3));
+                if (list == null || list.size == 0) return false;
+                lists.add(list);
+            }
+            return true;
+        }
+    }
+
+    private static final class TrieNode {
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        final IntList postings = new IntList();
+
+        TrieNode child(char key, boolean create) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) return children[i];
+            }
+            if (!create) return null;
+            TrieNode node = new TrieNode();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = key;
+            children[children.length - 1] = node;
+            return node;
+        }
+    }
+
+    /**
+     * Growable sorted int array used as a posting list
+     */
+    private static final class IntList {
+        int[] data;
+        int size;
+
+        IntList() {
+            this(4);
+        }
+
+        IntList(int capacity) {
+            data = new int[Math.max(capacity, 1)];
+        }
+
+        void addLast(int value) {
+            if (size > 0 && data[size - 1] == value) return;
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size + (size >> 1) + 1);
+            }
+            data[size++] = value;
+        }
+
+        /**
+         * Position of the first element >= value, searching from position from: gallops ahead in
+         * doubling steps, then binary searches the last step
+         */
+        int seek(int value, int from) {
+            if (from >= size || data[from] >= value) return from;
+            int step = 1;
+            int low = from;
+            int high = from + 1;
+            while (high < size && data[high] < value) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            int found = Arrays.binarySearch(data, low + 1, Math.min(high + 1, size), value);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+}
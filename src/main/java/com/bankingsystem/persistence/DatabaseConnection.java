@@ -3,10 +3,12 @@ package com.bankingsystem.persistence;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.SQLException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * DatabaseConnection - Manages connection pool to MySQL or H2 database using HikariCP
@@ -21,6 +23,7 @@ public class DatabaseConnection {
     private static final int MIN_IDLE = 2;
     private static final long IDLE_TIMEOUT = 600000; // 10 minutes
     private static final long MAX_LIFETIME = 1800000; // 30 minutes
+    private final AtomicLong checkoutCount = new AtomicLong();
 
     private DatabaseConnection() {
         loadConfiguration();
@@ -98,7 +101,7 @@ public class DatabaseConnection {
             String user = props.getProperty("mysql.user", "root");
             String password = props.getProperty("mysql.password", "");
             
-            String url = String.format("jdbc:mysql://%s:%s/%s?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true",
+            String url = String.format("jdbc:mysql://%s:%s/%s?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true",
                     host, port, database);
             
             HikariConfig config = new HikariConfig();
@@ -139,15 +142,49 @@ public class DatabaseConnection {
     }
 
     /**
-     * Get a database connection from the pool
+     * Get a database connection from the pool.
+     * When a UnitOfWork is active on the calling thread, its shared connection is
+     * returned instead so that the call joins the unit's transaction.
      */
     public Connection getConnection() throws SQLException {
+        Connection bound = UnitOfWork.currentConnection();
+        if (bound != null) {
+            return bound;
+        }
+        return getPooledConnection();
+    }
+
+    /**
+     * Check a physical connection out of the pool, ignoring any active unit of work
+     */
+    Connection getPooledConnection() throws SQLException {
         if (dataSource == null || dataSource.isClosed()) {
             throw new SQLException("Connection pool is not initialized or has been closed");
         }
+        checkoutCount.incrementAndGet();
         return dataSource.getConnection();
     }
 
+    /**
+     * Open a connection outside the pool for infrastructure that must never wait on it.
+     * ID block reservation runs while callers may hold every pooled connection, so it
+     * cannot borrow from the same pool without risking a pool-exhaustion deadlock.
+     */
+    Connection openDedicatedConnection() throws SQLException {
+        if (dataSource == null || dataSource.isClosed()) {
+            throw new SQLException("Connection pool is not initialized or has been closed");
+        }
+        return java.sql.DriverManager.getConnection(dataSource.getJdbcUrl(),
+                dataSource.getUsername(), dataSource.getPassword());
+    }
+
+    /**
+     * Number of physical connections checked out of the pool since startup
+     */
+    public long getCheckoutCount() {
+        return checkoutCount.get();
+    }
+
     /**
      * Initialize database schema with proper constraints and indexes
      */
@@ -189,24 +226,54 @@ public class DatabaseConnection {
                     "  overdraft_allowed BOOLEAN DEFAULT FALSE," +
                     "  approval_timestamp TIMESTAMP," +
                     "  approval_staff_username VARCHAR(100)," +
+                    "  claimed_by VARCHAR(100)," +
+                    "  claim_expires_at TIMESTAMP," +
                     "  creation_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
                     "  last_modified TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
                     "  FOREIGN KEY (customer_id) REFERENCES customers(customer_id) ON DELETE CASCADE" +
                     ")");
 
+            // Approval leases, for accounts tables created before the staff work queue
+            addColumnIfMissing(conn, "accounts", "claimed_by", "claimed_by VARCHAR(100)");
+            addColumnIfMissing(conn, "accounts", "claim_expires_at", "claim_expires_at TIMESTAMP");
+
+            // ledger_seq numbers ledger rows in insertion order, for incremental readers such as
+            // LedgerColumnSnapshot. H2's MySQL mode can hand out one AUTO_INCREMENT value to two
+            // concurrent inserts, so on H2 it is drawn from a sequence instead
+            String ledgerSeq = "MySQL".equals(databaseType)
+                    ? "ledger_seq BIGINT NOT NULL AUTO_INCREMENT UNIQUE"
+                    : "ledger_seq BIGINT NOT NULL DEFAULT NEXT VALUE FOR ledger_seq_values UNIQUE";
+            if (!"MySQL".equals(databaseType)) {
+                stmt.execute("CREATE SEQUENCE IF NOT EXISTS ledger_seq_values");
+            }
+
             // Create TRANSACTIONS table
             stmt.execute("CREATE TABLE IF NOT EXISTS transactions (" +
                     "  transaction_id VARCHAR(64) PRIMARY KEY," +
                     "  account_number VARCHAR(64) NOT NULL," +
                     "  transaction_type VARCHAR(32) NOT NULL," +
+                    "  direction VARCHAR(6) NOT NULL," +
                     "  amount DOUBLE NOT NULL," +
                     "  balance_after DOUBLE NOT NULL," +
                     "  description VARCHAR(255)," +
                     "  transaction_timestamp TIMESTAMP NOT NULL," +
                     "  creation_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                    "  " + ledgerSeq + "," +
                     "  FOREIGN KEY (account_number) REFERENCES accounts(account_number) ON DELETE CASCADE" +
                     ")");
 
+            // Tables created before ledger_seq existed; existing rows are numbered as it is added
+            addColumnIfMissing(conn, "transactions", "ledger_seq", ledgerSeq);
+
+            // Tables created before rows stored their direction: derive it once from the descriptions
+            // the application wrote then (Transaction.legacyDirection), then require it on every insert
+            if (addColumnIfMissing(conn, "transactions", "direction", "direction VARCHAR(6) NOT NULL DEFAULT 'CREDIT'")) {
+                stmt.execute("UPDATE transactions SET direction = 'DEBIT' WHERE transaction_type = 'WITHDRAW' " +
+                        "OR (transaction_type = 'TRANSFER' AND (description LIKE 'Transfer to %' " +
+                        "OR description LIKE 'Payroll disbursement%'))");
+                stmt.execute("ALTER TABLE transactions ALTER COLUMN direction DROP DEFAULT");
+            }
+
             // Create STAFF table
             stmt.execute("CREATE TABLE IF NOT EXISTS staff (" +
                     "  staff_id VARCHAR(64) PRIMARY KEY," +
@@ -217,6 +284,108 @@ public class DatabaseConnection {
                     "  last_modified TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
                     ")");
 
+            // Create ID_SEQUENCES table (hi/lo block reservation for IDGenerator)
+            stmt.execute("CREATE TABLE IF NOT EXISTS id_sequences (" +
+                    "  sequence_name VARCHAR(64) PRIMARY KEY," +
+                    "  next_value BIGINT NOT NULL" +
+                    ")");
+
+            // Create ACCOUNT_BALANCE_STRIPES table (credit slots for striped hot accounts)
+            stmt.execute("CREATE TABLE IF NOT EXISTS account_balance_stripes (" +
+                    "  account_number VARCHAR(64) NOT NULL," +
+                    "  stripe INT NOT NULL," +
+                    "  delta DOUBLE NOT NULL DEFAULT 0," +
+                    "  PRIMARY KEY (account_number, stripe)," +
+                    "  FOREIGN KEY (account_number) REFERENCES accounts(account_number) ON DELETE CASCADE" +
+                    ")");
+
+            // Create DISBURSEMENT_LINES table (staged instructions of bulk payroll disbursements)
+            stmt.execute("CREATE TABLE IF NOT EXISTS disbursement_lines (" +
+                    "  batch_id VARCHAR(64) NOT NULL," +
+                    "  line_no INT NOT NULL," +
+                    "  source_account VARCHAR(64) NOT NULL," +
+                    "  account_number VARCHAR(64) NOT NULL," +
+                    "  amount DOUBLE NOT NULL," +
+                    "  reference VARCHAR(255)," +
+                    "  status VARCHAR(16) NOT NULL DEFAULT 'STAGED'," +
+                    "  message VARCHAR(255)," +
+                    "  staged_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                    "  PRIMARY KEY (batch_id, line_no)" +
+                    ")");
+
+            // Per-line settlement status, for disbursement tables created before payroll recovery
+            if (addColumnIfMissing(conn, "disbursement_lines", "status", "status VARCHAR(16) NOT NULL DEFAULT 'STAGED'")) {
+                // Lines staged before the column existed were settled by their run
+                stmt.execute("UPDATE disbursement_lines SET status = 'CREDITED'");
+            }
+            addColumnIfMissing(conn, "disbursement_lines", "message", "message VARCHAR(255)");
+
+            // Create IDEMPOTENCY_KEYS table (money movements already applied under a client key)
+            stmt.execute("CREATE TABLE IF NOT EXISTS idempotency_keys (" +
+                    "  idempotency_key VARCHAR(64) PRIMARY KEY," +
+                    "  request VARCHAR(255) NOT NULL," +
+                    "  result VARCHAR(512) NOT NULL," +
+                    "  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+
+            // Create BALANCE_CHECKPOINTS table (start-of-day balances for point-in-time queries)
+            stmt.execute("CREATE TABLE IF NOT EXISTS balance_checkpoints (" +
+                    "  account_number VARCHAR(64) NOT NULL," +
+                    "  checkpoint_at TIMESTAMP NOT NULL," +
+                    "  balance DOUBLE NOT NULL," +
+                    "  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                    "  PRIMARY KEY (account_number, checkpoint_at)," +
+                    "  FOREIGN KEY (account_number) REFERENCES accounts(account_number) ON DELETE CASCADE" +
+                    ")");
+
+            // Rollup tables from when postings wrote them in stripes: the totals are derived, so
+            // they are dropped and rebuilt from the ledger (as V13__Ledger_Rollup_Progress does)
+            boolean stripedRollups = hasColumn(conn, "ledger_rollups", "stripe");
+            if (stripedRollups) {
+                stmt.execute("DROP TABLE ledger_rollups");
+                stmt.execute("DROP TABLE IF EXISTS ledger_rollups_monthly");
+                System.out.println("Dropped striped ledger rollups; they are rebuilt from the ledger");
+            }
+
+            // Create LEDGER_ROLLUPS table (daily totals per branch, account type and transaction type)
+            stmt.execute("CREATE TABLE IF NOT EXISTS ledger_rollups (" +
+                    "  rollup_day DATE NOT NULL," +
+                    "  branch VARCHAR(64) NOT NULL," +
+                    "  account_type VARCHAR(32) NOT NULL," +
+                    "  transaction_type VARCHAR(32) NOT NULL," +
+                    "  txn_count BIGINT NOT NULL DEFAULT 0," +
+                    "  credit_amount DOUBLE NOT NULL DEFAULT 0," +
+                    "  debit_amount DOUBLE NOT NULL DEFAULT 0," +
+                    "  PRIMARY KEY (rollup_day, branch, account_type, transaction_type)" +
+                    ")");
+
+            // Create LEDGER_ROLLUPS_MONTHLY table (the same totals per month, rollup_day is its first day)
+            stmt.execute("CREATE TABLE IF NOT EXISTS ledger_rollups_monthly (" +
+                    "  rollup_day DATE NOT NULL," +
+                    "  branch VARCHAR(64) NOT NULL," +
+                    "  account_type VARCHAR(32) NOT NULL," +
+                    "  transaction_type VARCHAR(32) NOT NULL," +
+                    "  txn_count BIGINT NOT NULL DEFAULT 0," +
+                    "  credit_amount DOUBLE NOT NULL DEFAULT 0," +
+                    "  debit_amount DOUBLE NOT NULL DEFAULT 0," +
+                    "  PRIMARY KEY (rollup_day, branch, account_type, transaction_type)" +
+                    ")");
+
+            // Create LEDGER_ROLLUP_BACKFILLS table (completed rebuilds of ledger_rollups from the ledger)
+            stmt.execute("CREATE TABLE IF NOT EXISTS ledger_rollup_backfills (" +
+                    "  completed_at TIMESTAMP NOT NULL PRIMARY KEY," +
+                    "  rebuilt_through DATE NOT NULL" +
+                    ")");
+            if (stripedRollups) {
+                stmt.execute("DELETE FROM ledger_rollup_backfills");
+            }
+
+            // Create LEDGER_ROLLUP_PROGRESS table (ledger_seq up to which committed rows are in the rollups)
+            stmt.execute("CREATE TABLE IF NOT EXISTS ledger_rollup_progress (" +
+                    "  id INT PRIMARY KEY," +
+                    "  applied_seq BIGINT NOT NULL" +
+                    ")");
+
             // Create indexes for better query performance
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_customers_username ON customers(username)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_customers_email ON customers(email)");
@@ -225,12 +394,22 @@ public class DatabaseConnection {
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_accounts_customer_id ON accounts(customer_id)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_accounts_status ON accounts(status)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_accounts_date_opened ON accounts(date_opened)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_accounts_status_date_opened ON accounts(status, date_opened)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_accounts_claimed_by ON accounts(claimed_by)");
             
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_disbursement_lines_status ON disbursement_lines(status)");
+
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_transactions_account_number ON transactions(account_number)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_transactions_timestamp ON transactions(transaction_timestamp)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_transactions_type ON transactions(transaction_type)");
+            // Keyset indexes for paged history: (account, sort column, tie-breaker) in scan order
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_transactions_account_ts_desc ON transactions(account_number, transaction_timestamp DESC, transaction_id DESC)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_transactions_account_ts ON transactions(account_number, transaction_timestamp, transaction_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_transactions_account_amount_desc ON transactions(account_number, amount DESC, transaction_id DESC)");
             
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_staff_username ON staff(username)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys(created_at)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_balance_checkpoints_checkpoint_at ON balance_checkpoints(checkpoint_at)");
 
             System.out.println("Database schema and indexes initialized successfully");
         } catch (SQLException e) {
@@ -260,6 +439,33 @@ public class DatabaseConnection {
         return dataSource;
     }
 
+    /**
+     * Add a column to an existing table that was created before the column was introduced
+     * @param definition Column definition as in CREATE TABLE
+     * @return true if the column was added
+     */
+    private static boolean addColumnIfMissing(Connection conn, String table, String column, String definition)
+            throws SQLException {
+        if (hasColumn(conn, table, column)) return false;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + definition);
+        }
+        System.out.println("Added column " + table + "." + column);
+        return true;
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        // MySQL keeps names as written, H2 in upper case
+        for (String name : new String[]{table, table.toUpperCase()}) {
+            try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, name, null)) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Get database type (H2 or MySQL)
      */
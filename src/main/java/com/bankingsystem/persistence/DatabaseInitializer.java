@@ -226,7 +226,10 @@ public class DatabaseInitializer {
      */
     private static void createTestTransaction(String accountNumber, String transactionType, double amount) {
         try {
-            Transaction transaction = new Transaction(Transaction.Type.valueOf(transactionType), amount, amount, "Test transaction");
+            Transaction.Type type = Transaction.Type.valueOf(transactionType);
+            Transaction.Direction direction = type == Transaction.Type.WITHDRAW
+                    ? Transaction.Direction.DEBIT : Transaction.Direction.CREDIT;
+            Transaction transaction = new Transaction(type, direction, amount, amount, "Test transaction");
             
             if (transactionDAO.saveTransaction(accountNumber, transaction)) {
                 System.out.println("Created transaction: " + transactionType + " for account: " + accountNumber);
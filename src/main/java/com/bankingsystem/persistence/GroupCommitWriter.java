@@ -0,0 +1,231 @@
+package com.bankingsystem.persistence;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * GroupCommitWriter - Coalesces ledger writes from many callers into one database transaction
+ * With one commit per operation, a database that syncs its log on every commit caps throughput
+ * at its sync rate. Here callers hand their unit of work to a single flusher thread, which runs
+ * whatever has queued up (up to maxBatch operations, waiting at most the batch window after the
+ * first one arrives) inside one unit of work and commits once. Each operation runs under its own
+ * savepoint (UnitOfWork NESTED), so one that fails or marks itself rollback-only is undone on its
+ * own while the rest of the batch commits. A caller returns only after its batch's commit. If
+ * the database aborts the batch's transaction instead (a deadlock or lock wait rollback undoes
+ * every operation, not one savepoint), the whole batch fails and every caller in it gets the
+ * exception.
+ *
+ * The writer is off until started; while it is off, or when the caller already has a unit of
+ * work active, submit() runs the work directly in the caller's own unit.
+ */
+public class GroupCommitWriter {
+    public static final long DEFAULT_WINDOW_NANOS = 200_000L;
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    private static final GroupCommitWriter INSTANCE = new GroupCommitWriter();
+    // Queued by stop() to wake the flusher
+    private static final Operation<Void> STOP = new Operation<>(() -> null);
+
+    private final LinkedBlockingQueue<Operation<?>> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong operations = new AtomicLong();
+    private volatile Thread flusher;
+    private volatile long windowNanos;
+    private volatile int maxBatch;
+
+    /**
+     * One queued unit of work and the caller waiting for it
+     */
+    private static final class Operation<T> {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> done = new CompletableFuture<>();
+        private T result;
+        private RuntimeException failure;
+
+        Operation(Supplier<T> work) {
+            this.work = work;
+        }
+
+        /**
+         * Run under a savepoint of the batch
+         * @throws SQLException if the batch's transaction was aborted, so the batch cannot commit
+         */
+        void run() throws SQLException {
+            try {
+                result = UnitOfWork.execute(UnitOfWork.Propagation.NESTED, connection -> {
+                    T value = work.get();
+                    return UnitOfWork.isRollbackOnly() ? null : value;
+                });
+            } catch (SQLException e) {
+                if (UnitOfWork.isAborted()) throw e;
+                System.err.println("Error in group commit operation: " + e.getMessage());
+                result = null;
+            } catch (RuntimeException e) {
+                if (UnitOfWork.isAborted()) throw e;
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                done.completeExceptionally(failure);
+            } else {
+                done.complete(result);
+            }
+        }
+
+        void fail(Exception e) {
+            done.completeExceptionally(e);
+        }
+    }
+
+    public static GroupCommitWriter getInstance() {
+        return INSTANCE;
+    }
+
+    public GroupCommitWriter() {
+    }
+
+    /**
+     * Run work inside a unit of work, batched with concurrent callers when the writer is running
+     * @param work Ledger work that reports failure by returning null or marking the unit rollback-only
+     * @return The work's result once it is committed, or null if it failed or was rolled back
+     */
+    public <T> T submit(Supplier<T> work) throws SQLException {
+        if (flusher == null || UnitOfWork.isActive()) {
+            return UnitOfWork.execute(connection -> {
+                T result = work.get();
+                return UnitOfWork.isRollbackOnly() ? null : result;
+            });
+        }
+        Operation<T> operation = new Operation<>(work);
+        queue.add(operation);
+        if (flusher == null && queue.remove(operation)) {
+            // Stopped while queueing, and no flusher will drain it any more
+            return submit(work);
+        }
+        try {
+            return operation.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Start batching
+     * @param windowNanos How long a batch stays open for more work after its first operation;
+     *                    0 flushes whatever has queued up without waiting
+     * @param maxBatch Operations that close a batch early
+     */
+    public synchronized void start(long windowNanos, int maxBatch) {
+        if (windowNanos < 0 || maxBatch < 1) throw new IllegalArgumentException("Invalid batch settings");
+        this.windowNanos = windowNanos;
+        this.maxBatch = maxBatch;
+        if (flusher != null) return;
+        Thread thread = new Thread(this::run, "GroupCommitWriter");
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+    }
+
+    /**
+     * Stop batching; work already queued is still flushed
+     */
+    public synchronized void stop() {
+        Thread thread = flusher;
+        if (thread == null) return;
+        flusher = null;
+        queue.add(STOP);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return flusher != null;
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getOperationCount() {
+        return operations.get();
+    }
+
+    private void run() {
+        List<Operation<?>> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Operation<?> first = queue.take();
+                long deadline = System.nanoTime() + windowNanos;
+                Operation<?> next = first;
+                while (true) {
+                    if (next == STOP) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                    if (batch.size() >= maxBatch) break;
+                    next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) break;
+                        next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            if (stopping) {
+                queue.drainTo(batch);
+                batch.remove(STOP);
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Run a batch in one unit of work and release its callers after the commit; if the batch
+     * does not commit, every caller gets the failure
+     */
+    private void flush(List<Operation<?>> batch) {
+        Exception failure = null;
+        try {
+            UnitOfWork.execute(UnitOfWork.Propagation.REQUIRES_NEW, connection -> {
+                for (Operation<?> operation : batch) {
+                    operation.run();
+                }
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error committing ledger batch: " + e.getMessage());
+            e.printStackTrace();
+            failure = e;
+        }
+        batches.incrementAndGet();
+        operations.addAndGet(batch.size());
+        for (Operation<?> operation : batch) {
+            if (failure != null) {
+                operation.fail(failure);
+            } else {
+                operation.complete();
+            }
+        }
+    }
+}
@@ -1,15 +1,33 @@
 package com.bankingsystem.persistence;
 
 import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
 import com.bankingsystem.Account;
+import com.bankingsystem.AccountRequest;
+import com.bankingsystem.Bank;
 import com.bankingsystem.Customer;
+import com.bankingsystem.CustomerRegistrationRequest;
+import com.bankingsystem.Staff;
+import com.bankingsystem.Transaction;
 
 import java.lang.reflect.Type;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GsonFactory {
+    /**
+     * Pretty-printed Gson for the bank data file
+     */
     public static Gson create() {
+        return builder().setPrettyPrinting().create();
+    }
+
+    /**
+     * Builder with the date and polymorphic adapters registered, for callers that need compact output
+     */
+    public static GsonBuilder builder() {
         GsonBuilder b = new GsonBuilder();
         b.registerTypeAdapter(LocalDate.class, new JsonSerializer<LocalDate>() {
             public JsonElement serialize(LocalDate src, Type typeOfSrc, JsonSerializationContext context) {
@@ -32,6 +50,22 @@ public class GsonFactory {
             }
         });
 
+        // Data files written before transactions stored their direction get it from the description
+        b.registerTypeAdapter(Transaction.class, new JsonDeserializer<Transaction>() {
+            public Transaction deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+                JsonObject obj = json.getAsJsonObject();
+                Transaction.Type type = context.deserialize(obj.get("type"), Transaction.Type.class);
+                JsonElement descriptionEl = obj.get("description");
+                String description = descriptionEl != null && !descriptionEl.isJsonNull() ? descriptionEl.getAsString() : null;
+                JsonElement directionEl = obj.get("direction");
+                Transaction.Direction direction = directionEl != null && !directionEl.isJsonNull()
+                        ? context.deserialize(directionEl, Transaction.Direction.class)
+                        : Transaction.legacyDirection(type, description);
+                return new Transaction(type, direction, obj.get("amount").getAsDouble(), obj.get("balanceAfter").getAsDouble(),
+                        description, context.deserialize(obj.get("timestamp"), LocalDateTime.class));
+            }
+        });
+
         // Polymorphic adapter for Account and Customer
         JsonSerializer<Object> ser = (src, typeOfSrc, context) -> {
             JsonObject obj = context.serialize(src).getAsJsonObject();
@@ -73,6 +107,41 @@ public class GsonFactory {
             }
         });
 
-        return b.setPrettyPrinting().create();
+        // Bank keeps its collections in an immutable snapshot behind an atomic reference;
+        // store them as plain lists under the original field names
+        b.registerTypeAdapter(Bank.class, new JsonSerializer<Bank>() {
+            public JsonElement serialize(Bank src, Type typeOfSrc, JsonSerializationContext context) {
+                Bank.Snapshot snapshot = src.snapshot();
+                JsonObject obj = new JsonObject();
+                obj.addProperty("branchCode", src.getBranchCode());
+                obj.add("customers", context.serialize(new ArrayList<>(snapshot.getCustomers()), new TypeToken<List<Customer>>(){}.getType()));
+                obj.add("accounts", context.serialize(new ArrayList<>(snapshot.getAccounts()), new TypeToken<List<Account>>(){}.getType()));
+                obj.add("requests", context.serialize(new ArrayList<>(snapshot.getRequests()), new TypeToken<List<AccountRequest>>(){}.getType()));
+                obj.add("customerRequests", context.serialize(new ArrayList<>(snapshot.getCustomerRequests()), new TypeToken<List<CustomerRegistrationRequest>>(){}.getType()));
+                obj.add("staff", context.serialize(new ArrayList<>(snapshot.getStaff()), new TypeToken<List<Staff>>(){}.getType()));
+                return obj;
+            }
+        });
+        b.registerTypeAdapter(Bank.class, new JsonDeserializer<Bank>() {
+            public Bank deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+                JsonObject obj = json.getAsJsonObject();
+                JsonElement branch = obj.get("branchCode");
+                return Bank.restore(branch != null && !branch.isJsonNull() ? branch.getAsString() : null,
+                        list(obj, "customers", new TypeToken<List<Customer>>(){}.getType(), context),
+                        list(obj, "accounts", new TypeToken<List<Account>>(){}.getType(), context),
+                        list(obj, "requests", new TypeToken<List<AccountRequest>>(){}.getType(), context),
+                        list(obj, "customerRequests", new TypeToken<List<CustomerRegistrationRequest>>(){}.getType(), context),
+                        list(obj, "staff", new TypeToken<List<Staff>>(){}.getType(), context));
+            }
+        });
+
+        return b;
+    }
+
+    private static <T> List<T> list(JsonObject obj, String name, Type type, JsonDeserializationContext context) {
+        JsonElement element = obj.get(name);
+        if (element == null || element.isJsonNull()) return new ArrayList<>();
+        List<T> list = context.deserialize(element, type);
+        return list != null ? list : new ArrayList<>();
     }
 }
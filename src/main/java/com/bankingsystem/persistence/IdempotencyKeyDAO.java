@@ -0,0 +1,144 @@
+package com.bankingsystem.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IdempotencyKeyDAO - Persistent record of money movements already applied under an idempotency key
+ * The key row is written in the same unit of work as the ledger rows it guards, so a key is
+ * stored if and only if its operation committed. A second commit under the same key fails on
+ * the primary key and rolls its whole unit back, even across servers.
+ * Old keys are removed by the optional background purger (startPurger).
+ */
+public class IdempotencyKeyDAO {
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private static final String FIND_SQL =
+            "SELECT request, result FROM idempotency_keys WHERE idempotency_key = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO idempotency_keys (idempotency_key, request, result) VALUES (?, ?, ?)";
+    private static final String PURGE_SQL =
+            "DELETE FROM idempotency_keys WHERE created_at < ?";
+
+    private static final IdempotencyKeyDAO INSTANCE = new IdempotencyKeyDAO();
+
+    private ScheduledExecutorService purger;
+
+    /**
+     * The outcome stored for a key
+     */
+    public static final class StoredResult {
+        private final String request;
+        private final String result;
+
+        StoredResult(String request, String result) {
+            this.request = request;
+            this.result = result;
+        }
+
+        /**
+         * What the original request asked for, e.g. "DEPOSIT ACC123 250.0"
+         */
+        public String getRequest() { return request; }
+
+        public String getResult() { return result; }
+    }
+
+    public static IdempotencyKeyDAO getInstance() {
+        return INSTANCE;
+    }
+
+    private IdempotencyKeyDAO() {
+    }
+
+    /**
+     * Look up the outcome of an operation already committed under a key
+     */
+    public Optional<StoredResult> find(String key) {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(FIND_SQL)) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new StoredResult(rs.getString("request"), rs.getString("result")));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding idempotency key: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Record a key with its operation's outcome. Must run inside the operation's unit of work.
+     * @return false if the key is already taken (or the insert failed); the caller should roll back
+     */
+    public boolean record(String key, String request, String result) {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(INSERT_SQL)) {
+            pstmt.setString(1, key);
+            pstmt.setString(2, request);
+            pstmt.setString(3, result);
+            return pstmt.executeUpdate() == 1;
+        } catch (SQLException e) {
+            // 23xxx: integrity constraint violation, i.e. the key was committed by someone else first
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                System.err.println("Error recording idempotency key: " + e.getMessage());
+                e.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Delete keys recorded before the cutoff
+     * @return Number of keys removed, or -1 on error
+     */
+    public int purgeOlderThan(LocalDateTime cutoff) {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(PURGE_SQL)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error purging idempotency keys: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Periodically delete keys older than the retention period
+     * @param retentionMillis How long a key protects against replays
+     * @param intervalMillis Time between purges
+     */
+    public synchronized void startPurger(long retentionMillis, long intervalMillis) {
+        if (purger != null) return;
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "IdempotencyKeyPurger");
+            t.setDaemon(true);
+            return t;
+        });
+        purger.scheduleWithFixedDelay(
+                () -> purgeOlderThan(LocalDateTime.now().minusNanos(retentionMillis * 1_000_000L)),
+                intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background purger
+     */
+    public synchronized void stopPurger() {
+        if (purger != null) {
+            purger.shutdownNow();
+            purger = null;
+        }
+    }
+}
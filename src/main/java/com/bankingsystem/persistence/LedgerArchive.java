@@ -0,0 +1,877 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.Transaction;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * LedgerArchive - Cold ledger history moved out of the transactions table into segment files
+ * Rows older than the archive age are moved a calendar month at a time into an immutable segment
+ * file, sorted by (account_number, transaction_timestamp, transaction_id) and written in blocks
+ * of BLOCK_ROWS rows that are deflate-compressed separately. The file ends with a sparse index
+ * of the first and last account of every block, so one account's rows are found by a binary
+ * search in memory and read by decompressing only the blocks that hold them.
+ *
+ * TransactionDAOImpl merges archived rows into its history queries, so callers see one ledger.
+ * A month is archived by writing its segment as a .pending file, deleting the same rows from
+ * the table in one database transaction, and committing that transaction while holding the
+ * write side of a lock whose read side every merged read holds for its table and archive reads;
+ * the segment is published under the same lock, so a reader sees each row exactly once.
+ * A .pending file left by a crash is published if its rows are gone from the table and
+ * discarded otherwise.
+ *
+ * Only meaningful for a persistent database: the archive is inert until open() is called.
+ */
+public class LedgerArchive {
+    public static final int DEFAULT_MAX_AGE_DAYS = 90;
+    public static final int BLOCK_ROWS = 128;
+
+    private static final int MAGIC = 0x4C454447; // "LEDG"
+    // Version 2 stores each row's direction; version 1 segments infer it from the description
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int TRAILER_BYTES = 12;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PENDING_SUFFIX = ".pending";
+    private static final int FETCH_SIZE = 5_000;
+    private static final int DELETE_BATCH = 1_000;
+    // How long an archival run waits for readers before giving the month up until the next run
+    private static final long PUBLISH_TIMEOUT_MILLIS = 10_000;
+
+    private static final String OLDEST_SQL =
+            "SELECT MIN(transaction_timestamp) FROM transactions WHERE transaction_timestamp < ?";
+    private static final String MONTH_SQL =
+            "SELECT transaction_id, account_number, transaction_type, direction, amount, balance_after, description, " +
+            "transaction_timestamp FROM transactions WHERE transaction_timestamp >= ? AND transaction_timestamp < ? " +
+            "ORDER BY account_number, transaction_timestamp, transaction_id";
+    private static final String DELETE_SQL = "DELETE FROM transactions WHERE transaction_id = ?";
+    private static final String EXISTS_SQL = "SELECT COUNT(*) FROM transactions WHERE transaction_id = ?";
+
+    private static final Comparator<Entry> LEDGER_ORDER =
+            Comparator.<Entry, LocalDateTime>comparing(entry -> entry.getTransaction().getTimestamp())
+                    .thenComparing(Entry::getTransactionId);
+
+    private static final LedgerArchive INSTANCE = new LedgerArchive();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Path directory;
+    // Replaced, never modified, under the write lock
+    private volatile List<Segment> segments = List.of();
+    private ScheduledExecutorService archiver;
+
+    /**
+     * An archived ledger row
+     */
+    public static final class Entry {
+        private final String transactionId;
+        private final String accountNumber;
+        private final Transaction transaction;
+
+        public Entry(String transactionId, String accountNumber, Transaction transaction) {
+            this.transactionId = transactionId;
+            this.accountNumber = accountNumber;
+            this.transaction = transaction;
+        }
+
+        public String getTransactionId() { return transactionId; }
+        public String getAccountNumber() { return accountNumber; }
+        public Transaction getTransaction() { return transaction; }
+    }
+
+    /**
+     * Location of one compressed block and the accounts it covers
+     */
+    private static final class Block {
+        final String firstAccount;
+        final String lastAccount;
+        final long offset;
+        final int length;
+        final int rawLength;
+
+        Block(String firstAccount, String lastAccount, long offset, int length, int rawLength) {
+            this.firstAccount = firstAccount;
+            this.lastAccount = lastAccount;
+            this.offset = offset;
+            this.length = length;
+            this.rawLength = rawLength;
+        }
+    }
+
+    /**
+     * An open segment file and its block index
+     */
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final Block[] blocks;
+        final LocalDateTime oldest;
+        final LocalDateTime newest;
+        final long rows;
+        final int version;
+
+        Segment(Path path, FileChannel channel, Block[] blocks, LocalDateTime oldest, LocalDateTime newest, long rows,
+                int version) {
+            this.path = path;
+            this.channel = channel;
+            this.blocks = blocks;
+            this.oldest = oldest;
+            this.newest = newest;
+            this.rows = rows;
+            this.version = version;
+        }
+
+        /**
+         * Index of the first block that may hold the account, or blocks.length
+         */
+        int firstBlock(String accountNumber) {
+            int low = 0;
+            int high = blocks.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (blocks[mid].lastAccount.compareTo(accountNumber) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        boolean holds(String accountNumber) {
+            int first = firstBlock(accountNumber);
+            return first < blocks.length && blocks[first].firstAccount.compareTo(accountNumber) <= 0;
+        }
+
+        boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return (from == null || !newest.isBefore(from)) && (to == null || !oldest.isAfter(to));
+        }
+
+        void read(String accountNumber, LocalDateTime from, LocalDateTime to, List<Entry> out) throws IOException {
+            for (int b = firstBlock(accountNumber); b < blocks.length
+                    && blocks[b].firstAccount.compareTo(accountNumber) <= 0; b++) {
+                out.addAll(readBlock(b, accountNumber, from, to));
+            }
+        }
+
+        /**
+         * One block's rows of an account within a range, oldest first
+         */
+        List<Entry> readBlock(int block, String accountNumber, LocalDateTime from, LocalDateTime to) throws IOException {
+            List<Entry> out = new ArrayList<>();
+            DataInputStream in = open(blocks[block]);
+            while (in.available() > 0) {
+                Entry entry = readEntry(in, version);
+                if (!entry.getAccountNumber().equals(accountNumber)) continue;
+                LocalDateTime timestamp = entry.getTransaction().getTimestamp();
+                if ((from == null || !timestamp.isBefore(from)) && (to == null || !timestamp.isAfter(to))) {
+                    out.add(entry);
+                }
+            }
+            return out;
+        }
+
+        void scan(Consumer<Entry> action) throws IOException {
+            for (Block block : blocks) {
+                DataInputStream in = open(block);
+                while (in.available() > 0) {
+                    action.accept(readEntry(in, version));
+                }
+            }
+        }
+
+        private DataInputStream open(Block block) throws IOException {
+            ByteBuffer compressed = ByteBuffer.allocate(block.length);
+            long position = block.offset;
+            while (compressed.hasRemaining()) {
+                int read = channel.read(compressed, position);
+                if (read < 0) throw new IOException("Segment " + path + " is truncated");
+                position += read;
+            }
+            byte[] raw = new byte[block.rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array());
+                int inflated = inflater.inflate(raw);
+                if (inflated != raw.length) throw new IOException("Segment " + path + " has a corrupt block");
+            } catch (DataFormatException e) {
+                throw new IOException("Segment " + path + " has a corrupt block", e);
+            } finally {
+                inflater.end();
+            }
+            return new DataInputStream(new ByteArrayInputStream(raw));
+        }
+    }
+
+    /**
+     * One account's rows in one segment, newest first, decompressing a block at a time from the
+     * last block that holds the account back to the first. A block that cannot be read throws
+     * UncheckedIOException instead of ending the cursor early, so no caller mistakes a partial
+     * history for the whole of it.
+     */
+    public static final class SegmentCursor implements Iterator<Entry> {
+        private final Segment segment;
+        private final String accountNumber;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final int firstBlock;
+        private final ArrayDeque<Entry> batch = new ArrayDeque<>();
+        private int block;
+
+        private SegmentCursor(Segment segment, String accountNumber, LocalDateTime from, LocalDateTime to) {
+            this.segment = segment;
+            this.accountNumber = accountNumber;
+            this.from = from;
+            this.to = to;
+            this.firstBlock = segment.firstBlock(accountNumber);
+            int last = firstBlock;
+            while (last < segment.blocks.length && segment.blocks[last].firstAccount.compareTo(accountNumber) <= 0) {
+                last++;
+            }
+            this.block = last - 1;
+        }
+
+        /**
+         * Upper bound on the timestamps of the rows still to come
+         */
+        public LocalDateTime newest() {
+            return segment.newest;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (batch.isEmpty() && block >= firstBlock) {
+                try {
+                    for (Entry entry : segment.readBlock(block--, accountNumber, from, to)) {
+                        batch.push(entry);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return !batch.isEmpty();
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return batch.poll();
+        }
+    }
+
+    public static LedgerArchive getInstance() {
+        return INSTANCE;
+    }
+
+    private LedgerArchive() {
+    }
+
+    /**
+     * Open the archive in a directory, creating it if needed, and load the segments found there
+     * @return true if the archive is open
+     */
+    public synchronized boolean open(Path directory) {
+        if (this.directory != null) return this.directory.equals(directory);
+        List<Segment> found = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + PENDING_SUFFIX)) {
+                for (Path pending : files) {
+                    recover(pending);
+                }
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path file : files) {
+                    found.add(openSegment(file));
+                }
+            }
+            found.sort(Comparator.comparing((Segment segment) -> segment.oldest));
+            segments = List.copyOf(found);
+            this.directory = directory;
+            System.out.println("Ledger archive opened: " + found.size() + " segments in " + directory.toAbsolutePath());
+            return true;
+        } catch (IOException | SQLException e) {
+            for (Segment segment : found) {
+                closeQuietly(segment.channel);
+            }
+            System.err.println("Error opening ledger archive: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Close the segment files; the archive is inert afterwards until opened again
+     */
+    public synchronized void close() {
+        stop();
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments) {
+                closeQuietly(segment.channel);
+            }
+            segments = List.of();
+            directory = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isOpen() {
+        return directory != null;
+    }
+
+    /**
+     * Run reads of the transactions table and of the archive that must not see a month both
+     * in the table and in the archive, or in neither, while it is being archived
+     */
+    public <T> T consistentRead(Supplier<T> reads) {
+        if (directory == null) return reads.get();
+        lock.readLock().lock();
+        try {
+            return reads.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Archived rows of an account in ledger order (oldest first)
+     * @param from Earliest timestamp, inclusive; null for no bound
+     * @param to Latest timestamp, inclusive; null for no bound
+     * @throws IOException if a segment cannot be read; no partial result is returned
+     */
+    public List<Entry> read(String accountNumber, LocalDateTime from, LocalDateTime to) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (accountNumber == null) return entries;
+        for (Segment segment : segments) {
+            if (segment.overlaps(from, to)) {
+                segment.read(accountNumber, from, to, entries);
+            }
+        }
+        entries.sort(LEDGER_ORDER);
+        return entries;
+    }
+
+    /**
+     * An account's archived rows within a range as one newest-first cursor per segment that may
+     * hold them; the segments of a month can overlap, so the cursors are merged by the caller
+     * @param from Earliest timestamp, inclusive; null for no bound
+     * @param to Latest timestamp, inclusive; null for no bound
+     */
+    public List<SegmentCursor> cursors(String accountNumber, LocalDateTime from, LocalDateTime to) {
+        List<SegmentCursor> cursors = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.overlaps(from, to) && segment.holds(accountNumber)) {
+                cursors.add(new SegmentCursor(segment, accountNumber, from, to));
+            }
+        }
+        return cursors;
+    }
+
+    /**
+     * Whether any segment overlapping the range may hold rows of the account; answered from the
+     * block indexes without reading the segments
+     */
+    public boolean mayHold(String accountNumber, LocalDateTime from, LocalDateTime to) {
+        for (Segment segment : segments) {
+            if (segment.overlaps(from, to) && segment.holds(accountNumber)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Upper bound on the timestamps of an account's archived rows, or null if it has none
+     */
+    public LocalDateTime archivedUntil(String accountNumber) {
+        LocalDateTime until = null;
+        for (Segment segment : segments) {
+            if (segment.holds(accountNumber) && (until == null || segment.newest.isAfter(until))) {
+                until = segment.newest;
+            }
+        }
+        return until;
+    }
+
+    /**
+     * Visit every archived row, segment by segment (oldest month first)
+     * @throws IOException if a segment cannot be read; the rows visited so far are not all of them
+     */
+    public void forEach(Consumer<Entry> action) throws IOException {
+        forEach(null, null, action);
+    }
+
+    /**
+     * Visit the archived rows of a time range, reading only the segments that overlap it
+     * @param from Earliest timestamp, inclusive; null for no bound
+     * @param to Latest timestamp, exclusive; null for no bound
+     * @throws IOException if a segment cannot be read; the rows visited so far are not all of them
+     */
+    public void forEach(LocalDateTime from, LocalDateTime to, Consumer<Entry> action) throws IOException {
+        for (Segment segment : segments) {
+            if (!segment.overlaps(from, to)) continue;
+            segment.scan(entry -> {
+                LocalDateTime timestamp = entry.getTransaction().getTimestamp();
+                if ((from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to))) {
+                    action.accept(entry);
+                }
+            });
+        }
+    }
+
+    /**
+     * Timestamp of the oldest archived row, or null if nothing is archived
+     */
+    public LocalDateTime getOldestTimestamp() {
+        List<Segment> current = segments;
+        return current.isEmpty() ? null : current.get(0).oldest;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getRowCount() {
+        long rows = 0;
+        for (Segment segment : segments) {
+            rows += segment.rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Size of the segment files on disk
+     */
+    public long getSizeBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            try {
+                bytes += segment.channel.size();
+            } catch (IOException e) {
+                // Closed meanwhile; not counted
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Archive every complete month that ended at least maxAgeDays ago
+     * @return Number of rows moved to the archive, or -1 on error
+     */
+    public long archive(int maxAgeDays) {
+        return archiveBefore(LocalDate.now().minusDays(maxAgeDays).withDayOfMonth(1).atStartOfDay());
+    }
+
+    /**
+     * Archive every row timestamped before a month boundary, one segment per month
+     * @param horizon Start of the first month kept in the table; rounded down to a month start
+     * @return Number of rows moved to the archive, or -1 on error
+     */
+    public synchronized long archiveBefore(LocalDateTime horizon) {
+        if (directory == null) {
+            System.err.println("Error archiving ledger: archive is not open");
+            return -1;
+        }
+        LocalDateTime end = horizon.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        LocalDateTime oldest;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(OLDEST_SQL)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(end));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Timestamp found = rs.next() ? rs.getTimestamp(1) : null;
+                if (found == null) return 0;
+                oldest = found.toLocalDateTime();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error archiving ledger: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+
+        long archived = 0;
+        for (YearMonth month = YearMonth.from(oldest); month.atDay(1).atStartOfDay().isBefore(end); month = month.plusMonths(1)) {
+            long rows = archiveMonth(month);
+            if (rows < 0) return -1;
+            archived += rows;
+        }
+        return archived;
+    }
+
+    /**
+     * Archive once a day in the background
+     */
+    public synchronized void start(int maxAgeDays) {
+        if (archiver != null) return;
+        archiver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LedgerArchiver");
+            t.setDaemon(true);
+            return t;
+        });
+        archiver.scheduleWithFixedDelay(() -> {
+            long rows = archive(maxAgeDays);
+            if (rows > 0) System.out.println("Archived " + rows + " ledger rows");
+        }, 0, 24, TimeUnit.HOURS);
+    }
+
+    /**
+     * Stop the background archiver
+     */
+    public synchronized void stop() {
+        if (archiver != null) {
+            archiver.shutdownNow();
+            archiver = null;
+        }
+    }
+
+    private long archiveMonth(YearMonth month) {
+        Path pending = null;
+        try {
+            pending = directory.resolve(segmentName(month) + PENDING_SUFFIX);
+            long rows = writeSegment(month, pending);
+            if (rows == 0) {
+                Files.deleteIfExists(pending);
+                return 0;
+            }
+            Segment segment = openSegment(pending);
+            try (Connection connection = DatabaseConnection.getInstance().getPooledConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    deleteArchivedRows(connection, segment);
+                    publish(connection, segment, pending);
+                } catch (SQLException | IOException | RuntimeException e) {
+                    connection.rollback();
+                    closeQuietly(segment.channel);
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+            return rows;
+        } catch (IOException | SQLException e) {
+            System.err.println("Error archiving ledger month " + month + ": " + e.getMessage());
+            e.printStackTrace();
+            try {
+                if (pending != null) Files.deleteIfExists(pending);
+            } catch (IOException ignored) {
+                // Discarded on the next open
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Stream one month of the table into a segment file
+     * @return Number of rows written
+     */
+    private long writeSegment(YearMonth month, Path file) throws IOException, SQLException {
+        List<Block> blocks = new ArrayList<>();
+        long rows = 0;
+        LocalDateTime oldest = null;
+        LocalDateTime newest = null;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(MONTH_SQL);
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            long position = HEADER_BYTES;
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(month.atDay(1).atStartOfDay()));
+            pstmt.setTimestamp(2, Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+            pstmt.setFetchSize(FETCH_SIZE);
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream block = new DataOutputStream(raw);
+            String firstAccount = null;
+            String lastAccount = null;
+            int inBlock = 0;
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String accountNumber = rs.getString("account_number");
+                    LocalDateTime timestamp = rs.getTimestamp("transaction_timestamp").toLocalDateTime();
+                    // The block index is searched with String order; a collation that sorts differently cannot be indexed
+                    if (lastAccount != null && accountNumber.compareTo(lastAccount) < 0) {
+                        throw new IOException("Ledger rows are not in account number order");
+                    }
+                    if (inBlock == 0) firstAccount = accountNumber;
+                    lastAccount = accountNumber;
+                    writeEntry(block, rs.getString("transaction_id"), accountNumber, rs.getString("transaction_type"),
+                            rs.getString("direction"), rs.getDouble("amount"), rs.getDouble("balance_after"), rs.getString("description"), timestamp);
+                    if (oldest == null || timestamp.isBefore(oldest)) oldest = timestamp;
+                    if (newest == null || timestamp.isAfter(newest)) newest = timestamp;
+                    rows++;
+                    if (++inBlock == BLOCK_ROWS) {
+                        position += flushBlock(out, deflater, raw, firstAccount, lastAccount, position, blocks);
+                        inBlock = 0;
+                    }
+                }
+                if (inBlock > 0) {
+                    position += flushBlock(out, deflater, raw, firstAccount, lastAccount, position, blocks);
+                }
+            } finally {
+                deflater.end();
+            }
+            if (rows == 0) return 0;
+
+            long indexOffset = position;
+            out.writeInt(blocks.size());
+            for (Block b : blocks) {
+                out.writeUTF(b.firstAccount);
+                out.writeUTF(b.lastAccount);
+                out.writeLong(b.offset);
+                out.writeInt(b.length);
+                out.writeInt(b.rawLength);
+            }
+            writeTimestamp(out, oldest);
+            writeTimestamp(out, newest);
+            out.writeLong(rows);
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+        return rows;
+    }
+
+    private static int flushBlock(OutputStream out, Deflater deflater, ByteArrayOutputStream raw,
+                                  String firstAccount, String lastAccount, long position,
+                                  List<Block> blocks) throws IOException {
+        byte[] input = raw.toByteArray();
+        raw.reset();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 4 + 64);
+        byte[] buffer = new byte[16 * 1024];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        compressed.writeTo(out);
+        blocks.add(new Block(firstAccount, lastAccount, position, compressed.size(), input.length));
+        return compressed.size();
+    }
+
+    /**
+     * Delete the segment's rows from the table in the connection's open transaction
+     */
+    private static void deleteArchivedRows(Connection connection, Segment segment) throws SQLException, IOException {
+        try (PreparedStatement pstmt = connection.prepareStatement(DELETE_SQL)) {
+            int batched = 0;
+            for (Block block : segment.blocks) {
+                DataInputStream in = segment.open(block);
+                while (in.available() > 0) {
+                    pstmt.setString(1, readEntry(in, segment.version).getTransactionId());
+                    pstmt.addBatch();
+                    if (++batched == DELETE_BATCH) {
+                        pstmt.executeBatch();
+                        batched = 0;
+                    }
+                }
+            }
+            if (batched > 0) pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Commit the delete and make the segment visible in one step for readers
+     */
+    private void publish(Connection connection, Segment segment, Path pending) throws SQLException {
+        boolean locked;
+        try {
+            locked = lock.writeLock().tryLock(PUBLISH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        if (!locked) throw new SQLException("Timed out waiting for history readers");
+        try {
+            connection.commit();
+            // The rows are gone from the table: from here on the segment must be kept
+            Path published = pending.resolveSibling(pending.getFileName().toString()
+                    .replace(PENDING_SUFFIX, SEGMENT_SUFFIX));
+            try {
+                Files.move(pending, published, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Served from the pending file until the next open publishes it
+                System.err.println("Error publishing ledger segment " + pending + ": " + e.getMessage());
+                published = pending;
+            }
+            List<Segment> updated = new ArrayList<>(segments);
+            updated.add(new Segment(published, segment.channel, segment.blocks, segment.oldest, segment.newest, segment.rows,
+                    segment.version));
+            updated.sort(Comparator.comparing((Segment s) -> s.oldest));
+            segments = List.copyOf(updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deal with a segment left pending by a crash: publish it if its rows were deleted, else drop it
+     */
+    private static void recover(Path pending) throws IOException, SQLException {
+        Segment segment;
+        try {
+            segment = openSegment(pending);
+        } catch (IOException e) {
+            // Never completed, so its rows were never deleted
+            Files.delete(pending);
+            return;
+        }
+        String firstId;
+        try {
+            DataInputStream in = segment.open(segment.blocks[0]);
+            firstId = readEntry(in, segment.version).getTransactionId();
+        } finally {
+            closeQuietly(segment.channel);
+        }
+        boolean deleted;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(EXISTS_SQL)) {
+            pstmt.setString(1, firstId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                deleted = rs.next() && rs.getInt(1) == 0;
+            }
+        }
+        if (deleted) {
+            Files.move(pending, pending.resolveSibling(pending.getFileName().toString()
+                    .replace(PENDING_SUFFIX, SEGMENT_SUFFIX)), StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.delete(pending);
+        }
+    }
+
+    private static Segment openSegment(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) throw new IOException("Segment " + file + " is incomplete");
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Segment " + file + " is not a ledger segment");
+            int version = header.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Segment " + file + " has unsupported version " + version);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            channel.read(trailer, size - TRAILER_BYTES);
+            trailer.flip();
+            long indexOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || indexOffset < HEADER_BYTES || indexOffset > size - TRAILER_BYTES) {
+                throw new IOException("Segment " + file + " is incomplete");
+            }
+            ByteBuffer index = ByteBuffer.allocate((int) (size - TRAILER_BYTES - indexOffset));
+            channel.read(index, indexOffset);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()));
+            Block[] blocks = new Block[in.readInt()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = new Block(in.readUTF(), in.readUTF(), in.readLong(), in.readInt(), in.readInt());
+            }
+            LocalDateTime oldest = readTimestamp(in);
+            LocalDateTime newest = readTimestamp(in);
+            long rows = in.readLong();
+            return new Segment(file, channel, blocks, oldest, newest, rows, version);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Segment name for the next segment of a month; a month gets more than one only when rows
+     * stamped in it reach the table after it was archived
+     */
+    private String segmentName(YearMonth month) {
+        int sequence = 0;
+        while (Files.exists(directory.resolve("ledger-" + month + "-" + sequence + SEGMENT_SUFFIX))
+                || Files.exists(directory.resolve("ledger-" + month + "-" + sequence + PENDING_SUFFIX))) {
+            sequence++;
+        }
+        return "ledger-" + month + "-" + sequence;
+    }
+
+    private static void writeEntry(DataOutputStream out, String transactionId, String accountNumber, String type,
+                                   String direction, double amount, double balanceAfter, String description,
+                                   LocalDateTime timestamp) throws IOException {
+        out.writeUTF(accountNumber);
+        out.writeUTF(transactionId);
+        out.writeByte(Transaction.Type.valueOf(type).ordinal());
+        out.writeByte(Transaction.Direction.valueOf(direction).ordinal());
+        out.writeDouble(amount);
+        out.writeDouble(balanceAfter);
+        out.writeBoolean(description != null);
+        if (description != null) out.writeUTF(description);
+        writeTimestamp(out, timestamp);
+    }
+
+    private static Entry readEntry(DataInputStream in, int version) throws IOException {
+        String accountNumber = in.readUTF();
+        String transactionId = in.readUTF();
+        Transaction.Type type = Transaction.Type.values()[in.readByte()];
+        Transaction.Direction direction = version >= 2 ? Transaction.Direction.values()[in.readByte()] : null;
+        double amount = in.readDouble();
+        double balanceAfter = in.readDouble();
+        String description = in.readBoolean() ? in.readUTF() : null;
+        LocalDateTime timestamp = readTimestamp(in);
+        if (direction == null) direction = Transaction.legacyDirection(type, description);
+        return new Entry(transactionId, accountNumber,
+                new Transaction(type, direction, amount, balanceAfter, description, timestamp));
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+}
@@ -0,0 +1,697 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.Transaction;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * LedgerColumnSnapshot - The whole ledger in memory as primitive columns, for ad-hoc analysis
+ * getAllTransactions builds a Transaction, a LocalDateTime and several Strings per ledger row
+ * before anything is added up. The snapshot keeps each row as one slot in parallel arrays
+ * instead: the account as a code into a dictionary of account numbers (whose account types and
+ * branches are dictionary codes as well), the transaction type and debit flag in one byte, the
+ * timestamp in epoch microseconds of its local date-time and the amount. That is 21 bytes a row,
+ * and a filter, group-by and sum is a loop over the arrays, split into chunks of CHUNK_ROWS that
+ * run in parallel on the common fork-join pool.
+ *
+ * load() reads the table and the LedgerArchive; refresh() then appends only the rows whose
+ * ledger_seq is above the high-water mark. Sequence numbers are taken at insert but become
+ * visible at commit, so a row can appear below the mark after a higher one was read: numbers
+ * skipped within GAP_WINDOW of the mark are looked for again until GAP_GRACE_MILLIS have passed.
+ * Rows are only ever appended, so rows of accounts deleted since stay until the next load().
+ *
+ * Readers do not lock. Appends go past the published row count and the new count is published
+ * once they are complete; load() starts on new arrays.
+ */
+public class LedgerColumnSnapshot {
+    public static final int CHUNK_ROWS = 1 << 16;
+    public static final int GAP_WINDOW = 4_096;
+    public static final long GAP_GRACE_MILLIS = 60_000;
+    // Groups up to this many are summed into arrays indexed by group, the rest into hash tables
+    private static final int DENSE_GROUPS = 1 << 14;
+    private static final int FETCH_SIZE = 5_000;
+    private static final long DAY_MICROS = 86_400_000_000L;
+    private static final int DEBIT = 0x80;
+    private static final int TYPE_MASK = 0x7F;
+    private static final Transaction.Type[] TYPES = Transaction.Type.values();
+
+    private static final String ROWS_SQL =
+            "SELECT ledger_seq, account_number, transaction_type, amount, direction, transaction_timestamp " +
+            "FROM transactions WHERE ledger_seq > ? ORDER BY ledger_seq";
+    private static final String SKIPPED_SQL =
+            "SELECT ledger_seq, account_number, transaction_type, amount, direction, transaction_timestamp " +
+            "FROM transactions WHERE ledger_seq IN (%s)";
+    private static final int SKIPPED_PER_QUERY = 256;
+    private static final String ALL_ACCOUNTS_SQL =
+            "SELECT account_number, COALESCE(branch, ''), account_type FROM accounts";
+    private static final String ACCOUNT_SQL =
+            "SELECT COALESCE(branch, ''), account_type FROM accounts WHERE account_number = ?";
+
+    private static final LedgerColumnSnapshot INSTANCE = new LedgerColumnSnapshot();
+
+    // Written only by load and refresh, under this
+    private int[] account;
+    private byte[] kind;
+    private long[] timestamp;
+    private double[] amount;
+    private int size;
+    private long oldest;
+    private long newest;
+    private String[] accountNumbers;
+    private int[] accountTypeOf;
+    private int[] branchOf;
+    private int accounts;
+    private final Map<String, Integer> accountCodes = new HashMap<>();
+    private final Dictionary accountTypes = new Dictionary();
+    private final Dictionary branches = new Dictionary();
+    private long highWater;
+    // Sequence numbers skipped below the high-water mark -> when to stop looking for them
+    private final TreeMap<Long, Long> missing = new TreeMap<>();
+
+    private volatile View view;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * What a query groups its totals by
+     */
+    public enum Dimension {
+        ACCOUNT,
+        ACCOUNT_TYPE,
+        BRANCH,
+        TRANSACTION_TYPE,
+        DAY,
+        MONTH
+    }
+
+    /**
+     * Which ledger rows a query adds up. Immutable; the with* methods return a modified copy.
+     */
+    public static final class Filter {
+        private final String accountNumber;
+        private final String accountType;
+        private final String branch;
+        private final Transaction.Type type;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final double minAmount;
+        private final double maxAmount;
+
+        private Filter(String accountNumber, String accountType, String branch, Transaction.Type type,
+                       LocalDateTime from, LocalDateTime to, double minAmount, double maxAmount) {
+            this.accountNumber = accountNumber;
+            this.accountType = accountType;
+            this.branch = branch;
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            this.minAmount = minAmount;
+            this.maxAmount = maxAmount;
+        }
+
+        /**
+         * Every row
+         */
+        public static Filter all() {
+            return new Filter(null, null, null, null, null, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+
+        public Filter withAccount(String accountNumber) {
+            return new Filter(accountNumber, accountType, branch, type, from, to, minAmount, maxAmount);
+        }
+
+        public Filter withAccountType(String accountType) {
+            return new Filter(accountNumber, accountType, branch, type, from, to, minAmount, maxAmount);
+        }
+
+        /**
+         * Rows of accounts in a branch; the empty string for accounts without one
+         */
+        public Filter withBranch(String branch) {
+            return new Filter(accountNumber, accountType, branch, type, from, to, minAmount, maxAmount);
+        }
+
+        public Filter withType(Transaction.Type type) {
+            return new Filter(accountNumber, accountType, branch, type, from, to, minAmount, maxAmount);
+        }
+
+        /**
+         * Rows timestamped in a range, both ends inclusive; null for no bound
+         */
+        public Filter between(LocalDateTime from, LocalDateTime to) {
+            return new Filter(accountNumber, accountType, branch, type, from, to, minAmount, maxAmount);
+        }
+
+        /**
+         * Rows whose amount is in a range, both ends inclusive
+         */
+        public Filter withAmountBetween(double minAmount, double maxAmount) {
+            return new Filter(accountNumber, accountType, branch, type, from, to, minAmount, maxAmount);
+        }
+    }
+
+    /**
+     * What readers see: the arrays and how much of them is published
+     */
+    private static final class View {
+        final int size;
+        final int[] account;
+        final byte[] kind;
+        final long[] timestamp;
+        final double[] amount;
+        final long oldest;
+        final long newest;
+        final int accounts;
+        final String[] accountNumbers;
+        final int[] accountTypeOf;
+        final int[] branchOf;
+        final String[] accountTypes;
+        final String[] branches;
+
+        View(LedgerColumnSnapshot s) {
+            this.size = s.size;
+            this.account = s.account;
+            this.kind = s.kind;
+            this.timestamp = s.timestamp;
+            this.amount = s.amount;
+            this.oldest = s.oldest;
+            this.newest = s.newest;
+            this.accounts = s.accounts;
+            this.accountNumbers = s.accountNumbers;
+            this.accountTypeOf = s.accountTypeOf;
+            this.branchOf = s.branchOf;
+            this.accountTypes = s.accountTypes.values();
+            this.branches = s.branches.values();
+        }
+    }
+
+    /**
+     * Strings numbered in order of first appearance
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        Integer find(String value) {
+            return codes.get(value);
+        }
+
+        String[] values() {
+            return values.toArray(new String[0]);
+        }
+
+        void clear() {
+            codes.clear();
+            values.clear();
+        }
+    }
+
+    /**
+     * Count, credits and debits per group key, in an array indexed by key when the keys are few
+     * and an open-addressing table otherwise
+     */
+    private static final class Sums {
+        private final boolean dense;
+        private long[] keys;
+        private long[] counts;
+        private double[] credits;
+        private double[] debits;
+        private int used;
+
+        Sums(long groups) {
+            dense = groups <= DENSE_GROUPS;
+            int slots = dense ? (int) groups : 1 << 10;
+            counts = new long[slots];
+            credits = new double[slots];
+            debits = new double[slots];
+            if (!dense) {
+                keys = new long[slots];
+                Arrays.fill(keys, -1);
+            }
+        }
+
+        void add(long key, long count, double credit, double debit) {
+            int slot = dense ? (int) key : slot(key);
+            counts[slot] += count;
+            credits[slot] += credit;
+            debits[slot] += debit;
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (keys[slot] != key) {
+                if (keys[slot] == -1) {
+                    if (++used * 2 > keys.length) {
+                        grow();
+                        return slot(key);
+                    }
+                    keys[slot] = key;
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            double[] oldCredits = credits;
+            double[] oldDebits = debits;
+            keys = new long[oldKeys.length * 2];
+            Arrays.fill(keys, -1);
+            counts = new long[keys.length];
+            credits = new double[keys.length];
+            debits = new double[keys.length];
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1) add(oldKeys[i], oldCounts[i], oldCredits[i], oldDebits[i]);
+            }
+        }
+
+        Sums merge(Sums other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] == 0) continue;
+                add(other.dense ? i : other.keys[i], other.counts[i], other.credits[i], other.debits[i]);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * A filter and grouping resolved against one view: codes instead of strings, and where each
+     * dimension's code sits in the group key
+     */
+    private static final class Plan {
+        final View view;
+        final Dimension[] groupBy;
+        final boolean[] accountMatches;
+        final int type;
+        final long from;
+        final long to;
+        final double minAmount;
+        final double maxAmount;
+        final long firstDay;
+        final int[] monthOfDay;
+        final List<YearMonth> months = new ArrayList<>();
+        final long[] cardinality;
+        final long[] stride;
+        long groups = 1;
+
+        Plan(View view, Filter filter, Dimension[] groupBy) {
+            this.view = view;
+            this.groupBy = groupBy;
+            this.type = filter.type != null ? filter.type.ordinal() : -1;
+            this.from = filter.from != null ? micros(filter.from) : Long.MIN_VALUE;
+            this.to = filter.to != null ? micros(filter.to) : Long.MAX_VALUE;
+            this.minAmount = filter.minAmount;
+            this.maxAmount = filter.maxAmount;
+            this.accountMatches = accountMatches(filter);
+
+            firstDay = Math.floorDiv(Math.max(from, view.oldest), DAY_MICROS);
+            long lastDay = Math.floorDiv(Math.min(to, view.newest), DAY_MICROS);
+            int days = (int) Math.max(0, lastDay - firstDay + 1);
+            monthOfDay = new int[days];
+            for (int d = 0; d < days; d++) {
+                YearMonth month = YearMonth.from(LocalDate.ofEpochDay(firstDay + d));
+                if (months.isEmpty() || !months.get(months.size() - 1).equals(month)) months.add(month);
+                monthOfDay[d] = months.size() - 1;
+            }
+
+            cardinality = new long[groupBy.length];
+            stride = new long[groupBy.length];
+            for (int d = groupBy.length - 1; d >= 0; d--) {
+                cardinality[d] = switch (groupBy[d]) {
+                    case ACCOUNT -> view.accounts;
+                    case ACCOUNT_TYPE -> view.accountTypes.length;
+                    case BRANCH -> view.branches.length;
+                    case TRANSACTION_TYPE -> TYPES.length;
+                    case DAY -> days;
+                    case MONTH -> months.size();
+                };
+                stride[d] = groups;
+                groups *= Math.max(1, cardinality[d]);
+            }
+        }
+
+        /**
+         * Which accounts pass the filter's account, account type and branch, or null if all do
+         */
+        private boolean[] accountMatches(Filter filter) {
+            if (filter.accountNumber == null && filter.accountType == null && filter.branch == null) return null;
+            boolean[] matches = new boolean[view.accounts];
+            int accountType = filter.accountType != null ? Arrays.asList(view.accountTypes).indexOf(filter.accountType) : -1;
+            int branch = filter.branch != null ? Arrays.asList(view.branches).indexOf(filter.branch) : -1;
+            for (int a = 0; a < view.accounts; a++) {
+                matches[a] = (filter.accountNumber == null || filter.accountNumber.equals(view.accountNumbers[a]))
+                        && (filter.accountType == null || view.accountTypeOf[a] == accountType)
+                        && (filter.branch == null || view.branchOf[a] == branch);
+            }
+            return matches;
+        }
+
+        /**
+         * Sums over the rows of one chunk
+         */
+        Sums aggregate(int chunk) {
+            Sums sums = new Sums(groups);
+            int end = (int) Math.min(view.size, (long) (chunk + 1) * CHUNK_ROWS);
+            int[] accountColumn = view.account;
+            byte[] kindColumn = view.kind;
+            long[] timestampColumn = view.timestamp;
+            double[] amountColumn = view.amount;
+            for (int i = chunk * CHUNK_ROWS; i < end; i++) {
+                int a = accountColumn[i];
+                if (accountMatches != null && !accountMatches[a]) continue;
+                int k = kindColumn[i] & 0xFF;
+                if (type >= 0 && (k & TYPE_MASK) != type) continue;
+                long t = timestampColumn[i];
+                if (t < from || t > to) continue;
+                double amount = amountColumn[i];
+                if (amount < minAmount || amount > maxAmount) continue;
+
+                long key = 0;
+                for (int d = 0; d < groupBy.length; d++) {
+                    long code = switch (groupBy[d]) {
+                        case ACCOUNT -> a;
+                        case ACCOUNT_TYPE -> view.accountTypeOf[a];
+                        case BRANCH -> view.branchOf[a];
+                        case TRANSACTION_TYPE -> k & TYPE_MASK;
+                        case DAY -> Math.floorDiv(t, DAY_MICROS) - firstDay;
+                        case MONTH -> monthOfDay[(int) (Math.floorDiv(t, DAY_MICROS) - firstDay)];
+                    };
+                    key += code * stride[d];
+                }
+                if ((k & DEBIT) != 0) {
+                    sums.add(key, 1, 0, amount);
+                } else {
+                    sums.add(key, 1, amount, 0);
+                }
+            }
+            return sums;
+        }
+
+        List<String> group(long key) {
+            List<String> group = new ArrayList<>(groupBy.length);
+            for (int d = 0; d < groupBy.length; d++) {
+                int code = (int) (key / stride[d] % Math.max(1, cardinality[d]));
+                group.add(switch (groupBy[d]) {
+                    case ACCOUNT -> view.accountNumbers[code];
+                    case ACCOUNT_TYPE -> view.accountTypes[code];
+                    case BRANCH -> view.branches[code];
+                    case TRANSACTION_TYPE -> TYPES[code].toString();
+                    case DAY -> LocalDate.ofEpochDay(firstDay + code).toString();
+                    case MONTH -> months.get(code).toString();
+                });
+            }
+            return group;
+        }
+    }
+
+    public static LedgerColumnSnapshot getInstance() {
+        return INSTANCE;
+    }
+
+    private LedgerColumnSnapshot() {
+        reset();
+        view = new View(this);
+    }
+
+    /**
+     * Replace the snapshot with every ledger row in the table and the archive
+     * @return Number of rows loaded, or -1 on error
+     */
+    public synchronized int load() {
+        LedgerArchive archive = LedgerArchive.getInstance();
+        return archive.consistentRead(() -> {
+            reset();
+            try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(ALL_ACCOUNTS_SQL)) {
+                    while (rs.next()) {
+                        addAccount(rs.getString(1), rs.getString(2), rs.getString(3));
+                    }
+                }
+                // Archived rows of accounts that no longer exist have no type or branch
+                archive.forEach(entry -> {
+                    Integer code = accountCodes.get(entry.getAccountNumber());
+                    append(code != null ? code : addAccount(entry.getAccountNumber(), "", ""), entry.getTransaction());
+                });
+                readRows(connection);
+                // Growth headroom is left to refreshes
+                account = Arrays.copyOf(account, size);
+                kind = Arrays.copyOf(kind, size);
+                timestamp = Arrays.copyOf(timestamp, size);
+                amount = Arrays.copyOf(amount, size);
+            } catch (SQLException | IOException e) {
+                System.err.println("Error loading ledger snapshot: " + e.getMessage());
+                e.printStackTrace();
+                reset();
+                view = new View(this);
+                return -1;
+            }
+            view = new View(this);
+            return size;
+        });
+    }
+
+    /**
+     * Append the ledger rows committed since the last load or refresh
+     * @return Number of rows appended, or -1 on error
+     */
+    public synchronized int refresh() {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            int before = size;
+            readRows(connection);
+            view = new View(this);
+            return size - before;
+        } catch (SQLException e) {
+            System.err.println("Error refreshing ledger snapshot: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Count and amounts of the rows passing a filter, in parallel over chunks of rows
+     * @param groupBy Dimensions to group by; none for a single grand total
+     * @return One total per group, ordered by the group's values
+     */
+    public List<LedgerRollupDAO.Total> totals(Filter filter, Dimension... groupBy) {
+        Plan plan = new Plan(view, filter, groupBy);
+        List<LedgerRollupDAO.Total> totals = new ArrayList<>();
+        if (plan.view.size == 0) return totals;
+
+        int chunks = (plan.view.size + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        Sums sums = IntStream.range(0, chunks).parallel()
+                .mapToObj(plan::aggregate)
+                .reduce(Sums::merge)
+                .orElseThrow();
+        for (int i = 0; i < sums.counts.length; i++) {
+            if (sums.counts[i] == 0) continue;
+            long key = sums.dense ? i : sums.keys[i];
+            totals.add(new LedgerRollupDAO.Total(plan.group(key), sums.counts[i], sums.credits[i], sums.debits[i]));
+        }
+        totals.sort(Comparator.comparing(LedgerRollupDAO.Total::getGroup, LedgerColumnSnapshot::compareGroups));
+        return totals;
+    }
+
+    /**
+     * Number of rows in the published snapshot
+     */
+    public int size() {
+        return view.size;
+    }
+
+    /**
+     * Highest ledger_seq read so far
+     */
+    public synchronized long getHighWaterMark() {
+        return highWater;
+    }
+
+    /**
+     * Start refreshing in the background
+     */
+    public synchronized void startRefresher(long intervalMillis) {
+        if (refresher != null) return;
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LedgerColumnSnapshotRefresher");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background refresher
+     */
+    public synchronized void stopRefresher() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    /**
+     * Append skipped rows below the high-water mark that have committed since, then the rows above it
+     */
+    private void readRows(Connection connection) throws SQLException {
+        long now = System.currentTimeMillis();
+        missing.values().removeIf(until -> until < now);
+        List<Long> skipped = new ArrayList<>(missing.keySet());
+        for (int from = 0; from < skipped.size(); from += SKIPPED_PER_QUERY) {
+            List<Long> batch = skipped.subList(from, Math.min(skipped.size(), from + SKIPPED_PER_QUERY));
+            String sql = String.format(SKIPPED_SQL, String.join(", ", Collections.nCopies(batch.size(), "?")));
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    pstmt.setLong(i + 1, batch.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        missing.remove(rs.getLong(1));
+                        appendRow(connection, rs);
+                    }
+                }
+            }
+        }
+
+        try (PreparedStatement pstmt = connection.prepareStatement(ROWS_SQL)) {
+            pstmt.setLong(1, highWater);
+            pstmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long seq = rs.getLong(1);
+                    for (long gap = Math.max(highWater + 1, seq - GAP_WINDOW); gap < seq; gap++) {
+                        missing.put(gap, now + GAP_GRACE_MILLIS);
+                    }
+                    highWater = seq;
+                    while (!missing.isEmpty() && missing.firstKey() < highWater - GAP_WINDOW) {
+                        missing.pollFirstEntry();
+                    }
+                    appendRow(connection, rs);
+                }
+            }
+        }
+    }
+
+    private void appendRow(Connection connection, ResultSet rs) throws SQLException {
+        String accountNumber = rs.getString(2);
+        Integer code = accountCodes.get(accountNumber);
+        if (code == null) code = lookUpAccount(connection, accountNumber);
+        Transaction.Type type = Transaction.Type.valueOf(rs.getString(3));
+        boolean debit = Transaction.Direction.DEBIT.name().equals(rs.getString(5));
+        append(code, type, debit, rs.getTimestamp(6).toLocalDateTime(), rs.getDouble(4));
+    }
+
+    private int lookUpAccount(Connection connection, String accountNumber) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(ACCOUNT_SQL)) {
+            pstmt.setString(1, accountNumber);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? addAccount(accountNumber, rs.getString(1), rs.getString(2))
+                        : addAccount(accountNumber, "", "");
+            }
+        }
+    }
+
+    private int addAccount(String accountNumber, String branch, String accountType) {
+        if (accounts == accountNumbers.length) {
+            int capacity = Math.max(1_024, accounts * 2);
+            accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+            accountTypeOf = Arrays.copyOf(accountTypeOf, capacity);
+            branchOf = Arrays.copyOf(branchOf, capacity);
+        }
+        accountNumbers[accounts] = accountNumber;
+        accountTypeOf[accounts] = accountTypes.code(accountType);
+        branchOf[accounts] = branches.code(branch);
+        accountCodes.put(accountNumber, accounts);
+        return accounts++;
+    }
+
+    private void append(int accountCode, Transaction transaction) {
+        append(accountCode, transaction.getType(), transaction.isDebit(), transaction.getTimestamp(), transaction.getAmount());
+    }
+
+    private void append(int accountCode, Transaction.Type type, boolean debit, LocalDateTime at, double value) {
+        if (size == account.length) {
+            int capacity = Math.max(CHUNK_ROWS, size + (size >> 1));
+            account = Arrays.copyOf(account, capacity);
+            kind = Arrays.copyOf(kind, capacity);
+            timestamp = Arrays.copyOf(timestamp, capacity);
+            amount = Arrays.copyOf(amount, capacity);
+        }
+        long micros = micros(at);
+        account[size] = accountCode;
+        kind[size] = (byte) (type.ordinal() | (debit ? DEBIT : 0));
+        timestamp[size] = micros;
+        amount[size] = value;
+        oldest = Math.min(oldest, micros);
+        newest = Math.max(newest, micros);
+        size++;
+    }
+
+    /**
+     * Start over on new arrays, so readers of the published view are not disturbed
+     */
+    private void reset() {
+        account = new int[0];
+        kind = new byte[0];
+        timestamp = new long[0];
+        amount = new double[0];
+        size = 0;
+        oldest = Long.MAX_VALUE;
+        newest = Long.MIN_VALUE;
+        accountNumbers = new String[0];
+        accountTypeOf = new int[0];
+        branchOf = new int[0];
+        accounts = 0;
+        accountCodes.clear();
+        accountTypes.clear();
+        branches.clear();
+        highWater = 0;
+        missing.clear();
+    }
+
+    private static long micros(LocalDateTime at) {
+        return at.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + at.getNano() / 1_000;
+    }
+
+    private static int compareGroups(List<String> a, List<String> b) {
+        for (int i = 0; i < a.size(); i++) {
+            int c = a.get(i).compareTo(b.get(i));
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,555 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.Transaction;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * LedgerReconciler - Checks stored balances against the transactions ledger
+ * Accounts are split into key ranges that worker threads take in turn. A worker loads the
+ * balances of its range, then streams the range's ledger rows in (account_number,
+ * transaction_timestamp, transaction_id) order and, per account, checks that every row's
+ * balance_after equals the previous one plus the row's signed amount, and that the stored
+ * balance equals the balance the ledger ends on. Both reads of a range run in one read-only
+ * REPEATABLE READ transaction, so postings committed meanwhile cannot show up as drift.
+ *
+ * Memory is bounded by the range size, not the ledger size: rows are streamed, and only the
+ * first MAX_RETAINED mismatches are kept (all of them can be streamed to a writer).
+ *
+ * Rows with the same timestamp are taken in whichever order continues the chain.
+ * Striped hot accounts only record an exact balance_after on debits (credits land on a stripe
+ * and report the total visible at that moment), so their chain is checked from debit to debit,
+ * with a credit tied to a debit counted before it unless the debit chains without it. Accounts
+ * with striping but no debit yet are counted as unanchored rather than checked.
+ */
+public class LedgerReconciler {
+    public static final int DEFAULT_ACCOUNTS_PER_PARTITION = 20_000;
+    public static final int MAX_RETAINED = 1_000;
+    private static final double TOLERANCE = 0.005;
+    private static final int MAX_TIE_GROUP = 256;
+    private static final int FETCH_SIZE = 5_000;
+
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM accounts";
+    private static final String BOUNDARY_SQL = "SELECT account_number FROM accounts ORDER BY account_number";
+    private static final String ACCOUNTS_SQL =
+            "SELECT a.account_number, a.balance, s.pending FROM accounts a " +
+            "LEFT JOIN (SELECT account_number, SUM(delta) AS pending FROM account_balance_stripes " +
+            "GROUP BY account_number) s ON s.account_number = a.account_number " +
+            "WHERE %s ORDER BY a.account_number";
+    private static final String LEDGER_SQL =
+            "SELECT transaction_id, account_number, direction, amount, balance_after, " +
+            "transaction_timestamp FROM transactions WHERE %s " +
+            "ORDER BY account_number, transaction_timestamp, transaction_id";
+
+    public enum Kind {
+        /** A row's balance_after does not follow from the row before it */
+        CHAIN_BREAK,
+        /** The stored balance differs from the balance the ledger ends on */
+        BALANCE
+    }
+
+    /**
+     * One discrepancy
+     */
+    public static final class Mismatch {
+        private final String accountNumber;
+        private final Kind kind;
+        private final String transactionId;
+        private final double expected;
+        private final double actual;
+
+        Mismatch(String accountNumber, Kind kind, String transactionId, double expected, double actual) {
+            this.accountNumber = accountNumber;
+            this.kind = kind;
+            this.transactionId = transactionId;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public String getAccountNumber() { return accountNumber; }
+        public Kind getKind() { return kind; }
+
+        /**
+         * The row whose balance_after is off, or null for a BALANCE mismatch
+         */
+        public String getTransactionId() { return transactionId; }
+
+        /**
+         * What the ledger implies: the chained balance, or the ledger's final balance
+         */
+        public double getExpected() { return expected; }
+
+        /**
+         * What is recorded: the row's balance_after, or the stored balance
+         */
+        public double getActual() { return actual; }
+
+        String toCsv() {
+            return accountNumber + "," + kind + "," + (transactionId != null ? transactionId : "")
+                    + "," + String.format("%.2f,%.2f", expected, actual);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s%s: expected %.2f, found %.2f", accountNumber, kind,
+                    transactionId != null ? " at " + transactionId : "", expected, actual);
+        }
+    }
+
+    /**
+     * Totals of one run plus the first mismatches found
+     */
+    public static final class Report {
+        private final List<Mismatch> retained = new ArrayList<>();
+        private final Writer out;
+        private int partitions;
+        private int failedPartitions;
+        private long accounts;
+        private long accountsWithoutLedger;
+        private long unanchoredAccounts;
+        private long rows;
+        private long chainBreaks;
+        private long balanceMismatches;
+        private long elapsedNanos;
+
+        Report(Writer out) {
+            this.out = out;
+        }
+
+        synchronized void add(Mismatch mismatch) {
+            if (mismatch.kind == Kind.CHAIN_BREAK) chainBreaks++;
+            else balanceMismatches++;
+            if (retained.size() < MAX_RETAINED) retained.add(mismatch);
+            if (out != null) {
+                try {
+                    out.write(mismatch.toCsv());
+                    out.write('\n');
+                } catch (IOException e) {
+                    System.err.println("Error writing reconciliation report: " + e.getMessage());
+                }
+            }
+        }
+
+        synchronized void addPartition(PartitionTotals totals) {
+            accounts += totals.accounts;
+            accountsWithoutLedger += totals.accountsWithoutLedger;
+            unanchoredAccounts += totals.unanchored;
+            rows += totals.rows;
+        }
+
+        public synchronized int getPartitionCount() { return partitions; }
+        public synchronized int getFailedPartitionCount() { return failedPartitions; }
+        public synchronized long getAccountCount() { return accounts; }
+        public synchronized long getAccountsWithoutLedger() { return accountsWithoutLedger; }
+        /** Striped accounts with no debit to anchor their chain yet */
+        public synchronized long getUnanchoredAccounts() { return unanchoredAccounts; }
+        public synchronized long getRowCount() { return rows; }
+        public synchronized long getChainBreakCount() { return chainBreaks; }
+        public synchronized long getBalanceMismatchCount() { return balanceMismatches; }
+        public synchronized long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public synchronized boolean isClean() {
+            return chainBreaks == 0 && balanceMismatches == 0 && failedPartitions == 0;
+        }
+
+        /**
+         * The first MAX_RETAINED mismatches, in the order workers found them
+         */
+        public synchronized List<Mismatch> getMismatches() {
+            return Collections.unmodifiableList(new ArrayList<>(retained));
+        }
+
+        /**
+         * Write the retained mismatches as CSV
+         */
+        public void writeCsv(Writer out) throws IOException {
+            out.write("account_number,kind,transaction_id,expected,actual\n");
+            for (Mismatch mismatch : getMismatches()) {
+                out.write(mismatch.toCsv());
+                out.write('\n');
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("Reconciled %,d accounts and %,d ledger rows in %d partitions (%d failed): " +
+                            "%,d chain breaks, %,d balance mismatches; %,d accounts without ledger rows, " +
+                            "%,d striped accounts not yet anchored (%d ms)",
+                    accounts, rows, partitions, failedPartitions, chainBreaks, balanceMismatches,
+                    accountsWithoutLedger, unanchoredAccounts, getElapsedMillis());
+        }
+    }
+
+    private final int workers;
+    private final int accountsPerPartition;
+
+    public LedgerReconciler(int workers) {
+        this(workers, DEFAULT_ACCOUNTS_PER_PARTITION);
+    }
+
+    /**
+     * @param workers Threads scanning partitions in parallel (each holds one pooled connection)
+     * @param accountsPerPartition Upper bound on the accounts a worker holds in memory at once
+     */
+    public LedgerReconciler(int workers, int accountsPerPartition) {
+        if (workers < 1 || accountsPerPartition < 1) throw new IllegalArgumentException("Workers and partition size must be positive");
+        this.workers = workers;
+        this.accountsPerPartition = accountsPerPartition;
+    }
+
+    public Report reconcile() {
+        return reconcile(null);
+    }
+
+    /**
+     * Reconcile every account
+     * @param mismatchesOut Receives every mismatch as a CSV line as it is found (may be null)
+     */
+    public Report reconcile(Writer mismatchesOut) {
+        long started = System.nanoTime();
+        Report report = new Report(mismatchesOut);
+        List<String> boundaries;
+        try {
+            boundaries = partitionBoundaries();
+        } catch (SQLException e) {
+            System.err.println("Error partitioning accounts for reconciliation: " + e.getMessage());
+            e.printStackTrace();
+            report.failedPartitions = 1;
+            report.elapsedNanos = System.nanoTime() - started;
+            return report;
+        }
+        report.partitions = boundaries.size();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "LedgerReconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> tasks = new ArrayList<>(boundaries.size());
+            for (int i = 0; i < boundaries.size(); i++) {
+                String from = boundaries.get(i);
+                String to = i + 1 < boundaries.size() ? boundaries.get(i + 1) : null;
+                tasks.add(pool.submit(() -> reconcilePartition(from, to, report)));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    System.err.println("Error reconciling partition: " + e.getCause());
+                    synchronized (report) {
+                        report.failedPartitions++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+        synchronized (report) {
+            report.elapsedNanos = System.nanoTime() - started;
+        }
+        return report;
+    }
+
+    /**
+     * First account number of each partition, found by streaming the account numbers in order
+     */
+    private List<String> partitionBoundaries() throws SQLException {
+        List<String> boundaries = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            long count;
+            try (ResultSet rs = stmt.executeQuery(COUNT_SQL)) {
+                count = rs.next() ? rs.getLong(1) : 0;
+            }
+            // At least a few partitions per worker so a slow range does not hold up the end of the run
+            long perPartition = Math.max(1, Math.min(accountsPerPartition, count / (workers * 4L)));
+            try (PreparedStatement pstmt = streaming(connection, BOUNDARY_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                long i = 0;
+                while (rs.next()) {
+                    if (i++ % perPartition == 0) boundaries.add(rs.getString(1));
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * Check the accounts in [from, to); to is null for the last partition
+     */
+    private void reconcilePartition(String from, String to, Report report) {
+        PartitionTotals totals = new PartitionTotals();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            try {
+                AccountRange accounts = loadAccounts(connection, from, to);
+                totals.accounts = accounts.size;
+                scanLedger(connection, from, to, accounts, totals, report);
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("partition starting at " + from + ": " + e.getMessage(), e);
+        }
+        report.addPartition(totals);
+    }
+
+    private AccountRange loadAccounts(Connection connection, String from, String to) throws SQLException {
+        AccountRange range = new AccountRange();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                String.format(ACCOUNTS_SQL, rangeClause("a.account_number", to != null)))) {
+            bindRange(pstmt, from, to);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    double pending = rs.getDouble("pending");
+                    boolean striped = !rs.wasNull();
+                    range.add(rs.getString("account_number"), rs.getDouble("balance") + pending, striped);
+                }
+            }
+        }
+        return range;
+    }
+
+    private void scanLedger(Connection connection, String from, String to, AccountRange accounts,
+                            PartitionTotals totals, Report report) throws SQLException {
+        AccountCheck check = new AccountCheck(report);
+        Row[] group = new Row[MAX_TIE_GROUP];
+        for (int i = 0; i < group.length; i++) group[i] = new Row();
+        int groupSize = 0;
+        int accountIndex = 0;
+
+        try (PreparedStatement pstmt = streaming(connection,
+                String.format(LEDGER_SQL, rangeClause("account_number", to != null)))) {
+            bindRange(pstmt, from, to);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String accountNumber = rs.getString("account_number");
+                    Timestamp timestamp = rs.getTimestamp("transaction_timestamp");
+                    boolean sameAccount = check.accountNumber != null && check.accountNumber.equals(accountNumber);
+                    if (groupSize > 0 && (!sameAccount || groupSize == MAX_TIE_GROUP
+                            || !group[0].timestamp.equals(timestamp))) {
+                        check.apply(group, groupSize);
+                        groupSize = 0;
+                    }
+                    if (!sameAccount) {
+                        check.finish(totals);
+                        // Accounts between the previous one and this one have no ledger rows
+                        while (accountIndex < accounts.size
+                                && accounts.numbers[accountIndex].compareTo(accountNumber) < 0) {
+                            accountIndex++;
+                            totals.accountsWithoutLedger++;
+                        }
+                        if (accountIndex < accounts.size && accounts.numbers[accountIndex].equals(accountNumber)) {
+                            check.begin(accountNumber, accounts.balances[accountIndex], accounts.striped[accountIndex]);
+                            accountIndex++;
+                        } else {
+                            // Foreign keys should make this impossible; treat as an account with balance 0
+                            check.begin(accountNumber, 0, false);
+                        }
+                    }
+                    Row row = group[groupSize++];
+                    row.transactionId = rs.getString("transaction_id");
+                    row.timestamp = timestamp;
+                    row.amount = rs.getDouble("amount");
+                    row.balanceAfter = rs.getDouble("balance_after");
+                    row.debit = Transaction.Direction.DEBIT.name().equals(rs.getString("direction"));
+                    totals.rows++;
+                }
+            }
+        }
+        check.apply(group, groupSize);
+        check.finish(totals);
+        totals.accountsWithoutLedger += accounts.size - accountIndex;
+    }
+
+    /**
+     * Statement that streams its rows instead of materialising the result
+     */
+    private static PreparedStatement streaming(Connection connection, String sql) throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // MySQL Connector/J only streams with this sentinel; other drivers treat it as a batch size
+        boolean mysql = "MySQL".equals(DatabaseConnection.getInstance().getDatabaseType());
+        pstmt.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+        return pstmt;
+    }
+
+    private static String rangeClause(String column, boolean bounded) {
+        return bounded ? column + " >= ? AND " + column + " < ?" : column + " >= ?";
+    }
+
+    private static void bindRange(PreparedStatement pstmt, String from, String to) throws SQLException {
+        pstmt.setString(1, from);
+        if (to != null) pstmt.setString(2, to);
+    }
+
+    /**
+     * Stored balances of one partition, sorted by account number
+     */
+    private static final class AccountRange {
+        String[] numbers = new String[64];
+        double[] balances = new double[64];
+        boolean[] striped = new boolean[64];
+        int size;
+
+        void add(String number, double balance, boolean isStriped) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+                balances = Arrays.copyOf(balances, size * 2);
+                striped = Arrays.copyOf(striped, size * 2);
+            }
+            numbers[size] = number;
+            balances[size] = balance;
+            striped[size] = isStriped;
+            size++;
+        }
+    }
+
+    /**
+     * One ledger row; reused across the scan
+     */
+    private static final class Row {
+        String transactionId;
+        Timestamp timestamp;
+        double amount;
+        double balanceAfter;
+        boolean debit;
+        boolean done;
+
+        double signedAmount() {
+            return debit ? -amount : amount;
+        }
+    }
+
+    private static final class PartitionTotals {
+        long accounts;
+        long accountsWithoutLedger;
+        long unanchored;
+        long rows;
+    }
+
+    /**
+     * Running check of the account currently being scanned
+     */
+    private static final class AccountCheck {
+        private final Report report;
+        String accountNumber;
+        private double storedBalance;
+        private boolean striped;
+        private boolean anchored;
+        // Balance after the last row applied
+        private double running;
+
+        AccountCheck(Report report) {
+            this.report = report;
+        }
+
+        void begin(String accountNumber, double storedBalance, boolean striped) {
+            this.accountNumber = accountNumber;
+            this.storedBalance = storedBalance;
+            this.striped = striped;
+            this.anchored = false;
+            this.running = 0;
+        }
+
+        /**
+         * Apply a group of rows with the same timestamp, in the order that continues the chain
+         */
+        void apply(Row[] group, int size) {
+            for (int i = 0; i < size; i++) group[i].done = false;
+            for (int applied = 0; applied < size; applied++) {
+                Row next = null;
+                if (size > 1 && anchored) {
+                    for (int i = 0; i < size && next == null; i++) {
+                        Row row = group[i];
+                        if (!row.done && followsChain(row)) next = row;
+                    }
+                }
+                if (size > 1 && next == null) {
+                    // Nothing continues the chain (a start, or a break): begin where no other row leads in
+                    for (int i = 0; i < size && next == null; i++) {
+                        Row row = group[i];
+                        if (!row.done && !hasPredecessor(row, group, size)) next = row;
+                    }
+                }
+                if (next == null) {
+                    for (int i = 0; i < size && next == null; i++) {
+                        if (!group[i].done) next = group[i];
+                    }
+                }
+                next.done = true;
+                applyRow(next);
+            }
+        }
+
+        /**
+         * Whether another row of the group leads into this one, so it cannot start the chain.
+         * On a striped account a debit that does not chain on its own is taken after the group's
+         * credits, which it then folded in
+         */
+        private boolean hasPredecessor(Row row, Row[] group, int size) {
+            for (int i = 0; i < size; i++) {
+                Row other = group[i];
+                if (other == row || other.done) continue;
+                if (striped ? row.debit && !other.debit
+                        : Math.abs(other.balanceAfter + row.signedAmount() - row.balanceAfter) <= TOLERANCE) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Whether the row's balance_after continues from the running balance; a striped credit
+         * carries no exact balance, so it never does and is taken after debits that do
+         */
+        private boolean followsChain(Row row) {
+            if (striped && !row.debit) return false;
+            return Math.abs(running + row.signedAmount() - row.balanceAfter) <= TOLERANCE;
+        }
+
+        private void applyRow(Row row) {
+            if (striped && !row.debit) {
+                // A striped credit's balance_after may miss concurrent credits; carry the amount instead
+                if (anchored) running += row.amount;
+                return;
+            }
+            if (anchored && !followsChain(row)) {
+                report.add(new Mismatch(accountNumber, Kind.CHAIN_BREAK, row.transactionId,
+                        running + row.signedAmount(), row.balanceAfter));
+            }
+            // Continue from what was recorded so one bad row is reported once, not on every later row
+            running = row.balanceAfter;
+            anchored = true;
+        }
+
+        void finish(PartitionTotals totals) {
+            if (accountNumber == null) return;
+            if (!anchored) {
+                totals.unanchored++;
+            } else if (Math.abs(running - storedBalance) > TOLERANCE) {
+                report.add(new Mismatch(accountNumber, Kind.BALANCE, null, running, storedBalance));
+            }
+            accountNumber = null;
+        }
+    }
+}
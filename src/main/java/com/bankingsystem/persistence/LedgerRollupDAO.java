@@ -0,0 +1,706 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.Transaction;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LedgerRollupDAO - Daily ledger totals per branch, account type and transaction type
+ * Staff analytics read ledger_rollups instead of scanning transactions joined to accounts: a
+ * multi-year report sums a few rows per day rather than every ledger row. The same totals are
+ * kept per month in ledger_rollups_monthly; a report not grouped by day reads whole months from
+ * there and only the days at either end of its range from ledger_rollups.
+ *
+ * Postings do not touch the rollups. applyCommitted adds the ledger rows committed since its
+ * ledger_seq high-water mark, in one transaction that also stores the new mark in
+ * ledger_rollup_progress, so a posting locks nothing beyond its accounts' rows and the totals
+ * trail the ledger by the updater's interval. As in LedgerColumnSnapshot, sequence numbers
+ * skipped within LedgerColumnSnapshot.GAP_WINDOW of the mark are looked for again until
+ * LedgerColumnSnapshot.GAP_GRACE_MILLIS have passed.
+ *
+ * backfill rebuilds the totals from the ledger, archived rows included, one month per worker.
+ * It replaces whole days, so it only rebuilds closed days: days that ended more than SETTLE ago,
+ * which no posting writes to any more. applyCommitted only adds rows of open days, and catchUp
+ * rebuilds a day once it has closed, which covers any row the applier missed. The updater
+ * (startUpdater) runs both; closedDays keeps a rebuild and an apply from interleaving, so no row
+ * is counted by both. Archiving rows does not change the totals.
+ */
+public class LedgerRollupDAO {
+    public static final int DEFAULT_BACKFILL_WORKERS = 4;
+    // How long after midnight a posting stamped the day before may still be committing
+    public static final Duration SETTLE = Duration.ofMinutes(5);
+
+    private static final String DAILY = "ledger_rollups";
+    private static final String MONTHLY = "ledger_rollups_monthly";
+    private static final String COLUMNS =
+            "rollup_day, branch, account_type, transaction_type, txn_count, credit_amount, debit_amount";
+    private static final String UPSERT_SQL =
+            "INSERT INTO %s (rollup_day, branch, account_type, transaction_type, txn_count, " +
+            "credit_amount, debit_amount) VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "txn_count = txn_count + VALUES(txn_count), credit_amount = credit_amount + VALUES(credit_amount), " +
+            "debit_amount = debit_amount + VALUES(debit_amount)";
+    private static final String ACCOUNT_SQL =
+            "SELECT COALESCE(branch, ''), account_type FROM accounts WHERE account_number = ?";
+    private static final String ALL_ACCOUNTS_SQL =
+            "SELECT account_number, COALESCE(branch, ''), account_type FROM accounts";
+    private static final String OLDEST_SQL = "SELECT MIN(transaction_timestamp) FROM transactions";
+    private static final String DAY_SQL = "CAST(t.transaction_timestamp AS DATE)";
+    private static final String LEDGER_SQL =
+            "SELECT " + DAY_SQL + ", COALESCE(a.branch, ''), a.account_type, t.transaction_type, COUNT(*), " +
+            "SUM(CASE WHEN " + BalanceCheckpointDAO.DEBIT_SQL + " THEN 0 ELSE amount END), " +
+            "SUM(CASE WHEN " + BalanceCheckpointDAO.DEBIT_SQL + " THEN amount ELSE 0 END) " +
+            "FROM transactions t JOIN accounts a ON a.account_number = t.account_number " +
+            "WHERE t.transaction_timestamp >= ? AND t.transaction_timestamp < ? " +
+            "GROUP BY " + DAY_SQL + ", COALESCE(a.branch, ''), a.account_type, t.transaction_type";
+    private static final String DAYS_SQL =
+            "SELECT rollup_day, branch, account_type, transaction_type, txn_count, credit_amount, debit_amount " +
+            "FROM ledger_rollups WHERE rollup_day >= ? AND rollup_day < ? FOR UPDATE";
+    private static final String DELETE_DAYS_SQL = "DELETE FROM %s WHERE rollup_day >= ? AND rollup_day < ?";
+    private static final String ROWS_SQL =
+            "SELECT ledger_seq, account_number, transaction_type, amount, direction, transaction_timestamp " +
+            "FROM transactions WHERE ledger_seq > ? ORDER BY ledger_seq";
+    private static final String SKIPPED_SQL =
+            "SELECT ledger_seq, account_number, transaction_type, amount, direction, transaction_timestamp " +
+            "FROM transactions WHERE ledger_seq IN (%s)";
+    private static final int SKIPPED_PER_QUERY = 256;
+    private static final int FETCH_SIZE = 5_000;
+    private static final String APPLIED_SEQ_SQL = "SELECT applied_seq FROM ledger_rollup_progress WHERE id = 1";
+    private static final String APPLIED_SEQ_UPSERT_SQL =
+            "INSERT INTO ledger_rollup_progress (id, applied_seq) VALUES (1, ?) " +
+            "ON DUPLICATE KEY UPDATE applied_seq = VALUES(applied_seq)";
+    private static final String BACKFILLED_SQL = "SELECT COUNT(*) FROM ledger_rollup_backfills";
+    private static final String REBUILT_THROUGH_SQL = "SELECT MAX(rebuilt_through) FROM ledger_rollup_backfills";
+    private static final String BACKFILL_DONE_SQL =
+            "INSERT INTO ledger_rollup_backfills (completed_at, rebuilt_through) VALUES (?, ?)";
+
+    private static final LedgerRollupDAO INSTANCE = new LedgerRollupDAO();
+
+    // account number -> {branch, account type}; neither changes once the account exists
+    private final Map<String, String[]> dimensions = new ConcurrentHashMap<>();
+    private ScheduledExecutorService updater;
+    // Shared by the rebuilds of a backfill, each of its own month; exclusive to applyCommitted, so
+    // a day is never rebuilt while rows of it are being added
+    private final ReadWriteLock closedDays = new ReentrantReadWriteLock();
+    private final Object backfilling = new Object();
+    // Written only by applyCommitted, under the write side of closedDays; -1 until read from ledger_rollup_progress
+    private long appliedSeq = -1;
+    // Sequence numbers skipped below the high-water mark -> when to stop looking for them
+    private final TreeMap<Long, Long> missing = new TreeMap<>();
+
+    /**
+     * What a report groups its totals by
+     */
+    public enum Dimension {
+        DAY("rollup_day"),
+        MONTH("YEAR(rollup_day) * 100 + MONTH(rollup_day)"),
+        BRANCH("branch"),
+        ACCOUNT_TYPE("account_type"),
+        TRANSACTION_TYPE("transaction_type");
+
+        private final String column;
+
+        Dimension(String column) {
+            this.column = column;
+        }
+    }
+
+    /**
+     * Count and amounts of the ledger rows in one group of a report
+     */
+    public static final class Total {
+        private final List<String> group;
+        private final long count;
+        private final double credits;
+        private final double debits;
+
+        Total(List<String> group, long count, double credits, double debits) {
+            this.group = group;
+            this.count = count;
+            this.credits = credits;
+            this.debits = debits;
+        }
+
+        /**
+         * Values of the report's dimensions, in the order they were asked for. Accounts without
+         * a branch have the empty string.
+         */
+        public List<String> getGroup() { return group; }
+        public long getCount() { return count; }
+        public double getCredits() { return credits; }
+        public double getDebits() { return debits; }
+        public double getNet() { return credits - debits; }
+    }
+
+    /**
+     * One group of ledger_rollups, before striping
+     */
+    private static final class Key implements Comparable<Key> {
+        final LocalDate day;
+        final String branch;
+        final String accountType;
+        final String transactionType;
+
+        Key(LocalDate day, String branch, String accountType, String transactionType) {
+            this.day = day;
+            this.branch = branch;
+            this.accountType = accountType;
+            this.transactionType = transactionType;
+        }
+
+        // Each write upserts in this order, so two writers each lock rows in the same order
+        @Override
+        public int compareTo(Key other) {
+            int c = day.compareTo(other.day);
+            if (c == 0) c = branch.compareTo(other.branch);
+            if (c == 0) c = accountType.compareTo(other.accountType);
+            return c != 0 ? c : transactionType.compareTo(other.transactionType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && compareTo((Key) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, branch, accountType, transactionType);
+        }
+    }
+
+    private static final class Sums {
+        long count;
+        double credits;
+        double debits;
+
+        void add(long count, double credits, double debits) {
+            this.count += count;
+            this.credits += credits;
+            this.debits += debits;
+        }
+
+        void add(Transaction transaction) {
+            if (transaction.isDebit()) {
+                add(1, 0, transaction.getAmount());
+            } else {
+                add(1, transaction.getAmount(), 0);
+            }
+        }
+    }
+
+    public static LedgerRollupDAO getInstance() {
+        return INSTANCE;
+    }
+
+    private LedgerRollupDAO() {
+    }
+
+    /**
+     * Add the ledger rows of open days committed since the last call to the totals
+     * @return Number of ledger rows added, or -1 on error
+     */
+    public int applyCommitted() {
+        closedDays.writeLock().lock();
+        try {
+            LocalDate lastClosed = lastClosedDay();
+            long now = System.currentTimeMillis();
+            TreeMap<Key, Sums> totals = new TreeMap<>();
+            TreeMap<Long, Long> stillMissing = new TreeMap<>(missing);
+            stillMissing.values().removeIf(until -> until < now);
+            long high;
+            int rows = 0;
+            try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+                high = appliedSeq >= 0 ? appliedSeq : appliedSeq(connection);
+                List<Long> skipped = new ArrayList<>(stillMissing.keySet());
+                for (int from = 0; from < skipped.size(); from += SKIPPED_PER_QUERY) {
+                    List<Long> batch = skipped.subList(from, Math.min(skipped.size(), from + SKIPPED_PER_QUERY));
+                    String sql = String.format(SKIPPED_SQL, String.join(", ", Collections.nCopies(batch.size(), "?")));
+                    try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            pstmt.setLong(i + 1, batch.get(i));
+                        }
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                stillMissing.remove(rs.getLong(1));
+                                rows += add(connection, rs, lastClosed, totals);
+                            }
+                        }
+                    }
+                }
+                try (PreparedStatement pstmt = connection.prepareStatement(ROWS_SQL)) {
+                    pstmt.setLong(1, high);
+                    pstmt.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            long seq = rs.getLong(1);
+                            for (long gap = Math.max(high + 1, seq - LedgerColumnSnapshot.GAP_WINDOW); gap < seq; gap++) {
+                                stillMissing.put(gap, now + LedgerColumnSnapshot.GAP_GRACE_MILLIS);
+                            }
+                            high = seq;
+                            while (!stillMissing.isEmpty() && stillMissing.firstKey() < high - LedgerColumnSnapshot.GAP_WINDOW) {
+                                stillMissing.pollFirstEntry();
+                            }
+                            rows += add(connection, rs, lastClosed, totals);
+                        }
+                    }
+                }
+            }
+            long mark = high;
+            if (mark != appliedSeq) {
+                UnitOfWork.execute(UnitOfWork.Propagation.REQUIRES_NEW, connection -> {
+                    write(connection, DAILY, totals);
+                    write(connection, MONTHLY, byMonth(totals));
+                    try (PreparedStatement pstmt = connection.prepareStatement(APPLIED_SEQ_UPSERT_SQL)) {
+                        pstmt.setLong(1, mark);
+                        pstmt.executeUpdate();
+                    }
+                    return null;
+                });
+            }
+            // Only once committed, so a failed pass is read again
+            appliedSeq = mark;
+            missing.clear();
+            missing.putAll(stillMissing);
+            return rows;
+        } catch (SQLException e) {
+            System.err.println("Error applying ledger rows to rollups: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        } finally {
+            closedDays.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add one ledger row to the totals unless its day has closed, which is left to catchUp
+     * @return 1 if the row was added, otherwise 0
+     */
+    private int add(Connection connection, ResultSet rs, LocalDate lastClosed, TreeMap<Key, Sums> totals)
+            throws SQLException {
+        LocalDateTime timestamp = rs.getTimestamp(6).toLocalDateTime();
+        if (!timestamp.toLocalDate().isAfter(lastClosed)) return 0;
+        // Like the rebuild's join, rows of accounts that no longer exist are left out
+        String[] account = dimensions(connection, rs.getString(2));
+        if (account == null) return 0;
+        double amount = rs.getDouble(4);
+        boolean debit = Transaction.Direction.DEBIT.name().equals(rs.getString(5));
+        Key key = new Key(timestamp.toLocalDate(), account[0], account[1], rs.getString(3));
+        totals.computeIfAbsent(key, k -> new Sums()).add(1, debit ? 0 : amount, debit ? amount : 0);
+        return 1;
+    }
+
+    private static long appliedSeq(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(APPLIED_SEQ_SQL)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Totals of the ledger rows of a range of days
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @param groupBy Dimensions to group by; none for a single grand total
+     * @return One total per group, ordered by the dimensions
+     */
+    public List<Total> totals(LocalDate from, LocalDate to, Dimension... groupBy) {
+        List<Total> totals = new ArrayList<>();
+        StringBuilder columns = new StringBuilder();
+        for (Dimension dimension : groupBy) {
+            columns.append(dimension.column).append(", ");
+        }
+        String grouping = columns.length() > 0 ? columns.substring(0, columns.length() - 2) : null;
+
+        // Whole months of the range come from the monthly totals unless the report is by day
+        LocalDate firstMonth = YearMonth.from(from.minusDays(1)).plusMonths(1).atDay(1);
+        LocalDate endMonth = YearMonth.from(to.plusDays(1)).atDay(1);
+        List<LocalDate> bounds = new ArrayList<>();
+        String source;
+        if (List.of(groupBy).contains(Dimension.DAY) || !firstMonth.isBefore(endMonth)) {
+            source = DAILY + " WHERE rollup_day >= ? AND rollup_day <= ?";
+            bounds.add(from);
+            bounds.add(to);
+        } else {
+            source = "(SELECT " + COLUMNS + " FROM " + DAILY + " WHERE rollup_day >= ? AND rollup_day < ?" +
+                    " UNION ALL SELECT " + COLUMNS + " FROM " + MONTHLY + " WHERE rollup_day >= ? AND rollup_day < ?" +
+                    " UNION ALL SELECT " + COLUMNS + " FROM " + DAILY + " WHERE rollup_day >= ? AND rollup_day <= ?) r";
+            bounds.addAll(List.of(from, firstMonth, firstMonth, endMonth, endMonth, to));
+        }
+        String sql = "SELECT " + columns + "SUM(txn_count), SUM(credit_amount), SUM(debit_amount) FROM " + source +
+                (grouping != null ? " GROUP BY " + grouping + " ORDER BY " + grouping : "");
+
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < bounds.size(); i++) {
+                pstmt.setDate(i + 1, Date.valueOf(bounds.get(i)));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    List<String> group = new ArrayList<>(groupBy.length);
+                    for (int i = 0; i < groupBy.length; i++) {
+                        if (groupBy[i] == Dimension.MONTH) {
+                            int month = rs.getInt(i + 1);
+                            group.add(String.format("%d-%02d", month / 100, month % 100));
+                        } else {
+                            group.add(rs.getString(i + 1));
+                        }
+                    }
+                    long count = rs.getLong(groupBy.length + 1);
+                    // A range with no rows still returns the grand total row, with nulls
+                    if (count == 0 && groupBy.length == 0) break;
+                    totals.add(new Total(group, count, rs.getDouble(groupBy.length + 2), rs.getDouble(groupBy.length + 3)));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading ledger rollups: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return totals;
+    }
+
+    /**
+     * Whether a backfill has ever completed against this database
+     */
+    public boolean isBackfilled() {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(BACKFILLED_SQL)) {
+            return rs.next() && rs.getLong(1) > 0;
+        } catch (SQLException e) {
+            System.err.println("Error checking ledger rollup backfill: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Rebuild the totals of every closed day up to and including a date from the ledger and the
+     * LedgerArchive, one month per task on a pool of workers
+     * @param through Last day to rebuild; days that have not closed yet are left to the writers
+     * @return Number of rollup rows written, or -1 on error
+     */
+    public long backfill(LocalDate through, int workers) {
+        try {
+            return backfill(null, through, workers);
+        } catch (SQLException e) {
+            System.err.println("Error starting ledger rollup backfill: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Rebuild the closed days after the last completed backfill, or every closed day if none has
+     * completed, so a day that was still open during a backfill is rebuilt once it has closed
+     * @return Number of rollup rows written, or -1 on error
+     */
+    public long catchUp(int workers) {
+        try {
+            LocalDate rebuiltThrough = rebuiltThrough();
+            LocalDate through = lastClosedDay();
+            if (rebuiltThrough != null && !rebuiltThrough.isBefore(through)) return 0;
+            return backfill(rebuiltThrough != null ? rebuiltThrough.plusDays(1) : null, through, workers);
+        } catch (SQLException e) {
+            System.err.println("Error starting ledger rollup backfill: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * The last day no posting writes to any more
+     */
+    public static LocalDate lastClosedDay() {
+        return LocalDateTime.now().minus(SETTLE).toLocalDate().minusDays(1);
+    }
+
+    /**
+     * Rebuild the closed days of a range and record how far the totals have been rebuilt
+     * @param from First day to rebuild, or null for the oldest ledger row's
+     */
+    private long backfill(LocalDate from, LocalDate through, int workers) throws SQLException {
+        synchronized (backfilling) {
+            LocalDate lastClosed = lastClosedDay();
+            if (through.isAfter(lastClosed)) through = lastClosed;
+            loadDimensions();
+            LocalDate oldest = from != null ? from : oldestDay();
+            long rows = rebuildDays(oldest, through, workers);
+            if (rows < 0) return -1;
+
+            try (Connection connection = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement pstmt = connection.prepareStatement(BACKFILL_DONE_SQL)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                pstmt.setDate(2, Date.valueOf(through));
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println("Error recording ledger rollup backfill: " + e.getMessage());
+                e.printStackTrace();
+                return -1;
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Rebuild a range of days, one month per task on a pool of workers
+     * @param oldest First day, or null if there is nothing to rebuild
+     * @return Number of rollup rows written, or -1 on error
+     */
+    private long rebuildDays(LocalDate oldest, LocalDate through, int workers) {
+        long rows = 0;
+        if (oldest != null && !oldest.isAfter(through)) {
+            AtomicInteger threads = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+                Thread t = new Thread(r, "LedgerRollupBackfill-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<Integer>> months = new ArrayList<>();
+                LocalDate end = through.plusDays(1);
+                for (YearMonth month = YearMonth.from(oldest); !month.isAfter(YearMonth.from(through)); month = month.plusMonths(1)) {
+                    LocalDate from = month.atDay(1).isAfter(oldest) ? month.atDay(1) : oldest;
+                    LocalDate to = month.plusMonths(1).atDay(1).isBefore(end) ? month.plusMonths(1).atDay(1) : end;
+                    months.add(pool.submit(() -> rebuild(from, to)));
+                }
+                for (Future<Integer> month : months) {
+                    int written = month.get();
+                    if (written < 0) return -1;
+                    rows += written;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            } catch (ExecutionException e) {
+                System.err.println("Error in ledger rollup backfill: " + e.getCause().getMessage());
+                e.getCause().printStackTrace();
+                return -1;
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Start applying committed ledger rows and rebuilding closed days in the background
+     * @param applyIntervalMillis How often committed rows are added; the totals trail the ledger by about this
+     * @param catchUpIntervalMillis How often newly closed days are rebuilt
+     */
+    public synchronized void startUpdater(long applyIntervalMillis, long catchUpIntervalMillis) {
+        if (updater != null) return;
+        AtomicInteger threads = new AtomicInteger();
+        // One thread each, so a long rebuild only delays the next apply
+        updater = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "LedgerRollupUpdater-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        updater.scheduleWithFixedDelay(this::applyCommitted, 0, applyIntervalMillis, TimeUnit.MILLISECONDS);
+        updater.scheduleWithFixedDelay(() -> catchUp(DEFAULT_BACKFILL_WORKERS), 0, catchUpIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background updater
+     */
+    public synchronized void stopUpdater() {
+        if (updater != null) {
+            updater.shutdownNow();
+            updater = null;
+        }
+    }
+
+    /**
+     * Replace the totals of a range of closed days with sums over the ledger rows in the table and the archive
+     * @param from First day, inclusive
+     * @param to Last day, exclusive
+     * @return Number of rollup rows written, or -1 on error
+     */
+    private int rebuild(LocalDate from, LocalDate to) {
+        LedgerArchive archive = LedgerArchive.getInstance();
+        closedDays.readLock().lock();
+        try {
+            return rebuildLocked(archive, from, to);
+        } finally {
+            closedDays.readLock().unlock();
+        }
+    }
+
+    private int rebuildLocked(LedgerArchive archive, LocalDate from, LocalDate to) {
+        return archive.consistentRead(() -> {
+            try {
+                return UnitOfWork.execute(UnitOfWork.Propagation.REQUIRES_NEW, connection -> {
+                    TreeMap<Key, Sums> replaced = new TreeMap<>();
+                    try (PreparedStatement pstmt = connection.prepareStatement(DAYS_SQL)) {
+                        pstmt.setDate(1, Date.valueOf(from));
+                        pstmt.setDate(2, Date.valueOf(to));
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                Key key = new Key(rs.getDate(1).toLocalDate(), rs.getString(2), rs.getString(3), rs.getString(4));
+                                replaced.computeIfAbsent(key, k -> new Sums()).add(rs.getLong(5), rs.getDouble(6), rs.getDouble(7));
+                            }
+                        }
+                    }
+                    try (PreparedStatement delete = connection.prepareStatement(String.format(DELETE_DAYS_SQL, DAILY))) {
+                        delete.setDate(1, Date.valueOf(from));
+                        delete.setDate(2, Date.valueOf(to));
+                        delete.executeUpdate();
+                    }
+                    TreeMap<Key, Sums> totals = new TreeMap<>();
+                    try (PreparedStatement pstmt = connection.prepareStatement(LEDGER_SQL)) {
+                        pstmt.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+                        pstmt.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                Key key = new Key(rs.getDate(1).toLocalDate(), rs.getString(2), rs.getString(3), rs.getString(4));
+                                totals.computeIfAbsent(key, k -> new Sums()).add(rs.getLong(5), rs.getDouble(6), rs.getDouble(7));
+                            }
+                        }
+                    }
+                    try {
+                        archive.forEach(from.atStartOfDay(), to.atStartOfDay(), entry -> {
+                            // Like the join above, rows of accounts that no longer exist are left out
+                            String[] account = dimensions.get(entry.getAccountNumber());
+                            if (account == null) return;
+                            Transaction transaction = entry.getTransaction();
+                            Key key = new Key(transaction.getTimestamp().toLocalDate(), account[0], account[1],
+                                    transaction.getType().toString());
+                            totals.computeIfAbsent(key, k -> new Sums()).add(transaction);
+                        });
+                    } catch (IOException e) {
+                        // Totals missing archived rows must not replace the old ones
+                        throw new SQLException("Cannot read ledger archive: " + e.getMessage(), e);
+                    }
+                    // A month's rows also hold its days outside the range, which may still be taking
+                    // postings, so they are adjusted by the difference rather than replaced
+                    TreeMap<Key, Sums> months = byMonth(totals);
+                    for (Map.Entry<Key, Sums> month : byMonth(replaced).entrySet()) {
+                        Sums old = month.getValue();
+                        months.computeIfAbsent(month.getKey(), k -> new Sums()).add(-old.count, -old.credits, -old.debits);
+                    }
+                    months.values().removeIf(sums -> sums.count == 0 && sums.credits == 0 && sums.debits == 0);
+                    write(connection, DAILY, totals);
+                    write(connection, MONTHLY, months);
+                    return totals.size() + months.size();
+                });
+            } catch (SQLException e) {
+                System.err.println("Error rebuilding ledger rollups from " + from + ": " + e.getMessage());
+                e.printStackTrace();
+                return -1;
+            }
+        });
+    }
+
+    /**
+     * The same totals per month, under the first day of each month
+     */
+    private static TreeMap<Key, Sums> byMonth(TreeMap<Key, Sums> days) {
+        TreeMap<Key, Sums> months = new TreeMap<>();
+        for (Map.Entry<Key, Sums> day : days.entrySet()) {
+            Key key = day.getKey();
+            Sums sums = day.getValue();
+            months.computeIfAbsent(new Key(key.day.withDayOfMonth(1), key.branch, key.accountType, key.transactionType),
+                    k -> new Sums()).add(sums.count, sums.credits, sums.debits);
+        }
+        return months;
+    }
+
+    private static void write(Connection connection, String table, TreeMap<Key, Sums> totals) throws SQLException {
+        if (totals.isEmpty()) return;
+        try (PreparedStatement pstmt = connection.prepareStatement(String.format(UPSERT_SQL, table))) {
+            for (Map.Entry<Key, Sums> total : totals.entrySet()) {
+                Key key = total.getKey();
+                Sums sums = total.getValue();
+                pstmt.setDate(1, Date.valueOf(key.day));
+                pstmt.setString(2, key.branch);
+                pstmt.setString(3, key.accountType);
+                pstmt.setString(4, key.transactionType);
+                pstmt.setLong(5, sums.count);
+                pstmt.setDouble(6, sums.credits);
+                pstmt.setDouble(7, sums.debits);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Branch and account type of an account, or null if it does not exist
+     */
+    private String[] dimensions(Connection connection, String accountNumber) throws SQLException {
+        String[] cached = dimensions.get(accountNumber);
+        if (cached != null) return cached;
+        try (PreparedStatement pstmt = connection.prepareStatement(ACCOUNT_SQL)) {
+            pstmt.setString(1, accountNumber);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                String[] account = {rs.getString(1), rs.getString(2)};
+                dimensions.put(accountNumber, account);
+                return account;
+            }
+        }
+    }
+
+    private static LocalDate rebuiltThrough() throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(REBUILT_THROUGH_SQL)) {
+            Date through = rs.next() ? rs.getDate(1) : null;
+            return through != null ? through.toLocalDate() : null;
+        }
+    }
+
+    private void loadDimensions() throws SQLException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(ALL_ACCOUNTS_SQL)) {
+            while (rs.next()) {
+                dimensions.put(rs.getString(1), new String[]{rs.getString(2), rs.getString(3)});
+            }
+        }
+    }
+
+    /**
+     * Day of the oldest ledger row in the table or the archive, or null if there are none
+     */
+    private static LocalDate oldestDay() throws SQLException {
+        LocalDateTime oldest = LedgerArchive.getInstance().getOldestTimestamp();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(OLDEST_SQL)) {
+            Timestamp inTable = rs.next() ? rs.getTimestamp(1) : null;
+            if (inTable != null && (oldest == null || inTable.toLocalDateTime().isBefore(oldest))) {
+                oldest = inTable.toLocalDateTime();
+            }
+        }
+        return oldest != null ? oldest.toLocalDate() : null;
+    }
+}
@@ -0,0 +1,250 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.Transaction;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * MergedHistoryCursor - One newest-first stream over the ledgers of several accounts
+ * Every account is read through its own keyset cursor on idx_transactions_account_ts_desc, a
+ * batch at a time, and the accounts' next rows are merged with a heap ordered on
+ * (transaction_timestamp, transaction_id) descending. Memory is one batch per account, however
+ * long the histories are, and the stream can be resumed after any row from its
+ * (timestamp, transaction_id) alone, without an offset.
+ *
+ * An account's archived rows are one more stream per segment, which enters the heap under the
+ * newest timestamp the segment holds and is only read once the merge reaches that point, so
+ * recent pages never touch the archive. A segment is read newest first a compressed block at a
+ * time, so the archive adds one block per account and segment being merged; a segment that
+ * cannot be read makes hasNext() throw UncheckedIOException. Run inside
+ * LedgerArchive.consistentRead.
+ */
+class MergedHistoryCursor implements Iterator<LedgerArchive.Entry>, AutoCloseable {
+    private static final int FIRST_BATCH = 16;
+    private static final int MAX_BATCH = 512;
+    // Sorts after every real transaction ID, so an unread archive stream is merged no later than its rows
+    private static final String AFTER_ALL_IDS = "￿";
+
+    private static final Comparator<Stream> NEWEST_FIRST = (a, b) -> {
+        int byTimestamp = b.headTimestamp().compareTo(a.headTimestamp());
+        return byTimestamp != 0 ? byTimestamp : b.headId().compareTo(a.headId());
+    };
+
+    private final Connection connection;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final PriorityQueue<Stream> heap;
+
+    /**
+     * The rows of one account still to be merged
+     */
+    private abstract static class Stream {
+        LedgerArchive.Entry head;
+
+        LocalDateTime headTimestamp() {
+            return head.getTransaction().getTimestamp();
+        }
+
+        String headId() {
+            return head.getTransactionId();
+        }
+
+        /**
+         * Move to the next row
+         * @return false once the stream is exhausted
+         */
+        abstract boolean advance();
+    }
+
+    /**
+     * An account's rows in the transactions table, fetched by keyset in growing batches
+     */
+    private final class TableStream extends Stream {
+        private final String accountNumber;
+        private final ArrayDeque<LedgerArchive.Entry> batch = new ArrayDeque<>();
+        private LocalDateTime lastTimestamp;
+        private String lastId;
+        private int batchSize = FIRST_BATCH;
+        private boolean exhausted;
+
+        TableStream(String accountNumber, LocalDateTime afterTimestamp, String afterId) {
+            this.accountNumber = accountNumber;
+            this.lastTimestamp = afterTimestamp;
+            this.lastId = afterId;
+        }
+
+        @Override
+        boolean advance() {
+            if (batch.isEmpty() && !exhausted) fill();
+            head = batch.poll();
+            return head != null;
+        }
+
+        private void fill() {
+            StringBuilder sql = new StringBuilder("SELECT * FROM transactions USE INDEX (idx_transactions_account_ts_desc) " +
+                    "WHERE account_number = ?");
+            List<Object> params = new ArrayList<>();
+            params.add(accountNumber);
+            if (from != null) {
+                sql.append(" AND transaction_timestamp >= ?");
+                params.add(Timestamp.valueOf(from));
+            }
+            if (to != null) {
+                sql.append(" AND transaction_timestamp <= ?");
+                params.add(Timestamp.valueOf(to));
+            }
+            if (lastTimestamp != null) {
+                // (timestamp, id) before the last row, written so the first term is an index range bound
+                sql.append(" AND transaction_timestamp <= ? AND (transaction_timestamp < ? OR transaction_id < ?)");
+                params.add(Timestamp.valueOf(lastTimestamp));
+                params.add(Timestamp.valueOf(lastTimestamp));
+                params.add(lastId);
+            }
+            sql.append(" ORDER BY account_number, transaction_timestamp DESC, transaction_id DESC LIMIT ").append(batchSize);
+
+            try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Timestamp timestamp = rs.getTimestamp("transaction_timestamp");
+                        Transaction transaction = new Transaction(Transaction.Type.valueOf(rs.getString("transaction_type")),
+                                Transaction.Direction.valueOf(rs.getString("direction")), rs.getDouble("amount"), rs.getDouble("balance_after"), rs.getString("description"),
+                                timestamp.toLocalDateTime());
+                        batch.add(new LedgerArchive.Entry(rs.getString("transaction_id"), accountNumber, transaction));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error reading account history: " + e.getMessage());
+                e.printStackTrace();
+            }
+            exhausted = batch.size() < batchSize;
+            if (!batch.isEmpty()) {
+                LedgerArchive.Entry last = batch.peekLast();
+                lastTimestamp = last.getTransaction().getTimestamp();
+                lastId = last.getTransactionId();
+            }
+            // A busy account is probably read further; ask for more next time
+            batchSize = Math.min(batchSize * 2, MAX_BATCH);
+        }
+    }
+
+    /**
+     * An account's archived rows in one segment, read only when the merge gets to them
+     */
+    private static final class ArchiveStream extends Stream {
+        private final LedgerArchive.SegmentCursor rows;
+        private final LocalDateTime afterTimestamp;
+        private final String afterId;
+        private boolean unread = true;
+
+        ArchiveStream(LedgerArchive.SegmentCursor rows, LocalDateTime afterTimestamp, String afterId) {
+            this.rows = rows;
+            this.afterTimestamp = afterTimestamp;
+            this.afterId = afterId;
+        }
+
+        @Override
+        LocalDateTime headTimestamp() {
+            return unread ? rows.newest() : super.headTimestamp();
+        }
+
+        @Override
+        String headId() {
+            return unread ? AFTER_ALL_IDS : super.headId();
+        }
+
+        /**
+         * Whether the stream is still a placeholder for rows not read yet
+         */
+        boolean unread() {
+            return unread;
+        }
+
+        @Override
+        boolean advance() {
+            unread = false;
+            while (rows.hasNext()) {
+                LedgerArchive.Entry entry = rows.next();
+                // The cursor stops at the resume timestamp; rows sharing it are skipped up to the resume ID
+                if (afterTimestamp != null && entry.getTransaction().getTimestamp().equals(afterTimestamp)
+                        && entry.getTransactionId().compareTo(afterId) >= 0) {
+                    continue;
+                }
+                head = entry;
+                return true;
+            }
+            head = null;
+            return false;
+        }
+    }
+
+    /**
+     * @param accountNumbers Accounts to merge
+     * @param from Earliest timestamp, inclusive; null for no bound
+     * @param to Latest timestamp, inclusive; null for no bound
+     * @param afterTimestamp Resume after the row with this timestamp and ID; null to start at the newest
+     */
+    MergedHistoryCursor(List<String> accountNumbers, LocalDateTime from, LocalDateTime to,
+                        LocalDateTime afterTimestamp, String afterId) throws SQLException {
+        this.connection = DatabaseConnection.getInstance().getConnection();
+        this.from = from;
+        this.to = to;
+        this.heap = new PriorityQueue<>(Math.max(1, accountNumbers.size() * 2), NEWEST_FIRST);
+        LedgerArchive archive = LedgerArchive.getInstance();
+        try {
+            for (String accountNumber : accountNumbers) {
+                TableStream table = new TableStream(accountNumber, afterTimestamp, afterId);
+                if (table.advance()) heap.add(table);
+                LocalDateTime upper = afterTimestamp != null && (to == null || afterTimestamp.isBefore(to)) ? afterTimestamp : to;
+                for (LedgerArchive.SegmentCursor segment : archive.cursors(accountNumber, from, upper)) {
+                    heap.add(new ArchiveStream(segment, afterTimestamp, afterId));
+                }
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        // Read archived rows once nothing in the table can come before them
+        while (!heap.isEmpty() && heap.peek() instanceof ArchiveStream && ((ArchiveStream) heap.peek()).unread()) {
+            ArchiveStream archived = (ArchiveStream) heap.poll();
+            if (archived.advance()) heap.add(archived);
+        }
+        return !heap.isEmpty();
+    }
+
+    @Override
+    public LedgerArchive.Entry next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Stream stream = heap.poll();
+        LedgerArchive.Entry entry = stream.head;
+        if (stream.advance()) heap.add(stream);
+        return entry;
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing history cursor: " + e.getMessage());
+        }
+    }
+}
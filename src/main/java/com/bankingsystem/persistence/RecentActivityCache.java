@@ -0,0 +1,226 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.Transaction;
+
+import java.lang.ref.SoftReference;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * RecentActivityCache - The last few ledger rows of recently used accounts, for mini-statements
+ * Each cached account has a ring of its newest CAPACITY transactions, so a mini-statement is a
+ * copy out of memory instead of a query. An account's ring is filled on first read by one
+ * LIMIT CAPACITY query; after that, postings committed through TransactionController and payroll
+ * are pushed into it, so it stays current without going back to the database.
+ *
+ * Accounts are kept in least-recently-used order and the least recently used are evicted once
+ * more than maxAccounts are cached. Rings are held through soft references, so when the heap runs
+ * short the collector drops them too, least recently used first. Postings for accounts that are
+ * not cached are ignored; their ring is loaded when someone asks for it.
+ *
+ * A posting that lands while an account's ring is being loaded may or may not be in the rows
+ * the query returns, so such a load is served to its reader but not cached; the next read loads
+ * again. A posting that committed before the load but is reported after it is recognised and not
+ * added twice.
+ */
+public class RecentActivityCache {
+    public static final int CAPACITY = 20;
+    public static final int DEFAULT_MAX_ACCOUNTS = 10_000;
+
+    // Stored timestamps are rounded to microseconds
+    private static final Duration TIMESTAMP_PRECISION = Duration.ofNanos(1_000);
+
+    private static final RecentActivityCache INSTANCE = new RecentActivityCache(new TransactionDAOImpl(), DEFAULT_MAX_ACCOUNTS);
+
+    private final TransactionDAOImpl transactionDAO;
+    private final int maxAccounts;
+    // Access-ordered; guarded by this
+    private final LinkedHashMap<String, SoftReference<Ring>> rings = new LinkedHashMap<>(256, 0.75f, true);
+    private long hits;
+    private long loads;
+    private long evictions;
+
+    /**
+     * The newest transactions of one account, oldest first; guarded by the cache
+     */
+    private static final class Ring {
+        final Transaction[] slots = new Transaction[CAPACITY];
+        int head; // index of the oldest
+        int size;
+        boolean loaded;
+        // Set when a posting arrives while the ring is loading
+        boolean stale;
+
+        Transaction get(int i) {
+            return slots[(head + i) % CAPACITY];
+        }
+
+        /**
+         * Add a posting, keeping timestamp order when concurrent postings are reported out of order
+         */
+        void add(Transaction transaction) {
+            // A posting committed just before a load but reported after it is already in the ring
+            LocalDateTime earliest = transaction.getTimestamp().minus(TIMESTAMP_PRECISION);
+            for (int i = size - 1; i >= 0 && !get(i).getTimestamp().isBefore(earliest); i--) {
+                if (samePosting(get(i), transaction)) return;
+            }
+            int position = size;
+            while (position > 0 && get(position - 1).getTimestamp().isAfter(transaction.getTimestamp())) {
+                position--;
+            }
+            if (size == CAPACITY) {
+                if (position == 0) return; // older than everything kept
+                head = (head + 1) % CAPACITY;
+                size--;
+                position--;
+            }
+            for (int i = size; i > position; i--) {
+                slots[(head + i) % CAPACITY] = get(i - 1);
+            }
+            slots[(head + position) % CAPACITY] = transaction;
+            size++;
+        }
+
+        /**
+         * The ledger has no id on Transaction; an account's balance after a posting, with its
+         * type, amount and time to the database's precision, identifies it
+         */
+        private static boolean samePosting(Transaction a, Transaction b) {
+            return a.getType() == b.getType() && a.getAmount() == b.getAmount()
+                    && a.getBalanceAfter() == b.getBalanceAfter()
+                    && Duration.between(a.getTimestamp(), b.getTimestamp()).abs().compareTo(TIMESTAMP_PRECISION) <= 0;
+        }
+
+        List<Transaction> newest(int limit) {
+            int count = Math.min(limit, size);
+            List<Transaction> result = new ArrayList<>(count);
+            for (int i = size - 1; i >= size - count; i--) {
+                result.add(get(i));
+            }
+            return result;
+        }
+    }
+
+    public static RecentActivityCache getInstance() {
+        return INSTANCE;
+    }
+
+    public RecentActivityCache(TransactionDAOImpl transactionDAO, int maxAccounts) {
+        this.transactionDAO = transactionDAO;
+        this.maxAccounts = maxAccounts;
+    }
+
+    /**
+     * Newest transactions of an account, newest first
+     * @param limit How many; more than CAPACITY goes to the database
+     */
+    public List<Transaction> recent(String accountNumber, int limit) {
+        if (accountNumber == null || limit < 1) return new ArrayList<>();
+        if (limit > CAPACITY) return transactionDAO.getRecentTransactions(accountNumber, limit);
+
+        Ring ring;
+        synchronized (this) {
+            ring = get(accountNumber);
+            if (ring != null && ring.loaded) {
+                hits++;
+                return ring.newest(limit);
+            }
+            if (ring == null) {
+                // Claim the load; readers arriving meanwhile query for themselves
+                ring = new Ring();
+                makeRoom();
+                rings.put(accountNumber, new SoftReference<>(ring));
+                loads++;
+            } else {
+                ring = null;
+            }
+        }
+        List<Transaction> rows = transactionDAO.getRecentTransactions(accountNumber, CAPACITY);
+        if (ring != null) {
+            synchronized (this) {
+                if (get(accountNumber) == ring) {
+                    if (ring.stale) {
+                        rings.remove(accountNumber);
+                    } else {
+                        for (int i = rows.size() - 1; i >= 0; i--) {
+                            ring.add(rows.get(i));
+                        }
+                        ring.loaded = true;
+                    }
+                }
+            }
+        }
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    /**
+     * Push a committed posting into the account's ring, if the account is cached.
+     * Call only after the posting's transaction has committed.
+     */
+    public synchronized void record(String accountNumber, Transaction transaction) {
+        if (accountNumber == null || transaction == null) return;
+        Ring ring = get(accountNumber);
+        if (ring == null) return;
+        if (ring.loaded) {
+            ring.add(transaction);
+        } else {
+            ring.stale = true;
+        }
+    }
+
+    /**
+     * Forget an account, e.g. after its ledger was changed outside the normal posting paths
+     */
+    public synchronized void invalidate(String accountNumber) {
+        rings.remove(accountNumber);
+    }
+
+    public synchronized int size() {
+        return rings.size();
+    }
+
+    /**
+     * Reads answered from memory
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Accounts loaded from the database
+     */
+    public synchronized long getLoadCount() {
+        return loads;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * The account's ring, dropping the entry if the collector has cleared it
+     */
+    private Ring get(String accountNumber) {
+        SoftReference<Ring> reference = rings.get(accountNumber);
+        if (reference == null) return null;
+        Ring ring = reference.get();
+        if (ring == null) {
+            rings.remove(accountNumber);
+            evictions++;
+        }
+        return ring;
+    }
+
+    private void makeRoom() {
+        Iterator<SoftReference<Ring>> eldest = rings.values().iterator();
+        while (rings.size() >= maxAccounts && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.bankingsystem.persistence;
+
+import com.bankingsystem.utils.HiLoSequence;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * SequenceBlockAllocator - Reserves blocks of IDs from the id_sequences table
+ * The row for a sequence is locked with SELECT ... FOR UPDATE and advanced by the
+ * block size in the same transaction, so concurrent processes on the same MySQL or
+ * H2 database always receive disjoint blocks.
+ * A sequence row created for the first time starts past the highest ID already stored,
+ * so IDs issued before the table existed are never handed out again.
+ */
+public class SequenceBlockAllocator implements HiLoSequence.BlockSource {
+    private static final String SELECT_SQL =
+            "SELECT next_value FROM id_sequences WHERE sequence_name = ? FOR UPDATE";
+    private static final String UPDATE_SQL =
+            "UPDATE id_sequences SET next_value = ? WHERE sequence_name = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO id_sequences (sequence_name, next_value) VALUES (?, ?)";
+
+    // Existing IDs of each sequence; the numeric suffix is the value the sequence handed out
+    private static final Map<String, String> EXISTING_IDS_SQL = Map.of(
+            "customer", "SELECT customer_id FROM customers",
+            "account", "SELECT account_number FROM accounts",
+            "transaction", "SELECT transaction_id FROM transactions");
+    private static final int FETCH_SIZE = 1000;
+
+    private static final SequenceBlockAllocator INSTANCE = new SequenceBlockAllocator();
+
+    public static SequenceBlockAllocator getInstance() {
+        return INSTANCE;
+    }
+
+    // Reservations use their own connection, never the pool: a refill can happen while the
+    // calling threads hold every pooled connection, and waiting on the pool would deadlock them.
+    private Connection connection;
+
+    /**
+     * Reserve a block of values in its own short transaction on the allocator's dedicated connection.
+     * The reservation commits immediately and never joins or holds up a caller's unit of work.
+     * @return First value of the reserved block
+     */
+    @Override
+    public synchronized long reserveBlock(String sequenceName, long initialValue, int blockSize) throws SQLException {
+        Connection conn = dedicatedConnection();
+        try {
+            long start = lockAndAdvance(conn, sequenceName, initialValue, blockSize);
+            conn.commit();
+            return start;
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackEx) {
+                System.err.println("Error rolling back block reservation: " + rollbackEx.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private Connection dedicatedConnection() throws SQLException {
+        if (connection == null || !connection.isValid(2)) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                    // replacing a broken connection
+                }
+            }
+            connection = DatabaseConnection.getInstance().openDedicatedConnection();
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    private long lockAndAdvance(Connection connection, String sequenceName, long initialValue, int blockSize)
+            throws SQLException {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try (PreparedStatement select = connection.prepareStatement(SELECT_SQL)) {
+                select.setString(1, sequenceName);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        long start = rs.getLong(1);
+                        try (PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+                            update.setLong(1, start + blockSize);
+                            update.setString(2, sequenceName);
+                            update.executeUpdate();
+                        }
+                        return start;
+                    }
+                }
+            }
+
+            // First use of this sequence: create the row with the first block already taken.
+            // If another process created it concurrently the insert fails and we lock its row instead.
+            long start = Math.max(initialValue, maxExistingValue(connection, sequenceName) + 1);
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                insert.setString(1, sequenceName);
+                insert.setLong(2, start + blockSize);
+                insert.executeUpdate();
+                return start;
+            } catch (SQLException e) {
+                if (attempt > 0) throw e;
+            }
+        }
+        throw new SQLException("Unable to reserve block for sequence " + sequenceName);
+    }
+
+    /**
+     * Highest numeric suffix among the IDs already stored for a sequence, or -1 if there are none.
+     * IDs generated before the sequence row existed (CUST1000, 001-SAV-10000, TXN20240101-0001)
+     * end in the value they were issued with.
+     */
+    private long maxExistingValue(Connection connection, String sequenceName) throws SQLException {
+        String sql = EXISTING_IDS_SQL.get(sequenceName);
+        if (sql == null) return -1;
+        long max = -1;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    max = Math.max(max, numericSuffix(rs.getString(1)));
+                }
+            }
+        }
+        return max;
+    }
+
+    private static long numericSuffix(String id) {
+        if (id == null) return -1;
+        int end = id.length();
+        int start = end;
+        while (start > 0 && id.charAt(start - 1) >= '0' && id.charAt(start - 1) <= '9') start--;
+        // 18 digits always fit in a long
+        if (start == end || end - start > 18) return -1;
+        return Long.parseLong(id, start, end, 10);
+    }
+}
@@ -0,0 +1,305 @@
+package com.bankingsystem.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StripedBalanceDAO - Striped sub-balances for designated hot accounts
+ * A striped account keeps its authoritative balance in accounts.balance plus N delta slots in
+ * account_balance_stripes. Credits add to one slot picked by hashing the calling thread, so
+ * concurrent deposits lock different rows instead of queueing on the single accounts row.
+ *
+ * The slots are folded back into accounts.balance by:
+ *  - every debit, which locks the account row, folds, then applies the normal conditional debit,
+ *    so withdrawals are always checked against the full folded total
+ *  - the optional background folder (startFolder)
+ * Readers see balance + SUM(delta) without taking locks.
+ *
+ * Lock order is always accounts row, then stripe rows; credits never lock the accounts row.
+ */
+public class StripedBalanceDAO {
+    private static final String CREDIT_SQL =
+            "UPDATE account_balance_stripes SET delta = delta + ? WHERE account_number = ? AND stripe = ? " +
+            "AND EXISTS (SELECT 1 FROM accounts WHERE account_number = ? AND status = 'APPROVED')";
+    private static final String TOTAL_SQL =
+            "SELECT balance + (SELECT COALESCE(SUM(delta), 0) FROM account_balance_stripes WHERE account_number = ?) " +
+            "FROM accounts WHERE account_number = ?";
+    private static final String PENDING_SQL =
+            "SELECT COALESCE(SUM(delta), 0) FROM account_balance_stripes WHERE account_number = ?";
+    private static final String LOCK_ACCOUNT_SQL =
+            "SELECT balance FROM accounts WHERE account_number = ? FOR UPDATE";
+    private static final String LOCK_STRIPES_SQL =
+            "SELECT delta FROM account_balance_stripes WHERE account_number = ? FOR UPDATE";
+
+    private static final StripedBalanceDAO INSTANCE = new StripedBalanceDAO();
+
+    // account number -> stripe count; loaded from the table on first use
+    private final Map<String, Integer> stripedAccounts = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private final AtomicLong foldCount = new AtomicLong();
+    private ScheduledExecutorService folder;
+
+    public static StripedBalanceDAO getInstance() {
+        return INSTANCE;
+    }
+
+    private StripedBalanceDAO() {
+    }
+
+    /**
+     * Designate an account as hot and create its credit slots
+     * @param stripes Number of sub-balance slots (more slots allow more concurrent credits)
+     */
+    public boolean enableStriping(String accountNumber, int stripes) {
+        if (accountNumber == null || stripes < 1) return false;
+        try {
+            UnitOfWork.execute(connection -> {
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO account_balance_stripes (account_number, stripe, delta) VALUES (?, ?, 0)")) {
+                    for (int i = 0; i < stripes; i++) {
+                        insert.setString(1, accountNumber);
+                        insert.setInt(2, i);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                return null;
+            });
+            ensureLoaded();
+            stripedAccounts.put(accountNumber, stripes);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error enabling balance striping: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Fold the slots into the account balance and return the account to single-row mode
+     */
+    public boolean disableStriping(String accountNumber) {
+        if (!isStriped(accountNumber)) return false;
+        try {
+            UnitOfWork.execute(connection -> {
+                fold(connection, accountNumber);
+                try (PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM account_balance_stripes WHERE account_number = ?")) {
+                    delete.setString(1, accountNumber);
+                    delete.executeUpdate();
+                }
+                return null;
+            });
+            stripedAccounts.remove(accountNumber);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error disabling balance striping: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Check whether an account is in striped-balance mode
+     */
+    public boolean isStriped(String accountNumber) {
+        if (accountNumber == null) return false;
+        ensureLoaded();
+        return stripedAccounts.containsKey(accountNumber);
+    }
+
+    /**
+     * Add a credit to the caller's slot and return the total balance seen by this transaction.
+     * The total includes other committed credits, so under concurrency it is a point-in-time
+     * view rather than a strict running balance.
+     * @return The total balance, or empty if the account is not approved
+     */
+    OptionalDouble credit(Connection connection, String accountNumber, double amount) throws SQLException {
+        int stripes = stripedAccounts.getOrDefault(accountNumber, 1);
+        try (PreparedStatement pstmt = connection.prepareStatement(CREDIT_SQL)) {
+            pstmt.setDouble(1, amount);
+            pstmt.setString(2, accountNumber);
+            pstmt.setInt(3, stripeFor(stripes));
+            pstmt.setString(4, accountNumber);
+            if (pstmt.executeUpdate() == 0) {
+                return OptionalDouble.empty();
+            }
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(TOTAL_SQL)) {
+            pstmt.setString(1, accountNumber);
+            pstmt.setString(2, accountNumber);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? OptionalDouble.of(rs.getDouble(1)) : OptionalDouble.empty();
+            }
+        }
+    }
+
+    /**
+     * Move all slot deltas into accounts.balance.
+     * Locks the account row and then every slot, so the folded total is exact until the caller commits.
+     * @return The folded (authoritative) balance
+     */
+    double fold(Connection connection, String accountNumber) throws SQLException {
+        double balance;
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_ACCOUNT_SQL)) {
+            lock.setString(1, accountNumber);
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next()) throw new SQLException("Account not found: " + accountNumber);
+                balance = rs.getDouble(1);
+            }
+        }
+        double pending = 0;
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_STRIPES_SQL)) {
+            lock.setString(1, accountNumber);
+            try (ResultSet rs = lock.executeQuery()) {
+                while (rs.next()) {
+                    pending += rs.getDouble(1);
+                }
+            }
+        }
+        if (pending != 0) {
+            try (PreparedStatement reset = connection.prepareStatement(
+                    "UPDATE account_balance_stripes SET delta = 0 WHERE account_number = ?");
+                 PreparedStatement apply = connection.prepareStatement(
+                    "UPDATE accounts SET balance = balance + ? WHERE account_number = ?")) {
+                reset.setString(1, accountNumber);
+                reset.executeUpdate();
+                apply.setDouble(1, pending);
+                apply.setString(2, accountNumber);
+                apply.executeUpdate();
+            }
+            foldCount.incrementAndGet();
+        }
+        return balance + pending;
+    }
+
+    /**
+     * Sum of the not-yet-folded slot deltas for an account
+     */
+    double pendingDelta(Connection connection, String accountNumber) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(PENDING_SQL)) {
+            pstmt.setString(1, accountNumber);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Read the total balance (folded balance plus slots) without taking locks
+     */
+    public OptionalDouble getBalance(String accountNumber) {
+        if (accountNumber == null) return OptionalDouble.empty();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(TOTAL_SQL)) {
+            pstmt.setString(1, accountNumber);
+            pstmt.setString(2, accountNumber);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? OptionalDouble.of(rs.getDouble(1)) : OptionalDouble.empty();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading striped balance: " + e.getMessage());
+            e.printStackTrace();
+            return OptionalDouble.empty();
+        }
+    }
+
+    /**
+     * Fold one account, joining the caller's unit of work if one is active
+     */
+    public boolean foldBalance(String accountNumber) {
+        if (!isStriped(accountNumber)) return false;
+        try {
+            UnitOfWork.execute(connection -> fold(connection, accountNumber));
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error folding striped balance: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Start a daemon that folds every striped account at a fixed interval.
+     * Also reloads the striped-account list so designations made by other processes are picked up.
+     */
+    public synchronized void startFolder(long intervalMillis) {
+        if (folder != null) return;
+        folder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "StripedBalanceFolder");
+            t.setDaemon(true);
+            return t;
+        });
+        folder.scheduleWithFixedDelay(() -> {
+            reload();
+            for (String accountNumber : new ArrayList<>(stripedAccounts.keySet())) {
+                foldBalance(accountNumber);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background folder
+     */
+    public synchronized void stopFolder() {
+        if (folder != null) {
+            folder.shutdownNow();
+            folder = null;
+        }
+    }
+
+    /**
+     * Number of folds that moved a non-zero delta into an account balance
+     */
+    public long getFoldCount() {
+        return foldCount.get();
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    private void reload() {
+        String sql = "SELECT account_number, COUNT(*) FROM account_balance_stripes GROUP BY account_number";
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            List<String> seen = new ArrayList<>();
+            while (rs.next()) {
+                stripedAccounts.put(rs.getString(1), rs.getInt(2));
+                seen.add(rs.getString(1));
+            }
+            stripedAccounts.keySet().retainAll(seen);
+        } catch (SQLException e) {
+            System.err.println("Error loading striped accounts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pick a slot for the calling thread; a stable per-thread slot keeps one thread's credits
+     * on one row while spreading different threads across the slots
+     */
+    private static int stripeFor(int stripes) {
+        long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 32) % stripes);
+    }
+}
@@ -1,15 +1,42 @@
 package com.bankingsystem.persistence;
 
 import com.bankingsystem.Transaction;
+import com.bankingsystem.dao.TransactionDAOInterface;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.dao.TransactionPage;
+import com.bankingsystem.utils.IDGenerator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
  * TransactionDAOImpl - JDBC implementation for Transaction persistence
- * Handles CRUD operations for transactions in H2 database
+ * Handles CRUD operations for transactions in H2 database. History reads also return the rows
+ * the LedgerArchive has moved out of the table, merged in the order the query asks for.
  */
-public class TransactionDAOImpl {
+public class TransactionDAOImpl implements TransactionDAOInterface {
+    private static final Comparator<Transaction> NEWEST_FIRST =
+            Comparator.comparing(Transaction::getTimestamp).reversed();
+
+    private final LedgerArchive archive = LedgerArchive.getInstance();
+
+    /**
+     * A history row with the columns its page cursor is made of
+     */
+    private static final class PageRow {
+        final Transaction transaction;
+        final String transactionId;
+        final Object sortValue;
+
+        PageRow(Transaction transaction, String transactionId, Object sortValue) {
+            this.transaction = transaction;
+            this.transactionId = transactionId;
+            this.sortValue = sortValue;
+        }
+    }
 
     public TransactionDAOImpl() {
     }
@@ -20,20 +47,21 @@ public class TransactionDAOImpl {
     public boolean saveTransaction(String accountNumber, Transaction transaction) {
         if (accountNumber == null || transaction == null) return false;
 
-        String sql = "INSERT INTO transactions (transaction_id, account_number, transaction_type, amount, " +
+        String sql = "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
                 "balance_after, description, transaction_timestamp) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection connection = DatabaseConnection.getInstance().getConnection();
              PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            String transactionId = "TXN" + System.nanoTime();
+            String transactionId = IDGenerator.generateTransactionID();
             pstmt.setString(1, transactionId);
             pstmt.setString(2, accountNumber);
             pstmt.setString(3, transaction.getType().toString());
-            pstmt.setDouble(4, transaction.getAmount());
-            pstmt.setDouble(5, transaction.getBalanceAfter());
-            pstmt.setString(6, transaction.getDescription());
-            pstmt.setTimestamp(7, Timestamp.valueOf(transaction.getTimestamp()));
+            pstmt.setString(4, transaction.getDirection().name());
+            pstmt.setDouble(5, transaction.getAmount());
+            pstmt.setDouble(6, transaction.getBalanceAfter());
+            pstmt.setString(7, transaction.getDescription());
+            pstmt.setTimestamp(8, Timestamp.valueOf(transaction.getTimestamp()));
 
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
@@ -45,11 +73,161 @@ public class TransactionDAOImpl {
     }
 
     /**
-     * Get all transactions for an account
+     * Save many ledger rows with one batched INSERT.
+     * Joins the caller's unit of work when one is active; SQL errors are thrown so the caller
+     * can roll back the unit that also holds the matching balance updates.
+     * @param accountNumbers Account of each row, parallel to transactions
+     * @param transactions Rows to insert
+     */
+    public void saveTransactionBatch(List<String> accountNumbers, List<Transaction> transactions) throws SQLException {
+        if (accountNumbers.size() != transactions.size()) {
+            throw new IllegalArgumentException("Account numbers and transactions must have the same size");
+        }
+        if (transactions.isEmpty()) return;
+
+        String sql = "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                "balance_after, description, transaction_timestamp) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                pstmt.setString(1, IDGenerator.generateTransactionID());
+                pstmt.setString(2, accountNumbers.get(i));
+                pstmt.setString(3, transaction.getType().toString());
+                pstmt.setString(4, transaction.getDirection().name());
+                pstmt.setDouble(5, transaction.getAmount());
+                pstmt.setDouble(6, transaction.getBalanceAfter());
+                pstmt.setString(7, transaction.getDescription());
+                pstmt.setTimestamp(8, Timestamp.valueOf(transaction.getTimestamp()));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Record a transaction without an account number (not supported by the ledger table)
+     */
+    @Override
+    public boolean recordTransaction(Transaction transaction) {
+        System.err.println("Error saving transaction: account number is required");
+        return false;
+    }
+
+    /**
+     * Record a transaction against an account
+     */
+    @Override
+    public boolean recordTransaction(String accountNumber, Transaction transaction) {
+        return saveTransaction(accountNumber, transaction);
+    }
+
+    /**
+     * Get all transactions for an account (TransactionDAOInterface naming)
+     */
+    @Override
+    public List<Transaction> getTransactionsByAccount(String accountNumber) {
+        return getTransactionsByAccountNumber(accountNumber);
+    }
+
+    /**
+     * Get all transactions across a customer's accounts, archived ones included.
+     * Merges one index-ordered cursor per account instead of sorting a join of the whole history.
+     */
+    @Override
+    public List<Transaction> getTransactionsByCustomer(String customerID) {
+        if (customerID == null) return new ArrayList<>();
+        return archive.consistentRead(() -> merged(accountNumbersOf(customerID), null, null));
+    }
+
+    /**
+     * Get transactions for an account within a date range (inclusive)
+     */
+    @Override
+    public List<Transaction> getTransactionsByDateRange(String accountNumber,
+                                                        java.time.LocalDateTime startDate,
+                                                        java.time.LocalDateTime endDate) {
+        if (accountNumber == null || startDate == null || endDate == null) return new ArrayList<>();
+        return archive.consistentRead(() -> merged(List.of(accountNumber), startDate, endDate));
+    }
+
+    /**
+     * Fetch the page of a customer's history, across all their accounts and newest first, that
+     * follows a cursor. Continues from the (timestamp, transaction ID) of the previous page's last
+     * row, so a page costs one short index range scan per account wherever it is in the history.
+     */
+    @Override
+    public TransactionPage getCustomerHistoryPage(String customerID, TransactionPage.Cursor after, int limit) {
+        if (customerID == null || limit < 1) return new TransactionPage(List.of(), null, false);
+        java.time.LocalDateTime afterTimestamp = after != null && after.getSortValue() instanceof Timestamp
+                ? ((Timestamp) after.getSortValue()).toLocalDateTime() : null;
+        String afterId = afterTimestamp != null ? after.getTransactionId() : null;
+        int position = afterTimestamp != null ? after.getPosition() : 0;
+        return archive.consistentRead(() -> {
+            List<LedgerArchive.Entry> rows = new ArrayList<>(limit + 1);
+            try (MergedHistoryCursor cursor = new MergedHistoryCursor(accountNumbersOf(customerID), null, null,
+                    afterTimestamp, afterId)) {
+                while (rows.size() <= limit && cursor.hasNext()) {
+                    rows.add(cursor.next());
+                }
+            } catch (SQLException | UncheckedIOException e) {
+                // A page with rows missing would move the cursor past them
+                System.err.println("Error getting customer history page: " + e.getMessage());
+                e.printStackTrace();
+                return new TransactionPage(List.of(), null, false);
+            }
+            boolean hasMore = rows.size() > limit;
+            List<Transaction> transactions = new ArrayList<>(Math.min(rows.size(), limit));
+            for (int i = 0; i < rows.size() && i < limit; i++) {
+                transactions.add(rows.get(i).getTransaction());
+            }
+            if (transactions.isEmpty()) return new TransactionPage(transactions, null, false);
+            LedgerArchive.Entry last = rows.get(transactions.size() - 1);
+            TransactionPage.Cursor end = new TransactionPage.Cursor(Timestamp.valueOf(last.getTransaction().getTimestamp()),
+                    last.getTransactionId(), position + transactions.size());
+            return new TransactionPage(transactions, end, hasMore);
+        });
+    }
+
+    /**
+     * Newest-first merge of several accounts' ledgers
+     * @param from Earliest timestamp, inclusive; null for no bound
+     * @param to Latest timestamp, inclusive; null for no bound
+     */
+    private List<Transaction> merged(List<String> accountNumbers, java.time.LocalDateTime from,
+                                     java.time.LocalDateTime to) {
+        List<Transaction> transactions = new ArrayList<>();
+        try (MergedHistoryCursor cursor = new MergedHistoryCursor(accountNumbers, from, to, null, null)) {
+            while (cursor.hasNext()) {
+                transactions.add(cursor.next().getTransaction());
+            }
+        } catch (SQLException | UncheckedIOException e) {
+            System.err.println("Error getting transaction history: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+        return transactions;
+    }
+
+    /**
+     * Get all transactions for an account, archived ones included
      */
     public List<Transaction> getTransactionsByAccountNumber(String accountNumber) {
         if (accountNumber == null) return new ArrayList<>();
+        return archive.consistentRead(() -> {
+            try {
+                return withArchived(accountNumber, null, null, hotTransactionsByAccountNumber(accountNumber));
+            } catch (IOException e) {
+                System.err.println("Error getting transactions: " + e.getMessage());
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        });
+    }
 
+    private List<Transaction> hotTransactionsByAccountNumber(String accountNumber) {
         List<Transaction> transactions = new ArrayList<>();
         String sql = "SELECT * FROM transactions WHERE account_number = ? ORDER BY transaction_timestamp DESC";
 
@@ -73,9 +251,76 @@ public class TransactionDAOImpl {
     }
 
     /**
-     * Get all transactions
+     * Get the newest transactions of an account, newest first.
+     * Reads only the first rows of idx_transactions_account_ts_desc.
+     */
+    public List<Transaction> getRecentTransactions(String accountNumber, int limit) {
+        if (accountNumber == null || limit < 1) return new ArrayList<>();
+        return archive.consistentRead(() -> {
+            List<Transaction> hot = hotRecentTransactions(accountNumber, limit);
+            // Archived rows only come into it when the table ran out first
+            if (hot.size() == limit) {
+                java.time.LocalDateTime archivedUntil = archive.archivedUntil(accountNumber);
+                if (archivedUntil == null || hot.get(limit - 1).getTimestamp().isAfter(archivedUntil)) return hot;
+            }
+            try {
+                List<Transaction> merged = withArchived(accountNumber, null, null, hot);
+                return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+            } catch (IOException e) {
+                System.err.println("Error getting recent transactions: " + e.getMessage());
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        });
+    }
+
+    private List<Transaction> hotRecentTransactions(String accountNumber, int limit) {
+        List<Transaction> transactions = new ArrayList<>(limit);
+        String sql = "SELECT * FROM transactions WHERE account_number = ? " +
+                "ORDER BY transaction_timestamp DESC, transaction_id DESC LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, accountNumber);
+            pstmt.setInt(2, limit);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                Transaction transaction = mapRowToTransaction(rs);
+                if (transaction != null) {
+                    transactions.add(transaction);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting recent transactions: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return transactions;
+    }
+
+    /**
+     * Get all transactions, archived ones included
      */
+    @Override
     public List<Transaction> getAllTransactions() {
+        return archive.consistentRead(() -> {
+            List<Transaction> hot = hotAllTransactions();
+            if (archive.getSegmentCount() == 0) return hot;
+            List<Transaction> archived = new ArrayList<>();
+            try {
+                archive.forEach(entry -> archived.add(entry.getTransaction()));
+            } catch (IOException e) {
+                System.err.println("Error getting all transactions: " + e.getMessage());
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+            archived.sort(NEWEST_FIRST);
+            return mergeNewestFirst(hot, archived);
+        });
+    }
+
+    private List<Transaction> hotAllTransactions() {
         List<Transaction> transactions = new ArrayList<>();
         String sql = "SELECT * FROM transactions ORDER BY transaction_timestamp DESC";
 
@@ -97,12 +342,286 @@ public class TransactionDAOImpl {
         return transactions;
     }
 
+    /**
+     * Count the transactions matching a history query: the table with the query's WHERE clause,
+     * plus any archived rows that match
+     */
+    @Override
+    public int countTransactions(TransactionHistoryQuery query) {
+        return archive.consistentRead(() -> {
+            try {
+                return hotCount(query) + archivedRows(query, null).size();
+            } catch (IOException e) {
+                System.err.println("Error counting transactions: " + e.getMessage());
+                e.printStackTrace();
+                return 0;
+            }
+        });
+    }
+
+    private int hotCount(TransactionHistoryQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM transactions WHERE account_number = ?");
+        List<Object> params = appendFilter(sql, query);
+
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting transactions: " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Fetch a history page by row offset (LIMIT/OFFSET).
+     * Only used to jump into the middle of a history; the database still walks the skipped rows.
+     * When archived rows may come before the page's rows, the offset is applied to the merged order.
+     */
+    @Override
+    public TransactionPage getTransactionPage(TransactionHistoryQuery query, int offset, int limit) {
+        int start = Math.max(offset, 0);
+        return archive.consistentRead(() -> {
+            List<PageRow> hot = fetchRows(query, null, start, limit + 1);
+            if (!needsArchive(query, hot, limit)) {
+                return toPage(hot, start, limit);
+            }
+            try {
+                List<PageRow> merged = merge(fetchRows(query, null, 0, start + limit + 1), archivedRows(query, null), query);
+                return toPage(merged.subList(Math.min(start, merged.size()), merged.size()), start, limit);
+            } catch (IOException e) {
+                System.err.println("Error getting transaction page: " + e.getMessage());
+                e.printStackTrace();
+                return new TransactionPage(List.of(), null, false);
+            }
+        });
+    }
+
+    /**
+     * Fetch the history page after a cursor with a keyset predicate on (sort column, transaction_id).
+     * With the (account_number, sort column, transaction_id) indexes this is a range scan that
+     * reads only the rows it returns, however deep into the history the cursor is.
+     * Archived rows past the cursor are merged in the same order.
+     */
+    @Override
+    public TransactionPage getTransactionPageAfter(TransactionHistoryQuery query,
+                                                   TransactionPage.Cursor after, int limit) {
+        if (after == null) {
+            return getTransactionPage(query, 0, limit);
+        }
+        return archive.consistentRead(() -> {
+            List<PageRow> hot = fetchRows(query, after, 0, limit + 1);
+            if (!needsArchive(query, hot, limit)) {
+                return toPage(hot, after.getPosition(), limit);
+            }
+            try {
+                return toPage(merge(hot, archivedRows(query, after), query), after.getPosition(), limit);
+            } catch (IOException e) {
+                System.err.println("Error getting transaction page: " + e.getMessage());
+                e.printStackTrace();
+                return new TransactionPage(List.of(), null, false);
+            }
+        });
+    }
+
+    /**
+     * Read up to maxRows rows of a history query from the table, after a cursor if one is given
+     */
+    private List<PageRow> fetchRows(TransactionHistoryQuery query, TransactionPage.Cursor after,
+                                    int offset, int maxRows) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM transactions").append(indexHint(query))
+                .append(" WHERE account_number = ?");
+        List<Object> params = appendFilter(sql, query);
+        String column = query.getSortField().getColumn();
+        if (after != null) {
+            String op = query.isAscending() ? ">" : "<";
+            // (column, id) past the cursor, written so the first term is an index range bound
+            sql.append(" AND ").append(column).append(' ').append(op).append("= ? AND (")
+                    .append(column).append(' ').append(op).append(" ? OR transaction_id ").append(op).append(" ?)");
+            params.add(after.getSortValue());
+            params.add(after.getSortValue());
+            params.add(after.getTransactionId());
+        }
+        appendOrder(sql, query);
+        // Limits are inlined: H2 only stops the index scan early for a literal LIMIT
+        sql.append(" LIMIT ").append(maxRows);
+        if (offset > 0) sql.append(" OFFSET ").append(offset);
+
+        List<PageRow> rows = new ArrayList<>(maxRows);
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new PageRow(mapRowToTransaction(rs), rs.getString("transaction_id"), rs.getObject(column)));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting transaction page: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return rows;
+    }
+
+    /**
+     * First limit rows as a page, with the cursor after the last of them
+     */
+    private static TransactionPage toPage(List<PageRow> rows, int startPosition, int limit) {
+        int count = Math.min(limit, rows.size());
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(rows.get(i).transaction);
+        }
+        TransactionPage.Cursor end = null;
+        if (count > 0) {
+            PageRow last = rows.get(count - 1);
+            end = new TransactionPage.Cursor(last.sortValue, last.transactionId, startPosition + count);
+        }
+        return new TransactionPage(transactions, end, rows.size() > limit);
+    }
+
+    /**
+     * Whether archived rows could fall among the first limit rows of the table's answer.
+     * Newest first, a full page newer than everything archived for the account cannot change.
+     */
+    private boolean needsArchive(TransactionHistoryQuery query, List<PageRow> hot, int limit) {
+        if (!archive.mayHold(query.getAccountNumber(), query.getFrom(), query.getTo())) return false;
+        if (query.getSortField() == TransactionHistoryQuery.SortField.TIMESTAMP && !query.isAscending()
+                && hot.size() > limit) {
+            java.time.LocalDateTime archivedUntil = archive.archivedUntil(query.getAccountNumber());
+            return archivedUntil == null || !hot.get(limit).transaction.getTimestamp().isAfter(archivedUntil);
+        }
+        return true;
+    }
+
+    /**
+     * Archived rows matching a history query, past a cursor if one is given, in the query's order
+     */
+    private List<PageRow> archivedRows(TransactionHistoryQuery query, TransactionPage.Cursor after) throws IOException {
+        List<PageRow> rows = new ArrayList<>();
+        if (!archive.mayHold(query.getAccountNumber(), query.getFrom(), query.getTo())) return rows;
+        Comparator<PageRow> order = pageOrder(query);
+        PageRow cursor = after != null ? new PageRow(null, after.getTransactionId(), after.getSortValue()) : null;
+        for (LedgerArchive.Entry entry : archive.read(query.getAccountNumber(), query.getFrom(), query.getTo())) {
+            Transaction transaction = entry.getTransaction();
+            if (!query.matches(transaction)) continue;
+            Object sortValue = query.getSortField() == TransactionHistoryQuery.SortField.AMOUNT
+                    ? (Object) transaction.getAmount() : Timestamp.valueOf(transaction.getTimestamp());
+            PageRow row = new PageRow(transaction, entry.getTransactionId(), sortValue);
+            if (cursor == null || order.compare(row, cursor) > 0) rows.add(row);
+        }
+        rows.sort(order);
+        return rows;
+    }
+
+    private static List<PageRow> merge(List<PageRow> hot, List<PageRow> archived, TransactionHistoryQuery query) {
+        Comparator<PageRow> order = pageOrder(query);
+        List<PageRow> merged = new ArrayList<>(hot.size() + archived.size());
+        int h = 0;
+        int a = 0;
+        while (h < hot.size() || a < archived.size()) {
+            if (a == archived.size() || (h < hot.size() && order.compare(hot.get(h), archived.get(a)) <= 0)) {
+                merged.add(hot.get(h++));
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * In-memory equivalent of appendOrder for rows from both the table and the archive
+     */
+    private static Comparator<PageRow> pageOrder(TransactionHistoryQuery query) {
+        Comparator<PageRow> order = (a, b) -> {
+            int bySortValue = a.sortValue instanceof Timestamp && b.sortValue instanceof Timestamp
+                    ? ((Timestamp) a.sortValue).compareTo((Timestamp) b.sortValue)
+                    : Double.compare(((Number) a.sortValue).doubleValue(), ((Number) b.sortValue).doubleValue());
+            return bySortValue != 0 ? bySortValue : a.transactionId.compareTo(b.transactionId);
+        };
+        return query.isAscending() ? order : order.reversed();
+    }
+
+    /**
+     * Append the query's filters to a statement that already selects one account
+     * @return Parameters for the statement, starting with the account number
+     */
+    private static List<Object> appendFilter(StringBuilder sql, TransactionHistoryQuery query) {
+        List<Object> params = new ArrayList<>();
+        params.add(query.getAccountNumber());
+        if (query.getType() != null) {
+            sql.append(" AND transaction_type = ?");
+            params.add(query.getType().toString());
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND transaction_timestamp >= ?");
+            params.add(Timestamp.valueOf(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND transaction_timestamp <= ?");
+            params.add(Timestamp.valueOf(query.getTo()));
+        }
+        if (query.getDescriptionContains() != null) {
+            sql.append(" AND LOWER(description) LIKE ?");
+            String escaped = query.getDescriptionContains().toLowerCase()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            params.add("%" + escaped + "%");
+        }
+        return params;
+    }
+
+    /**
+     * Point the planner at the index whose order matches the requested sort. Without it the
+     * first page (which has no range predicate) is planned on the plain account_number index
+     * and every row of the account is read and sorted before the LIMIT applies.
+     */
+    private static String indexHint(TransactionHistoryQuery query) {
+        switch (query.getSortField()) {
+            case TIMESTAMP:
+                return query.isAscending() ? " USE INDEX (idx_transactions_account_ts)"
+                        : " USE INDEX (idx_transactions_account_ts_desc)";
+            case AMOUNT:
+                return query.isAscending() ? "" : " USE INDEX (idx_transactions_account_amount_desc)";
+            default:
+                return "";
+        }
+    }
+
+    private static void appendOrder(StringBuilder sql, TransactionHistoryQuery query) {
+        // account_number is constant here; leading with it lets the database walk the
+        // (account_number, column, transaction_id) index in order and stop at the LIMIT
+        String direction = query.isAscending() ? "ASC" : "DESC";
+        sql.append(" ORDER BY account_number, ").append(query.getSortField().getColumn()).append(' ').append(direction)
+                .append(", transaction_id ").append(direction);
+    }
+
+    private static void bind(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
     /**
      * Get transaction count for an account
      */
     public int getTransactionCount(String accountNumber) {
         if (accountNumber == null) return 0;
+        return archive.consistentRead(() -> {
+            try {
+                return hotTransactionCount(accountNumber)
+                        + (archive.mayHold(accountNumber, null, null) ? archive.read(accountNumber, null, null).size() : 0);
+            } catch (IOException e) {
+                System.err.println("Error getting transaction count: " + e.getMessage());
+                e.printStackTrace();
+                return 0;
+            }
+        });
+    }
 
+    private int hotTransactionCount(String accountNumber) {
         String sql = "SELECT COUNT(*) FROM transactions WHERE account_number = ?";
 
         try (Connection connection = DatabaseConnection.getInstance().getConnection();
@@ -126,7 +645,18 @@ public class TransactionDAOImpl {
      */
     public double getTotalTransferred(String accountNumber) {
         if (accountNumber == null) return 0;
+        return archive.consistentRead(() -> {
+            try {
+                return hotTotalTransferred(accountNumber) + archivedTotal(accountNumber, Transaction.Type.TRANSFER);
+            } catch (IOException e) {
+                System.err.println("Error getting total transferred: " + e.getMessage());
+                e.printStackTrace();
+                return 0.0;
+            }
+        });
+    }
 
+    private double hotTotalTransferred(String accountNumber) {
         String sql = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE account_number = ? AND transaction_type = 'TRANSFER'";
 
         try (Connection connection = DatabaseConnection.getInstance().getConnection();
@@ -150,7 +680,18 @@ public class TransactionDAOImpl {
      */
     public double getTotalInterestEarned(String accountNumber) {
         if (accountNumber == null) return 0;
+        return archive.consistentRead(() -> {
+            try {
+                return hotTotalInterestEarned(accountNumber) + archivedTotal(accountNumber, Transaction.Type.INTEREST);
+            } catch (IOException e) {
+                System.err.println("Error getting total interest earned: " + e.getMessage());
+                e.printStackTrace();
+                return 0.0;
+            }
+        });
+    }
 
+    private double hotTotalInterestEarned(String accountNumber) {
         String sql = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE account_number = ? AND transaction_type = 'INTEREST'";
 
         try (Connection connection = DatabaseConnection.getInstance().getConnection();
@@ -169,6 +710,65 @@ public class TransactionDAOImpl {
         return 0;
     }
 
+    private double archivedTotal(String accountNumber, Transaction.Type type) throws IOException {
+        if (!archive.mayHold(accountNumber, null, null)) return 0;
+        double total = 0;
+        for (LedgerArchive.Entry entry : archive.read(accountNumber, null, null)) {
+            if (entry.getTransaction().getType() == type) total += entry.getTransaction().getAmount();
+        }
+        return total;
+    }
+
+    /**
+     * Merge an account's archived rows into rows read from the table, newest first
+     * @param from Earliest timestamp, inclusive; null for no bound
+     * @param to Latest timestamp, inclusive; null for no bound
+     */
+    private List<Transaction> withArchived(String accountNumber, java.time.LocalDateTime from,
+                                           java.time.LocalDateTime to, List<Transaction> hot) throws IOException {
+        if (!archive.mayHold(accountNumber, from, to)) return hot;
+        List<LedgerArchive.Entry> entries = archive.read(accountNumber, from, to);
+        List<Transaction> archived = new ArrayList<>(entries.size());
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            archived.add(entries.get(i).getTransaction());
+        }
+        return mergeNewestFirst(hot, archived);
+    }
+
+    private static List<Transaction> mergeNewestFirst(List<Transaction> hot, List<Transaction> archived) {
+        List<Transaction> merged = new ArrayList<>(hot.size() + archived.size());
+        int h = 0;
+        int a = 0;
+        while (h < hot.size() || a < archived.size()) {
+            if (a == archived.size() || (h < hot.size() && NEWEST_FIRST.compare(hot.get(h), archived.get(a)) <= 0)) {
+                merged.add(hot.get(h++));
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+        return merged;
+    }
+
+    private List<String> accountNumbersOf(String customerID) {
+        List<String> accountNumbers = new ArrayList<>();
+        String sql = "SELECT account_number FROM accounts WHERE customer_id = ?";
+
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, customerID);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    accountNumbers.add(rs.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting customer accounts: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return accountNumbers;
+    }
+
     /**
      * Map database row to Transaction object
      */
@@ -177,8 +777,12 @@ public class TransactionDAOImpl {
         double amount = rs.getDouble("amount");
         double balanceAfter = rs.getDouble("balance_after");
         String description = rs.getString("description");
+        Timestamp timestamp = rs.getTimestamp("transaction_timestamp");
+
+        Transaction.Direction direction = Transaction.Direction.valueOf(rs.getString("direction"));
 
-        Transaction transaction = new Transaction(type, amount, balanceAfter, description);
+        Transaction transaction = new Transaction(type, direction, amount, balanceAfter, description,
+                timestamp != null ? timestamp.toLocalDateTime() : java.time.LocalDateTime.now());
         return transaction;
     }
 }
@@ -13,41 +13,23 @@ import java.util.function.Consumer;
 public class TransactionManager {
 
     /**
-     * Execute a transaction with automatic rollback on error
+     * Execute a transaction with automatic rollback on error.
+     * Runs as a UnitOfWork with REQUIRED propagation, so DAO calls made inside the
+     * operation share its connection, and an enclosing unit is joined rather than committed.
      * @param operation The database operation to execute
      * @return true if transaction succeeded, false otherwise
      */
     public static boolean executeTransaction(Consumer<Connection> operation) {
-        Connection connection = null;
         try {
-            connection = DatabaseConnection.getInstance().getConnection();
-            connection.setAutoCommit(false);
-            
-            operation.accept(connection);
-            
-            connection.commit();
+            UnitOfWork.execute(UnitOfWork.Propagation.REQUIRED, connection -> {
+                operation.accept(connection);
+                return null;
+            });
             return true;
         } catch (SQLException e) {
-            if (connection != null) {
-                try {
-                    connection.rollback();
-                    System.err.println("Transaction rolled back due to error: " + e.getMessage());
-                } catch (SQLException rollbackEx) {
-                    System.err.println("Error during rollback: " + rollbackEx.getMessage());
-                }
-            }
             System.err.println("Transaction failed: " + e.getMessage());
             e.printStackTrace();
             return false;
-        } finally {
-            if (connection != null) {
-                try {
-                    connection.setAutoCommit(true);
-                    connection.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing connection: " + e.getMessage());
-                }
-            }
         }
     }
 
@@ -58,36 +40,12 @@ public class TransactionManager {
      * @return The result from the operation, or null if transaction failed
      */
     public static <T> T executeTransactionWithResult(SQLFunction<Connection, T> operation) {
-        Connection connection = null;
         try {
-            connection = DatabaseConnection.getInstance().getConnection();
-            connection.setAutoCommit(false);
-            
-            T result = operation.apply(connection);
-            
-            connection.commit();
-            return result;
+            return UnitOfWork.execute(UnitOfWork.Propagation.REQUIRED, operation);
         } catch (SQLException e) {
-            if (connection != null) {
-                try {
-                    connection.rollback();
-                    System.err.println("Transaction rolled back due to error: " + e.getMessage());
-                } catch (SQLException rollbackEx) {
-                    System.err.println("Error during rollback: " + rollbackEx.getMessage());
-                }
-            }
             System.err.println("Transaction failed: " + e.getMessage());
             e.printStackTrace();
             return null;
-        } finally {
-            if (connection != null) {
-                try {
-                    connection.setAutoCommit(true);
-                    connection.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing connection: " + e.getMessage());
-                }
-            }
         }
     }
 
@@ -0,0 +1,313 @@
+package com.bankingsystem.persistence;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UnitOfWork - Binds one pooled connection and one database transaction to the current thread
+ * While a unit is active, DatabaseConnection.getConnection() hands every DAO call on this thread
+ * the same connection, so a business operation costs one pool checkout and one commit no matter
+ * how many DAO methods it calls.
+ *
+ * Propagation:
+ *  - REQUIRED: join the active unit if there is one, otherwise start a new one
+ *  - REQUIRES_NEW: suspend the active unit, run in a fresh connection/transaction, then resume
+ *  - NESTED: run inside the active unit under a savepoint; if the work fails or marks itself
+ *    rollback-only, only its own changes are undone and the outer unit carries on. If the
+ *    database rolled the whole transaction back (a deadlock victim, say) or the savepoint cannot
+ *    be rolled back or released, the unit is aborted: it rolls back and its outermost scope
+ *    throws instead of committing, so no caller is told that lost work succeeded.
+ *
+ * Participants receive a connection whose close() is a no-op and whose commit()/setAutoCommit()
+ * are ignored; rollback() marks the whole unit rollback-only. Only the outermost scope commits.
+ *
+ * Side effects that must not be seen before the data is durable (events, notifications) are
+ * registered with afterCommit(): they run once the outermost scope has committed, and are dropped
+ * if the unit, or the nested scope that registered them, rolls back.
+ */
+public class UnitOfWork {
+
+    public enum Propagation { REQUIRED, REQUIRES_NEW, NESTED }
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong commitCount = new AtomicLong();
+    private static final AtomicLong rollbackCount = new AtomicLong();
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * Run work inside a unit of work with REQUIRED propagation
+     */
+    public static <T> T execute(TransactionManager.SQLFunction<Connection, T> work) throws SQLException {
+        return execute(Propagation.REQUIRED, work);
+    }
+
+    /**
+     * Run work inside a unit of work
+     * @param propagation Whether to join an active unit or always start a new one
+     * @param work The work to run; receives the unit's shared connection
+     * @return The value returned by the work
+     * @throws SQLException if the work or the commit fails (the unit is rolled back)
+     */
+    public static <T> T execute(Propagation propagation, TransactionManager.SQLFunction<Connection, T> work)
+            throws SQLException {
+        Scope outer = CURRENT.get();
+        if (outer != null && propagation == Propagation.NESTED) {
+            return executeNested(outer, work);
+        }
+        if (outer != null && propagation == Propagation.REQUIRED) {
+            try {
+                return work.apply(outer.shared);
+            } catch (Throwable t) {
+                outer.rollbackOnly = true;
+                throw t;
+            }
+        }
+
+        Connection physical = DatabaseConnection.getInstance().getPooledConnection();
+        Scope scope = new Scope(physical);
+        CURRENT.set(scope);
+        T result;
+        boolean committed = false;
+        try {
+            physical.setAutoCommit(false);
+            result = work.apply(scope.shared);
+            if (scope.aborted) {
+                throw new SQLException("Unit of work aborted: the database rolled back its transaction");
+            }
+            if (scope.rollbackOnly) {
+                physical.rollback();
+                rollbackCount.incrementAndGet();
+            } else {
+                physical.commit();
+                commitCount.incrementAndGet();
+                committed = true;
+            }
+        } catch (Throwable t) {
+            try {
+                physical.rollback();
+                rollbackCount.incrementAndGet();
+            } catch (SQLException rollbackEx) {
+                System.err.println("Error during unit of work rollback: " + rollbackEx.getMessage());
+            }
+            throw t;
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+            try {
+                physical.setAutoCommit(true);
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing unit of work connection: " + e.getMessage());
+            }
+        }
+        if (committed) {
+            // Outside the unit, so an action that uses a DAO gets a connection of its own
+            runAfterCommit(scope.afterCommit);
+        }
+        return result;
+    }
+
+    private static void runAfterCommit(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                // The unit is committed; a failing action must not make its caller think otherwise
+                System.err.println("Error in after-commit action: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Run work under a savepoint of the active unit. The work sees a unit that is not
+     * rollback-only; marking it rollback-only (or throwing) rolls back to the savepoint only,
+     * unless the transaction itself is gone, which aborts the whole unit.
+     */
+    private static <T> T executeNested(Scope outer, TransactionManager.SQLFunction<Connection, T> work)
+            throws SQLException {
+        if (outer.aborted) throw new SQLException("Unit of work aborted: the database rolled back its transaction");
+        boolean outerRollbackOnly = outer.rollbackOnly;
+        Savepoint savepoint = outer.physical.setSavepoint();
+        outer.rollbackOnly = false;
+        // Actions registered under the savepoint go with it if it is rolled back
+        int afterCommitMark = outer.afterCommit.size();
+        try {
+            T result = work.apply(outer.shared);
+            try {
+                if (outer.rollbackOnly) {
+                    outer.physical.rollback(savepoint);
+                    outer.dropAfterCommit(afterCommitMark);
+                } else {
+                    outer.physical.releaseSavepoint(savepoint);
+                }
+            } catch (SQLException e) {
+                outer.aborted = true;
+                throw e;
+            }
+            return result;
+        } catch (Throwable t) {
+            outer.dropAfterCommit(afterCommitMark);
+            if (!outer.aborted) {
+                if (t instanceof SQLException && abortsTransaction((SQLException) t)) {
+                    // The savepoint went with the transaction; rolling back to it would fail too
+                    outer.aborted = true;
+                } else {
+                    try {
+                        outer.physical.rollback(savepoint);
+                    } catch (SQLException rollbackEx) {
+                        outer.aborted = true;
+                        t.addSuppressed(rollbackEx);
+                    }
+                }
+            }
+            throw t;
+        } finally {
+            outer.rollbackOnly = outerRollbackOnly;
+        }
+    }
+
+    /**
+     * Whether an error may mean the database rolled back the whole transaction, not just the
+     * statement: SQLSTATE class 40 (deadlocks, serialization failures), or MySQL's lock wait
+     * timeout, which does so when innodb_rollback_on_timeout is set
+     */
+    static boolean abortsTransaction(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransactionRollbackException
+                || (state != null && state.startsWith("40"))
+                || e.getErrorCode() == 1205;
+    }
+
+    /**
+     * Check whether the active unit has been aborted and can only roll back
+     */
+    static boolean isAborted() {
+        Scope scope = CURRENT.get();
+        return scope != null && scope.aborted;
+    }
+
+    /**
+     * Check whether a unit of work is active on the current thread
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Mark the active unit so that it rolls back instead of committing.
+     * Used by callers whose DAOs report failure through return values rather than exceptions.
+     */
+    public static void setRollbackOnly() {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.rollbackOnly = true;
+        }
+    }
+
+    /**
+     * Run an action once the active unit has committed, or right away when no unit is active.
+     * The action is dropped if the unit rolls back. It runs on the committing thread after the
+     * unit's connection has been released; an exception it throws is logged, not rethrown.
+     */
+    public static void afterCommit(Runnable action) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            action.run();
+        } else {
+            scope.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Check whether the active unit has been marked rollback-only
+     */
+    public static boolean isRollbackOnly() {
+        Scope scope = CURRENT.get();
+        return scope != null && scope.rollbackOnly;
+    }
+
+    /**
+     * Shared connection of the active unit, or null when none is active
+     */
+    static Connection currentConnection() {
+        Scope scope = CURRENT.get();
+        return scope != null ? scope.shared : null;
+    }
+
+    /**
+     * Number of units committed since startup
+     */
+    public static long getCommitCount() {
+        return commitCount.get();
+    }
+
+    /**
+     * Number of units rolled back since startup
+     */
+    public static long getRollbackCount() {
+        return rollbackCount.get();
+    }
+
+    /**
+     * One physical connection plus the participant view handed to DAOs
+     */
+    private static final class Scope {
+        final Connection physical;
+        final Connection shared;
+        boolean rollbackOnly;
+        // The transaction is gone; nothing more may run in it and it must not commit
+        boolean aborted;
+        // Run in registration order once the unit commits
+        final List<Runnable> afterCommit = new ArrayList<>();
+
+        Scope(Connection physical) {
+            this.physical = physical;
+            this.shared = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                            case "commit":
+                            case "setAutoCommit":
+                                return null;
+                            case "rollback":
+                                if (args == null || args.length == 0) {
+                                    rollbackOnly = true;
+                                    return null;
+                                }
+                                break;
+                            case "getAutoCommit":
+                                return false;
+                            case "unwrap":
+                                if (args != null && args[0] == Connection.class) return proxy;
+                                break;
+                            default:
+                                break;
+                        }
+                        try {
+                            return method.invoke(this.physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        void dropAfterCommit(int mark) {
+            afterCommit.subList(mark, afterCommit.size()).clear();
+        }
+    }
+}
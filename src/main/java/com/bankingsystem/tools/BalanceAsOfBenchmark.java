@@ -0,0 +1,173 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Transaction;
+import com.bankingsystem.persistence.BalanceCheckpointDAO;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+import com.bankingsystem.persistence.UnitOfWork;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * BalanceAsOfBenchmark - latency of point-in-time balance queries as the history grows.
+ * Seeds accounts whose ledgers span a year with 1k, 10k and 100k rows, writes a checkpoint for
+ * every midnight, then asks for the balance at random moments of the year, once through
+ * BalanceCheckpointDAO.balanceAsOf and once by loading the whole history and replaying it (what
+ * statements and disputes had to do before). Every checkpointed answer is checked against the
+ * seeded chain.
+ *
+ * Usage: BalanceAsOfBenchmark [queriesPerAccount] [fullReplaysPerAccount]
+ */
+public class BalanceAsOfBenchmark {
+    private static final int[] HISTORY_SIZES = {1_000, 10_000, 100_000};
+    private static final int DAYS = 365;
+    private static final double OPENING = 1_000.0;
+
+    public static void main(String[] args) throws Exception {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int replays = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        LocalDateTime start = LocalDate.now().minusDays(DAYS).atStartOfDay();
+        LoadTestHarness.Fixture fixture = LoadTestHarness.Fixture.create(0, 0);
+        TransactionDAOImpl dao = new TransactionDAOImpl();
+        BalanceCheckpointDAO checkpoints = BalanceCheckpointDAO.getInstance();
+        List<History> histories = new ArrayList<>();
+        for (int size : HISTORY_SIZES) {
+            histories.add(seed(fixture, dao, start, size));
+        }
+
+        long t0 = System.nanoTime();
+        int written = 0;
+        for (int day = 1; day <= DAYS; day++) {
+            written += checkpoints.writeCheckpoints(start.plusDays(day));
+        }
+        System.out.printf("Balance as of: %d accounts over %d days, %,d checkpoints written in %,d ms%n",
+                histories.size(), DAYS, written, (System.nanoTime() - t0) / 1_000_000);
+        System.out.println("  history rows   as-of avg ms   as-of p99 ms   full replay avg ms   checked");
+
+        for (int round = 0; round < 2; round++) {
+            for (History history : histories) {
+                run(round == 0 ? "warm-up" : String.format("%,d", history.timestamps.length), history, dao,
+                        checkpoints, start, queries, round == 0 ? 1 : replays);
+            }
+        }
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void run(String label, History history, TransactionDAOImpl dao, BalanceCheckpointDAO checkpoints,
+                            LocalDateTime start, int queries, int replays) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long span = Duration.ofDays(DAYS).toSeconds();
+        long[] latencies = new long[queries];
+        int wrong = 0;
+        for (int i = 0; i < queries; i++) {
+            LocalDateTime asOf = start.plusSeconds(random.nextLong(span));
+            long t0 = System.nanoTime();
+            double balance = checkpoints.balanceAsOf(history.accountNumber, asOf).orElse(Double.NaN);
+            latencies[i] = System.nanoTime() - t0;
+            if (Math.abs(balance - history.balanceAsOf(asOf)) > 0.005) wrong++;
+        }
+        Arrays.sort(latencies);
+
+        long replayNanos = 0;
+        for (int i = 0; i < replays; i++) {
+            LocalDateTime asOf = start.plusSeconds(random.nextLong(span));
+            long t0 = System.nanoTime();
+            double balance = OPENING;
+            // Newest first: the first row at or before the moment holds the balance
+            for (Transaction transaction : dao.getTransactionsByAccountNumber(history.accountNumber)) {
+                if (!transaction.getTimestamp().isAfter(asOf)) {
+                    balance = transaction.getBalanceAfter();
+                    break;
+                }
+            }
+            replayNanos += System.nanoTime() - t0;
+            if (Math.abs(balance - history.balanceAsOf(asOf)) > 0.005) wrong++;
+        }
+        System.out.printf("  %12s   %12.3f   %12.3f   %18.2f   %s%n", label,
+                Arrays.stream(latencies).average().orElse(0) / 1e6, latencies[(int) (queries * 0.99)] / 1e6,
+                replayNanos / 1e6 / replays, wrong == 0 ? "OK" : wrong + " WRONG");
+    }
+
+    /**
+     * One account whose ledger spreads its rows evenly over the year
+     */
+    private static History seed(LoadTestHarness.Fixture fixture, TransactionDAOImpl dao, LocalDateTime start,
+                                int size) throws Exception {
+        String accountNumber = fixture.addAccount(OPENING);
+        History history = new History(accountNumber, size);
+        long stepNanos = Duration.ofDays(DAYS).toNanos() / size;
+        double balance = OPENING;
+        int batch = 5_000;
+        for (int from = 0; from < size; from += batch) {
+            int to = Math.min(size, from + batch);
+            List<String> accounts = new ArrayList<>(to - from);
+            List<Transaction> rows = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                boolean debit = i % 3 == 1;
+                double amount = 1 + (i * 37 % 500);
+                balance += debit ? -amount : amount;
+                // Whole microseconds, so the seeded moments survive the TIMESTAMP column unchanged
+                LocalDateTime at = start.plusNanos(i * stepNanos / 1_000 * 1_000);
+                rows.add(new Transaction(debit ? Transaction.Type.WITHDRAW : Transaction.Type.DEPOSIT,
+                        debit ? Transaction.Direction.DEBIT : Transaction.Direction.CREDIT, amount, balance,
+                        debit ? "Withdrawal" : "Deposit", at));
+                accounts.add(accountNumber);
+                history.timestamps[i] = at;
+                history.balances[i] = balance;
+            }
+            UnitOfWork.execute(connection -> {
+                dao.saveTransactionBatch(accounts, rows);
+                return null;
+            });
+        }
+        double finalBalance = balance;
+        UnitOfWork.execute(connection -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "UPDATE accounts SET balance = ?, date_opened = ? WHERE account_number = ?")) {
+                pstmt.setDouble(1, finalBalance);
+                pstmt.setDate(2, Date.valueOf(start.toLocalDate()));
+                pstmt.setString(3, accountNumber);
+                pstmt.executeUpdate();
+            }
+            return null;
+        });
+        return history;
+    }
+
+    private static final class History {
+        final String accountNumber;
+        final LocalDateTime[] timestamps;
+        final double[] balances;
+
+        History(String accountNumber, int size) {
+            this.accountNumber = accountNumber;
+            this.timestamps = new LocalDateTime[size];
+            this.balances = new double[size];
+        }
+
+        double balanceAsOf(LocalDateTime asOf) {
+            int low = 0;
+            int high = timestamps.length - 1;
+            int last = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[mid].isAfter(asOf)) {
+                    high = mid - 1;
+                } else {
+                    last = mid;
+                    low = mid + 1;
+                }
+            }
+            return last < 0 ? OPENING : balances[last];
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Account;
+import com.bankingsystem.AccountStatus;
+import com.bankingsystem.Bank;
+import com.bankingsystem.ChequeAccount;
+import com.bankingsystem.CompanyCustomer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BankSnapshotBenchmark - mixed read/write throughput of the Bank registry.
+ * Report threads repeatedly scan every account (count approved, sum balances) while writer
+ * threads keep opening accounts. Compares the copy-on-write snapshot Bank with a baseline that
+ * guards an ArrayList with a global lock, which is what the old Bank would have needed to avoid
+ * ConcurrentModificationException.
+ *
+ * Usage: BankSnapshotBenchmark [readers] [writers] [reportsPerReader] [opensPerWriter] [initialAccounts]
+ */
+public class BankSnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int reports = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int opens = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+        int initial = args.length > 4 ? Integer.parseInt(args[4]) : 10_000;
+
+        System.out.println("Bank registry: " + readers + " report threads x " + reports + " scans, "
+                + writers + " writer threads x " + opens + " account opens, " + initial + " initial accounts");
+
+        System.out.println("(scan and open rates are aggregated over threads; on a single CPU the gain shows as writers never stalling behind a scan)");
+        for (int round = 0; round < 2; round++) {
+            String suffix = round == 0 ? " (warm-up)" : "";
+            run("synchronized ArrayList" + suffix, new LockedRegistry(), readers, writers, reports, opens, initial);
+            run("copy-on-write snapshot" + suffix, new SnapshotRegistry(), readers, writers, reports, opens, initial);
+        }
+    }
+
+    private static void run(String label, Registry registry, int readers, int writers, int reports,
+                            int opens, int initial) throws InterruptedException {
+        CompanyCustomer seed = new CompanyCustomer("SEED", "Seed Co", "REG-SEED");
+        for (int i = 0; i < initial; i++) {
+            registry.open(seed);
+        }
+
+        AtomicLong readNanos = new AtomicLong();
+        AtomicLong writeNanos = new AtomicLong();
+        AtomicLong maxOpenNanos = new AtomicLong();
+        AtomicLong checksum = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(readers + writers);
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                long t0 = System.nanoTime();
+                for (int i = 0; i < reports; i++) {
+                    checksum.addAndGet(registry.report());
+                }
+                readNanos.addAndGet(System.nanoTime() - t0);
+                done.countDown();
+            }));
+        }
+        for (int w = 0; w < writers; w++) {
+            CompanyCustomer owner = new CompanyCustomer("W" + w, "Writer Co " + w, "REG-W" + w);
+            threads.add(new Thread(() -> {
+                await(start);
+                long t0 = System.nanoTime();
+                long worst = 0;
+                for (int i = 0; i < opens; i++) {
+                    long o0 = System.nanoTime();
+                    registry.open(owner);
+                    worst = Math.max(worst, System.nanoTime() - o0);
+                }
+                maxOpenNanos.accumulateAndGet(worst, Math::max);
+                writeNanos.addAndGet(System.nanoTime() - t0);
+                done.countDown();
+            }));
+        }
+        threads.forEach(Thread::start);
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+
+        double scansPerSec = (double) readers * reports / (readNanos.get() / 1e9 / readers);
+        double opensPerSec = (double) writers * opens / (writeNanos.get() / 1e9 / writers);
+        System.out.printf("  %-36s scans/s %,8.0f   opens/s %,10.0f   worst open %,7d us   wall %,6d ms%n",
+                label, scansPerSec, opensPerSec, maxOpenNanos.get() / 1_000, elapsed / 1_000_000);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Registry {
+        void open(CompanyCustomer owner);
+        long report();
+        int size();
+    }
+
+    /**
+     * The real Bank: writers CAS in new versions, reports scan a snapshot without locking
+     */
+    private static final class SnapshotRegistry implements Registry {
+        private final Bank bank = new Bank("Benchmark", "001");
+
+        public void open(CompanyCustomer owner) {
+            bank.openAccount(owner, "cheque", 100.0);
+        }
+
+        public long report() {
+            return scan(bank.getAccounts());
+        }
+
+        public int size() {
+            return bank.getAccounts().size();
+        }
+    }
+
+    /**
+     * Baseline: one ArrayList and a global lock held for every write and for the whole scan
+     */
+    private static final class LockedRegistry implements Registry {
+        private final List<Account> accounts = new ArrayList<>();
+
+        public void open(CompanyCustomer owner) {
+            ChequeAccount account = new ChequeAccount(owner, "001", null, false);
+            account.deposit(100.0);
+            synchronized (this) {
+                accounts.add(account);
+            }
+            owner.addAccount(account);
+        }
+
+        public synchronized long report() {
+            return scan(accounts);
+        }
+
+        public synchronized int size() {
+            return accounts.size();
+        }
+    }
+
+    private static long scan(List<Account> accounts) {
+        long[] approved = new long[1];
+        double[] total = new double[1];
+        accounts.forEach(account -> {
+            if (account.getStatus() == AccountStatus.APPROVED) approved[0]++;
+            total[0] += account.getBalance();
+        });
+        return approved[0] + (long) total[0];
+    }
+}
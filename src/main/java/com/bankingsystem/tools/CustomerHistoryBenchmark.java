@@ -0,0 +1,240 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Transaction;
+import com.bankingsystem.dao.TransactionPage;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.LedgerArchive;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * CustomerHistoryBenchmark - cost and correctness of customer histories merged across accounts.
+ * Seeds customers holding several accounts with a year of deposits straight through JDBC, then
+ * compares, for every customer, the full merged history and every keyset page of it with what a
+ * join over all the customer's rows sorted by the database returns, and a date range of one
+ * account with a plain range query. Times the first page and the whole history against that
+ * join. Then archives everything older than 90 days into a temporary directory and repeats the
+ * checks against the answers taken before.
+ *
+ * Usage: CustomerHistoryBenchmark [customers] [accountsPerCustomer] [rowsPerAccount]
+ */
+public class CustomerHistoryBenchmark {
+    private static final int MONTHS = 12;
+    private static final int PAGE = 25;
+    private static final int READS = 200;
+
+    private static final String JOINED = "SELECT t.* FROM transactions t JOIN accounts a ON t.account_number = a.account_number " +
+            "WHERE a.customer_id = ? ORDER BY t.transaction_timestamp DESC, t.transaction_id DESC";
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        long t0 = System.nanoTime();
+        seed(customers, accounts, rows);
+        System.out.printf("Customer history: %,d customers x %d accounts x %,d rows (seeded in %,d ms)%n",
+                customers, accounts, rows, (System.nanoTime() - t0) / 1_000_000);
+
+        TransactionDAOImpl dao = new TransactionDAOImpl();
+        List<String> expected = new ArrayList<>(customers);
+        List<String> expectedRanges = new ArrayList<>(customers);
+        LocalDateTime now = LocalDateTime.now();
+        for (int c = 0; c < customers; c++) {
+            expected.add(keys(joined(customer(c))));
+            expectedRanges.add(keys(ranged(account(c, 0), now.minusDays(200), now.minusDays(60))));
+        }
+        check(dao, expected, expectedRanges, "merged vs join");
+        time(dao, customers);
+
+        Path directory = Files.createTempDirectory("ledger-archive");
+        LedgerArchive archive = LedgerArchive.getInstance();
+        archive.open(directory);
+        long archived = archive.archive(LedgerArchive.DEFAULT_MAX_AGE_DAYS);
+        System.out.printf("  archived %,d rows older than %d days%n", archived, LedgerArchive.DEFAULT_MAX_AGE_DAYS);
+        check(dao, expected, expectedRanges, "after archiving vs join before");
+        time(dao, customers);
+
+        archive.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void check(TransactionDAOImpl dao, List<String> expected, List<String> expectedRanges, String label) {
+        LocalDateTime now = LocalDateTime.now();
+        int wrong = 0;
+        for (int c = 0; c < expected.size(); c++) {
+            if (!keys(dao.getTransactionsByCustomer(customer(c))).equals(expected.get(c))) wrong++;
+            if (!walk(dao, customer(c)).equals(expected.get(c))) wrong++;
+            if (!keys(dao.getTransactionsByDateRange(account(c, 0), now.minusDays(200), now.minusDays(60)))
+                    .equals(expectedRanges.get(c))) wrong++;
+        }
+        int checks = expected.size() * 3;
+        System.out.println("  " + label + ": " + (wrong == 0 ? "IDENTICAL (" + checks + " checks)" : wrong + " DIFFERENT of " + checks));
+    }
+
+    /**
+     * Every page of a customer's history, following cursors
+     */
+    private static String walk(TransactionDAOImpl dao, String customerId) {
+        List<Transaction> all = new ArrayList<>();
+        TransactionPage page = dao.getCustomerHistoryPage(customerId, null, PAGE);
+        all.addAll(page.getTransactions());
+        while (page.hasMore()) {
+            page = dao.getCustomerHistoryPage(customerId, page.getEnd(), PAGE);
+            all.addAll(page.getTransactions());
+        }
+        return keys(all);
+    }
+
+    /**
+     * Mean time of a first page from the merge, the whole merged history, and the whole join
+     */
+    private static void time(TransactionDAOImpl dao, int customers) throws Exception {
+        long[] times = new long[3];
+        long sink = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int kind = 0; kind < 3; kind++) {
+                long t0 = System.nanoTime();
+                for (int r = 0; r < READS; r++) {
+                    String customerId = customer(ThreadLocalRandom.current().nextInt(customers));
+                    switch (kind) {
+                        case 0 -> sink += dao.getCustomerHistoryPage(customerId, null, PAGE).getTransactions().size();
+                        case 1 -> sink += dao.getTransactionsByCustomer(customerId).size();
+                        default -> sink += joined(customerId).size();
+                    }
+                }
+                times[kind] = (System.nanoTime() - t0) / READS;
+            }
+        }
+        System.out.printf("  first page %,d us, merged full history %,d us, join over the table %,d us%s%n",
+                times[0] / 1_000, times[1] / 1_000, times[2] / 1_000, sink == 0 ? "!" : "");
+    }
+
+    private static List<Transaction> joined(String customerId) throws Exception {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(JOINED)) {
+            pstmt.setString(1, customerId);
+            return read(pstmt);
+        }
+    }
+
+    private static List<Transaction> ranged(String accountNumber, LocalDateTime from, LocalDateTime to) throws Exception {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = connection.prepareStatement("SELECT * FROM transactions WHERE account_number = ? " +
+                     "AND transaction_timestamp >= ? AND transaction_timestamp <= ? " +
+                     "ORDER BY transaction_timestamp DESC, transaction_id DESC")) {
+            pstmt.setString(1, accountNumber);
+            pstmt.setTimestamp(2, Timestamp.valueOf(from));
+            pstmt.setTimestamp(3, Timestamp.valueOf(to));
+            return read(pstmt);
+        }
+    }
+
+    private static List<Transaction> read(PreparedStatement pstmt) throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                transactions.add(new Transaction(Transaction.Type.valueOf(rs.getString("transaction_type")),
+                        Transaction.Direction.valueOf(rs.getString("direction")), rs.getDouble("amount"),
+                        rs.getDouble("balance_after"), rs.getString("description"),
+                        rs.getTimestamp("transaction_timestamp").toLocalDateTime()));
+            }
+        }
+        return transactions;
+    }
+
+    private static String keys(List<Transaction> transactions) {
+        StringBuilder keys = new StringBuilder();
+        for (Transaction transaction : transactions) {
+            keys.append(transaction.getType()).append(' ').append(transaction.getAmount()).append(' ')
+                    .append(transaction.getBalanceAfter()).append(' ').append(transaction.getTimestamp()).append(';');
+        }
+        return keys.toString();
+    }
+
+    private static String customer(int c) {
+        return "CUST-HIST" + c;
+    }
+
+    private static String account(int c, int a) {
+        return String.format("CH%05d%02d", c, a);
+    }
+
+    /**
+     * Deposits at random moments over the last MONTHS months, with balance_after chained in
+     * timestamp order per account
+     */
+    private static void seed(int customers, int accounts, int rows) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        long span = MONTHS * 30L * 24 * 3600;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement customer = connection.prepareStatement(
+                         "INSERT INTO customers (customer_id, customer_type, first_name, last_name) VALUES (?, 'INDIVIDUAL', 'History', ?)");
+                 PreparedStatement account = connection.prepareStatement(
+                         "INSERT INTO accounts (account_number, customer_id, account_type, balance, status, date_opened) " +
+                         "VALUES (?, ?, 'SavingsAccount', ?, 'APPROVED', ?)");
+                 PreparedStatement ledger = connection.prepareStatement(
+                         "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                         "balance_after, description, transaction_timestamp) VALUES (?, ?, 'DEPOSIT', 'CREDIT', ?, ?, 'Deposit', ?)")) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int c = 0; c < customers; c++) {
+                    customer.setString(1, customer(c));
+                    customer.setString(2, "Customer" + c);
+                    customer.addBatch();
+                    for (int a = 0; a < accounts; a++) {
+                        String number = account(c, a);
+                        List<LocalDateTime> moments = new ArrayList<>(rows);
+                        for (int r = 0; r < rows; r++) {
+                            moments.add(now.minusSeconds(1 + random.nextLong(span)));
+                        }
+                        moments.sort(null);
+                        double balance = 0;
+                        for (int r = 0; r < rows; r++) {
+                            double amount = 10 + random.nextInt(500);
+                            balance += amount;
+                            ledger.setString(1, number + "-" + r);
+                            ledger.setString(2, number);
+                            ledger.setDouble(3, amount);
+                            ledger.setDouble(4, balance);
+                            ledger.setTimestamp(5, Timestamp.valueOf(moments.get(r)));
+                            ledger.addBatch();
+                        }
+                        account.setString(1, number);
+                        account.setString(2, customer(c));
+                        account.setDouble(3, balance);
+                        account.setDate(4, java.sql.Date.valueOf(LocalDate.now().minusMonths(MONTHS + 1)));
+                        account.addBatch();
+                    }
+                    if ((c + 1) % 20 == 0) {
+                        customer.executeBatch();
+                        account.executeBatch();
+                        ledger.executeBatch();
+                    }
+                }
+                customer.executeBatch();
+                account.executeBatch();
+                ledger.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
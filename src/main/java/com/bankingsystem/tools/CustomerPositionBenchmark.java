@@ -0,0 +1,218 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Account;
+import com.bankingsystem.Bank;
+import com.bankingsystem.IndividualCustomer;
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.persistence.CustomerPositionCache;
+import com.bankingsystem.persistence.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * CustomerPositionBenchmark - rebuild time, freshness and read cost of the CustomerPositionCache.
+ * Seeds customers with several approved accounts each straight through JDBC and rebuilds the
+ * cache with 1, 2 and 4 workers. Then opens accounts for live customers and posts deposits,
+ * withdrawals and transfers through TransactionController from several threads while the cache
+ * follows the LedgerEventBus, and checks every position against totals aggregated by the
+ * database. Finally compares reading a position with walking the customer's accounts and
+ * formatting each balance, as the dashboards did.
+ *
+ * Usage: CustomerPositionBenchmark [customers] [accountsPerCustomer] [liveCustomers] [operationsPerThread]
+ */
+public class CustomerPositionBenchmark {
+    private static final int[] WORKERS = {1, 2, 4};
+    private static final String[] TYPES = {"SavingsAccount", "ChequeAccount", "InvestmentAccount"};
+    private static final int THREADS = 4;
+    private static final String CHECK_SQL =
+            "SELECT customer_id, COUNT(*), SUM(balance) FROM accounts WHERE status = 'APPROVED' GROUP BY customer_id";
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int perCustomer = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int live = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int operations = args.length > 3 ? Integer.parseInt(args[3]) : 2_000;
+
+        long t0 = System.nanoTime();
+        seed(customers, perCustomer);
+        System.out.printf("Customer positions: %,d customers x %d approved accounts (seeded in %,d ms)%n",
+                customers, perCustomer, (System.nanoTime() - t0) / 1_000_000);
+
+        CustomerPositionCache cache = CustomerPositionCache.getInstance();
+        cache.rebuild(2); // warm-up
+        for (int workers : WORKERS) {
+            long started = System.nanoTime();
+            boolean ok = cache.rebuild(workers);
+            System.out.printf("  rebuild, %d worker(s)  %,6d ms   %,d positions   %s%n", workers,
+                    (System.nanoTime() - started) / 1_000_000, cache.size(), ok ? "OK" : "FAILED");
+        }
+
+        cache.start();
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+        Bank bank = new Bank("PositionBenchmarkBank", "001");
+        List<IndividualCustomer> liveCustomers = new ArrayList<>(live);
+        List<String> liveAccounts = new ArrayList<>(live * 2);
+        AccountDAOImpl accountDAO = new AccountDAOImpl();
+        CustomerDAOImpl customerDAO = new CustomerDAOImpl();
+        for (int i = 0; i < live; i++) {
+            IndividualCustomer customer = new IndividualCustomer("CUST-POS-LIVE" + i, "Live", "Customer" + i, "NID-POS-LIVE" + i);
+            bank.registerCustomer(customer);
+            customerDAO.saveCustomer(customer);
+            for (String type : new String[]{"savings", "investment"}) {
+                Account account = bank.openAccount(customer, type, 1_000);
+                account.approve("benchmark");
+                accountDAO.saveAccount(account);
+                liveAccounts.add(account.getAccountNumber());
+            }
+            liveCustomers.add(customer);
+        }
+
+        TransactionController controller = new TransactionController(bank);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        t0 = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operations; i++) {
+                    String account = liveAccounts.get(random.nextInt(liveAccounts.size()));
+                    double amount = 1 + random.nextInt(20);
+                    switch (random.nextInt(3)) {
+                        case 0 -> controller.deposit(account, amount);
+                        case 1 -> controller.withdraw(account, amount);
+                        default -> controller.transfer(account, liveAccounts.get(random.nextInt(liveAccounts.size())), amount);
+                    }
+                }
+                done.countDown();
+            }, "Poster-" + t);
+            thread.start();
+        }
+        done.await();
+        long posting = System.nanoTime() - t0;
+        long waitStart = System.nanoTime();
+        while (cache.getLag() > 0) {
+            Thread.sleep(1);
+        }
+        System.out.printf("  %,d operations posted in %,d ms; cache caught up %,d us after the last one%n",
+                THREADS * operations, posting / 1_000_000, (System.nanoTime() - waitStart) / 1_000);
+        System.out.println("  positions vs database after live postings: " + check(cache));
+        cache.rebuild(4);
+        System.out.println("  positions vs database after a rebuild:     " + check(cache));
+
+        compareReads(cache, liveCustomers);
+        cache.stop();
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    /**
+     * Compare every cached position with the database's own aggregation
+     */
+    private static String check(CustomerPositionCache cache) throws Exception {
+        int customers = 0;
+        int wrong = 0;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(CHECK_SQL)) {
+            while (rs.next()) {
+                customers++;
+                CustomerPositionCache.Position position = cache.getPosition(rs.getString(1));
+                if (position == null || position.getAccountCount() != rs.getInt(2)
+                        || Math.abs(position.getTotalBalance() - rs.getDouble(3)) > 0.005) {
+                    wrong++;
+                }
+            }
+        }
+        return wrong == 0 && customers == cache.size() ? "OK (" + customers + " customers)"
+                : wrong + " WRONG of " + customers + " (cache holds " + cache.size() + ")";
+    }
+
+    private static void compareReads(CustomerPositionCache cache, List<IndividualCustomer> customers) {
+        int rounds = 2_000;
+        long sink = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long t0 = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (IndividualCustomer customer : customers) {
+                    double total = 0;
+                    for (Account account : customer.getAccounts()) {
+                        total += account.getBalance();
+                        sink += String.format("%.2f", account.getBalance()).length();
+                    }
+                    sink += String.format("%.2f", total).length();
+                }
+            }
+            long walk = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (IndividualCustomer customer : customers) {
+                    sink += cache.getPosition(customer.getCustomerID()).getFormattedTotal().length();
+                }
+            }
+            long cached = System.nanoTime() - t0;
+            if (pass == 1) {
+                long reads = (long) rounds * customers.size();
+                System.out.printf("  dashboard summary per customer: walk and format %,.0f ns, position cache %,.0f ns%s%n",
+                        (double) walk / reads, (double) cached / reads, sink == 0 ? "!" : "");
+            }
+        }
+    }
+
+    private static void seed(int customers, int perCustomer) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement customer = connection.prepareStatement(
+                         "INSERT INTO customers (customer_id, customer_type, first_name, last_name) VALUES (?, 'INDIVIDUAL', 'Position', ?)");
+                 PreparedStatement account = connection.prepareStatement(
+                         "INSERT INTO accounts (account_number, customer_id, account_type, balance, status, date_opened) " +
+                         "VALUES (?, ?, ?, ?, 'APPROVED', ?)");
+                 PreparedStatement ledger = connection.prepareStatement(
+                         "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                         "balance_after, description, transaction_timestamp) VALUES (?, ?, 'DEPOSIT', 'CREDIT', ?, ?, 'Opening deposit', ?)")) {
+                for (int c = 0; c < customers; c++) {
+                    String customerId = String.format("CUST-POS%07d", c);
+                    customer.setString(1, customerId);
+                    customer.setString(2, "Customer" + c);
+                    customer.addBatch();
+                    for (int a = 0; a < perCustomer; a++) {
+                        String number = String.format("PS%07d%02d", c, a);
+                        double balance = 100 + (c * 31 + a * 17) % 5_000;
+                        account.setString(1, number);
+                        account.setString(2, customerId);
+                        account.setString(3, TYPES[a % TYPES.length]);
+                        account.setDouble(4, balance);
+                        account.setDate(5, java.sql.Date.valueOf(LocalDate.now()));
+                        account.addBatch();
+                        ledger.setString(1, number + "-0");
+                        ledger.setString(2, number);
+                        ledger.setDouble(3, balance);
+                        ledger.setDouble(4, balance);
+                        ledger.setTimestamp(5, Timestamp.valueOf(now.minusMinutes(c % 10_000)));
+                        ledger.addBatch();
+                    }
+                    if ((c + 1) % 1_000 == 0) {
+                        customer.executeBatch();
+                        account.executeBatch();
+                        ledger.executeBatch();
+                    }
+                }
+                customer.executeBatch();
+                account.executeBatch();
+                ledger.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.IndividualCustomer;
+import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.persistence.CustomerSearchIndex;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.UnitOfWork;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * CustomerSearchBenchmark - type-ahead latency of the customer search index.
+ * Loads synthetic customers straight into the customers table, builds the index with one
+ * streaming scan, then replays type-ahead keystrokes (growing prefixes of names, emails,
+ * national IDs, phones and registration numbers) and reports latency percentiles.
+ * A few of the same queries run as LIKE '%x%' scans for comparison, and a handful of
+ * customers are saved through CustomerDAOImpl to show incremental updates are searchable.
+ * Run with a large heap (-Xmx3g) for a million customers.
+ *
+ * Usage: CustomerSearchBenchmark [customers] [queries]
+ */
+public class CustomerSearchBenchmark {
+    private static final String[] FIRST = {"John", "Jane", "Robert", "Sarah", "Michael", "Emily", "David", "Olivia",
+            "Kagiso", "Neo", "Tumelo", "Lesego", "Boitumelo", "Mpho", "Thabo", "Naledi", "Kabelo", "Onalenna",
+            "William", "Grace", "Peter", "Mary", "James", "Anna", "Daniel", "Linda", "Joseph", "Susan"};
+    private static final String[] LAST = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+            "Molefe", "Mokoena", "Dlamini", "Sithole", "Khumalo", "Ndlovu", "Nkosi", "Masilo", "Kgosi", "Seretse",
+            "Phiri", "Banda", "Moyo", "Taylor", "Anderson", "Thomas", "Jackson", "White", "Harris", "Martin"};
+    private static final String[] COMPANY = {"Trading", "Holdings", "Logistics", "Mining", "Foods", "Tech",
+            "Solutions", "Motors", "Farms", "Consulting", "Energy", "Textiles"};
+    private static final String[] DOMAINS = {"gmail.com", "yahoo.com", "outlook.com", "mail.bw", "botsnet.bw"};
+
+    public static void main(String[] args) throws Exception {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        DatabaseConnection.getInstance();
+        Random random = new Random(42);
+        List<String> samples = new ArrayList<>();
+        long t0 = System.nanoTime();
+        load(customers, random, samples);
+        System.out.printf("Customer search: %,d customers loaded in %,d ms%n", customers, (System.nanoTime() - t0) / 1_000_000);
+
+        CustomerSearchIndex index = CustomerSearchIndex.getInstance();
+        System.gc();
+        long heapBefore = usedHeap();
+        long t1 = System.nanoTime();
+        index.rebuild();
+        long built = System.nanoTime() - t1;
+        System.gc();
+        System.out.printf("  index build (streaming scan): %,d ms, %,d customers, ~%,d MB heap%n",
+                built / 1_000_000, index.size(), (usedHeap() - heapBefore) / (1024 * 1024));
+
+        // Type-ahead: every prefix of a sampled field value, as a user would type it
+        List<String> keystrokes = new ArrayList<>();
+        while (keystrokes.size() < queries) {
+            String value = samples.get(random.nextInt(samples.size()));
+            for (int len = 1; len <= Math.min(value.length(), 10) && keystrokes.size() < queries; len++) {
+                keystrokes.add(value.substring(0, len));
+            }
+        }
+        for (int round = 0; round < 2; round++) {
+            long[] nanos = new long[keystrokes.size()];
+            long hits = 0;
+            for (int i = 0; i < keystrokes.size(); i++) {
+                long q0 = System.nanoTime();
+                hits += index.search(keystrokes.get(i), CustomerSearchIndex.DEFAULT_LIMIT).size();
+                nanos[i] = System.nanoTime() - q0;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("  type-ahead%s: %,d queries, p50 %,d us, p99 %,d us, p99.9 %,d us, max %,d us, %.1f hits/query%n",
+                    round == 0 ? " (warm-up)" : "", nanos.length, nanos[nanos.length / 2] / 1_000,
+                    nanos[(int) (nanos.length * 0.99)] / 1_000, nanos[(int) (nanos.length * 0.999)] / 1_000,
+                    nanos[nanos.length - 1] / 1_000, (double) hits / nanos.length);
+        }
+
+        // Multi-term and substring queries
+        for (String query : new String[]{"thabo mol", "olivia smith", "ngo", "@botsnet", "mining"}) {
+            long q0 = System.nanoTime();
+            List<CustomerSearchIndex.Hit> hits = index.search(query, CustomerSearchIndex.DEFAULT_LIMIT);
+            System.out.printf("  %-14s %,5d us  %d hits, first: %s%n", "\"" + query + "\"",
+                    (System.nanoTime() - q0) / 1_000, hits.size(), hits.isEmpty() ? "-" : hits.get(0).getLabel());
+        }
+
+        // The same lookups as LIKE scans
+        String likeSql = "SELECT customer_id FROM customers WHERE LOWER(first_name) LIKE ? OR LOWER(last_name) LIKE ? " +
+                "OR LOWER(company_name) LIKE ? OR LOWER(email) LIKE ? OR national_id LIKE ? OR phone LIKE ? " +
+                "OR LOWER(registration_number) LIKE ? LIMIT " + CustomerSearchIndex.DEFAULT_LIMIT;
+        for (String query : new String[]{"ngo", "thabo"}) {
+            long q0 = System.nanoTime();
+            UnitOfWork.execute(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(likeSql)) {
+                    for (int p = 1; p <= 7; p++) {
+                        pstmt.setString(p, "%" + query + "%");
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            rs.getString(1);
+                        }
+                    }
+                }
+                return null;
+            });
+            System.out.printf("  LIKE '%%%s%%' scan: %,d us%n", query, (System.nanoTime() - q0) / 1_000);
+        }
+
+        // Incremental maintenance through the DAO
+        CustomerDAOImpl customerDAO = new CustomerDAOImpl();
+        IndividualCustomer added = new IndividualCustomer("BENCH-NEW-1", "Zanele", "Quarshie", "BW-NEW-777");
+        added.setEmail("zanele.q@example.bw");
+        long s0 = System.nanoTime();
+        customerDAO.saveCustomer(added);
+        long saved = System.nanoTime() - s0;
+        boolean found = !index.search("quarsh", 1).isEmpty();
+        added.setLastName("Quarshie-Mensah");
+        customerDAO.updateCustomer(added);
+        boolean foundAfterUpdate = !index.search("mensah", 1).isEmpty();
+        System.out.printf("  saveCustomer %,d us, searchable after save: %s, after update: %s%n",
+                saved / 1_000, found, foundAfterUpdate);
+    }
+
+    private static void load(int customers, Random random, List<String> samples) throws Exception {
+        String sql = "INSERT INTO customers (customer_id, first_name, last_name, national_id, customer_type, " +
+                "username, email, phone, company_name, registration_number) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int batch = 10_000;
+        for (int from = 0; from < customers; from += batch) {
+            int start = from;
+            int end = Math.min(customers, from + batch);
+            UnitOfWork.execute(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                    for (int i = start; i < end; i++) {
+                        String phone = String.valueOf(71_000_000 + random.nextInt(9_000_000));
+                        pstmt.setString(1, "BENCH" + i);
+                        if (i % 10 == 0) {
+                            String company = LAST[random.nextInt(LAST.length)] + " " + COMPANY[random.nextInt(COMPANY.length)];
+                            String reg = "BW" + (2000 + random.nextInt(25)) + "-" + i;
+                            pstmt.setString(2, null);
+                            pstmt.setString(3, null);
+                            pstmt.setString(4, null);
+                            pstmt.setString(5, "COMPANY");
+                            pstmt.setString(6, null);
+                            pstmt.setString(7, "info" + i + "@" + DOMAINS[random.nextInt(DOMAINS.length)]);
+                            pstmt.setString(9, company);
+                            pstmt.setString(10, reg);
+                            if (random.nextInt(50) == 0) {
+                                samples.add(company);
+                                samples.add(reg);
+                            }
+                        } else {
+                            String first = FIRST[random.nextInt(FIRST.length)];
+                            String last = LAST[random.nextInt(LAST.length)];
+                            String nationalId = String.valueOf(100_000_000 + i);
+                            String email = first.toLowerCase() + "." + last.toLowerCase() + i + "@"
+                                    + DOMAINS[random.nextInt(DOMAINS.length)];
+                            pstmt.setString(2, first);
+                            pstmt.setString(3, last);
+                            pstmt.setString(4, nationalId);
+                            pstmt.setString(5, "INDIVIDUAL");
+                            pstmt.setString(6, "user" + i);
+                            pstmt.setString(7, email);
+                            pstmt.setString(9, null);
+                            pstmt.setString(10, null);
+                            if (random.nextInt(50) == 0) {
+                                samples.add(first + " " + last);
+                                samples.add(last);
+                                samples.add(email);
+                                samples.add(nationalId);
+                                samples.add(phone);
+                            }
+                        }
+                        pstmt.setString(8, phone);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                return null;
+            });
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
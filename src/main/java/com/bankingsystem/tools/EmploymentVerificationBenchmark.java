@@ -0,0 +1,171 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.AccountRequest;
+import com.bankingsystem.Bank;
+import com.bankingsystem.EmploymentInfo;
+import com.bankingsystem.EmploymentVerificationService;
+import com.bankingsystem.IndividualCustomer;
+import com.bankingsystem.SimulatedEmploymentVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EmploymentVerificationBenchmark - cheque account approvals against a slow employment verifier.
+ * Customers of a handful of employers request cheque accounts, then staff threads approve every
+ * request. The baseline calls the verifier synchronously for each approval, as a direct remote
+ * lookup would; the pipeline goes through EmploymentVerificationService (checks started at request
+ * time, coalesced per employer, cached). One employer is unknown to the verifier, so its requests
+ * must be rejected either way. A last run checks that a verifier slower than the timeout leaves
+ * the request pending instead of rejecting it.
+ *
+ * Usage: EmploymentVerificationBenchmark [requests] [employers] [staffThreads] [latencyMillis]
+ */
+public class EmploymentVerificationBenchmark {
+    private static final String UNKNOWN_EMPLOYER = "Employer 0";
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int employers = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int staff = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        long latency = args.length > 3 ? Long.parseLong(args[3]) : 200;
+
+        System.out.println("Employment verification: " + requests + " cheque requests over " + employers
+                + " employers, " + staff + " staff threads, verifier latency " + latency + " ms");
+        runBaseline(requests, employers, staff, latency);
+        SimulatedEmploymentVerifier verifier = new SimulatedEmploymentVerifier(latency, Set.of(UNKNOWN_EMPLOYER));
+        EmploymentVerificationService.getInstance().configure(verifier,
+                EmploymentVerificationService.DEFAULT_MAX_CONCURRENT, 10 * latency);
+        runPipeline("async, new employers", verifier, requests, employers, staff);
+        // Same employers again, as later applicants from the same workplaces would be
+        runPipeline("async, repeat employers", verifier, requests, employers, staff);
+        runTimeout(latency);
+    }
+
+    private static void runBaseline(int requests, int employers, int staff, long latency) throws Exception {
+        Bank bank = new Bank("VerificationBenchmarkBank", "001");
+        List<AccountRequest> pending = seed(bank, requests, employers);
+        SimulatedEmploymentVerifier verifier = new SimulatedEmploymentVerifier(latency, Set.of(UNKNOWN_EMPLOYER));
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger approved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long t0 = System.nanoTime();
+        runStaff(staff, pending, req -> {
+            long start = System.nanoTime();
+            try {
+                if (verifier.verify(req.getEmploymentInfo())) {
+                    bank.openAccount(customerOf(bank, req), req.getType(), req.getInitialDeposit());
+                    req.setStatus(AccountRequest.Status.APPROVED);
+                    approved.incrementAndGet();
+                } else {
+                    req.setStatus(AccountRequest.Status.REJECTED);
+                    rejected.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            latencies.add(System.nanoTime() - start);
+        });
+        report("synchronous per call", System.nanoTime() - t0, latencies, approved.get(), rejected.get(),
+                verifier.getCallCount(), 0, 0);
+    }
+
+    private static void runPipeline(String label, SimulatedEmploymentVerifier verifier, int requests, int employers,
+                                    int staff) throws Exception {
+        EmploymentVerificationService service = EmploymentVerificationService.getInstance();
+        long callsBefore = verifier.getCallCount();
+        long hitsBefore = service.getCacheHitCount();
+        long coalescedBefore = service.getCoalescedCount();
+
+        Bank bank = new Bank("VerificationBenchmarkBank", "001");
+        long t0 = System.nanoTime();
+        // Requesting starts the checks, so approvals right after find them in flight or cached
+        List<AccountRequest> pending = seed(bank, requests, employers);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger approved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<CompletableFuture<Boolean>> decisions = new ArrayList<>();
+        runStaff(staff, pending, req -> {
+            long start = System.nanoTime();
+            CompletableFuture<Boolean> decision = bank.approveRequestAsync(req.getId(), "staff1").whenComplete((ok, error) -> {
+                latencies.add(System.nanoTime() - start);
+                if (Boolean.TRUE.equals(ok)) approved.incrementAndGet();
+                else if (req.getStatus() == AccountRequest.Status.REJECTED) rejected.incrementAndGet();
+            });
+            synchronized (decisions) {
+                decisions.add(decision);
+            }
+        });
+        CompletableFuture.allOf(decisions.toArray(new CompletableFuture<?>[0])).join();
+        report(label, System.nanoTime() - t0, latencies, approved.get(), rejected.get(),
+                verifier.getCallCount() - callsBefore, service.getCacheHitCount() - hitsBefore,
+                service.getCoalescedCount() - coalescedBefore);
+    }
+
+    private static void runTimeout(long latency) {
+        EmploymentVerificationService service = EmploymentVerificationService.getInstance();
+        service.configure(new SimulatedEmploymentVerifier(latency, Set.of()), 1, latency / 4);
+        long timeoutsBefore = service.getTimeoutCount();
+        Bank bank = new Bank("VerificationBenchmarkBank", "001");
+        AccountRequest req = seed(bank, 1, 1).get(0);
+        boolean ok = bank.approveRequest(req.getId(), "staff1");
+        System.out.printf("  verifier slower than timeout: approved %s, request %s, timeouts %d%n",
+                ok, req.getStatus(), service.getTimeoutCount() - timeoutsBefore);
+    }
+
+    private static List<AccountRequest> seed(Bank bank, int requests, int employers) {
+        List<AccountRequest> created = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            String employer = "Employer " + (i % employers);
+            IndividualCustomer customer = new IndividualCustomer("CUST-EV" + i, "Verify", "Customer" + i, "NID-EV" + i);
+            customer.setEmployer(employer, "Plot " + (i % employers) + ", Gaborone", "employee");
+            bank.registerCustomer(customer);
+            created.add(bank.requestAccountOpen(customer, "cheque", 500.0,
+                    new EmploymentInfo(employer, "Plot " + (i % employers) + ", Gaborone", "employee")));
+        }
+        return created;
+    }
+
+    private static IndividualCustomer customerOf(Bank bank, AccountRequest req) {
+        return (IndividualCustomer) bank.getCustomers().stream()
+                .filter(c -> c.getCustomerID().equals(req.getCustomerId())).findFirst().orElseThrow();
+    }
+
+    private interface Approval {
+        void approve(AccountRequest req);
+    }
+
+    private static void runStaff(int staff, List<AccountRequest> pending, Approval approval) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(staff);
+        for (int t = 0; t < staff; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = next.getAndIncrement(); i < pending.size(); i = next.getAndIncrement()) {
+                        approval.approve(pending.get(i));
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "Staff-" + t);
+            thread.start();
+        }
+        done.await();
+    }
+
+    private static void report(String label, long elapsed, ConcurrentLinkedQueue<Long> latencies, int approved,
+                               int rejected, long calls, long cacheHits, long coalesced) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("  %-24s %8.2f s   p50 %8.2f ms   p99 %8.2f ms   approved %d   rejected %d   "
+                        + "verifier calls %d   cache hits %d   coalesced %d%n",
+                label, elapsed / 1e9,
+                sorted.length > 0 ? sorted[sorted.length / 2] / 1e6 : 0,
+                sorted.length > 0 ? sorted[(int) (sorted.length * 0.99)] / 1e6 : 0,
+                approved, rejected, calls, cacheHits, coalesced);
+    }
+}
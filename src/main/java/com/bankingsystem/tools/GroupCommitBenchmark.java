@@ -0,0 +1,123 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.GroupCommitWriter;
+import com.bankingsystem.persistence.UnitOfWork;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * GroupCommitBenchmark - throughput and latency of ledger writes with and without group commit.
+ * Many threads post deposits and withdrawals through TransactionController, first with one commit
+ * per operation, then with the GroupCommitWriter at several batch windows. For each setting it
+ * reports operations per second, per-operation latency percentiles, commits per operation and the
+ * average batch size, then checks that every stored balance still matches the in-memory mirror
+ * and races overdrawing withdrawals through the writer, so failed operations share batches.
+ *
+ * Commits per operation is what a database that syncs its log on every commit pays for; the
+ * embedded H2 database used here keeps its log in memory, so only the commit overhead shows.
+ *
+ * Usage: GroupCommitBenchmark [threads] [operationsPerThread] [accounts]
+ */
+public class GroupCommitBenchmark {
+    private static final long[] WINDOWS_MICROS = {0, 100, 250, 500, 1_000};
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+        LoadTestHarness.Fixture fixture = LoadTestHarness.Fixture.create(accountCount, 10_000.0);
+        TransactionController controller = new TransactionController(fixture.bank);
+        GroupCommitWriter writer = GroupCommitWriter.getInstance();
+        System.out.println("Group commit: " + threads + " threads x " + perThread + " deposits/withdrawals over "
+                + accountCount + " accounts");
+        System.out.println("  setting                      ops/s     p50 ms    p99 ms   commits/op   avg batch");
+
+        run("warm-up", controller, fixture, threads, perThread / 3, writer);
+        run("one commit per operation", controller, fixture, threads, perThread, writer);
+        for (long micros : WINDOWS_MICROS) {
+            writer.start(micros * 1_000L, GroupCommitWriter.DEFAULT_MAX_BATCH);
+            run("window " + micros + " us, max " + GroupCommitWriter.DEFAULT_MAX_BATCH, controller, fixture,
+                    threads, perThread, writer);
+            writer.stop();
+        }
+        writer.start(250_000L, 8);
+        run("window 250 us, max 8", controller, fixture, threads, perThread, writer);
+        writer.stop();
+        checkBalances(fixture);
+
+        // Withdrawals that fail inside a batch must be undone alone, without taking the batch down
+        writer.start(250_000L, GroupCommitWriter.DEFAULT_MAX_BATCH);
+        LoadTestHarness.overdraw(threads, 20);
+        writer.stop();
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void run(String label, TransactionController controller, LoadTestHarness.Fixture fixture,
+                            int threads, int perThread, GroupCommitWriter writer) throws InterruptedException {
+        long[][] latencies = new long[threads][perThread];
+        long commitsBefore = UnitOfWork.getCommitCount();
+        long batchesBefore = writer.getBatchCount();
+        long batchedBefore = writer.getOperationCount();
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long[] mine = latencies[t];
+            new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < perThread; i++) {
+                        String account = fixture.randomAccount();
+                        long t0 = System.nanoTime();
+                        if (random.nextInt(3) == 0) {
+                            controller.withdraw(account, 5.0);
+                        } else {
+                            controller.deposit(account, 5.0);
+                        }
+                        mine[i] = System.nanoTime() - t0;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+
+        int ops = threads * perThread;
+        long[] all = new long[ops];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        long batches = writer.getBatchCount() - batchesBefore;
+        System.out.printf("  %-26s %,9.0f  %8.2f  %8.2f  %11.3f  %10s%n", label, ops / (elapsed / 1e9),
+                all[ops / 2] / 1e6, all[(int) (ops * 0.99)] / 1e6,
+                (UnitOfWork.getCommitCount() - commitsBefore) / (double) ops,
+                batches > 0 ? String.format("%.1f", (writer.getOperationCount() - batchedBefore) / (double) batches) : "-");
+    }
+
+    private static void checkBalances(LoadTestHarness.Fixture fixture) {
+        AccountDAOImpl accounts = new AccountDAOImpl();
+        int mismatches = 0;
+        for (String accountNumber : fixture.accountNumbers) {
+            double stored = accounts.findAccountByNumber(accountNumber).map(a -> a.getBalance()).orElse(Double.NaN);
+            double mirrored = fixture.bank.findAccount(accountNumber).getBalance();
+            if (Math.abs(stored - mirrored) > 0.005) mismatches++;
+        }
+        System.out.printf("  stored vs in-memory balances: %d mismatch(es)  %s%n", mismatches, mismatches == 0 ? "OK" : "MISMATCH");
+    }
+}
@@ -0,0 +1,91 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.StripedBalanceDAO;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HotAccountBenchmark - deposit throughput into a single hot account as thread count rises.
+ * Runs the same deposits through TransactionController against one plain account (every credit
+ * updates the same accounts row) and one striped account (credits spread over sub-balance slots),
+ * then folds the striped account and checks that no credit was lost.
+ *
+ * Usage: HotAccountBenchmark [depositsPerThread] [stripes] [maxThreads]
+ */
+public class HotAccountBenchmark {
+    // successful deposits per account, used to check the final balances
+    private static final Map<String, AtomicLong> POSTED = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        int perThread = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int stripes = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        double amount = 1.0;
+
+        LoadTestHarness.Fixture fixture = LoadTestHarness.Fixture.create(2, 1.0);
+        TransactionController controller = new TransactionController(fixture.bank);
+        String plain = fixture.accountNumbers.get(0);
+        String striped = fixture.accountNumbers.get(1);
+        StripedBalanceDAO stripedDAO = StripedBalanceDAO.getInstance();
+        stripedDAO.enableStriping(striped, stripes);
+
+        System.out.println("Hot account deposits: " + perThread + " per thread, " + stripes + " stripes");
+        System.out.printf("  %8s %16s %16s%n", "threads", "plain ops/s", "striped ops/s");
+
+        // Warm up both paths
+        run(controller, plain, 4, 100, amount);
+        run(controller, striped, 4, 100, amount);
+        long openingDeposits = 1;
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double plainRate = run(controller, plain, threads, perThread, amount);
+            double stripedRate = run(controller, striped, threads, perThread, amount);
+            System.out.printf("  %8d %,16.0f %,16.0f%n", threads, plainRate, stripedRate);
+        }
+
+        stripedDAO.foldBalance(striped);
+        double plainBalance = stripedDAO.getBalance(plain).orElse(Double.NaN);
+        double stripedBalance = stripedDAO.getBalance(striped).orElse(Double.NaN);
+        double plainExpected = (openingDeposits + POSTED.get(plain).get()) * amount;
+        double stripedExpected = (openingDeposits + POSTED.get(striped).get()) * amount;
+        System.out.printf("  plain balance %.0f (expected %.0f), striped folded balance %.0f (expected %.0f)  %s%n",
+                plainBalance, plainExpected, stripedBalance, stripedExpected,
+                plainBalance == plainExpected && stripedBalance == stripedExpected ? "OK" : "MISMATCH");
+
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static double run(TransactionController controller, String accountNumber, int threads,
+                              int perThread, double amount) throws InterruptedException {
+        AtomicLong posted = POSTED.computeIfAbsent(accountNumber, k -> new AtomicLong());
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        if (controller.postDeposit(accountNumber, amount, null).isApplied()) {
+                            posted.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+        return (long) threads * perThread / (elapsed / 1e9);
+    }
+}
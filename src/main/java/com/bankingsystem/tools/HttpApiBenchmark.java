@@ -0,0 +1,212 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Account;
+import com.bankingsystem.Bank;
+import com.bankingsystem.IndividualCustomer;
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.api.BankingApiServer;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.utils.IDGenerator;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HttpApiBenchmark - requests per second through BankingApiServer with many concurrent clients.
+ * Seeds individual customers who can log in, starts the server on a free port, and runs one
+ * virtual-thread client per customer: log in, then a mix of balance reads, history pages and
+ * deposits (each with an Idempotency-Key) against the customer's own account. Afterwards every
+ * balance is checked against the deposits the server acknowledged, and a staff client approves
+ * the pending accounts through the API.
+ *
+ * Usage: HttpApiBenchmark [clients] [requestsPerClient]
+ */
+public class HttpApiBenchmark {
+    private static final double OPENING = 100.0;
+    private static final int PENDING_ACCOUNTS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int perClient = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+        Bank bank = new Bank("ApiBenchmarkBank", "001");
+        CustomerDAOImpl customerDAO = new CustomerDAOImpl();
+        AccountDAOImpl accountDAO = new AccountDAOImpl();
+        List<String[]> logins = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            IndividualCustomer customer = seedCustomer(bank, customerDAO, "api" + i);
+            Account account = bank.openAccount(customer, "savings", OPENING);
+            account.approve("benchmark");
+            accountDAO.saveAccount(account);
+            logins.add(new String[]{customer.getUsername(), account.getAccountNumber()});
+        }
+        IndividualCustomer applicant = seedCustomer(bank, customerDAO, "applicant");
+        java.lang.reflect.Field numberField = Account.class.getDeclaredField("accountNumber");
+        numberField.setAccessible(true);
+        for (int i = 0; i < PENDING_ACCOUNTS; i++) {
+            // Pending rows carry a placeholder number until approval, as DatabaseInitializer seeds them
+            Account account = bank.openAccount(applicant, "savings", OPENING);
+            numberField.set(account, "ACC-PENDING-API" + i);
+            accountDAO.saveAccount(account);
+        }
+
+        BankingApiServer server = new BankingApiServer(bank);
+        server.start(new InetSocketAddress("127.0.0.1", 0));
+        String base = "http://127.0.0.1:" + server.getPort() + "/api/";
+        ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientThreads)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        System.out.println("HTTP API: " + clients + " concurrent clients, " + perClient + " requests each after login");
+
+        for (int round = 0; round < 2; round++) {
+            run(round == 0 ? "warm-up" : "measured", http, base, bank, logins,
+                    round == 0 ? Math.min(clients, 100) : clients, round == 0 ? 5 : perClient);
+        }
+
+        // Staff approvals through the API
+        String staffToken = login(http, base, "staff1", "adminpass", "Staff");
+        JsonObject pending = JsonParser.parseString(
+                send(http, base + "approvals", staffToken, null, null).body()).getAsJsonObject();
+        int approved = 0;
+        for (var element : pending.getAsJsonArray("accounts")) {
+            String number = element.getAsJsonObject().get("accountNumber").getAsString();
+            if (send(http, base + "approvals/" + number + "/approve", staffToken, "{}", null).statusCode() == 200) {
+                approved++;
+            }
+        }
+        int stillPending = JsonParser.parseString(send(http, base + "approvals", staffToken, null, null).body())
+                .getAsJsonObject().getAsJsonArray("accounts").size();
+        System.out.printf("  staff approvals: %d of %d pending approved, %d still pending%n", approved,
+                pending.getAsJsonArray("accounts").size(), stillPending);
+
+        server.stop();
+        clientThreads.shutdown();
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void run(String label, HttpClient http, String base, Bank bank, List<String[]> logins,
+                            int clients, int perClient) throws InterruptedException {
+        double[] before = new double[clients];
+        for (int i = 0; i < clients; i++) {
+            before[i] = bank.findAccount(logins.get(i)[1]).getBalance();
+        }
+        double[] deposited = new double[clients];
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong requests = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            Thread.ofVirtual().start(() -> {
+                long[] own = new long[perClient];
+                boolean counted = false;
+                try {
+                    String[] user = logins.get(client);
+                    String token = login(http, base, user[0], "secret", "Individual");
+                    ready.countDown();
+                    counted = true;
+                    go.await();
+                    String account = base + "accounts/" + user[1];
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < perClient; i++) {
+                        int pick = random.nextInt(10);
+                        long t0 = System.nanoTime();
+                        HttpResponse<String> response;
+                        if (pick < 5) {
+                            response = send(http, account + "/balance", token, null, null);
+                        } else if (pick < 8) {
+                            response = send(http, account + "/history?limit=20", token, null, null);
+                        } else {
+                            double amount = 1 + random.nextInt(50);
+                            response = send(http, account + "/deposit", token, "{\"amount\":" + amount + "}",
+                                    UUID.randomUUID().toString());
+                            if (response.statusCode() == 200) deposited[client] += amount;
+                        }
+                        own[i] = System.nanoTime() - t0;
+                        if (response.statusCode() != 200) failures.incrementAndGet();
+                    }
+                    requests.addAndGet(perClient);
+                    latencies.add(own);
+                } catch (Exception e) {
+                    System.err.println("Client " + client + " failed: " + e.getMessage());
+                    failures.incrementAndGet();
+                    if (!counted) ready.countDown();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        ready.await();
+        long t0 = System.nanoTime();
+        go.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        int wrong = 0;
+        for (int i = 0; i < clients; i++) {
+            double balance = bank.findAccount(logins.get(i)[1]).getBalance();
+            if (Math.abs(balance - before[i] - deposited[i]) > 0.005) wrong++;
+        }
+        System.out.printf("  %-8s  %,10.0f req/s   p50 %7.2f ms   p99 %7.2f ms   failures %d   balances %s%n",
+                label, requests.get() / (elapsed / 1e9),
+                all.length > 0 ? all[all.length / 2] / 1e6 : 0, all.length > 0 ? all[(int) (all.length * 0.99)] / 1e6 : 0,
+                failures.get(), wrong == 0 ? "OK" : wrong + " WRONG");
+    }
+
+    private static IndividualCustomer seedCustomer(Bank bank, CustomerDAOImpl customerDAO, String username) {
+        IndividualCustomer customer = new IndividualCustomer(IDGenerator.generateCustomerID(), "Api", username,
+                "NID-" + username);
+        customer.setUsername(username);
+        customer.setPassword("secret");
+        bank.registerCustomer(customer);
+        customerDAO.saveCustomer(customer);
+        return customer;
+    }
+
+    private static String login(HttpClient http, String base, String username, String credential,
+                                String userType) throws Exception {
+        String body = "{\"username\":\"" + username + "\",\"credential\":\"" + credential
+                + "\",\"userType\":\"" + userType + "\"}";
+        HttpResponse<String> response = send(http, base + "login", null, body, null);
+        if (response.statusCode() != 200) throw new IllegalStateException("Login failed: " + response.body());
+        return JsonParser.parseString(response.body()).getAsJsonObject().get("token").getAsString();
+    }
+
+    private static HttpResponse<String> send(HttpClient http, String uri, String token, String body,
+                                             String idempotencyKey) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(60));
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        if (idempotencyKey != null) request.header("Idempotency-Key", idempotencyKey);
+        if (body != null) {
+            request.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body));
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
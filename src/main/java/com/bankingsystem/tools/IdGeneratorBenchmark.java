@@ -0,0 +1,95 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.SequenceBlockAllocator;
+import com.bankingsystem.utils.HiLoSequence;
+import com.bankingsystem.utils.IDGenerator;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * IdGeneratorBenchmark - contention benchmark for ID generation at 64 threads.
+ * Compares the old in-JVM counter + String.format path with the hi/lo generator,
+ * and checks that two generators sharing one database (two "processes") never collide.
+ *
+ * Usage: IdGeneratorBenchmark [threads] [idsPerThread]
+ */
+public class IdGeneratorBenchmark {
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        System.out.println("ID generation benchmark: " + threads + " threads x " + perThread + " IDs");
+
+        // Baseline: the previous implementation (AtomicLong + String.format per call)
+        AtomicLong legacyCounter = new AtomicLong(1);
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyyMMdd");
+        Supplier<String> legacy = () -> "TXN" + LocalDate.now().format(fmt) + "-"
+                + String.format("%04d", legacyCounter.getAndIncrement());
+
+        // Warm up both paths (and reserve the first blocks) before measuring
+        run("warm-up legacy", threads, 2_000, legacy, false);
+        run("warm-up hi/lo", threads, 2_000, IDGenerator::generateTransactionID, false);
+
+        long before = IDGenerator.getBlockReservationCount();
+        run("legacy AtomicLong + String.format", threads, perThread, legacy, false);
+        run("hi/lo IDGenerator.generateTransactionID", threads, perThread, IDGenerator::generateTransactionID, true);
+        long roundTrips = IDGenerator.getBlockReservationCount() - before;
+        System.out.printf("  block reservations (DB round trips) during measured run: %d for %d IDs%n",
+                roundTrips, (long) threads * perThread);
+
+        // Two independent generators on the same sequence row behave like two processes
+        SequenceBlockAllocator allocator = SequenceBlockAllocator.getInstance();
+        HiLoSequence processA = new HiLoSequence("benchmark", 1, 500, allocator);
+        HiLoSequence processB = new HiLoSequence("benchmark", 1, 500, allocator);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        AtomicLong duplicates = new AtomicLong();
+        Supplier<String> shared = () -> {
+            HiLoSequence seq = (Thread.currentThread().threadId() & 1) == 0 ? processA : processB;
+            if (!seen.add(seq.next())) duplicates.incrementAndGet();
+            return null;
+        };
+        run("two generators sharing one sequence", threads, perThread / 4, shared, false);
+        System.out.println("  cross-generator duplicates: " + duplicates.get() + " of " + seen.size() + " IDs");
+
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void run(String label, int threads, int perThread, Supplier<String> generator, boolean checkUnique)
+            throws InterruptedException {
+        Set<String> ids = checkUnique ? ConcurrentHashMap.newKeySet(threads * perThread) : null;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        String id = generator.get();
+                        if (ids != null) ids.add(id);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+        long total = (long) threads * perThread;
+        System.out.printf("  %-45s %,12.0f ids/s  (%,d ms)%n", label, total / (elapsed / 1e9), elapsed / 1_000_000);
+        if (ids != null) {
+            System.out.println("  unique IDs: " + ids.size() + " / " + total);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.IdempotencyKeyDAO;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * IdempotencyBenchmark - checks and costs of idempotent money movements.
+ *  - a double-click: many threads submit the same deposit key at once; exactly one ledger row
+ *  - a retry: the cached result comes back without a ledger write, timed against a real deposit
+ *  - a restart: a key committed earlier but not in the cache is answered from idempotency_keys
+ *  - a key reused for a different request is refused; a request that failed can be retried
+ *
+ * Usage: IdempotencyBenchmark [retries] [clickThreads]
+ */
+public class IdempotencyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int retries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int clickThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+        LoadTestHarness.Fixture fixture = LoadTestHarness.Fixture.create(2, 100.0);
+        TransactionController controller = new TransactionController(fixture.bank);
+        TransactionDAOImpl transactions = new TransactionDAOImpl();
+        String account = fixture.accountNumbers.get(0);
+        String other = fixture.accountNumbers.get(1);
+        System.out.println("Idempotency: " + clickThreads + " concurrent submits, " + retries + " retries");
+
+        // Double-click: the same key from many threads at once
+        String clickKey = UUID.randomUUID().toString();
+        int rowsBefore = ledgerRows(transactions, account);
+        Set<String> results = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clickThreads);
+        for (int t = 0; t < clickThreads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    results.add(controller.deposit(account, 10.0, clickKey));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        int posted = ledgerRows(transactions, account) - rowsBefore;
+        System.out.printf("  concurrent submits: %d ledger row(s), %d distinct result(s)  %s%n",
+                posted, results.size(), posted == 1 && results.size() == 1 ? "OK" : "MISMATCH");
+
+        // Retries of a completed request, against fresh deposits
+        String first = controller.deposit(account, 1.0, "retry-key");
+        long[] retryNanos = new long[retries];
+        boolean same = true;
+        for (int i = 0; i < retries; i++) {
+            long t0 = System.nanoTime();
+            same &= controller.deposit(account, 1.0, "retry-key").equals(first);
+            retryNanos[i] = System.nanoTime() - t0;
+        }
+        int freshCount = 500;
+        long t1 = System.nanoTime();
+        for (int i = 0; i < freshCount; i++) {
+            controller.deposit(other, 1.0, UUID.randomUUID().toString());
+        }
+        long freshNanos = (System.nanoTime() - t1) / freshCount;
+        Arrays.sort(retryNanos);
+        System.out.printf("  retry: p50 %.2f us, p99 %.2f us (new deposit: %.1f us), same result %s%n",
+                retryNanos[retries / 2] / 1e3, retryNanos[(int) (retries * 0.99)] / 1e3, freshNanos / 1e3,
+                same ? "OK" : "MISMATCH");
+
+        // A key committed before this process started: only the table knows it
+        String restartKey = UUID.randomUUID().toString();
+        String request = "DEPOSIT " + account + " " + 5.0;
+        IdempotencyKeyDAO.getInstance().record(restartKey, request, "Successfully deposited BWP 5.00 (before restart)");
+        rowsBefore = ledgerRows(transactions, account);
+        String replayed = controller.deposit(account, 5.0, restartKey);
+        System.out.printf("  after restart: \"%s\", %d ledger row(s) written  %s%n", replayed,
+                ledgerRows(transactions, account) - rowsBefore,
+                replayed.endsWith("(before restart)") && ledgerRows(transactions, account) == rowsBefore ? "OK" : "MISMATCH");
+
+        // Misuse and failures
+        String reused = controller.withdraw(account, 10.0, clickKey);
+        System.out.println("  key reused for a withdrawal: " + reused);
+        String failKey = UUID.randomUUID().toString();
+        String failed = controller.withdraw(other, 1_000_000.0, failKey);
+        controller.deposit(other, 1_000_000.0);
+        String retried = controller.withdraw(other, 1_000_000.0, failKey);
+        System.out.printf("  failed then retried with the same key: \"%s\" -> \"%s\"%n", failed, retried);
+
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static int ledgerRows(TransactionDAOImpl transactions, String account) {
+        return transactions.countTransactions(TransactionHistoryQuery.forAccount(account));
+    }
+}
@@ -0,0 +1,248 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Transaction;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.dao.TransactionPage;
+import com.bankingsystem.persistence.BalanceCheckpointDAO;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.LedgerArchive;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * LedgerArchiveBenchmark - size, cost and transparency of archiving cold ledger history.
+ * Seeds accounts with a year of deposits straight through JDBC and records, for a sample of
+ * accounts, what the history queries, paged history in every sort order, totals and
+ * point-in-time balances return. Then archives everything older than 90 days into a temporary
+ * directory and checks that every one of those answers is unchanged, and compares the table
+ * and archive sizes and the cost of history reads before and after.
+ *
+ * Usage: LedgerArchiveBenchmark [accounts] [rowsPerAccount] [sampledAccounts]
+ */
+public class LedgerArchiveBenchmark {
+    private static final int MONTHS = 12;
+    private static final int PAGE = 25;
+    private static final int READS = 500;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+        int sampled = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        long t0 = System.nanoTime();
+        seed(accounts, rows);
+        System.out.printf("Ledger archive: %,d accounts x %,d rows over %d months (seeded in %,d ms)%n",
+                accounts, rows, MONTHS, (System.nanoTime() - t0) / 1_000_000);
+
+        TransactionDAOImpl dao = new TransactionDAOImpl();
+        List<String> sample = new ArrayList<>(sampled);
+        for (int i = 0; i < sampled; i++) {
+            sample.add(number(i * (accounts / sampled)));
+        }
+        List<String> before = answers(dao, sample);
+        long[] readsBefore = timeReads(dao, accounts);
+        long tableBefore = tableRows();
+
+        Path directory = Files.createTempDirectory("ledger-archive");
+        LedgerArchive archive = LedgerArchive.getInstance();
+        archive.open(directory);
+        t0 = System.nanoTime();
+        long archived = archive.archive(LedgerArchive.DEFAULT_MAX_AGE_DAYS);
+        long elapsed = (System.nanoTime() - t0) / 1_000_000;
+        System.out.printf("  archived %,d of %,d rows into %d segments in %,d ms; %,d rows left in the table%n",
+                archived, tableBefore, archive.getSegmentCount(), elapsed, tableRows());
+        System.out.printf("  archive on disk %,d KB (%.1f bytes per row)%n",
+                archive.getSizeBytes() / 1024, (double) archive.getSizeBytes() / Math.max(1, archived));
+
+        List<String> after = answers(dao, sample);
+        int differences = 0;
+        for (int i = 0; i < before.size(); i++) {
+            if (!before.get(i).equals(after.get(i))) differences++;
+        }
+        System.out.println("  answers for " + sampled + " accounts before vs after archiving: "
+                + (differences == 0 && before.size() == after.size() ? "IDENTICAL (" + before.size() + " checks)"
+                : differences + " DIFFERENT of " + before.size()));
+
+        long[] readsAfter = timeReads(dao, accounts);
+        String[] labels = {"newest page", "oldest page", "full history"};
+        for (int i = 0; i < labels.length; i++) {
+            System.out.printf("  %-12s  before %,6d us   after %,6d us%n", labels[i], readsBefore[i] / 1_000, readsAfter[i] / 1_000);
+        }
+
+        archive.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    /**
+     * Everything the history reads say about the sampled accounts, one string per check
+     */
+    private static List<String> answers(TransactionDAOImpl dao, List<String> sample) {
+        List<String> answers = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (String account : sample) {
+            answers.add(keys(dao.getTransactionsByAccountNumber(account)));
+            answers.add(keys(dao.getTransactionsByDateRange(account, now.minusDays(200), now.minusDays(60))));
+            answers.add(keys(dao.getRecentTransactions(account, 10)));
+            answers.add(dao.getTransactionCount(account) + " " + Math.round(dao.getTotalTransferred(account) * 100)
+                    + " " + Math.round(dao.getTotalInterestEarned(account) * 100));
+            for (TransactionHistoryQuery.SortField field : TransactionHistoryQuery.SortField.values()) {
+                for (boolean ascending : new boolean[]{false, true}) {
+                    TransactionHistoryQuery query = TransactionHistoryQuery.forAccount(account).sortedBy(field, ascending);
+                    answers.add(walk(dao, query));
+                    answers.add(String.valueOf(dao.countTransactions(query)));
+                    answers.add(keys(dao.getTransactionPage(query, 40, PAGE).getTransactions()));
+                }
+            }
+            TransactionHistoryQuery filtered = TransactionHistoryQuery.forAccount(account)
+                    .withType(Transaction.Type.INTEREST).withDateRange(now.minusDays(300), null);
+            answers.add(walk(dao, filtered) + " " + dao.countTransactions(filtered));
+            for (int days : new int[]{30, 100, 200, 330}) {
+                answers.add(String.valueOf(Math.round(
+                        BalanceCheckpointDAO.getInstance().balanceAsOf(account, now.minusDays(days)).orElse(-1) * 100)));
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Every page of a query, following cursors
+     */
+    private static String walk(TransactionDAOImpl dao, TransactionHistoryQuery query) {
+        List<Transaction> all = new ArrayList<>();
+        TransactionPage page = dao.getTransactionPageAfter(query, null, PAGE);
+        all.addAll(page.getTransactions());
+        while (page.hasMore()) {
+            page = dao.getTransactionPageAfter(query, page.getEnd(), PAGE);
+            all.addAll(page.getTransactions());
+        }
+        return keys(all);
+    }
+
+    /**
+     * Mean time of a newest-first first page, an oldest-first first page and a full history
+     */
+    private static long[] timeReads(TransactionDAOImpl dao, int accounts) {
+        long[] times = new long[3];
+        long sink = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int kind = 0; kind < 3; kind++) {
+                long t0 = System.nanoTime();
+                for (int r = 0; r < READS; r++) {
+                    String account = number(ThreadLocalRandom.current().nextInt(accounts));
+                    TransactionHistoryQuery query = TransactionHistoryQuery.forAccount(account);
+                    switch (kind) {
+                        case 0 -> sink += dao.getTransactionPageAfter(query, null, PAGE).getTransactions().size();
+                        case 1 -> sink += dao.getTransactionPageAfter(query.sortedBy(TransactionHistoryQuery.SortField.TIMESTAMP, true),
+                                null, PAGE).getTransactions().size();
+                        default -> sink += dao.getTransactionsByAccountNumber(account).size();
+                    }
+                }
+                times[kind] = (System.nanoTime() - t0) / READS;
+            }
+        }
+        if (sink == 0) System.out.println("  (no rows read)");
+        return times;
+    }
+
+    private static String keys(List<Transaction> transactions) {
+        StringBuilder keys = new StringBuilder();
+        for (Transaction transaction : transactions) {
+            keys.append(transaction.getType()).append(' ').append(transaction.getAmount()).append(' ')
+                    .append(transaction.getBalanceAfter()).append(' ').append(transaction.getTimestamp()).append(';');
+        }
+        return keys.toString();
+    }
+
+    private static long tableRows() throws Exception {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM transactions")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static String number(int account) {
+        return String.format("AR%07d", account);
+    }
+
+    /**
+     * Deposits and interest at random moments over the last MONTHS months, with balance_after
+     * chained in timestamp order and the account balance equal to the last one
+     */
+    private static void seed(int accounts, int rows) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        long span = MONTHS * 30L * 24 * 3600;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement customer = connection.prepareStatement(
+                         "INSERT INTO customers (customer_id, customer_type, first_name, last_name) VALUES (?, 'INDIVIDUAL', 'Archive', ?)");
+                 PreparedStatement account = connection.prepareStatement(
+                         "INSERT INTO accounts (account_number, customer_id, account_type, balance, status, date_opened) " +
+                         "VALUES (?, ?, 'SavingsAccount', ?, 'APPROVED', ?)");
+                 PreparedStatement ledger = connection.prepareStatement(
+                         "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                         "balance_after, description, transaction_timestamp) VALUES (?, ?, ?, 'CREDIT', ?, ?, ?, ?)")) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int a = 0; a < accounts; a++) {
+                    String number = number(a);
+                    List<LocalDateTime> moments = new ArrayList<>(rows);
+                    for (int r = 0; r < rows; r++) {
+                        moments.add(now.minusSeconds(1 + random.nextLong(span)));
+                    }
+                    moments.sort(Comparator.naturalOrder());
+                    double balance = 0;
+                    for (int r = 0; r < rows; r++) {
+                        boolean interest = r % 10 == 9;
+                        double amount = interest ? Math.round(balance * 0.5) / 100.0 : 10 + random.nextInt(500);
+                        balance += amount;
+                        ledger.setString(1, number + "-" + r);
+                        ledger.setString(2, number);
+                        ledger.setString(3, interest ? "INTEREST" : "DEPOSIT");
+                        ledger.setDouble(4, amount);
+                        ledger.setDouble(5, balance);
+                        ledger.setString(6, interest ? "Monthly interest" : "Deposit");
+                        ledger.setTimestamp(7, Timestamp.valueOf(moments.get(r)));
+                        ledger.addBatch();
+                    }
+                    customer.setString(1, "CUST-ARC" + a);
+                    customer.setString(2, "Customer" + a);
+                    customer.addBatch();
+                    account.setString(1, number);
+                    account.setString(2, "CUST-ARC" + a);
+                    account.setDouble(3, balance);
+                    account.setDate(4, java.sql.Date.valueOf(LocalDate.now().minusMonths(MONTHS + 1)));
+                    account.addBatch();
+                    if ((a + 1) % 100 == 0) {
+                        customer.executeBatch();
+                        account.executeBatch();
+                        ledger.executeBatch();
+                    }
+                }
+                customer.executeBatch();
+                account.executeBatch();
+                ledger.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
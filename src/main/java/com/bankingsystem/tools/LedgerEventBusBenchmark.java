@@ -0,0 +1,179 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.utils.LedgerAuditTrail;
+import com.bankingsystem.utils.LedgerEventBus;
+import com.bankingsystem.utils.LedgerMetrics;
+
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * LedgerEventBusBenchmark - throughput of the ledger event bus and how far its subscribers lag.
+ *  - raw: publisher threads flood the bus while a dashboard-style filter, the audit trail and the
+ *    metrics subscribe; reports events per second, delivery latency and backlog per subscriber
+ *  - backpressure: a deliberately slow subscriber on a small ring; publishers are held back
+ *    instead of events being dropped, and the backlog never exceeds the ring
+ *  - end to end: TransactionController deposits through the load-test harness with the metrics
+ *    subscribed; every committed deposit is counted, and the lag stays near zero
+ *
+ * Usage: LedgerEventBusBenchmark [eventsPerPublisher] [publishers] [controllerOperationsPerThread]
+ */
+public class LedgerEventBusBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int perPublisher = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int publishers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        for (int round = 0; round < 2; round++) {
+            raw(round == 0 ? "raw (warm-up)" : "raw", new LedgerEventBus(LedgerEventBus.DEFAULT_CAPACITY),
+                    publishers, perPublisher, 0);
+        }
+        raw("backpressure", new LedgerEventBus(1_024), publishers, perPublisher / 50, 20_000);
+        endToEnd(perThread);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void raw(String label, LedgerEventBus bus, int publishers, int perPublisher, long slowNanos)
+            throws InterruptedException {
+        int total = publishers * perPublisher;
+        LagRecorder dashboard = new LagRecorder(bus, total, slowNanos);
+        LagRecorder audit = new LagRecorder(bus, total, 0);
+        LagRecorder metrics = new LagRecorder(bus, total, 0);
+        LedgerAuditTrail trail = new LedgerAuditTrail(Writer.nullWriter());
+        LedgerEventBus.Subscription[] subscriptions = {
+                bus.subscribe(slowNanos > 0 ? "SlowDashboard" : "Dashboard", dashboard::onDashboardEvent),
+                bus.subscribe("AuditLag", audit::onEvent),
+                bus.subscribe("MetricsLag", metrics::onEvent),
+        };
+        trail.start(bus);
+
+        String[] customers = new String[1024];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = "CUST" + i;
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(publishers);
+        for (int p = 0; p < publishers; p++) {
+            String account = String.format("ACC%09d", p);
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perPublisher; i++) {
+                        bus.publish(LedgerEventBus.Kind.DEPOSIT, account, null, customers[i & 1023], 10.0, i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long published = System.nanoTime() - t0;
+        for (LagRecorder recorder : new LagRecorder[]{dashboard, audit, metrics}) {
+            recorder.drained.await();
+        }
+        long drained = System.nanoTime() - t0;
+        while (trail.getWrittenCount() < total) Thread.onSpinWait();
+
+        System.out.printf("%s: %,d events from %d publishers, ring of %,d%n", label, total, publishers, bus.getCapacity());
+        System.out.printf("  published %,.0f events/s, all subscribers drained at %,.0f events/s, %,d publisher waits%n",
+                total / (published / 1e9), total / (drained / 1e9), bus.getBackpressureWaits());
+        for (int i = 0; i < subscriptions.length; i++) {
+            LagRecorder recorder = new LagRecorder[]{dashboard, audit, metrics}[i];
+            recorder.report(subscriptions[i]);
+            subscriptions[i].close();
+        }
+        trail.stop();
+    }
+
+    private static void endToEnd(int perThread) throws InterruptedException {
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+        LoadTestHarness.Fixture fixture = LoadTestHarness.Fixture.create(50, 10_000.0);
+        TransactionController controller = new TransactionController(fixture.bank);
+        LedgerMetrics metrics = LedgerMetrics.getInstance();
+        metrics.start(LedgerEventBus.getInstance());
+        int threads = 8;
+        System.out.println("End to end: " + threads + " threads x " + perThread + " deposits, metrics subscribed");
+
+        long[] maxLag = new long[1];
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                maxLag[0] = Math.max(maxLag[0], metrics.getLag());
+                Thread.onSpinWait();
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        LoadTestHarness.measure("deposit", threads, perThread, () -> controller.deposit(fixture.randomAccount(), 10.0));
+        long deadline = System.nanoTime() + 1_000_000_000L;
+        while (metrics.getLag() > 0 && System.nanoTime() < deadline) Thread.onSpinWait();
+        sampler.interrupt();
+
+        long counted = metrics.getCount(LedgerEventBus.Kind.DEPOSIT);
+        System.out.printf("  deposits counted by the metrics subscriber: %,d of %,d (BWP %,.2f)  %s%n",
+                counted, threads * perThread, metrics.getNetAmount(LedgerEventBus.Kind.DEPOSIT),
+                counted == threads * perThread ? "OK" : "MISMATCH");
+        System.out.printf("  largest backlog seen: %d event(s)%n", maxLag[0]);
+        metrics.stop();
+    }
+
+    /**
+     * Subscriber that records how long each event took to reach it and how far behind it was
+     */
+    private static final class LagRecorder {
+        private final LedgerEventBus bus;
+        private final long[] latencies;
+        private final long slowNanos;
+        private final CountDownLatch drained = new CountDownLatch(1);
+        private int received;
+        private long maxBacklog;
+        private int refreshes;
+        private boolean dirty;
+
+        LagRecorder(LedgerEventBus bus, int expected, long slowNanos) {
+            this.bus = bus;
+            this.latencies = new long[expected];
+            this.slowNanos = slowNanos;
+        }
+
+        void onEvent(LedgerEventBus.Event event, boolean endOfBatch) {
+            latencies[received++] = System.nanoTime() - event.getPublishedNanos();
+            maxBacklog = Math.max(maxBacklog, bus.getPublishedCount() - 1 - event.getSequence());
+            if (slowNanos > 0) {
+                long until = System.nanoTime() + slowNanos;
+                while (System.nanoTime() < until) Thread.onSpinWait();
+            }
+            if (received == latencies.length) drained.countDown();
+        }
+
+        /**
+         * Like DashboardRefreshManager: filter every event, refresh once per batch
+         */
+        void onDashboardEvent(LedgerEventBus.Event event, boolean endOfBatch) {
+            dirty |= event.getKind().isMoneyMovement() && event.getCustomerId().endsWith("7");
+            if (endOfBatch && dirty) {
+                dirty = false;
+                refreshes++;
+            }
+            onEvent(event, endOfBatch);
+        }
+
+        void report(LedgerEventBus.Subscription subscription) {
+            long[] sorted = Arrays.copyOf(latencies, received);
+            Arrays.sort(sorted);
+            System.out.printf("  %-13s lag p50 %,9.1f us  p99 %,9.1f us  max %,10.1f us   backlog max %,6d   avg batch %,6.1f%s%n",
+                    subscription.getName(), sorted[received / 2] / 1e3, sorted[(int) (received * 0.99)] / 1e3,
+                    sorted[received - 1] / 1e3, maxBacklog,
+                    subscription.getProcessedCount() / (double) Math.max(1, subscription.getBatchCount()),
+                    refreshes > 0 ? String.format("   (%,d refreshes)", refreshes) : "");
+        }
+    }
+}
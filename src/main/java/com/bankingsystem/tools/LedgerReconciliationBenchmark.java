@@ -0,0 +1,173 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.LedgerReconciler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * LedgerReconciliationBenchmark - throughput, memory and accuracy of the ledger reconciliation.
+ * Seeds accounts with consistent ledger chains straight through JDBC (pairs of rows share a
+ * timestamp with their ids in reverse order, some accounts are striped hot accounts with credits
+ * on their stripes), then drifts a few accounts: a changed stored balance, or one corrupted
+ * balance_after. Reconciles with 1, 2, 4 and 8 workers and reports rows per second and whether
+ * exactly the drifted accounts were reported, then measures the heap a run keeps live.
+ *
+ * Scaling with workers needs as many cores as workers; on a single core the runs should match.
+ *
+ * Usage: LedgerReconciliationBenchmark [ledgerRows] [accounts]
+ */
+public class LedgerReconciliationBenchmark {
+    private static final int[] WORKERS = {1, 2, 4, 8};
+    private static final int DRIFTED = 10;
+    private static final int STRIPED_EVERY = 500;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        Set<String> drifted = new HashSet<>();
+        long t0 = System.nanoTime();
+        seed(accounts, rows / accounts, drifted);
+        System.out.printf("Ledger reconciliation: %,d ledger rows over %,d accounts (seeded in %,d ms), %d drifted%n",
+                (long) rows / accounts * accounts, accounts, (System.nanoTime() - t0) / 1_000_000, drifted.size());
+
+        run("warm-up", 2, drifted);
+        for (int workers : WORKERS) {
+            run(workers + " worker(s)", workers, drifted);
+        }
+        liveHeap();
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void run(String label, int workers, Set<String> drifted) {
+        LedgerReconciler.Report report = new LedgerReconciler(workers).reconcile();
+        Set<String> reported = new HashSet<>();
+        for (LedgerReconciler.Mismatch mismatch : report.getMismatches()) {
+            reported.add(mismatch.getAccountNumber());
+        }
+        System.out.printf("  %-12s %,10.0f rows/s  %,6d ms  %,d chain breaks, %,d balance mismatches, %,d unanchored  %s%n",
+                label, report.getRowCount() / (report.getElapsedMillis() / 1e3), report.getElapsedMillis(),
+                report.getChainBreakCount(), report.getBalanceMismatchCount(), report.getUnanchoredAccounts(),
+                reported.equals(drifted) && report.getFailedPartitionCount() == 0 ? "OK" : "MISMATCH " + reported);
+    }
+
+    /**
+     * Untimed run that collects garbage every few milliseconds, so what is left is what the
+     * reconciliation keeps live; it should not grow with the ledger
+     */
+    private static void liveHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long baseline = runtime.totalMemory() - runtime.freeMemory();
+        long[] maxLive = {baseline};
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                System.gc();
+                maxLive[0] = Math.max(maxLive[0], runtime.totalMemory() - runtime.freeMemory());
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        LedgerReconciler.Report report = new LedgerReconciler(WORKERS[WORKERS.length - 1]).reconcile();
+        sampler.interrupt();
+        sampler.join();
+        System.out.printf("  live heap while reconciling %,d rows with %d workers: at most %,d KB above idle%n",
+                report.getRowCount(), WORKERS[WORKERS.length - 1], (maxLive[0] - baseline) >> 10);
+    }
+
+    /**
+     * Insert the accounts and their ledgers, then drift DRIFTED of them
+     */
+    private static void seed(int accounts, int perAccount, Set<String> drifted) throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusYears(2);
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement customer = connection.prepareStatement(
+                    "INSERT INTO customers (customer_id, customer_type, company_name) VALUES ('RECON', 'COMPANY', 'Reconciliation Co')")) {
+                customer.executeUpdate();
+            }
+            try (PreparedStatement account = connection.prepareStatement(
+                         "INSERT INTO accounts (account_number, customer_id, account_type, balance, status, date_opened) " +
+                         "VALUES (?, 'RECON', 'CHEQUE', ?, 'ACTIVE', ?)");
+                 PreparedStatement stripe = connection.prepareStatement(
+                         "INSERT INTO account_balance_stripes (account_number, stripe, delta) VALUES (?, ?, ?)");
+                 PreparedStatement ledger = connection.prepareStatement(
+                         "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                         "balance_after, description, transaction_timestamp) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int a = 0; a < accounts; a++) {
+                    String number = String.format("RC%08d", a);
+                    boolean striped = a % STRIPED_EVERY == 7;
+                    // Spread the drifted accounts over the key range, alternating the two kinds of drift
+                    int step = Math.max(1, accounts / DRIFTED);
+                    int drift = a % step == step / 2 ? (a / step) % 2 : -1;
+                    double balance = 1_000;
+                    double onStripes = 0;
+                    for (int i = 0; i < perAccount; i++) {
+                        boolean debit = i % 3 == 1;
+                        double amount = 1 + (a * 31 + i * 17) % 200;
+                        String type = debit ? "WITHDRAW" : "DEPOSIT";
+                        double recorded;
+                        if (striped && !debit) {
+                            // Lands on a stripe; the recorded total misses credits still unfolded elsewhere
+                            onStripes += amount;
+                            recorded = balance + onStripes - 1;
+                        } else {
+                            if (debit) {
+                                // A debit folds the stripes first, so its balance_after is exact
+                                balance += onStripes;
+                                onStripes = 0;
+                            }
+                            balance += debit ? -amount : amount;
+                            recorded = balance;
+                        }
+                        if (drift == 1 && i == perAccount / 2) {
+                            recorded += 1;
+                            if (!striped || debit) drifted.add(number);
+                        }
+                        ledger.setString(1, String.format("%s-%06d", number, i ^ 1));
+                        ledger.setString(2, number);
+                        ledger.setString(3, type);
+                        ledger.setString(4, debit ? "DEBIT" : "CREDIT");
+                        ledger.setDouble(5, amount);
+                        ledger.setDouble(6, recorded);
+                        ledger.setString(7, debit ? "Withdrawal" : "Deposit");
+                        ledger.setTimestamp(8, Timestamp.valueOf(start.plusMinutes(i / 2)));
+                        ledger.addBatch();
+                    }
+                    if (drift == 0) {
+                        balance += 0.10;
+                        drifted.add(number);
+                    }
+                    account.setString(1, number);
+                    account.setDouble(2, balance);
+                    account.setObject(3, LocalDate.now().minusYears(2));
+                    account.executeUpdate();
+                    if (striped) {
+                        stripe.setString(1, number);
+                        stripe.setInt(2, 0);
+                        stripe.setDouble(3, onStripes);
+                        stripe.executeUpdate();
+                    }
+                    if (a % 100 == 99) {
+                        ledger.executeBatch();
+                        connection.commit();
+                    }
+                }
+                ledger.executeBatch();
+                connection.commit();
+            }
+        }
+    }
+}
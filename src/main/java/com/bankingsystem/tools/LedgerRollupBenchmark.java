@@ -0,0 +1,343 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Account;
+import com.bankingsystem.Bank;
+import com.bankingsystem.IndividualCustomer;
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.LedgerArchive;
+import com.bankingsystem.persistence.LedgerRollupDAO;
+import com.bankingsystem.persistence.LedgerRollupDAO.Dimension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * LedgerRollupBenchmark - cost and correctness of the staff analytics rollups.
+ * Seeds accounts in several branches with years of mixed ledger rows straight through JDBC,
+ * rebuilds the rollups with one and with several backfill workers, and checks every day, branch,
+ * account type and transaction type total against a scan of transactions joined to accounts,
+ * and the monthly totals of a range that starts and ends mid-month against the same scan.
+ * Times the analytics panel's reports over the whole range against the same reports computed
+ * by the scan. Then posts from several threads through TransactionController while the updater
+ * adds committed rows, archives old months into a temporary directory and rebuilds again,
+ * checking the totals after each step, the last rebuild running while postings come in.
+ *
+ * Usage: LedgerRollupBenchmark [accounts] [rowsPerAccount] [years] [operationsPerThread]
+ */
+public class LedgerRollupBenchmark {
+    private static final String[] BRANCHES = {"Gaborone", "Francistown", "Maun", "Kasane", "Palapye"};
+    private static final String[] ACCOUNT_TYPES = {"SavingsAccount", "InvestmentAccount", "ChequeAccount"};
+    private static final int THREADS = 4;
+    private static final int LIVE_ACCOUNTS = 40;
+    private static final int REPORT_RUNS = 20;
+
+    private static final String SCAN_SQL =
+            "SELECT CAST(t.transaction_timestamp AS DATE), COALESCE(a.branch, ''), a.account_type, t.transaction_type, " +
+            "COUNT(*), SUM(CASE WHEN t.direction = 'DEBIT' THEN 0 ELSE t.amount END), " +
+            "SUM(CASE WHEN t.direction = 'DEBIT' THEN t.amount ELSE 0 END) " +
+            "FROM transactions t JOIN accounts a ON a.account_number = t.account_number " +
+            "GROUP BY CAST(t.transaction_timestamp AS DATE), COALESCE(a.branch, ''), a.account_type, t.transaction_type";
+    private static final String SCAN_REPORT_SQL =
+            "SELECT YEAR(t.transaction_timestamp) * 100 + MONTH(t.transaction_timestamp), a.branch, COUNT(*), SUM(t.amount) " +
+            "FROM transactions t JOIN accounts a ON a.account_number = t.account_number " +
+            "WHERE t.transaction_timestamp >= ? GROUP BY YEAR(t.transaction_timestamp) * 100 + MONTH(t.transaction_timestamp), a.branch";
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int years = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int operations = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+        long t0 = System.nanoTime();
+        seed(accounts, rows, years);
+        System.out.printf("Ledger rollups: %,d accounts in %d branches x %,d rows over %d years (seeded in %,d ms)%n",
+                accounts, BRANCHES.length, rows, years, (System.nanoTime() - t0) / 1_000_000);
+
+        LedgerRollupDAO rollups = LedgerRollupDAO.getInstance();
+        LocalDate today = LocalDate.now();
+        LocalDate first = today.minusYears(years + 1);
+        for (int workers : new int[]{1, LedgerRollupDAO.DEFAULT_BACKFILL_WORKERS}) {
+            t0 = System.nanoTime();
+            long written = rollups.backfill(today, workers);
+            System.out.printf("  backfill with %d worker(s): %,d rollup rows in %,d ms (%d CPUs)%n", workers, written,
+                    (System.nanoTime() - t0) / 1_000_000, Runtime.getRuntime().availableProcessors());
+        }
+        Map<String, String> scanned = scan();
+        report("rollups vs scan after backfill", rollups(first, today), scanned);
+        report("monthly rollups vs scan after backfill", months(first.plusDays(10), today.minusDays(3)),
+                months(scanned, first.plusDays(10), today.minusDays(3)));
+
+        timeReports(rollups, first, today);
+        // The updater adds rows while they are being posted; the last ones once the posters are done
+        rollups.startUpdater(20, 60 * 60_000L);
+        postLive(operations, "CUST-ROLL-LIVE");
+        rollups.stopUpdater();
+        t0 = System.nanoTime();
+        int applied = rollups.applyCommitted();
+        System.out.printf("  applied the last %,d committed rows in %,d us%n", applied, (System.nanoTime() - t0) / 1_000);
+        scanned = scan();
+        report("rollups vs scan after live postings", rollups(first, today), scanned);
+        report("monthly rollups vs scan after live postings", months(first, today), months(scanned, first, today));
+
+        Path directory = Files.createTempDirectory("ledger-archive");
+        LedgerArchive archive = LedgerArchive.getInstance();
+        archive.open(directory);
+        long archived = archive.archive(LedgerArchive.DEFAULT_MAX_AGE_DAYS);
+        System.out.printf("  archived %,d ledger rows%n", archived);
+        report("rollups after archiving vs scan before", rollups(first, today), scanned);
+        // Rebuild while postings keep coming in; they are all dated today, which the backfill leaves alone
+        Thread backfill = new Thread(() -> rollups.backfill(today, LedgerRollupDAO.DEFAULT_BACKFILL_WORKERS), "Backfill");
+        backfill.start();
+        postLive(operations, "CUST-ROLL-LATE");
+        backfill.join();
+        rollups.applyCommitted();
+        Map<String, String> expected = new TreeMap<>(scanned);
+        expected.keySet().removeIf(key -> key.startsWith(today.toString()));
+        scan().forEach((key, total) -> {
+            if (key.startsWith(today.toString())) expected.put(key, total);
+        });
+        report("rollups rebuilt from table and archive vs scan before", rollups(first, today), expected);
+        report("monthly rollups rebuilt vs scan before", months(first.plusDays(10), today.minusDays(3)),
+                months(scanned, first.plusDays(10), today.minusDays(3)));
+        report("monthly rollups rebuilt with live postings vs scan", months(first, today), months(expected, first, today));
+
+        archive.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void timeReports(LedgerRollupDAO rollups, LocalDate from, LocalDate to) throws Exception {
+        Dimension[][] reports = {
+                {Dimension.MONTH}, {Dimension.DAY}, {Dimension.BRANCH, Dimension.ACCOUNT_TYPE},
+                {Dimension.MONTH, Dimension.BRANCH}, {Dimension.DAY, Dimension.BRANCH, Dimension.ACCOUNT_TYPE}};
+        for (Dimension[] report : reports) {
+            int groups = 0;
+            long best = Long.MAX_VALUE;
+            long total = 0;
+            for (int run = 0; run < REPORT_RUNS; run++) {
+                // A different range every run, so the database's result cache does not answer it
+                long t0 = System.nanoTime();
+                groups = rollups.totals(from.plusDays(run), to, report).size();
+                long elapsed = System.nanoTime() - t0;
+                best = Math.min(best, elapsed);
+                total += elapsed;
+            }
+            System.out.printf("  report by %-36s %,6d groups: mean %,5.1f ms, best %,5.1f ms%n",
+                    List.of(report), groups, total / (double) REPORT_RUNS / 1e6, best / 1e6);
+        }
+        long t0 = System.nanoTime();
+        int groups = 0;
+        for (int run = 0; run < 3; run++) {
+            try (Connection connection = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement pstmt = connection.prepareStatement(SCAN_REPORT_SQL)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(from.plusDays(run).atStartOfDay()));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    groups = 0;
+                    while (rs.next()) groups++;
+                }
+            }
+        }
+        System.out.printf("  same month x branch report scanning the ledger:   %,6d groups: mean %,5.1f ms%n",
+                groups, (System.nanoTime() - t0) / 3 / 1e6);
+    }
+
+    private static void postLive(int operations, String customerPrefix) throws Exception {
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+        Bank bank = new Bank("LedgerRollupBenchmarkBank", "Gaborone");
+        AccountDAOImpl accountDAO = new AccountDAOImpl();
+        CustomerDAOImpl customerDAO = new CustomerDAOImpl();
+        List<String> live = new ArrayList<>(LIVE_ACCOUNTS);
+        for (int i = 0; i < LIVE_ACCOUNTS / 2; i++) {
+            IndividualCustomer customer = new IndividualCustomer(customerPrefix + i, "Live", "Customer" + i, "NID-" + customerPrefix + i);
+            bank.registerCustomer(customer);
+            customerDAO.saveCustomer(customer);
+            for (String type : new String[]{"savings", "investment"}) {
+                Account account = bank.openAccount(customer, type, 1_000);
+                account.approve("benchmark");
+                accountDAO.saveAccount(account);
+                live.add(account.getAccountNumber());
+            }
+        }
+
+        TransactionController controller = new TransactionController(bank);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long t0 = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operations; i++) {
+                    String account = live.get(random.nextInt(live.size()));
+                    double amount = 1 + random.nextInt(20);
+                    switch (random.nextInt(3)) {
+                        case 0 -> controller.deposit(account, amount);
+                        case 1 -> controller.withdraw(account, amount);
+                        default -> controller.transfer(account, live.get(random.nextInt(live.size())), amount);
+                    }
+                }
+                done.countDown();
+            }, "Poster-" + t);
+            thread.start();
+        }
+        done.await();
+        System.out.printf("  %,d postings from %d threads on %d live accounts in %,d ms%n",
+                THREADS * operations, THREADS, live.size(), (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    private static void report(String label, Map<String, String> rollups, Map<String, String> scanned) {
+        int wrong = 0;
+        for (Map.Entry<String, String> group : scanned.entrySet()) {
+            if (!group.getValue().equals(rollups.get(group.getKey()))) wrong++;
+        }
+        for (String key : rollups.keySet()) {
+            if (!scanned.containsKey(key)) wrong++;
+        }
+        System.out.println("  " + label + ": " + (wrong == 0 ? "IDENTICAL (" + scanned.size() + " groups)"
+                : wrong + " DIFFERENT of " + scanned.size()));
+    }
+
+    private static Map<String, String> rollups(LocalDate from, LocalDate to) {
+        Map<String, String> totals = new TreeMap<>();
+        for (LedgerRollupDAO.Total total : LedgerRollupDAO.getInstance().totals(from, to,
+                Dimension.DAY, Dimension.BRANCH, Dimension.ACCOUNT_TYPE, Dimension.TRANSACTION_TYPE)) {
+            totals.put(String.join(" ", total.getGroup()), summary(total.getCount(), total.getCredits(), total.getDebits()));
+        }
+        return totals;
+    }
+
+    /**
+     * Totals by month, branch, account type and transaction type, which the rollups answer from
+     * whole months where they can
+     */
+    private static Map<String, String> months(LocalDate from, LocalDate to) {
+        Map<String, String> totals = new TreeMap<>();
+        for (LedgerRollupDAO.Total total : LedgerRollupDAO.getInstance().totals(from, to,
+                Dimension.MONTH, Dimension.BRANCH, Dimension.ACCOUNT_TYPE, Dimension.TRANSACTION_TYPE)) {
+            totals.put(String.join(" ", total.getGroup()), summary(total.getCount(), total.getCredits(), total.getDebits()));
+        }
+        return totals;
+    }
+
+    /**
+     * The scanned daily totals of a range of days, added up per month
+     */
+    private static Map<String, String> months(Map<String, String> days, LocalDate from, LocalDate to) {
+        Map<String, long[]> sums = new TreeMap<>();
+        for (Map.Entry<String, String> day : days.entrySet()) {
+            LocalDate date = LocalDate.parse(day.getKey().substring(0, 10));
+            if (date.isBefore(from) || date.isAfter(to)) continue;
+            long[] sum = sums.computeIfAbsent(YearMonth.from(date) + day.getKey().substring(10), k -> new long[3]);
+            String[] values = day.getValue().split(" ");
+            for (int i = 0; i < 3; i++) {
+                sum[i] += Long.parseLong(values[i]);
+            }
+        }
+        Map<String, String> totals = new TreeMap<>();
+        sums.forEach((key, sum) -> totals.put(key, sum[0] + " " + sum[1] + " " + sum[2]));
+        return totals;
+    }
+
+    private static Map<String, String> scan() throws Exception {
+        Map<String, String> totals = new TreeMap<>();
+        try (Connection connection = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(SCAN_SQL)) {
+            while (rs.next()) {
+                String key = rs.getDate(1) + " " + rs.getString(2) + " " + rs.getString(3) + " " + rs.getString(4);
+                totals.put(key, summary(rs.getLong(5), rs.getDouble(6), rs.getDouble(7)));
+            }
+        }
+        return totals;
+    }
+
+    private static String summary(long count, double credits, double debits) {
+        return count + " " + Math.round(credits * 100) + " " + Math.round(debits * 100);
+    }
+
+    /**
+     * Deposits, withdrawals, interest and transfer legs at random moments over the last years
+     */
+    private static void seed(int accounts, int rows, int years) throws Exception {
+        // Up to the start of today: only closed days are backfilled, today's rows come from live postings
+        LocalDateTime now = LocalDate.now().atStartOfDay();
+        long span = years * 365L * 24 * 3600;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement customer = connection.prepareStatement(
+                         "INSERT INTO customers (customer_id, customer_type, first_name, last_name) VALUES (?, 'INDIVIDUAL', 'Rollup', ?)");
+                 PreparedStatement account = connection.prepareStatement(
+                         "INSERT INTO accounts (account_number, customer_id, account_type, balance, branch, status, date_opened) " +
+                         "VALUES (?, ?, ?, 0, ?, 'APPROVED', ?)");
+                 PreparedStatement ledger = connection.prepareStatement(
+                         "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                         "balance_after, description, transaction_timestamp) VALUES (?, ?, ?, ?, ?, 0, ?, ?)")) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int a = 0; a < accounts; a++) {
+                    String number = String.format("RL%07d", a);
+                    customer.setString(1, "CUST-ROLL" + a);
+                    customer.setString(2, "Customer" + a);
+                    customer.addBatch();
+                    account.setString(1, number);
+                    account.setString(2, "CUST-ROLL" + a);
+                    account.setString(3, ACCOUNT_TYPES[a % ACCOUNT_TYPES.length]);
+                    // Every seventh account has no branch
+                    account.setString(4, a % 7 == 6 ? null : BRANCHES[a % BRANCHES.length]);
+                    account.setDate(5, java.sql.Date.valueOf(LocalDate.now().minusYears(years + 1)));
+                    account.addBatch();
+                    for (int r = 0; r < rows; r++) {
+                        String type;
+                        String direction;
+                        String description;
+                        switch (random.nextInt(10)) {
+                            case 0, 1, 2, 3 -> { type = "DEPOSIT"; direction = "CREDIT"; description = "Deposit"; }
+                            case 4, 5, 6 -> { type = "WITHDRAW"; direction = "DEBIT"; description = "Withdrawal"; }
+                            case 7 -> { type = "INTEREST"; direction = "CREDIT"; description = "Monthly interest"; }
+                            case 8 -> { type = "TRANSFER"; direction = "DEBIT"; description = "Transfer to RL0000000"; }
+                            default -> { type = "TRANSFER"; direction = "CREDIT"; description = "Transfer from RL0000000"; }
+                        }
+                        ledger.setString(1, number + "-" + r);
+                        ledger.setString(2, number);
+                        ledger.setString(3, type);
+                        ledger.setString(4, direction);
+                        ledger.setDouble(5, (10 + random.nextInt(50_000)) / 100.0);
+                        ledger.setString(6, description);
+                        ledger.setTimestamp(7, Timestamp.valueOf(now.minusSeconds(60 + random.nextLong(span))));
+                        ledger.addBatch();
+                    }
+                    if ((a + 1) % 50 == 0) {
+                        customer.executeBatch();
+                        account.executeBatch();
+                        ledger.executeBatch();
+                    }
+                }
+                customer.executeBatch();
+                account.executeBatch();
+                ledger.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Account;
+import com.bankingsystem.Bank;
+import com.bankingsystem.IndividualCustomer;
+import com.bankingsystem.Transaction;
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.LedgerColumnSnapshot;
+import com.bankingsystem.persistence.LedgerColumnSnapshot.Dimension;
+import com.bankingsystem.persistence.LedgerColumnSnapshot.Filter;
+import com.bankingsystem.persistence.LedgerRollupDAO;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * LedgerSnapshotBenchmark - cost and correctness of the columnar ledger snapshot.
+ * Seeds accounts in several branches with years of mixed ledger rows straight through JDBC, then
+ * answers two ad-hoc questions both ways: by loading every row with getAllTransactions and
+ * grouping the objects with streams, and with LedgerColumnSnapshot on one thread and on the
+ * common fork-join pool. Checks that both give the same totals and compares time and heap.
+ * Then posts from several threads through TransactionController while the snapshot refreshes,
+ * holds one insert open across a refresh to check a late commit below the high-water mark is
+ * still picked up, and compares the refreshed snapshot with the objects again.
+ *
+ * Usage: LedgerSnapshotBenchmark [accounts] [rowsPerAccount] [years] [operationsPerThread]
+ */
+public class LedgerSnapshotBenchmark {
+    private static final String[] BRANCHES = {"Gaborone", "Francistown", "Maun", "Kasane", "Palapye"};
+    private static final String[] ACCOUNT_TYPES = {"SavingsAccount", "InvestmentAccount", "ChequeAccount"};
+    private static final int THREADS = 4;
+    private static final int LIVE_ACCOUNTS = 40;
+    private static final int RUNS = 10;
+    private static final double LARGE = 4_000;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int years = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int operations = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+        long t0 = System.nanoTime();
+        seed(accounts, rows, years);
+        System.out.printf("Ledger snapshot: %,d accounts x %,d rows over %d years (seeded in %,d ms, %d CPUs)%n",
+                accounts, rows, years, (System.nanoTime() - t0) / 1_000_000, Runtime.getRuntime().availableProcessors());
+
+        TransactionDAOImpl dao = new TransactionDAOImpl();
+        LedgerColumnSnapshot snapshot = LedgerColumnSnapshot.getInstance();
+
+        long heap = usedHeap();
+        t0 = System.nanoTime();
+        int loaded = snapshot.load();
+        long loadMillis = (System.nanoTime() - t0) / 1_000_000;
+        System.out.printf("  snapshot load: %,d rows in %,d ms, %,d KB of heap (%,d KB of row columns)%n", loaded, loadMillis,
+                (usedHeap() - heap) / 1_024, loaded * 21L / 1_024);
+
+        heap = usedHeap();
+        t0 = System.nanoTime();
+        List<Transaction> all = dao.getAllTransactions();
+        long materialiseMillis = (System.nanoTime() - t0) / 1_000_000;
+        System.out.printf("  getAllTransactions: %,d objects in %,d ms, %,d KB of heap%n", all.size(), materialiseMillis,
+                (usedHeap() - heap) / 1_024);
+
+        check("by month and type, snapshot vs objects", monthsAndTypes(snapshot), monthsAndTypes(all));
+        check("large withdrawals by day, snapshot vs objects", largeWithdrawals(snapshot), largeWithdrawals(all));
+
+        long objects = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            monthsAndTypes(dao.getAllTransactions());
+            objects += System.nanoTime() - start;
+        }
+        long grouping = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            monthsAndTypes(all);
+            grouping += System.nanoTime() - start;
+        }
+        ForkJoinPool oneThread = new ForkJoinPool(1);
+        long sequential = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            oneThread.submit(() -> monthsAndTypes(snapshot)).get();
+            sequential += System.nanoTime() - start;
+        }
+        long parallel = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            monthsAndTypes(snapshot);
+            parallel += System.nanoTime() - start;
+        }
+        System.out.printf("  by month and type: getAllTransactions + streams %,.1f ms (grouping alone %,.1f ms), " +
+                        "snapshot on 1 thread %,.1f ms, on the common pool %,.1f ms: %,.0fx%n",
+                objects / 1e6 / RUNS, grouping / 1e6 / RUNS, sequential / 1e6 / RUNS, parallel / 1e6 / RUNS,
+                (double) objects / parallel);
+        oneThread.shutdown();
+        all = null;
+
+        // Questions the objects cannot answer, as they carry no account
+        String[] labels = {"branch x account type", "account", "day x branch x account type"};
+        Dimension[][] groupings = {{Dimension.BRANCH, Dimension.ACCOUNT_TYPE}, {Dimension.ACCOUNT},
+                {Dimension.DAY, Dimension.BRANCH, Dimension.ACCOUNT_TYPE}};
+        for (int g = 0; g < groupings.length; g++) {
+            long start = System.nanoTime();
+            int groups = 0;
+            for (int run = 0; run < RUNS; run++) {
+                groups = snapshot.totals(Filter.all(), groupings[g]).size();
+            }
+            System.out.printf("  snapshot by %-28s %,7d groups: %,.1f ms%n", labels[g], groups, (System.nanoTime() - start) / 1e6 / RUNS);
+        }
+
+        t0 = System.nanoTime();
+        int appended = 0;
+        for (int run = 0; run < RUNS; run++) {
+            appended += snapshot.refresh();
+        }
+        System.out.printf("  refresh with nothing new: %d rows in %,d us%n", appended, (System.nanoTime() - t0) / RUNS / 1_000);
+        postLive(snapshot, operations);
+        lateCommit(snapshot);
+
+        all = dao.getAllTransactions();
+        check("by month and type after live postings, snapshot vs objects", monthsAndTypes(snapshot), monthsAndTypes(all));
+        check("large withdrawals after live postings, snapshot vs objects", largeWithdrawals(snapshot), largeWithdrawals(all));
+        Map<String, String> refreshed = summaries(snapshot.totals(Filter.all(), Dimension.ACCOUNT, Dimension.TRANSACTION_TYPE));
+        snapshot.load();
+        check("by account and type, refreshed vs reloaded", refreshed,
+                summaries(snapshot.totals(Filter.all(), Dimension.ACCOUNT, Dimension.TRANSACTION_TYPE)));
+
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static Map<String, String> monthsAndTypes(LedgerColumnSnapshot snapshot) {
+        return summaries(snapshot.totals(Filter.all(), Dimension.MONTH, Dimension.TRANSACTION_TYPE));
+    }
+
+    private static Map<String, String> largeWithdrawals(LedgerColumnSnapshot snapshot) {
+        return summaries(snapshot.totals(Filter.all().withType(Transaction.Type.WITHDRAW)
+                .withAmountBetween(LARGE, Double.MAX_VALUE), Dimension.DAY));
+    }
+
+    private static Map<String, String> monthsAndTypes(List<Transaction> all) {
+        Map<String, long[]> sums = new TreeMap<>();
+        for (Transaction transaction : all) {
+            add(sums, YearMonth.from(transaction.getTimestamp()) + " " + transaction.getType(), transaction);
+        }
+        return summaries(sums);
+    }
+
+    private static Map<String, String> largeWithdrawals(List<Transaction> all) {
+        Map<String, long[]> sums = new TreeMap<>();
+        all.stream()
+                .filter(t -> t.getType() == Transaction.Type.WITHDRAW && t.getAmount() >= LARGE)
+                .forEach(t -> add(sums, t.getTimestamp().toLocalDate().toString(), t));
+        return summaries(sums);
+    }
+
+    private static void add(Map<String, long[]> sums, String key, Transaction transaction) {
+        long[] sum = sums.computeIfAbsent(key, k -> new long[3]);
+        sum[0]++;
+        sum[transaction.isDebit() ? 2 : 1] += Math.round(transaction.getAmount() * 100);
+    }
+
+    private static Map<String, String> summaries(Map<String, long[]> sums) {
+        Map<String, String> summaries = new TreeMap<>();
+        sums.forEach((key, sum) -> summaries.put(key, sum[0] + " " + sum[1] + " " + sum[2]));
+        return summaries;
+    }
+
+    private static Map<String, String> summaries(List<LedgerRollupDAO.Total> totals) {
+        Map<String, String> summaries = new TreeMap<>();
+        for (LedgerRollupDAO.Total total : totals) {
+            summaries.put(String.join(" ", total.getGroup()), total.getCount() + " " + Math.round(total.getCredits() * 100)
+                    + " " + Math.round(total.getDebits() * 100));
+        }
+        return summaries;
+    }
+
+    private static void check(String label, Map<String, String> actual, Map<String, String> expected) {
+        int wrong = 0;
+        for (Map.Entry<String, String> group : expected.entrySet()) {
+            if (!group.getValue().equals(actual.get(group.getKey()))) wrong++;
+        }
+        for (String key : actual.keySet()) {
+            if (!expected.containsKey(key)) wrong++;
+        }
+        System.out.println("  " + label + ": " + (wrong == 0 ? "IDENTICAL (" + expected.size() + " groups)"
+                : wrong + " DIFFERENT of " + expected.size()));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Postings from several threads while another refreshes the snapshot as fast as it can
+     */
+    private static void postLive(LedgerColumnSnapshot snapshot, int operations) throws Exception {
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+        Bank bank = new Bank("LedgerSnapshotBenchmarkBank", "Gaborone");
+        AccountDAOImpl accountDAO = new AccountDAOImpl();
+        CustomerDAOImpl customerDAO = new CustomerDAOImpl();
+        List<String> live = new ArrayList<>(LIVE_ACCOUNTS);
+        for (int i = 0; i < LIVE_ACCOUNTS / 2; i++) {
+            IndividualCustomer customer = new IndividualCustomer("CUST-SNAP-LIVE" + i, "Live", "Customer" + i, "NID-SNAP-LIVE" + i);
+            bank.registerCustomer(customer);
+            customerDAO.saveCustomer(customer);
+            for (String type : new String[]{"savings", "investment"}) {
+                Account account = bank.openAccount(customer, type, 1_000);
+                account.approve("benchmark");
+                accountDAO.saveAccount(account);
+                live.add(account.getAccountNumber());
+            }
+        }
+
+        AtomicBoolean posting = new AtomicBoolean(true);
+        long[] refreshes = new long[2];
+        Thread refresher = new Thread(() -> {
+            while (posting.get()) {
+                long start = System.nanoTime();
+                int appended = snapshot.refresh();
+                if (appended > 0) {
+                    refreshes[0]++;
+                    refreshes[1] += System.nanoTime() - start;
+                }
+            }
+        }, "Refresher");
+        refresher.start();
+
+        TransactionController controller = new TransactionController(bank);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long t0 = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operations; i++) {
+                    String account = live.get(random.nextInt(live.size()));
+                    double amount = 1 + random.nextInt(20);
+                    switch (random.nextInt(3)) {
+                        case 0 -> controller.deposit(account, amount);
+                        case 1 -> controller.withdraw(account, amount);
+                        default -> controller.transfer(account, live.get(random.nextInt(live.size())), amount);
+                    }
+                }
+                done.countDown();
+            }, "Poster-" + t);
+            thread.start();
+        }
+        done.await();
+        long millis = (System.nanoTime() - t0) / 1_000_000;
+        posting.set(false);
+        refresher.join();
+        int last = snapshot.refresh();
+        System.out.printf("  %,d postings from %d threads in %,d ms; %,d refreshes that found rows, %,d us each " +
+                        "(%d more rows after the last posting)%n", THREADS * operations, THREADS, millis, refreshes[0],
+                refreshes[0] > 0 ? refreshes[1] / refreshes[0] / 1_000 : 0, last);
+    }
+
+    /**
+     * Takes a sequence number in an open transaction, commits a later row, refreshes, and only
+     * then commits the first
+     */
+    private static void lateCommit(LedgerColumnSnapshot snapshot) throws Exception {
+        String sql = "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                "balance_after, description, transaction_timestamp) VALUES (?, 'SN0000000', 'DEPOSIT', 'CREDIT', ?, 0, 'Deposit', ?)";
+        try (Connection slow = DatabaseConnection.getInstance().getConnection();
+             Connection fast = DatabaseConnection.getInstance().getConnection()) {
+            slow.setAutoCommit(false);
+            try (PreparedStatement first = slow.prepareStatement(sql);
+                 PreparedStatement second = fast.prepareStatement(sql)) {
+                first.setString(1, "SN-LATE-1");
+                first.setDouble(2, 11);
+                first.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                first.executeUpdate();
+                second.setString(1, "SN-LATE-2");
+                second.setDouble(2, 22);
+                second.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                second.executeUpdate();
+            }
+            int before = snapshot.refresh();
+            slow.commit();
+            slow.setAutoCommit(true);
+            int after = snapshot.refresh();
+            System.out.printf("  late commit: %d row before it committed, %d after (high-water mark %,d)%n",
+                    before, after, snapshot.getHighWaterMark());
+        }
+    }
+
+    /**
+     * Deposits, withdrawals, interest and transfer legs at random moments over the last years
+     */
+    private static void seed(int accounts, int rows, int years) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        long span = years * 365L * 24 * 3600;
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement customer = connection.prepareStatement(
+                         "INSERT INTO customers (customer_id, customer_type, first_name, last_name) VALUES (?, 'INDIVIDUAL', 'Snapshot', ?)");
+                 PreparedStatement account = connection.prepareStatement(
+                         "INSERT INTO accounts (account_number, customer_id, account_type, balance, branch, status, date_opened) " +
+                         "VALUES (?, ?, ?, 0, ?, 'APPROVED', ?)");
+                 PreparedStatement ledger = connection.prepareStatement(
+                         "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                         "balance_after, description, transaction_timestamp) VALUES (?, ?, ?, ?, ?, 0, ?, ?)")) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int a = 0; a < accounts; a++) {
+                    String number = String.format("SN%07d", a);
+                    customer.setString(1, "CUST-SNAP" + a);
+                    customer.setString(2, "Customer" + a);
+                    customer.addBatch();
+                    account.setString(1, number);
+                    account.setString(2, "CUST-SNAP" + a);
+                    account.setString(3, ACCOUNT_TYPES[a % ACCOUNT_TYPES.length]);
+                    // Every seventh account has no branch
+                    account.setString(4, a % 7 == 6 ? null : BRANCHES[a % BRANCHES.length]);
+                    account.setDate(5, java.sql.Date.valueOf(LocalDate.now().minusYears(years + 1)));
+                    account.addBatch();
+                    for (int r = 0; r < rows; r++) {
+                        String type;
+                        String direction;
+                        String description;
+                        switch (random.nextInt(10)) {
+                            case 0, 1, 2, 3 -> { type = "DEPOSIT"; direction = "CREDIT"; description = "Deposit"; }
+                            case 4, 5, 6 -> { type = "WITHDRAW"; direction = "DEBIT"; description = "Withdrawal"; }
+                            case 7 -> { type = "INTEREST"; direction = "CREDIT"; description = "Monthly interest"; }
+                            case 8 -> { type = "TRANSFER"; direction = "DEBIT"; description = "Transfer to SN0000000"; }
+                            default -> { type = "TRANSFER"; direction = "CREDIT"; description = "Transfer from SN0000000"; }
+                        }
+                        ledger.setString(1, number + "-" + r);
+                        ledger.setString(2, number);
+                        ledger.setString(3, type);
+                        ledger.setString(4, direction);
+                        ledger.setDouble(5, (10 + random.nextInt(500_000)) / 100.0);
+                        ledger.setString(6, description);
+                        ledger.setTimestamp(7, Timestamp.valueOf(now.minusSeconds(60 + random.nextLong(span))));
+                        ledger.addBatch();
+                    }
+                    if ((a + 1) % 50 == 0) {
+                        customer.executeBatch();
+                        account.executeBatch();
+                        ledger.executeBatch();
+                    }
+                }
+                customer.executeBatch();
+                account.executeBatch();
+                ledger.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.*;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.ApprovalWorkQueue;
+import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.UnitOfWork;
+import com.bankingsystem.utils.IDGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoadTestHarness - headless load driver for the ledger paths against the configured database.
+ * Seeds company customers with approved cheque accounts, then drives TransactionController
+ * from many threads and reports throughput plus pool checkouts and commits per operation.
+ *
+ * Usage: LoadTestHarness [scenario] [threads] [operationsPerThread] [accounts]
+ * Scenarios: deposit (default), mixed, overdraw (concurrent withdrawals racing for one account's balance),
+ * approvals (threads are staff members deciding pending accounts, operationsPerThread accounts each),
+ * approval-race (threads are sessions deciding the same pending account at once, operationsPerThread rounds)
+ */
+public class LoadTestHarness {
+
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "deposit";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int accountCount = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+
+        // Measure ledger throughput: the rules still run but never decline (see TransactionRulesBenchmark)
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+
+        if ("overdraw".equals(scenario)) {
+            overdraw(threads, perThread);
+            DatabaseConnection.getInstance().closeConnection();
+            return;
+        }
+        if ("approvals".equals(scenario)) {
+            approvals(threads, perThread);
+            DatabaseConnection.getInstance().closeConnection();
+            return;
+        }
+        if ("approval-race".equals(scenario)) {
+            approvalRace(threads, perThread);
+            DatabaseConnection.getInstance().closeConnection();
+            return;
+        }
+
+        Fixture fixture = Fixture.create(accountCount, 10_000.0);
+        TransactionController controller = new TransactionController(fixture.bank);
+        System.out.println("Load test '" + scenario + "': " + threads + " threads x " + perThread
+                + " operations over " + accountCount + " accounts");
+
+        switch (scenario) {
+            case "deposit":
+                measure("deposit", threads, perThread, () ->
+                        controller.deposit(fixture.randomAccount(), 10.0));
+                break;
+            case "mixed":
+                measure("deposit/withdraw/transfer", threads, perThread, () -> {
+                    int pick = ThreadLocalRandom.current().nextInt(3);
+                    if (pick == 0) {
+                        controller.deposit(fixture.randomAccount(), 25.0);
+                    } else if (pick == 1) {
+                        controller.withdraw(fixture.randomAccount(), 5.0);
+                    } else {
+                        String from = fixture.randomAccount();
+                        String to = fixture.randomAccount();
+                        if (!from.equals(to)) controller.transfer(from, to, 5.0);
+                    }
+                });
+                break;
+            default:
+                System.err.println("Unknown scenario: " + scenario);
+        }
+
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    /**
+     * Race many withdrawals against one account and check that the balance never goes below zero
+     * and that the database balance, the in-memory mirror and the successful withdrawals agree.
+     */
+    static void overdraw(int threads, int perThread) throws InterruptedException {
+        double opening = 1_000.0;
+        double amount = 7.0;
+        Fixture fixture = Fixture.create(1, opening);
+        TransactionController controller = new TransactionController(fixture.bank);
+        String accountNumber = fixture.accountNumbers.get(0);
+        AtomicLong successes = new AtomicLong();
+
+        measure("racing withdrawals", threads, perThread, () -> {
+            if (controller.postWithdrawal(accountNumber, amount, null).isApplied()) {
+                successes.incrementAndGet();
+            }
+        });
+
+        double stored = new AccountDAOImpl().findAccountByNumber(accountNumber)
+                .map(Account::getBalance).orElse(Double.NaN);
+        double mirrored = fixture.bank.findAccount(accountNumber).getBalance();
+        double expected = opening - successes.get() * amount;
+        System.out.printf("  successful withdrawals: %d (max possible %d)%n",
+                successes.get(), (long) (opening / amount));
+        System.out.printf("  stored balance: %.2f   in-memory: %.2f   expected: %.2f   %s%n",
+                stored, mirrored, expected,
+                stored >= 0 && stored == expected && mirrored == expected ? "OK" : "MISMATCH");
+    }
+
+    /**
+     * Staff members working through pending accounts at the same time. First the dashboard's old
+     * way on a small set (load the pending list, approve one, write it back), which lets two staff
+     * members decide the same account; then the ApprovalWorkQueue (claim a batch, decide it in
+     * bulk). Reports decisions per minute and checks every account was decided exactly once.
+     */
+    static void approvals(int staff, int perStaff) throws InterruptedException {
+        Fixture fixture = Fixture.create(0, 0);
+        AccountDAOImpl accountDAO = new AccountDAOImpl();
+        System.out.println("Approvals: " + staff + " staff members");
+
+        int legacyCount = staff * 10;
+        for (int i = 0; i < legacyCount; i++) {
+            fixture.addPendingAccount(500.0);
+        }
+        AtomicLong legacyDecided = new AtomicLong();
+        AtomicLong legacyLost = new AtomicLong();
+        long legacyNanos = runStaff(staff, member -> {
+            String username = "staff" + member;
+            while (true) {
+                List<Account> pending;
+                try {
+                    // Inside a unit of work the nested customer lookups share its connection;
+                    // without one, 20 concurrent readers can hold the whole pool and wait on it
+                    pending = UnitOfWork.execute(connection -> accountDAO.getPendingAccounts());
+                } catch (java.sql.SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+                if (pending.isEmpty()) return;
+                Account account = pending.get(ThreadLocalRandom.current().nextInt(pending.size()));
+                String storedNumber = account.getAccountNumber();
+                if (!AccountApprovalService.approveAccount(account, username)) continue;
+                // Another staff member may have approved the same row already
+                if (accountDAO.updateAccount(account, storedNumber)) {
+                    legacyDecided.incrementAndGet();
+                } else {
+                    legacyLost.incrementAndGet();
+                }
+            }
+        });
+        System.out.printf("  one at a time  %,10.0f decisions/min   %d accounts, %d approvals that did not stick%n",
+                legacyDecided.get() / (legacyNanos / 6e10), legacyCount, legacyLost.get());
+
+        int queuedCount = staff * perStaff;
+        for (int i = 0; i < queuedCount; i++) {
+            fixture.addPendingAccount(500.0);
+        }
+        ApprovalWorkQueue queue = new ApprovalWorkQueue();
+        AtomicLong approved = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        AtomicLong claims = new AtomicLong();
+        long queueNanos = runStaff(staff, member -> {
+            String username = "staff" + member;
+            while (true) {
+                List<String> claimed = queue.claimNext(username, ApprovalWorkQueue.DEFAULT_BATCH_SIZE);
+                if (claimed.isEmpty()) return;
+                claims.incrementAndGet();
+                // Turn down roughly one application in ten
+                List<String> toReject = claimed.subList(0, claimed.size() / 10);
+                List<String> toApprove = claimed.subList(claimed.size() / 10, claimed.size());
+                ApprovalWorkQueue.Decision rejections = queue.reject(username, toReject);
+                ApprovalWorkQueue.Decision approvals = queue.approve(username, toApprove);
+                rejected.addAndGet(rejections.getDecided().size());
+                approved.addAndGet(approvals.getDecided().size());
+                skipped.addAndGet(rejections.getSkipped().size() + approvals.getSkipped().size());
+            }
+        });
+        long decided = approved.get() + rejected.get();
+        System.out.printf("  work queue     %,10.0f decisions/min   %d accounts, %d claims, %d approved, %d rejected, %d skipped%n",
+                decided / (queueNanos / 6e10), queuedCount, claims.get(), approved.get(), rejected.get(), skipped.get());
+        int stillPending = accountDAO.getPendingAccounts().size();
+        System.out.printf("  still pending: %d   %s%n", stillPending,
+                stillPending == 0 && decided == queuedCount && skipped.get() == 0 ? "OK" : "MISMATCH");
+    }
+
+    /**
+     * Many sessions deciding the same pending account at the same moment, round after round. Each
+     * session holds its own copy of the account, as separate dashboards or API clients do; a
+     * quarter of them reject, the rest approve. With conditional transitions exactly one session
+     * per round may succeed, the stored row must match the winner's copy (status and account
+     * number), and every other copy must still be pending. The old path (decide the object, then
+     * write the row back) is raced the same way for comparison.
+     */
+    static void approvalRace(int sessions, int rounds) throws InterruptedException {
+        Fixture fixture = Fixture.create(0, 0);
+        AccountDAOImpl accountDAO = new AccountDAOImpl();
+        System.out.println("Approval race: " + sessions + " sessions deciding one pending account, " + rounds + " rounds");
+
+        for (boolean conditional : new boolean[]{false, true}) {
+            long reported = 0;
+            long written = 0;
+            int exactlyOnce = 0;
+            for (int round = 0; round < rounds; round++) {
+                String storedNumber = fixture.addPendingAccount(500.0);
+                List<Account> copies = new ArrayList<>(sessions);
+                for (int i = 0; i < sessions; i++) {
+                    copies.add(accountDAO.findAccountByNumber(storedNumber).orElseThrow());
+                }
+                AtomicLong told = new AtomicLong();
+                AtomicLong writes = new AtomicLong();
+                List<Account> winners = java.util.Collections.synchronizedList(new ArrayList<>());
+                runStaff(sessions, session -> {
+                    Account copy = copies.get(session);
+                    String username = "staff" + session;
+                    boolean reject = session % 4 == 3;
+                    if (conditional) {
+                        if (reject ? AccountApprovalService.rejectStoredAccount(copy, username)
+                                : AccountApprovalService.approveStoredAccount(copy, username)) {
+                            told.incrementAndGet();
+                            writes.incrementAndGet();
+                            winners.add(copy);
+                        }
+                    } else if (reject ? AccountApprovalService.rejectAccount(copy, username)
+                            : AccountApprovalService.approveAccount(copy, username)) {
+                        told.incrementAndGet();
+                        if (accountDAO.updateAccount(copy, storedNumber)) {
+                            writes.incrementAndGet();
+                            winners.add(copy);
+                        }
+                    }
+                });
+                reported += told.get();
+                written += writes.get();
+                if (told.get() == 1 && writes.get() == 1 && matchesStoredRow(accountDAO, winners.get(0))
+                        && copies.stream().filter(copy -> copy != winners.get(0))
+                                .allMatch(copy -> copy.getStatus() == AccountStatus.PENDING)) {
+                    exactlyOnce++;
+                }
+            }
+            System.out.printf("  %-26s decisions reported/round: %5.2f   written/round: %5.2f   rounds decided exactly once: %d/%d   %s%n",
+                    conditional ? "conditional transition" : "decide, then write back",
+                    reported / (double) rounds, written / (double) rounds, exactlyOnce, rounds,
+                    exactlyOnce == rounds ? "OK" : "RACY");
+        }
+    }
+
+    private static boolean matchesStoredRow(AccountDAOImpl accountDAO, Account winner) {
+        return accountDAO.findAccountByNumber(winner.getAccountNumber())
+                .map(stored -> stored.getStatus() == winner.getStatus())
+                .orElse(false);
+    }
+
+    /**
+     * Run one worker per staff member until all of them return
+     * @return Elapsed nanoseconds
+     */
+    private static long runStaff(int staff, java.util.function.IntConsumer worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(staff);
+        for (int m = 0; m < staff; m++) {
+            int member = m;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    worker.accept(member);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "staff-" + m).start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - t0;
+    }
+
+    /**
+     * Run an operation from many threads and report throughput and database traffic per operation
+     */
+    static void measure(String label, int threads, int perThread, Runnable operation) throws InterruptedException {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        long checkoutsBefore = db.getCheckoutCount();
+        long commitsBefore = UnitOfWork.getCommitCount();
+        AtomicLong failures = new AtomicLong();
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        try {
+                            operation.run();
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            worker.start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+
+        long ops = (long) threads * perThread;
+        System.out.printf("  %-28s %,10.0f ops/s  (%,d ms, %d failures)%n",
+                label, ops / (elapsed / 1e9), elapsed / 1_000_000, failures.get());
+        System.out.printf("  pool checkouts/op: %.2f   commits/op: %.2f%n",
+                (db.getCheckoutCount() - checkoutsBefore) / (double) ops,
+                (UnitOfWork.getCommitCount() - commitsBefore) / (double) ops);
+    }
+
+    /**
+     * Seeded bank plus the matching database rows
+     */
+    static final class Fixture {
+        final Bank bank;
+        final List<String> accountNumbers = new ArrayList<>();
+        private final CustomerDAOImpl customerDAO = new CustomerDAOImpl();
+        private final AccountDAOImpl accountDAO = new AccountDAOImpl();
+
+        private Fixture(Bank bank) {
+            this.bank = bank;
+        }
+
+        static Fixture create(int accountCount, double openingBalance) {
+            Fixture fixture = new Fixture(new Bank("LoadTestBank", "001"));
+            for (int i = 0; i < accountCount; i++) {
+                fixture.addAccount(openingBalance);
+            }
+            return fixture;
+        }
+
+        /**
+         * Register one more company customer with an approved cheque account
+         * @return The new account number
+         */
+        String addAccount(double openingBalance) {
+            String customerId = IDGenerator.generateCustomerID();
+            CompanyCustomer company = new CompanyCustomer(customerId, "Load Co " + customerId, "REG-" + customerId);
+            bank.registerCustomer(company);
+            customerDAO.saveCustomer(company);
+
+            Account account = bank.openAccount(company, "cheque", openingBalance);
+            account.approve("loadtest");
+            accountDAO.saveAccount(account);
+            accountNumbers.add(account.getAccountNumber());
+            return account.getAccountNumber();
+        }
+
+        /**
+         * Register one more company customer with a pending cheque account, stored under a
+         * placeholder number until approval (as DatabaseInitializer seeds them)
+         * @return The placeholder account number
+         */
+        String addPendingAccount(double openingBalance) {
+            String customerId = IDGenerator.generateCustomerID();
+            CompanyCustomer company = new CompanyCustomer(customerId, "Applicant Co " + customerId, "REG-" + customerId);
+            bank.registerCustomer(company);
+            customerDAO.saveCustomer(company);
+
+            Account account = bank.openAccount(company, "cheque", openingBalance);
+            String placeholder = "ACC-PENDING-" + customerId;
+            try {
+                java.lang.reflect.Field numberField = Account.class.getDeclaredField("accountNumber");
+                numberField.setAccessible(true);
+                numberField.set(account, placeholder);
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            accountDAO.saveAccount(account);
+            return placeholder;
+        }
+
+        String randomAccount() {
+            return accountNumbers.get(ThreadLocalRandom.current().nextInt(accountNumbers.size()));
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Account;
+import com.bankingsystem.Bank;
+import com.bankingsystem.IndividualCustomer;
+import com.bankingsystem.Transaction;
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.CustomerDAOImpl;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.RecentActivityCache;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * MiniStatementBenchmark - cost and correctness of mini-statements from the RecentActivityCache.
+ * Seeds approved accounts with long ledgers straight through JDBC, then reads the newest 10
+ * transactions of random accounts three ways: loading the whole history and keeping the first
+ * rows, one LIMIT query, and the cache. Then posts deposits, withdrawals and transfers through
+ * TransactionController from several threads against accounts whose rings are loaded, and checks
+ * every ring against the database's own newest rows. Finally reads through a cache capped well
+ * below the number of accounts to show the LRU eviction.
+ *
+ * Usage: MiniStatementBenchmark [accounts] [historyPerAccount] [reads] [operationsPerThread]
+ */
+public class MiniStatementBenchmark {
+    private static final int STATEMENT = 10;
+    private static final int THREADS = 4;
+    private static final int LIVE_ACCOUNTS = 100;
+
+    private static String[] numbers;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int history = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int reads = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        int operations = args.length > 3 ? Integer.parseInt(args[3]) : 1_000;
+
+        numbers = new String[accounts];
+        for (int a = 0; a < accounts; a++) {
+            numbers[a] = String.format("MS%07d", a);
+        }
+        long t0 = System.nanoTime();
+        seed(accounts, history);
+        System.out.printf("Mini-statements: %,d accounts x %,d ledger rows (seeded in %,d ms)%n",
+                accounts, history, (System.nanoTime() - t0) / 1_000_000);
+
+        TransactionDAOImpl transactionDAO = new TransactionDAOImpl();
+        RecentActivityCache cache = RecentActivityCache.getInstance();
+        for (int pass = 0; pass < 2; pass++) {
+            long sink = 0;
+            int fullReads = Math.max(1, reads / 10); // the full fetch is far slower
+            long started = System.nanoTime();
+            for (int r = 0; r < fullReads; r++) {
+                List<Transaction> all = transactionDAO.getTransactionsByAccountNumber(randomAccount(accounts));
+                sink += all.subList(0, Math.min(STATEMENT, all.size())).size();
+            }
+            long full = (System.nanoTime() - started) / fullReads;
+            started = System.nanoTime();
+            for (int r = 0; r < reads; r++) {
+                sink += transactionDAO.getRecentTransactions(randomAccount(accounts), STATEMENT).size();
+            }
+            long limited = (System.nanoTime() - started) / reads;
+            long loadsBefore = cache.getLoadCount();
+            long hitsBefore = cache.getHitCount();
+            started = System.nanoTime();
+            for (int r = 0; r < reads; r++) {
+                sink += cache.recent(randomAccount(accounts), STATEMENT).size();
+            }
+            long cached = (System.nanoTime() - started) / reads;
+            System.out.printf("  %s: full history %,d us, LIMIT query %,d us, cache %,d ns per read " +
+                            "(%,d hits, %,d loads)%s%n", pass == 0 ? "cold" : "warm",
+                    full / 1_000, limited / 1_000, cached, cache.getHitCount() - hitsBefore,
+                    cache.getLoadCount() - loadsBefore, sink == 0 ? "!" : "");
+        }
+
+        checkLivePostings(cache, transactionDAO, operations);
+        showEviction(transactionDAO, accounts, reads);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void checkLivePostings(RecentActivityCache cache, TransactionDAOImpl transactionDAO,
+                                          int operations) throws Exception {
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+        Bank bank = new Bank("MiniStatementBenchmarkBank", "001");
+        AccountDAOImpl accountDAO = new AccountDAOImpl();
+        CustomerDAOImpl customerDAO = new CustomerDAOImpl();
+        List<String> live = new ArrayList<>(LIVE_ACCOUNTS);
+        for (int i = 0; i < LIVE_ACCOUNTS / 2; i++) {
+            IndividualCustomer customer = new IndividualCustomer("CUST-MINI-LIVE" + i, "Live", "Customer" + i, "NID-MINI-LIVE" + i);
+            bank.registerCustomer(customer);
+            customerDAO.saveCustomer(customer);
+            for (String type : new String[]{"savings", "investment"}) {
+                Account account = bank.openAccount(customer, type, 1_000);
+                account.approve("benchmark");
+                accountDAO.saveAccount(account);
+                live.add(account.getAccountNumber());
+            }
+        }
+        // Load half the rings before posting; the other half are loaded afterwards
+        for (int i = 0; i < live.size(); i += 2) {
+            cache.recent(live.get(i), STATEMENT);
+        }
+
+        TransactionController controller = new TransactionController(bank);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long t0 = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operations; i++) {
+                    String account = live.get(random.nextInt(live.size()));
+                    double amount = 1 + random.nextInt(20);
+                    switch (random.nextInt(4)) {
+                        case 0 -> controller.deposit(account, amount);
+                        case 1 -> controller.withdraw(account, amount);
+                        case 2 -> controller.getMiniStatement(account, STATEMENT);
+                        default -> controller.transfer(account, live.get(random.nextInt(live.size())), amount);
+                    }
+                }
+                done.countDown();
+            }, "Poster-" + t);
+            thread.start();
+        }
+        done.await();
+        System.out.printf("  %,d mixed operations on %d live accounts in %,d ms%n",
+                THREADS * operations, live.size(), (System.nanoTime() - t0) / 1_000_000);
+
+        int wrong = 0;
+        for (String account : live) {
+            List<String> cached = keys(cache.recent(account, RecentActivityCache.CAPACITY));
+            List<String> stored = keys(transactionDAO.getRecentTransactions(account, RecentActivityCache.CAPACITY));
+            if (!cached.equals(stored)) wrong++;
+        }
+        System.out.println("  rings vs database after live postings: "
+                + (wrong == 0 ? "OK (" + live.size() + " accounts)" : wrong + " WRONG of " + live.size()));
+    }
+
+    private static void showEviction(TransactionDAOImpl transactionDAO, int accounts, int reads) {
+        int cap = Math.max(1, accounts / 10);
+        RecentActivityCache small = new RecentActivityCache(transactionDAO, cap);
+        for (int r = 0; r < reads; r++) {
+            // Most reads go to a hot tenth of the accounts, the rest anywhere
+            int hot = ThreadLocalRandom.current().nextInt(10) < 8 ? cap / 2 : accounts;
+            small.recent(randomAccount(hot), STATEMENT);
+        }
+        System.out.printf("  capped at %,d accounts: %,d reads, %,d hits, %,d loads, %,d evicted, %,d held%n",
+                cap, reads, small.getHitCount(), small.getLoadCount(), small.getEvictionCount(), small.size());
+    }
+
+    /**
+     * Rows as compared; timestamps are left out because the database rounds them to microseconds
+     */
+    private static List<String> keys(List<Transaction> transactions) {
+        List<String> keys = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            keys.add(transaction.getType() + " " + transaction.getAmount() + " " + transaction.getBalanceAfter());
+        }
+        return keys;
+    }
+
+    private static String randomAccount(int accounts) {
+        return numbers[ThreadLocalRandom.current().nextInt(accounts)];
+    }
+
+    private static void seed(int accounts, int history) throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusDays(history);
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement customer = connection.prepareStatement(
+                         "INSERT INTO customers (customer_id, customer_type, first_name, last_name) VALUES (?, 'INDIVIDUAL', 'Mini', ?)");
+                 PreparedStatement account = connection.prepareStatement(
+                         "INSERT INTO accounts (account_number, customer_id, account_type, balance, status, date_opened) " +
+                         "VALUES (?, ?, 'SavingsAccount', ?, 'APPROVED', ?)");
+                 PreparedStatement ledger = connection.prepareStatement(
+                         "INSERT INTO transactions (transaction_id, account_number, transaction_type, direction, amount, " +
+                         "balance_after, description, transaction_timestamp) VALUES (?, ?, 'DEPOSIT', 'CREDIT', ?, ?, 'Seeded', ?)")) {
+                for (int a = 0; a < accounts; a++) {
+                    String customerId = String.format("CUST-MINI%07d", a);
+                    String number = numbers[a];
+                    customer.setString(1, customerId);
+                    customer.setString(2, "Customer" + a);
+                    customer.addBatch();
+                    account.setString(1, number);
+                    account.setString(2, customerId);
+                    account.setDouble(3, history * 10.0);
+                    account.setDate(4, java.sql.Date.valueOf(LocalDate.now()));
+                    account.addBatch();
+                    for (int h = 0; h < history; h++) {
+                        ledger.setString(1, number + "-" + h);
+                        ledger.setString(2, number);
+                        ledger.setDouble(3, 10);
+                        ledger.setDouble(4, (h + 1) * 10.0);
+                        ledger.setTimestamp(5, Timestamp.valueOf(start.plusDays(h).plusSeconds(a)));
+                        ledger.addBatch();
+                    }
+                    if ((a + 1) % 100 == 0) {
+                        customer.executeBatch();
+                        account.executeBatch();
+                        ledger.executeBatch();
+                    }
+                }
+                customer.executeBatch();
+                account.executeBatch();
+                ledger.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.PayrollDisbursementService;
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.StripedBalanceDAO;
+import com.bankingsystem.persistence.UnitOfWork;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * PayrollDisbursementBenchmark - throughput of bulk payroll disbursement for a large file.
+ * Generates a CSV with the requested number of lines (a small share deliberately invalid),
+ * disburses it from one company account, and compares with paying the same recipients
+ * one TransactionController.transfer call at a time.
+ *
+ * Usage: PayrollDisbursementBenchmark [lines] [recipients] [chunkSize]
+ */
+public class PayrollDisbursementBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int recipients = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        int chunkSize = args.length > 2 ? Integer.parseInt(args[2]) : PayrollDisbursementService.DEFAULT_CHUNK_SIZE;
+        // The per-line baseline sends thousands of transfers from one account; keep the velocity rules out of it
+        TransactionRulesEngine.getInstance().setLimits(TransactionRulesEngine.Limits.NONE);
+
+        LoadTestHarness.Fixture fixture = LoadTestHarness.Fixture.create(0, 0);
+        String company = fixture.addAccount(1_000_000_000.0);
+        for (int i = 0; i < recipients; i++) {
+            fixture.addAccount(1.0);
+        }
+        List<String> payees = fixture.accountNumbers.subList(1, fixture.accountNumbers.size());
+        StripedBalanceDAO balances = StripedBalanceDAO.getInstance();
+
+        // Roughly 1 in 200 lines is bad: unknown account or malformed amount
+        StringBuilder csv = new StringBuilder("account_number,amount,reference\n");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long expectedCents = 0;
+        for (int i = 0; i < lineCount; i++) {
+            int roll = random.nextInt(200);
+            if (roll == 0) {
+                csv.append("999-CHQ-99999,100.00,EMP").append(i).append('\n');
+            } else if (roll == 1) {
+                csv.append(payees.get(i % payees.size())).append(",12.345,EMP").append(i).append('\n');
+            } else {
+                long cents = 100_00 + random.nextInt(5_000_00);
+                expectedCents += cents;
+                csv.append(payees.get(i % payees.size())).append(',')
+                        .append(cents / 100).append('.').append(String.format("%02d", cents % 100))
+                        .append(",EMP").append(i).append('\n');
+            }
+        }
+        double companyBefore = balances.getBalance(company).orElse(Double.NaN);
+
+        System.out.println("Bulk disbursement: " + lineCount + " lines to " + recipients
+                + " recipients, chunk size " + chunkSize);
+        long commitsBefore = UnitOfWork.getCommitCount();
+        long t0 = System.nanoTime();
+        List<PayrollDisbursementService.Line> lines = PayrollDisbursementService.parseCsv(new StringReader(csv.toString()));
+        PayrollDisbursementService.Report report = new PayrollDisbursementService(fixture.bank, chunkSize)
+                .disburse(company, lines);
+        long elapsed = System.nanoTime() - t0;
+        System.out.println("  " + report);
+        System.out.printf("  bulk: %,.0f lines/s (%,d ms including CSV parse), %d commits%n",
+                lineCount / (elapsed / 1e9), elapsed / 1_000_000, UnitOfWork.getCommitCount() - commitsBefore);
+
+        double companyAfter = balances.getBalance(company).orElse(Double.NaN);
+        double moved = companyBefore - companyAfter;
+        System.out.printf("  company debited BWP %.2f, expected BWP %.2f  %s%n", moved, expectedCents / 100.0,
+                Math.abs(moved - expectedCents / 100.0) < 0.005
+                        && Math.abs(report.getTotalCredited() - expectedCents / 100.0) < 0.005 ? "OK" : "MISMATCH");
+
+        // Baseline: one transfer call per line on a sample, extrapolated
+        int sample = Math.min(2_000, lineCount);
+        TransactionController controller = new TransactionController(fixture.bank);
+        long t1 = System.nanoTime();
+        for (int i = 0; i < sample; i++) {
+            controller.transfer(company, payees.get(i % payees.size()), 1.0);
+        }
+        long perLine = System.nanoTime() - t1;
+        System.out.printf("  per-line transfer: %,.0f lines/s (%d-line sample)%n", sample / (perLine / 1e9), sample);
+
+        DatabaseConnection.getInstance().closeConnection();
+    }
+}
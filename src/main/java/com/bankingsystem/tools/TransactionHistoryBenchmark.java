@@ -0,0 +1,133 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.Transaction;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.dao.TransactionPage;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+import com.bankingsystem.persistence.UnitOfWork;
+import com.bankingsystem.utils.TransactionPageCache;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TransactionHistoryBenchmark - cost of opening and scrolling a long account history.
+ * Seeds one account with a large ledger, then compares loading the whole history (what the
+ * history views used to do) with the paged TransactionPageCache: time to first screen, a full
+ * scroll from top to bottom, and a deep page fetched by keyset versus by OFFSET.
+ * The scroll also checks that the paged rows come back in the full-load timestamp order.
+ *
+ * Usage: TransactionHistoryBenchmark [transactions] [pageSize]
+ */
+public class TransactionHistoryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : TransactionPageCache.DEFAULT_PAGE_SIZE;
+
+        LoadTestHarness.Fixture fixture = LoadTestHarness.Fixture.create(0, 0);
+        String account = fixture.addAccount(1.0);
+        TransactionDAOImpl dao = new TransactionDAOImpl();
+        seed(dao, account, count);
+        System.out.println("Transaction history: " + count + " rows on one account, page size " + pageSize);
+
+        for (int round = 0; round < 2; round++) {
+            String suffix = round == 0 ? " (warm-up)" : "";
+            // A fresh ledger row per round, so H2 cannot answer a repeated query from its result cache
+            dao.saveTransaction(account, new Transaction(Transaction.Type.DEPOSIT, 1.0, 0.0, "Round " + round));
+
+            long t0 = System.nanoTime();
+            List<Transaction> all = dao.getTransactionsByAccountNumber(account);
+            long fullLoad = System.nanoTime() - t0;
+
+            long t1 = System.nanoTime();
+            TransactionHistoryQuery query = TransactionHistoryQuery.forAccount(account);
+            TransactionPageCache cache = new TransactionPageCache(dao, query, pageSize, TransactionPageCache.DEFAULT_MAX_PAGES);
+            long firstScreen = System.nanoTime() - t1;
+            while (!cache.isSizeFinal()) {
+                LockSupport.parkNanos(50_000);
+            }
+            long counted = System.nanoTime() - t1;
+
+            // Scroll top to bottom, one screen of rows at a time, waiting for pages as a table would
+            long t2 = System.nanoTime();
+            int maxCached = 0;
+            boolean sameOrder = cache.size() == all.size();
+            for (int i = 0; i < cache.size() && sameOrder; i++) {
+                Transaction row;
+                while ((row = cache.get(i)) == null) {
+                    LockSupport.parkNanos(50_000);
+                }
+                // The full load has no tie-breaker, so rows sharing a timestamp may be permuted
+                sameOrder = row.getTimestamp().equals(all.get(i).getTimestamp());
+                maxCached = Math.max(maxCached, cache.getCachedPageCount());
+            }
+            long scroll = System.nanoTime() - t2;
+
+            System.out.printf("  full load%-10s %,7d ms   %,d rows on heap%n", suffix, fullLoad / 1_000_000, all.size());
+            System.out.printf("  paged open%-9s %,7d ms   first screen (page 1), full row count after %,d ms%n",
+                    suffix, firstScreen / 1_000_000, counted / 1_000_000);
+            System.out.printf("  paged scroll%-7s %,7d ms   max %d pages (%d rows) cached, %d keyset / %d offset fetches, "
+                            + "%d evictions, order %s%n", suffix, scroll / 1_000_000, maxCached, maxCached * pageSize,
+                    cache.getKeysetFetchCount(), cache.getOffsetFetchCount(), cache.getEvictionCount(),
+                    sameOrder ? "OK" : "MISMATCH");
+            cache.close();
+        }
+
+        // A page near the end of the history: OFFSET walks every skipped row, keyset seeks
+        TransactionHistoryQuery query = TransactionHistoryQuery.forAccount(account);
+        int deepOffset = Math.max(0, count - 2 * pageSize);
+        TransactionPage before = dao.getTransactionPage(query, deepOffset - pageSize, pageSize);
+        int reps = 50;
+        long offsetNanos = 0;
+        long keysetNanos = 0;
+        for (int i = 0; i < reps; i++) {
+            long t0 = System.nanoTime();
+            dao.getTransactionPage(query, deepOffset, pageSize);
+            offsetNanos += System.nanoTime() - t0;
+            long t1 = System.nanoTime();
+            dao.getTransactionPageAfter(query, before.getEnd(), pageSize);
+            keysetNanos += System.nanoTime() - t1;
+        }
+        System.out.printf("  page at row %,d: offset %,.2f ms, keyset %,.2f ms%n",
+                deepOffset, offsetNanos / 1e6 / reps, keysetNanos / 1e6 / reps);
+
+        // Database-side filter and sort
+        TransactionHistoryQuery filtered = query.withType(Transaction.Type.WITHDRAW)
+                .sortedBy(TransactionHistoryQuery.SortField.AMOUNT, false);
+        long t3 = System.nanoTime();
+        TransactionPageCache largest = new TransactionPageCache(dao, filtered, pageSize, TransactionPageCache.DEFAULT_MAX_PAGES);
+        Transaction top = largest.get(0);
+        long firstLargest = System.nanoTime() - t3;
+        while (!largest.isSizeFinal()) {
+            LockSupport.parkNanos(50_000);
+        }
+        System.out.printf("  withdrawals by amount: %,d rows, largest BWP %.2f, first screen %,d ms%n",
+                largest.size(), top != null ? top.getAmount() : Double.NaN, firstLargest / 1_000_000);
+        largest.close();
+    }
+
+    private static void seed(TransactionDAOImpl dao, String account, int count) throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusYears(5);
+        int batch = 5_000;
+        for (int from = 0; from < count; from += batch) {
+            int to = Math.min(count, from + batch);
+            List<String> accounts = new ArrayList<>(to - from);
+            List<Transaction> rows = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Transaction.Type type = i % 3 == 0 ? Transaction.Type.WITHDRAW : Transaction.Type.DEPOSIT;
+                // Several rows share a timestamp so the transaction_id tie-breaker is exercised
+                Transaction.Direction direction = type == Transaction.Type.WITHDRAW
+                        ? Transaction.Direction.DEBIT : Transaction.Direction.CREDIT;
+                rows.add(new Transaction(type, direction, 1 + (i * 37 % 1_000), i, "Seed " + i, start.plusMinutes(i / 4)));
+                accounts.add(account);
+            }
+            UnitOfWork.execute(connection -> {
+                dao.saveTransactionBatch(accounts, rows);
+                return null;
+            });
+        }
+    }
+}
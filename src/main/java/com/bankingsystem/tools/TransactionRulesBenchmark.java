@@ -0,0 +1,183 @@
+package com.bankingsystem.tools;
+
+import com.bankingsystem.TransactionRulesEngine;
+import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.persistence.AccountDAOImpl;
+import com.bankingsystem.persistence.DatabaseConnection;
+import com.bankingsystem.persistence.TransactionDAOImpl;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TransactionRulesBenchmark - latency of the inline velocity and fraud rules.
+ * First evaluates the engine on its own over many accounts (a mix of deposits, withdrawals and
+ * transfers to known and new recipients) and reports latency percentiles and bytes allocated
+ * per evaluation. Then drives TransactionController with mixed traffic through the load-test
+ * harness, including bursts and pass-through patterns that trip the rules, and reports the
+ * latency of every rule evaluation made on the posting path under that load.
+ *
+ * Usage: TransactionRulesBenchmark [evaluations] [accounts] [threads] [operationsPerThread]
+ */
+public class TransactionRulesBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int perThread = args.length > 3 ? Integer.parseInt(args[3]) : 1_000;
+
+        isolated(evaluations, accountCount);
+        underLoad(threads, perThread);
+        DatabaseConnection.getInstance().closeConnection();
+    }
+
+    private static void isolated(int evaluations, int accountCount) {
+        // Count and value caps lifted so every evaluation scans the full rings and records the debit
+        // (the slowest path); the new-recipient and pass-through rules keep their default limits
+        TransactionRulesEngine engine = new TransactionRulesEngine(new TransactionRulesEngine.Limits(
+                100_000, Integer.MAX_VALUE, 60 * 60_000L, Double.MAX_VALUE, 20_000, 10 * 60_000L, 10_000, 0.9), null);
+        String[] accounts = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = String.format("ACC%09d", i);
+        }
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.out.println("Transaction rules: " + evaluations + " evaluations over " + accountCount + " accounts");
+
+        long[] nanos = new long[evaluations];
+        for (int round = 0; round < 2; round++) {
+            SplittableRandom random = new SplittableRandom(round);
+            long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < evaluations; i++) {
+                String account = accounts[random.nextInt(accountCount)];
+                int pick = random.nextInt(10);
+                long t0 = System.nanoTime();
+                if (pick < 4) {
+                    if (engine.checkCredit(account, 500) == null) {
+                        engine.recordCredit(account, 500);
+                    }
+                } else if (pick < 7) {
+                    engine.checkDebit(account, 200, null);
+                } else {
+                    // Mostly a handful of regular recipients, sometimes a large payment to a stranger
+                    int payee = random.nextInt(20) == 0 ? random.nextInt(accountCount) : (account.hashCode() + pick) & 7;
+                    engine.checkDebit(account, payee > 7 ? 25_000 : 300, accounts[payee]);
+                }
+                nanos[i] = System.nanoTime() - t0;
+            }
+            long allocated = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            // The first pass also creates every account's rings
+            report(round == 0 ? "isolated (warm-up)" : "isolated", nanos, evaluations);
+            System.out.printf("    %.2f bytes allocated per evaluation%n", allocated / (double) evaluations);
+        }
+        declines(engine);
+    }
+
+    private static void underLoad(int threads, int perThread) throws InterruptedException {
+        TimedRulesEngine engine = new TimedRulesEngine(threads * perThread * 2);
+        LoadTestHarness.Fixture fixture = LoadTestHarness.Fixture.create(500, 1_000_000.0);
+        TransactionController controller = new TransactionController(fixture.bank, new AccountDAOImpl(),
+                new TransactionDAOImpl(), engine);
+        System.out.println("Under load: " + threads + " threads x " + perThread
+                + " controller operations over " + fixture.accountNumbers.size() + " accounts");
+
+        // Seed every account's windows from the ledger up front, as a warm server would have
+        long t0 = System.nanoTime();
+        for (String account : fixture.accountNumbers) {
+            engine.warmUp(account);
+        }
+        System.out.printf("  window seeding from the ledger: %.2f ms per account%n",
+                (System.nanoTime() - t0) / 1e6 / fixture.accountNumbers.size());
+
+        LoadTestHarness.measure("mixed with rules", threads, perThread, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pick = random.nextInt(100);
+            String account = fixture.randomAccount();
+            if (pick < 35) {
+                controller.deposit(account, 25.0);
+            } else if (pick < 65) {
+                controller.withdraw(account, 5.0);
+            } else if (pick < 97) {
+                String to = fixture.randomAccount();
+                if (!account.equals(to)) controller.transfer(account, to, 5.0);
+            } else if (pick < 98) {
+                // A large transfer to a recipient the account has probably never paid
+                String to = fixture.randomAccount();
+                if (!account.equals(to)) controller.transfer(account, to, 25_000.0);
+            } else if (pick < 99) {
+                // Pass-through: a large credit moved straight back out
+                controller.deposit(account, 12_000.0);
+                controller.withdraw(account, 11_500.0);
+            } else {
+                // A burst of small withdrawals
+                for (int i = 0; i < 25; i++) {
+                    controller.withdraw(account, 1.0);
+                }
+            }
+        });
+        report("on the posting path", engine.samples(), engine.sampleCount());
+        declines(engine);
+    }
+
+    private static void report(String label, long[] nanos, int count) {
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        System.out.printf("  %-22s p50 %,6.2f us   p99 %,6.2f us   p99.9 %,7.2f us   max %,8.1f us   (%,d evaluations)%n",
+                label, sorted[count / 2] / 1e3, sorted[(int) (count * 0.99)] / 1e3,
+                sorted[(int) (count * 0.999)] / 1e3, sorted[count - 1] / 1e3, count);
+    }
+
+    private static void declines(TransactionRulesEngine engine) {
+        StringBuilder line = new StringBuilder("    declined:");
+        for (TransactionRulesEngine.Rule rule : TransactionRulesEngine.Rule.values()) {
+            line.append(' ').append(rule).append('=').append(engine.getDeclineCount(rule));
+        }
+        System.out.println(line);
+    }
+
+    /**
+     * Records how long each evaluation takes
+     */
+    private static final class TimedRulesEngine extends TransactionRulesEngine {
+        private final long[] samples;
+        private final AtomicInteger next = new AtomicInteger();
+
+        TimedRulesEngine(int capacity) {
+            super(Limits.DEFAULTS, new TransactionDAOImpl());
+            this.samples = new long[capacity];
+        }
+
+        @Override
+        public Rule checkCredit(String accountNumber, double amount) {
+            long t0 = System.nanoTime();
+            Rule rule = super.checkCredit(accountNumber, amount);
+            sample(System.nanoTime() - t0);
+            return rule;
+        }
+
+        @Override
+        public Rule checkDebit(String accountNumber, double amount, String counterparty) {
+            long t0 = System.nanoTime();
+            Rule rule = super.checkDebit(accountNumber, amount, counterparty);
+            sample(System.nanoTime() - t0);
+            return rule;
+        }
+
+        private void sample(long nanos) {
+            int i = next.getAndIncrement();
+            if (i < samples.length) samples[i] = nanos;
+        }
+
+        long[] samples() {
+            return samples;
+        }
+
+        int sampleCount() {
+            return Math.min(next.get(), samples.length);
+        }
+    }
+}
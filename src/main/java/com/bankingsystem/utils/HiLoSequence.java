@@ -0,0 +1,125 @@
+package com.bankingsystem.utils;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hi/lo sequence that hands out numbers from blocks reserved in a shared store.
+ * One reservation (a single database round trip) covers a whole block of IDs,
+ * and every process reserves disjoint blocks, so IDs stay unique across restarts
+ * and across application instances sharing the same database.
+ */
+public class HiLoSequence {
+    private final String name;
+    private final long initialValue;
+    private final int blockSize;
+    private final BlockSource source;
+    private volatile Block current = Block.EMPTY;
+    private final AtomicLong reservations = new AtomicLong();
+
+    /**
+     * @param name Sequence name (row key in the sequence table)
+     * @param initialValue First value handed out when the sequence does not exist yet
+     * @param blockSize Number of IDs reserved per round trip
+     * @param source Store that reserves the blocks
+     */
+    public HiLoSequence(String name, long initialValue, int blockSize, BlockSource source) {
+        if (blockSize < 1) throw new IllegalArgumentException("Block size must be positive");
+        this.name = name;
+        this.initialValue = initialValue;
+        this.blockSize = blockSize;
+        this.source = source;
+    }
+
+    /**
+     * Get the next value of the sequence.
+     * The fast path is a single atomic increment; only the thread that exhausts
+     * a block goes back to the store for the next one.
+     *
+     * @return The next unique value
+     * @throws IllegalStateException if a new block cannot be reserved
+     */
+    public long next() {
+        while (true) {
+            Block block = current;
+            long value = block.cursor.getAndIncrement();
+            if (value < block.limit) {
+                return value;
+            }
+            refill(block);
+        }
+    }
+
+    /**
+     * Peek at the value the next call to {@link #next()} would most likely return.
+     * Does not reserve anything; only used for display-only identifiers.
+     */
+    public long peek() {
+        Block block = current;
+        long value = block.cursor.get();
+        return value < block.limit ? value : initialValue;
+    }
+
+    /**
+     * Drop the current block so the next call reserves a fresh one.
+     * Unused IDs in the dropped block are skipped, never reused.
+     */
+    public synchronized void discardBlock() {
+        current = Block.EMPTY;
+    }
+
+    /**
+     * Number of blocks reserved from the store by this instance.
+     */
+    public long getReservationCount() {
+        return reservations.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (current != exhausted) {
+            return; // another thread already installed a new block
+        }
+        try {
+            long start = source.reserveBlock(name, initialValue, blockSize);
+            reservations.incrementAndGet();
+            current = new Block(start, start + blockSize);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to reserve ID block for sequence " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A reserved range [start, limit) of sequence values.
+     */
+    private static final class Block {
+        static final Block EMPTY = new Block(0, 0);
+
+        final AtomicLong cursor;
+        final long limit;
+
+        Block(long start, long limit) {
+            this.cursor = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * Store that atomically reserves blocks of sequence values.
+     */
+    @FunctionalInterface
+    public interface BlockSource {
+        /**
+         * Reserve {@code blockSize} consecutive values of the named sequence.
+         * @return The first value of the reserved block
+         */
+        long reserveBlock(String sequenceName, long initialValue, int blockSize) throws SQLException;
+    }
+}
@@ -1,23 +1,41 @@
 package com.bankingsystem.utils;
 
+import com.bankingsystem.persistence.SequenceBlockAllocator;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.atomic.AtomicLong;
+import java.time.ZoneId;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Utility class for generating unique IDs and account numbers.
  * Provides methods for generating customer IDs, account numbers, and transaction IDs.
+ *
+ * Sequential numbers come from hi/lo sequences backed by the id_sequences table,
+ * so they survive restarts and never collide between application instances that
+ * share a database. Gaps are expected: a block that is not used up before shutdown
+ * is skipped rather than handed out again.
  */
 public class IDGenerator {
-    // Counter for generating sequential numbers
-    private static final AtomicLong customerCounter = new AtomicLong(1000);
-    private static final AtomicLong accountCounter = new AtomicLong(10000);
-    private static final AtomicLong transactionCounter = new AtomicLong(1);
-    
+    // Block sizes: one database round trip per block
+    private static final int CUSTOMER_BLOCK_SIZE = 100;
+    private static final int ACCOUNT_BLOCK_SIZE = 100;
+    private static final int TRANSACTION_BLOCK_SIZE = 1000;
+
+    private static final HiLoSequence customerSequence =
+            new HiLoSequence("customer", 1000, CUSTOMER_BLOCK_SIZE, SequenceBlockAllocator.getInstance());
+    private static final HiLoSequence accountSequence =
+            new HiLoSequence("account", 10000, ACCOUNT_BLOCK_SIZE, SequenceBlockAllocator.getInstance());
+    private static final HiLoSequence transactionSequence =
+            new HiLoSequence("transaction", 1, TRANSACTION_BLOCK_SIZE, SequenceBlockAllocator.getInstance());
+
     // Branch code prefix (can be configured)
     private static final String BRANCH_CODE = "001";
 
+    // Per-thread scratch buffer for building IDs without String.format
+    private static final ThreadLocal<char[]> ID_BUFFER = ThreadLocal.withInitial(() -> new char[48]);
+
+    // "TXNyyyyMMdd-" for the current day, rebuilt only when the date changes
+    private static volatile DayPrefix transactionPrefix = new DayPrefix(LocalDate.now());
+
     /**
      * Generate a unique customer ID.
      * Format: CUST + sequential number (e.g., CUST1001)
@@ -25,7 +43,7 @@ public class IDGenerator {
      * @return A unique customer ID
      */
     public static String generateCustomerID() {
-        long next = customerCounter.getAndIncrement();
+        long next = customerSequence.next();
         return "CUST" + next;
     }
 
@@ -59,21 +77,31 @@ public class IDGenerator {
                 prefix = "ACC";
         }
         
-        long next = accountCounter.getAndIncrement();
-        return BRANCH_CODE + "-" + prefix + "-" + String.format("%05d", next);
+        long next = accountSequence.next();
+        char[] buf = ID_BUFFER.get();
+        int pos = copy(BRANCH_CODE, buf, 0);
+        buf[pos++] = '-';
+        pos = copy(prefix, buf, pos);
+        buf[pos++] = '-';
+        pos = appendPadded(buf, pos, next, 5);
+        return new String(buf, 0, pos);
     }
 
     /**
      * Generate a unique transaction ID.
      * Format: TXN + timestamp + sequential number
-     * Example: TXN20240101123456-0001
+     * Example: TXN20240101-0001
      * 
      * @return A unique transaction ID
      */
     public static String generateTransactionID() {
-        String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        long next = transactionCounter.getAndIncrement();
-        return "TXN" + timestamp + "-" + String.format("%04d", next);
+        long next = transactionSequence.next();
+        DayPrefix day = currentDayPrefix();
+        char[] buf = ID_BUFFER.get();
+        int pos = day.chars.length;
+        System.arraycopy(day.chars, 0, buf, 0, pos);
+        pos = appendPadded(buf, pos, next, 4);
+        return new String(buf, 0, pos);
     }
 
     /**
@@ -83,7 +111,7 @@ public class IDGenerator {
      * @return A unique request ID
      */
     public static String generateRequestID() {
-        return "REQ" + (1000 + accountCounter.get());
+        return "REQ" + (1000 + accountSequence.peek());
     }
 
     /**
@@ -96,13 +124,24 @@ public class IDGenerator {
     }
 
     /**
-     * Reset counters (useful for testing).
+     * Drop the locally reserved ID blocks (useful for testing).
+     * Sequences are persistent, so numbering continues from the next reserved
+     * block instead of restarting at the initial values.
      * WARNING: Only use in test environments!
      */
     public static void resetCounters() {
-        customerCounter.set(1000);
-        accountCounter.set(10000);
-        transactionCounter.set(1);
+        customerSequence.discardBlock();
+        accountSequence.discardBlock();
+        transactionSequence.discardBlock();
+    }
+
+    /**
+     * Total number of block reservations (database round trips) made so far.
+     */
+    public static long getBlockReservationCount() {
+        return customerSequence.getReservationCount()
+                + accountSequence.getReservationCount()
+                + transactionSequence.getReservationCount();
     }
 
     /**
@@ -113,5 +152,55 @@ public class IDGenerator {
         // Note: This is a simplified approach. In production, branch code
         // should be passed as a parameter to generateAccountNumber()
     }
-}
 
+    private static DayPrefix currentDayPrefix() {
+        DayPrefix day = transactionPrefix;
+        if (System.currentTimeMillis() >= day.validUntilMillis) {
+            day = new DayPrefix(LocalDate.now());
+            transactionPrefix = day;
+        }
+        return day;
+    }
+
+    private static int copy(String s, char[] buf, int pos) {
+        int len = s.length();
+        s.getChars(0, len, buf, pos);
+        return pos + len;
+    }
+
+    /**
+     * Write a non-negative value left-padded with zeros to at least {@code width} digits.
+     */
+    private static int appendPadded(char[] buf, int pos, long value, int width) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) digits++;
+        int len = Math.max(digits, width);
+        int end = pos + len;
+        for (int i = end - 1; i >= pos; i--) {
+            buf[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Cached "TXNyyyyMMdd-" prefix for one calendar day.
+     */
+    private static final class DayPrefix {
+        final long validUntilMillis;
+        final char[] chars;
+
+        DayPrefix(LocalDate date) {
+            this.validUntilMillis = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            char[] c = new char[12];
+            c[0] = 'T';
+            c[1] = 'X';
+            c[2] = 'N';
+            appendPadded(c, 3, date.getYear(), 4);
+            appendPadded(c, 7, date.getMonthValue(), 2);
+            appendPadded(c, 9, date.getDayOfMonth(), 2);
+            c[11] = '-';
+            this.chars = c;
+        }
+    }
+}
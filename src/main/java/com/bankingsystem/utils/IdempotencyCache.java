@@ -0,0 +1,114 @@
+package com.bankingsystem.utils;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Concurrent dedupe cache for idempotency keys, holding results of type R.
+ * The first request to present a key claims it; requests with the same key that arrive while
+ * it runs wait for its result instead of running again (a double-click). A completed result is
+ * kept for the time to live, so a retry gets it back with one hash lookup. Results of requests
+ * that had no effect are handed to the waiters and then dropped, so a later retry runs again.
+ *
+ * Every entry lives for the same time, so entries expire in the order they completed: eviction
+ * pops expired entries off the head of a FIFO queue, which also caps the number of entries.
+ */
+public class IdempotencyCache<R> {
+    public static final long DEFAULT_TTL_MILLIS = 15 * 60_000L;
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    /**
+     * A claimed key: in flight until its result is set
+     */
+    public static final class Entry<R> {
+        private final String key;
+        private final String request;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private Entry(String key, String request) {
+            this.key = key;
+            this.request = request;
+        }
+
+        /**
+         * What the request that claimed the key asked for
+         */
+        public String getRequest() {
+            return request;
+        }
+
+        /**
+         * The claiming request's result, waiting for it if it is still running
+         */
+        public R await() {
+            return result.join();
+        }
+    }
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Entry<R>> entries = new ConcurrentHashMap<>();
+    // Completed entries in completion (and therefore expiry) order
+    private final Queue<Entry<R>> expiryOrder = new ConcurrentLinkedQueue<>();
+
+    public IdempotencyCache(long ttlMillis, int maxEntries) {
+        if (ttlMillis <= 0 || maxEntries < 1) throw new IllegalArgumentException("TTL and capacity must be positive");
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Claim a key for a request
+     * @return null if the caller now owns the key and must call complete(), otherwise the entry
+     *         of the request that claimed it first
+     */
+    public Entry<R> claim(String key, String request) {
+        evict();
+        Entry<R> existing = entries.get(key);
+        if (existing != null && !expired(existing)) return existing;
+        if (existing != null) {
+            entries.remove(key, existing);
+        }
+        return entries.putIfAbsent(key, new Entry<>(key, request));
+    }
+
+    /**
+     * Publish the result of a claimed key
+     * @param keep Whether the request took effect; if not, the key is released so a retry runs again
+     */
+    public void complete(String key, R result, boolean keep) {
+        Entry<R> entry = entries.get(key);
+        if (entry == null) return;
+        if (keep) {
+            entry.expiresAt = System.currentTimeMillis() + ttlMillis;
+            expiryOrder.add(entry);
+        } else {
+            entries.remove(key, entry);
+        }
+        entry.result.complete(result);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private boolean expired(Entry<R> entry) {
+        return entry.expiresAt <= System.currentTimeMillis();
+    }
+
+    private void evict() {
+        Entry<R> head;
+        while ((head = expiryOrder.peek()) != null && (expired(head) || entries.size() > maxEntries)) {
+            // A racing evictor may have taken the head already; dropping a fresh entry early is
+            // harmless, the persistent key still stops the replay
+            Entry<R> polled = expiryOrder.poll();
+            if (polled != null) {
+                entries.remove(polled.key, polled);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bankingsystem.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+
+/**
+ * Append-only audit trail of ledger events, fed by the LedgerEventBus.
+ * One CSV line per event: time, sequence, kind, account, counterparty, customer, amount, balance.
+ * Lines are buffered and the writer is flushed once per batch rather than once per event.
+ */
+public class LedgerAuditTrail {
+    private final BufferedWriter out;
+    private LedgerEventBus.Subscription subscription;
+    private volatile long written;
+
+    public LedgerAuditTrail(Writer out) {
+        this.out = new BufferedWriter(out);
+    }
+
+    /**
+     * Start recording events published from now on
+     */
+    public synchronized void start(LedgerEventBus bus) {
+        if (subscription != null) return;
+        subscription = bus.subscribe("Audit", this::onEvent);
+    }
+
+    /**
+     * Stop recording and close the writer
+     */
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Error closing ledger audit trail: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Number of events written so far
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    private void onEvent(LedgerEventBus.Event event, boolean endOfBatch) {
+        try {
+            out.write(Instant.ofEpochMilli(event.getTimestampMillis()).toString());
+            out.write(',');
+            out.write(Long.toString(event.getSequence()));
+            out.write(',');
+            out.write(event.getKind().name());
+            out.write(',');
+            out.write(nullToEmpty(event.getAccountNumber()));
+            out.write(',');
+            out.write(nullToEmpty(event.getCounterparty()));
+            out.write(',');
+            out.write(nullToEmpty(event.getCustomerId()));
+            out.write(',');
+            out.write(String.format("%.2f,%.2f", event.getAmount(), event.getBalanceAfter()));
+            out.newLine();
+            written++;
+            if (endOfBatch) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing ledger audit trail: " + e.getMessage());
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,336 @@
+package com.bankingsystem.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process bus for committed ledger changes and account decisions.
+ * Publishers (TransactionController, PayrollDisbursementService, Bank, AccountApprovalService,
+ * AccountDAOImpl for newly saved accounts)
+ * write each event into a preallocated ring of slots; every subscriber reads the ring on its own
+ * daemon thread, at its own pace, in batches. Dashboards, the audit trail and the metrics react
+ * to these events instead of polling the database.
+ *
+ * Publishers take turns through one lock, so the ring has a single writer at a time: it claims
+ * the next sequence, fills that slot in place and makes it visible with one volatile write.
+ * A slot is reused only after every subscriber has moved past it, so a writer that gets a full
+ * ring ahead of the slowest subscriber waits for it (backpressure) instead of dropping events.
+ * Handlers should therefore hand slow work off, as the dashboards do with Platform.runLater,
+ * and must not publish themselves.
+ */
+public class LedgerEventBus {
+    public static final int DEFAULT_CAPACITY = 16_384;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int SPIN_TRIES = 200;
+    // Parked subscribers wake up at least this often to notice close()
+    private static final long MAX_PARK_NANOS = 100_000_000L;
+
+    private static final LedgerEventBus INSTANCE = new LedgerEventBus(DEFAULT_CAPACITY);
+
+    public enum Kind {
+        DEPOSIT, WITHDRAW, TRANSFER, INTEREST, ACCOUNT_OPENED, ACCOUNT_APPROVED, ACCOUNT_REJECTED;
+
+        /**
+         * Whether the event changed a balance (as opposed to an account decision)
+         */
+        public boolean isMoneyMovement() {
+            return this.ordinal() <= INTEREST.ordinal();
+        }
+    }
+
+    /**
+     * One ring slot. Handlers see it only for the duration of onEvent; the slot is then reused.
+     */
+    public static final class Event {
+        private long sequence;
+        private Kind kind;
+        private String accountNumber;
+        private String counterparty;
+        private String customerId;
+        private double amount;
+        private double balanceAfter;
+        private long timestampMillis;
+        private long publishedNanos;
+
+        public long getSequence() { return sequence; }
+        public Kind getKind() { return kind; }
+
+        /**
+         * The account affected; null for a rejected request that never got an account
+         */
+        public String getAccountNumber() { return accountNumber; }
+
+        /**
+         * The other account of a transfer, or null
+         */
+        public String getCounterparty() { return counterparty; }
+        public String getCustomerId() { return customerId; }
+
+        /**
+         * Signed balance change: negative for debits, 0 for account decisions
+         */
+        public double getAmount() { return amount; }
+        public double getBalanceAfter() { return balanceAfter; }
+        public long getTimestampMillis() { return timestampMillis; }
+
+        /**
+         * System.nanoTime() at publication, for measuring delivery lag
+         */
+        public long getPublishedNanos() { return publishedNanos; }
+    }
+
+    /**
+     * Receives events in sequence order on the subscription's thread
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @param endOfBatch Whether this is the last event available for now; a good point to flush
+         */
+        void onEvent(Event event, boolean endOfBatch);
+    }
+
+    /**
+     * A subscriber's position in the ring and the thread that advances it
+     */
+    public static final class Subscription {
+        private final LedgerEventBus bus;
+        private final String name;
+        private final Handler handler;
+        private final int maxBatch;
+        private final Thread thread;
+        // Last sequence handled; slots up to here may be overwritten
+        private volatile long sequence;
+        private volatile boolean waiting;
+        private volatile boolean closed;
+        private volatile long processed;
+        private volatile long batches;
+
+        private Subscription(LedgerEventBus bus, String name, Handler handler, int maxBatch, long start) {
+            this.bus = bus;
+            this.name = name;
+            this.handler = handler;
+            this.maxBatch = maxBatch;
+            this.sequence = start;
+            this.thread = new Thread(this::run, "LedgerEvents-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Number of published events this subscriber has not handled yet
+         */
+        public long getLag() {
+            return bus.cursor - sequence;
+        }
+
+        public long getProcessedCount() {
+            return processed;
+        }
+
+        public long getBatchCount() {
+            return batches;
+        }
+
+        /**
+         * Stop receiving events. Events already published but not yet handled are skipped.
+         */
+        public void close() {
+            if (closed) return;
+            closed = true;
+            bus.remove(this);
+            LockSupport.unpark(thread);
+        }
+
+        private void run() {
+            long next = sequence + 1;
+            while (!closed) {
+                long available = bus.cursor;
+                if (available < next) {
+                    await(next);
+                    continue;
+                }
+                long end = Math.min(available, next + maxBatch - 1);
+                for (long seq = next; seq <= end && !closed; seq++) {
+                    try {
+                        handler.onEvent(bus.slots[(int) (seq & bus.mask)], seq == end);
+                    } catch (RuntimeException e) {
+                        System.err.println("Error in ledger event subscriber " + name + ": " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                }
+                processed += end - next + 1;
+                batches++;
+                sequence = end;
+                next = end + 1;
+            }
+        }
+
+        private void await(long next) {
+            for (int i = 0; i < SPIN_TRIES; i++) {
+                if (bus.cursor >= next || closed) return;
+                Thread.onSpinWait();
+            }
+            // Announce the park before re-checking; the writer publishes before checking the flag
+            waiting = true;
+            try {
+                if (bus.cursor < next && !closed) {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+            } finally {
+                waiting = false;
+            }
+        }
+    }
+
+    private final Event[] slots;
+    private final int mask;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Last published sequence
+    private volatile long cursor = -1;
+    private volatile Subscription[] subscriptions = new Subscription[0];
+    // Slowest subscriber's sequence as last seen by the writer; only read and written under the lock
+    private long gatingSequence = -1;
+    private volatile long backpressureWaits;
+
+    public static LedgerEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param capacity Ring size, a power of two
+     */
+    public LedgerEventBus(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.slots = new Event[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Event();
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Publish an event, waiting while the slowest subscriber is a full ring behind
+     * @param amount Signed balance change, negative for debits
+     * @return The event's sequence
+     */
+    public long publish(Kind kind, String accountNumber, String counterparty, String customerId,
+                        double amount, double balanceAfter) {
+        long next;
+        writeLock.lock();
+        try {
+            next = cursor + 1;
+            awaitCapacity(next);
+            Event event = slots[(int) (next & mask)];
+            event.sequence = next;
+            event.kind = kind;
+            event.accountNumber = accountNumber;
+            event.counterparty = counterparty;
+            event.customerId = customerId;
+            event.amount = amount;
+            event.balanceAfter = balanceAfter;
+            event.timestampMillis = System.currentTimeMillis();
+            event.publishedNanos = System.nanoTime();
+            cursor = next;
+        } finally {
+            writeLock.unlock();
+        }
+        wakeSubscribers();
+        return next;
+    }
+
+    /**
+     * Subscribe from the next event published on
+     * @param name Used for the subscriber's thread name
+     * @param maxBatch Most events handled before the subscriber releases their slots
+     */
+    public Subscription subscribe(String name, int maxBatch, Handler handler) {
+        if (maxBatch < 1) throw new IllegalArgumentException("Batch size must be positive");
+        Subscription subscription;
+        writeLock.lock();
+        try {
+            subscription = new Subscription(this, name, handler, maxBatch, cursor);
+            Subscription[] current = subscriptions;
+            Subscription[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = subscription;
+            subscriptions = grown;
+        } finally {
+            writeLock.unlock();
+        }
+        subscription.thread.start();
+        return subscription;
+    }
+
+    public Subscription subscribe(String name, Handler handler) {
+        return subscribe(name, DEFAULT_BATCH_SIZE, handler);
+    }
+
+    /**
+     * Total events published so far
+     */
+    public long getPublishedCount() {
+        return cursor + 1;
+    }
+
+    /**
+     * How many times a publisher had to wait for a slow subscriber
+     */
+    public long getBackpressureWaits() {
+        return backpressureWaits;
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    private void remove(Subscription subscription) {
+        writeLock.lock();
+        try {
+            Subscription[] current = subscriptions;
+            subscriptions = Arrays.stream(current).filter(s -> s != subscription).toArray(Subscription[]::new);
+            gatingSequence = -1;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void awaitCapacity(long next) {
+        long wrapPoint = next - slots.length;
+        if (wrapPoint <= gatingSequence) return;
+        gatingSequence = minimumSequence(next - 1);
+        if (wrapPoint <= gatingSequence) return;
+
+        backpressureWaits++;
+        int spins = 0;
+        while (wrapPoint > (gatingSequence = minimumSequence(next - 1))) {
+            if (spins++ < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                wakeSubscribers();
+                LockSupport.parkNanos(1_000);
+            }
+        }
+    }
+
+    private long minimumSequence(long ifNone) {
+        long min = ifNone;
+        for (Subscription subscription : subscriptions) {
+            min = Math.min(min, subscription.sequence);
+        }
+        return min;
+    }
+
+    private void wakeSubscribers() {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.waiting) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.bankingsystem.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Running ledger activity totals, fed by the LedgerEventBus.
+ * Counts events and net money moved per event kind. Only the subscription's thread writes;
+ * any thread may read.
+ */
+public class LedgerMetrics {
+    private static final LedgerMetrics INSTANCE = new LedgerMetrics();
+
+    private final AtomicLongArray counts = new AtomicLongArray(LedgerEventBus.Kind.values().length);
+    private final AtomicLongArray netCents = new AtomicLongArray(LedgerEventBus.Kind.values().length);
+    private LedgerEventBus.Subscription subscription;
+
+    public static LedgerMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start counting events published from now on
+     */
+    public synchronized void start(LedgerEventBus bus) {
+        if (subscription != null) return;
+        subscription = bus.subscribe("Metrics", this::onEvent);
+    }
+
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.close();
+            subscription = null;
+        }
+    }
+
+    public long getCount(LedgerEventBus.Kind kind) {
+        return counts.get(kind.ordinal());
+    }
+
+    /**
+     * Net balance change from events of a kind (deposits positive, withdrawals negative)
+     */
+    public double getNetAmount(LedgerEventBus.Kind kind) {
+        return netCents.get(kind.ordinal()) / 100.0;
+    }
+
+    /**
+     * Events published but not counted yet
+     */
+    public synchronized long getLag() {
+        return subscription != null ? subscription.getLag() : 0;
+    }
+
+    private void onEvent(LedgerEventBus.Event event, boolean endOfBatch) {
+        int i = event.getKind().ordinal();
+        // Single writer: a plain read-modify-write with an ordered store is enough
+        counts.lazySet(i, counts.get(i) + 1);
+        netCents.lazySet(i, netCents.get(i) + Math.round(event.getAmount() * 100));
+    }
+}
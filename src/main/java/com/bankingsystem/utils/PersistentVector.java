@@ -0,0 +1,195 @@
+package com.bankingsystem.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Immutable list with structural sharing (a 32-way bit-partitioned trie with a tail buffer).
+ * {@link #plus} and {@link #with} return a new version that shares all untouched nodes with
+ * the old one, so an append copies at most one path of the trie (about log32(n) small arrays)
+ * instead of the whole list. Every version stays valid forever, which makes a version a free,
+ * consistent point-in-time snapshot that can be iterated while writers publish newer versions.
+ *
+ * The java.util.List mutators (add, set, remove, ...) throw UnsupportedOperationException.
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentVector<?> EMPTY =
+            new PersistentVector<>(0, BITS, new Object[WIDTH], new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    /**
+     * Build a vector holding the elements of a collection, in iteration order
+     */
+    public static <E> PersistentVector<E> of(Collection<? extends E> elements) {
+        PersistentVector<E> vector = empty();
+        for (E element : elements) {
+            vector = vector.plus(element);
+        }
+        return vector;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    /**
+     * Return a new vector with the element appended
+     */
+    public PersistentVector<E> plus(E element) {
+        // Room in the tail: copy only the tail
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+        // Tail is full: push it into the trie and start a new tail
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            // Root overflow: add a level
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[]{element});
+    }
+
+    /**
+     * Return a new vector with the element at index replaced
+     */
+    public PersistentVector<E> with(int index, E element) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = element;
+            return new PersistentVector<>(size, shift, root, newTail);
+        }
+        return new PersistentVector<>(size, shift, assoc(shift, root, index, element), tail);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int index;
+            private int base = -WIDTH;
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (index >= size) throw new NoSuchElementException();
+                if (index - base == WIDTH) {
+                    leaf = leafFor(index);
+                    base = index;
+                }
+                return (E) leaf[index++ & MASK];
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        for (int base = 0; base < size; base += WIDTH) {
+            Object[] leaf = leafFor(base);
+            int end = Math.min(WIDTH, size - base);
+            for (int i = 0; i < end; i++) {
+                action.accept((E) leaf[i]);
+            }
+        }
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int subIndex = ((size - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+        Object[] insert;
+        if (level == BITS) {
+            insert = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[subIndex];
+            insert = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+        }
+        copy[subIndex] = insert;
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+
+    private static Object[] assoc(int level, Object[] node, int index, Object element) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            int subIndex = (index >>> level) & MASK;
+            copy[subIndex] = assoc(level - BITS, (Object[]) node[subIndex], index, element);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,249 @@
+package com.bankingsystem.utils;
+
+import com.bankingsystem.Transaction;
+import com.bankingsystem.dao.TransactionDAOInterface;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.dao.TransactionPage;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Random-access window over a transaction history that is fetched page by page.
+ * Only the pages around the reader's position are held in memory:
+ *  - a missing page is fetched in the background and get() returns null until it arrives
+ *  - the page after the current one (in the direction of travel) is prefetched
+ *  - pages furthest from the current position are evicted once more than maxPages are cached
+ *  - a page whose predecessor's end cursor is known is fetched by keyset; only a jump into
+ *    unvisited territory falls back to an offset query, and its cursor then seeds keyset
+ *    fetches for the pages that follow
+ * Opening fetches only the first page; the matching-row count (which has to visit every
+ * matching index entry) runs in the background and the size grows when it arrives: at once if
+ * no listener is set, otherwise when the listener hands the new size back through applySize(),
+ * so size() changes on the thread that reads it (for a table, the FX thread). The count is
+ * taken once; open a new cache to pick up rows posted later.
+ */
+public class TransactionPageCache implements AutoCloseable {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_PAGES = 8;
+
+    // One fetcher thread: requests run in order, so when scrolling the page before a prefetched
+    // page has always landed and its end cursor is known
+    private static final ExecutorService FETCHER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TransactionPageFetcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Notified on a fetcher thread when a page has been loaded or the row count is known
+     */
+    public interface Listener {
+        void pageLoaded(int fromIndex, int toIndex);
+
+        /**
+         * size() still returns oldSize; pass newSize to applySize() on the reading thread
+         */
+        void sizeChanged(int oldSize, int newSize);
+    }
+
+    private final TransactionDAOInterface dao;
+    private final TransactionHistoryQuery query;
+    private final int pageSize;
+    private final int maxPages;
+    private volatile int size;
+    private volatile boolean sizeFinal;
+    private final Map<Integer, List<Transaction>> pages = new ConcurrentHashMap<>();
+    private final Map<Integer, TransactionPage.Cursor> pageEnds = new ConcurrentHashMap<>();
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile int focusPage;
+    private volatile Listener listener;
+    private volatile boolean closed;
+
+    private final AtomicLong keysetFetches = new AtomicLong();
+    private final AtomicLong offsetFetches = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TransactionPageCache(TransactionDAOInterface dao, TransactionHistoryQuery query) {
+        this(dao, query, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Load the first page on the calling thread, so the first screen is available immediately,
+     * and count the matching rows in the background
+     * @param pageSize Rows per fetch
+     * @param maxPages Pages kept in memory (at least 3: previous, current, prefetched)
+     */
+    public TransactionPageCache(TransactionDAOInterface dao, TransactionHistoryQuery query,
+                                int pageSize, int maxPages) {
+        if (pageSize < 1) throw new IllegalArgumentException("Page size must be positive");
+        this.dao = dao;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.maxPages = Math.max(3, maxPages);
+        TransactionPage first = fetch(0);
+        pages.put(0, first.getTransactions());
+        if (first.getEnd() != null) {
+            pageEnds.put(0, first.getEnd());
+        }
+        this.size = first.getTransactions().size();
+        if (first.hasMore()) {
+            FETCHER.execute(this::count);
+        } else {
+            sizeFinal = true;
+        }
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public TransactionHistoryQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Number of rows matching the query when the cache was opened; until the background
+     * count has finished this is the number of rows on the first page
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a row and move the window to it
+     * @return The transaction, or null while its page is being fetched
+     */
+    public Transaction get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        int page = index / pageSize;
+        int previous = focusPage;
+        focusPage = page;
+
+        List<Transaction> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+        }
+        int ahead = page >= previous ? page + 1 : page - 1;
+        if (ahead >= 0 && (long) ahead * pageSize < size && !pages.containsKey(ahead)) {
+            request(ahead);
+        }
+
+        if (rows == null) return null;
+        int offset = index - page * pageSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    /**
+     * Stop fetching; pages still in flight are discarded
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        listener = null;
+        pages.clear();
+    }
+
+    /**
+     * Make the count reported to Listener.sizeChanged the size; call it on the thread that reads size()
+     */
+    public void applySize(int newSize) {
+        if (newSize > size) size = newSize;
+        sizeFinal = true;
+    }
+
+    /**
+     * Whether size() is the full count rather than the first page
+     */
+    public boolean isSizeFinal() {
+        return sizeFinal;
+    }
+
+    public int getCachedPageCount() { return pages.size(); }
+    public long getKeysetFetchCount() { return keysetFetches.get(); }
+    public long getOffsetFetchCount() { return offsetFetches.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+
+    private void request(int page) {
+        if (closed || !inFlight.add(page)) return;
+        FETCHER.execute(() -> {
+            try {
+                // Skip pages the reader has already scrolled far away from (e.g. a fast scrollbar drag)
+                if (!closed && Math.abs(page - focusPage) <= maxPages / 2 && !pages.containsKey(page)) {
+                    load(page);
+                }
+            } finally {
+                inFlight.remove(page);
+            }
+        });
+    }
+
+    private void count() {
+        if (closed) return;
+        int counted = dao.countTransactions(query);
+        int oldSize = size;
+        Listener current;
+        // With setListener: a listener set after this block finds the counted size already in place
+        synchronized (this) {
+            // Rows posted after the first page was read can only push the count up
+            if (closed || counted <= oldSize) {
+                sizeFinal = true;
+                return;
+            }
+            current = listener;
+            if (current == null) {
+                applySize(counted);
+                return;
+            }
+        }
+        current.sizeChanged(oldSize, counted);
+    }
+
+    private TransactionPage fetch(int page) {
+        TransactionPage.Cursor before = page == 0 ? null : pageEnds.get(page - 1);
+        if (page == 0 || before != null) {
+            keysetFetches.incrementAndGet();
+            return dao.getTransactionPageAfter(query, before, pageSize);
+        }
+        offsetFetches.incrementAndGet();
+        return dao.getTransactionPage(query, page * pageSize, pageSize);
+    }
+
+    private void load(int page) {
+        TransactionPage result = fetch(page);
+        if (closed) return;
+
+        List<Transaction> rows = result.getTransactions();
+        if (result.getEnd() != null) {
+            pageEnds.put(page, result.getEnd());
+        }
+        pages.put(page, rows);
+        evict();
+
+        Listener current = listener;
+        if (current != null && !rows.isEmpty()) {
+            int from = page * pageSize;
+            current.pageLoaded(from, Math.min(size, from + rows.size()));
+        }
+    }
+
+    private void evict() {
+        while (pages.size() > maxPages) {
+            int focus = focusPage;
+            int farthest = -1;
+            for (int page : pages.keySet()) {
+                if (farthest < 0 || Math.abs(page - focus) > Math.abs(farthest - focus)) {
+                    farthest = page;
+                }
+            }
+            if (farthest < 0 || pages.remove(farthest) == null) return;
+            evictions.incrementAndGet();
+        }
+    }
+}
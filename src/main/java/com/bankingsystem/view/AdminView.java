@@ -121,8 +121,12 @@ public class AdminView extends BorderPane {
         if (result.isPresent()) {
             java.util.Map<String,String> r = result.get();
             if ("approve".equals(r.get("action"))) {
-                String res = controller.approveRequest(id, "staff1");
-                info.setText(res + " — " + r.getOrDefault("notes", ""));
+                String notes = r.getOrDefault("notes", "");
+                info.setText("Approving...");
+                controller.approveRequest(id, "staff1", res -> {
+                    info.setText(res + " — " + notes);
+                    refresh();
+                });
             } else if ("reject".equals(r.get("action"))) {
                 String reason = r.getOrDefault("notes", "Rejected by staff");
                 String res = controller.rejectRequest(id, reason);
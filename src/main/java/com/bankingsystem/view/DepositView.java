@@ -2,6 +2,7 @@ package com.bankingsystem.view;
 
 import com.bankingsystem.Account;
 import com.bankingsystem.controller.AccountController;
+import com.bankingsystem.controller.PostingResult;
 import com.bankingsystem.controller.TransactionController;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
@@ -9,6 +10,8 @@ import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
+import java.util.UUID;
+
 /**
  * View for depositing money into an account.
  * Displays account selection and deposit amount input.
@@ -20,6 +23,9 @@ public class DepositView extends VBox {
     private final TextField amountField = new TextField();
     private final Label balanceLabel = new Label();
     private final Label messageLabel = new Label();
+    // Idempotency key of the request being filled in: a double-click resubmits the same key,
+    // editing the form or a successful submission starts a new one
+    private String requestKey = UUID.randomUUID().toString();
 
     public DepositView(AccountController accountController, TransactionController transactionController) {
         this.accountController = accountController;
@@ -56,6 +62,8 @@ public class DepositView extends VBox {
         Label amountLabel = new Label("Deposit Amount (BWP):");
         amountField.setPromptText("Enter amount to deposit");
         amountField.setPrefWidth(200);
+        amountField.textProperty().addListener((obs, oldText, newText) -> requestKey = UUID.randomUUID().toString());
+        accountCombo.valueProperty().addListener((obs, oldValue, newValue) -> requestKey = UUID.randomUUID().toString());
 
         // Buttons
         Button depositBtn = new Button("Deposit");
@@ -132,11 +140,12 @@ public class DepositView extends VBox {
         }
 
         // Perform deposit via TransactionController
-        String result = transactionController.deposit(accountNumber, amount);
-        messageLabel.setText(result);
+        PostingResult result = transactionController.postDeposit(accountNumber, amount, requestKey);
+        messageLabel.setText(result.getMessage());
 
         // Update balance display and clear amount field on success
-        if (result.contains("Successfully")) {
+        if (result.isApplied()) {
+            requestKey = UUID.randomUUID().toString();
             updateBalanceDisplay();
             amountField.clear();
             // Refresh account combo
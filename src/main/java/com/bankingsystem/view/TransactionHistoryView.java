@@ -4,6 +4,9 @@ import com.bankingsystem.Account;
 import com.bankingsystem.Transaction;
 import com.bankingsystem.controller.AccountController;
 import com.bankingsystem.controller.TransactionController;
+import com.bankingsystem.dao.TransactionHistoryQuery;
+import com.bankingsystem.mvc.utils.LazyTransactionList;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
@@ -11,17 +14,24 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.function.Function;
 
 /**
  * View for displaying transaction history.
- * Shows transactions for selected account(s).
+ * Shows transactions for selected account(s). The table is backed by a LazyTransactionList,
+ * so only the pages around the visible rows are fetched and held; the type filter, the
+ * description search and column sorting are applied by the database.
  */
 public class TransactionHistoryView extends VBox {
     private final AccountController accountController;
     private final TransactionController transactionController;
     private final ComboBox<String> accountCombo = new ComboBox<>();
-    private final TableView<TransactionRow> transactionTable = new TableView<>();
+    private final ComboBox<String> typeFilter = new ComboBox<>();
+    private final TextField searchField = new TextField();
+    private final TableView<Transaction> transactionTable = new TableView<>();
     private final Label messageLabel = new Label();
+    private LazyTransactionList history;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
     public TransactionHistoryView(AccountController accountController, TransactionController transactionController) {
         this.accountController = accountController;
@@ -49,26 +59,33 @@ public class TransactionHistoryView extends VBox {
         accountCombo.setPrefWidth(400);
         accountCombo.setOnAction(e -> loadTransactions());
 
-        // Create table columns
-        TableColumn<TransactionRow, String> dateCol = new TableColumn<>("Date");
-        dateCol.setCellValueFactory(cellData -> cellData.getValue().dateProperty());
-        dateCol.setPrefWidth(150);
+        // Filters (applied in the database query)
+        typeFilter.getItems().add("All types");
+        for (Transaction.Type type : Transaction.Type.values()) {
+            typeFilter.getItems().add(type.toString());
+        }
+        typeFilter.setValue("All types");
+        typeFilter.setOnAction(e -> applyFilter());
+        searchField.setPromptText("Search description");
+        searchField.setOnAction(e -> applyFilter());
+        HBox filterBox = new HBox(10, new Label("Type:"), typeFilter, searchField);
+
+        // Create table columns; a null row is a page that is still loading
+        TableColumn<Transaction, String> dateCol = column("Date", 150,
+            t -> t.getTimestamp().format(FORMATTER), "Loading...");
+        dateCol.setUserData(TransactionHistoryQuery.SortField.TIMESTAMP);
 
-        TableColumn<TransactionRow, String> typeCol = new TableColumn<>("Type");
-        typeCol.setCellValueFactory(cellData -> cellData.getValue().typeProperty());
-        typeCol.setPrefWidth(100);
+        TableColumn<Transaction, String> typeCol = column("Type", 100, t -> t.getType().toString(), "");
 
-        TableColumn<TransactionRow, String> amountCol = new TableColumn<>("Amount (BWP)");
-        amountCol.setCellValueFactory(cellData -> cellData.getValue().amountProperty());
-        amountCol.setPrefWidth(150);
+        TableColumn<Transaction, String> amountCol = column("Amount (BWP)", 150,
+            t -> String.format("%.2f", t.getAmount()), "");
+        amountCol.setUserData(TransactionHistoryQuery.SortField.AMOUNT);
 
-        TableColumn<TransactionRow, String> balanceCol = new TableColumn<>("Balance After (BWP)");
-        balanceCol.setCellValueFactory(cellData -> cellData.getValue().balanceProperty());
-        balanceCol.setPrefWidth(150);
+        TableColumn<Transaction, String> balanceCol = column("Balance After (BWP)", 150,
+            t -> String.format("%.2f", t.getBalanceAfter()), "");
 
-        TableColumn<TransactionRow, String> descriptionCol = new TableColumn<>("Description");
-        descriptionCol.setCellValueFactory(cellData -> cellData.getValue().descriptionProperty());
-        descriptionCol.setPrefWidth(200);
+        TableColumn<Transaction, String> descriptionCol = column("Description", 200,
+            t -> t.getDescription() != null ? t.getDescription() : "", "");
 
         transactionTable.getColumns().addAll(Arrays.asList(dateCol, typeCol, amountCol, balanceCol, descriptionCol));
         transactionTable.setPrefHeight(400);
@@ -93,7 +110,7 @@ public class TransactionHistoryView extends VBox {
         VBox formBox = new VBox(10);
         formBox.setPadding(new Insets(15));
         formBox.getStyleClass().add("panel");
-        formBox.getChildren().addAll(accountLabel, accountCombo, transactionTable);
+        formBox.getChildren().addAll(accountLabel, accountCombo, filterBox, transactionTable);
 
         getChildren().addAll(title, formBox, buttonBox, messageLabel);
 
@@ -107,35 +124,66 @@ public class TransactionHistoryView extends VBox {
     private void loadTransactions() {
         String selected = accountCombo.getValue();
         if (selected == null || selected.isEmpty()) {
-            transactionTable.getItems().clear();
+            closeHistory();
+            transactionTable.setItems(javafx.collections.FXCollections.observableArrayList());
             messageLabel.setText("Please select an account");
             return;
         }
 
         String accountNumber = selected.split(" - ")[0];
-        java.util.List<Transaction> transactions = transactionController.getTransactionHistory(accountNumber);
-
-        transactionTable.getItems().clear();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-
-        for (Transaction t : transactions) {
-            TransactionRow row = new TransactionRow(
-                t.getTimestamp().format(formatter),
-                t.getType().toString(),
-                String.format("%.2f", t.getAmount()),
-                String.format("%.2f", t.getBalanceAfter()),
-                t.getDescription() != null ? t.getDescription() : ""
-            );
-            transactionTable.getItems().add(row);
-        }
+        closeHistory();
+        history = new LazyTransactionList(transactionController::openHistory, filteredQuery(accountNumber));
+        transactionTable.getSortOrder().clear();
+        transactionTable.setItems(history);
+        history.installSortPolicy(transactionTable);
+        // The count arrives after the first page; keep the message in step with the list size
+        LazyTransactionList shown = history;
+        history.addListener((javafx.collections.ListChangeListener<Transaction>) change -> {
+            if (history == shown) showCount();
+        });
+        showCount();
+    }
 
-        if (transactions.isEmpty()) {
+    private void applyFilter() {
+        if (history == null) return;
+        TransactionHistoryQuery current = history.getQuery();
+        history.setQuery(filteredQuery(current.getAccountNumber())
+            .sortedBy(current.getSortField(), current.isAscending()));
+        showCount();
+    }
+
+    private TransactionHistoryQuery filteredQuery(String accountNumber) {
+        String type = typeFilter.getValue();
+        return TransactionHistoryQuery.forAccount(accountNumber)
+            .withType(type == null || type.equals("All types") ? null : Transaction.Type.valueOf(type))
+            .withDescriptionContaining(searchField.getText());
+    }
+
+    private void showCount() {
+        if (history.isEmpty()) {
             messageLabel.setText("No transactions found for this account");
         } else {
-            messageLabel.setText(String.format("Found %d transaction(s)", transactions.size()));
+            messageLabel.setText(String.format("Found %d transaction(s)", history.size()));
+        }
+    }
+
+    private void closeHistory() {
+        if (history != null) {
+            history.close();
+            history = null;
         }
     }
 
+    private static TableColumn<Transaction, String> column(String title, double width,
+                                                           Function<Transaction, String> value,
+                                                           String loading) {
+        TableColumn<Transaction, String> col = new TableColumn<>(title);
+        col.setCellValueFactory(cellData -> new SimpleStringProperty(
+            cellData.getValue() != null ? value.apply(cellData.getValue()) : loading));
+        col.setPrefWidth(width);
+        return col;
+    }
+
     private void onBack() {
         // Navigate back to dashboard
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -143,30 +191,4 @@ public class TransactionHistoryView extends VBox {
         alert.setContentText("Returning to dashboard...");
         alert.show();
     }
-
-    /**
-     * Helper class for table rows
-     */
-    private static class TransactionRow {
-        private final javafx.beans.property.SimpleStringProperty date;
-        private final javafx.beans.property.SimpleStringProperty type;
-        private final javafx.beans.property.SimpleStringProperty amount;
-        private final javafx.beans.property.SimpleStringProperty balance;
-        private final javafx.beans.property.SimpleStringProperty description;
-
-        public TransactionRow(String date, String type, String amount, String balance, String description) {
-            this.date = new javafx.beans.property.SimpleStringProperty(date);
-            this.type = new javafx.beans.property.SimpleStringProperty(type);
-            this.amount = new javafx.beans.property.SimpleStringProperty(amount);
-            this.balance = new javafx.beans.property.SimpleStringProperty(balance);
-            this.description = new javafx.beans.property.SimpleStringProperty(description);
-        }
-
-        public javafx.beans.property.StringProperty dateProperty() { return date; }
-        public javafx.beans.property.StringProperty typeProperty() { return type; }
-        public javafx.beans.property.StringProperty amountProperty() { return amount; }
-        public javafx.beans.property.StringProperty balanceProperty() { return balance; }
-        public javafx.beans.property.StringProperty descriptionProperty() { return description; }
-    }
 }
-
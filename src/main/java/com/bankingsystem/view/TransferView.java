@@ -2,6 +2,7 @@ package com.bankingsystem.view;
 
 import com.bankingsystem.Account;
 import com.bankingsystem.controller.AccountController;
+import com.bankingsystem.controller.PostingResult;
 import com.bankingsystem.controller.TransactionController;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
@@ -9,6 +10,8 @@ import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
+import java.util.UUID;
+
 /**
  * View for transferring money between accounts.
  */
@@ -22,6 +25,9 @@ public class TransferView extends VBox {
     private final RadioButton internalTransferRadio = new RadioButton("Transfer to my account");
     private final RadioButton externalTransferRadio = new RadioButton("Transfer to another account");
     private final Label messageLabel = new Label();
+    // Idempotency key of the request being filled in: a double-click resubmits the same key,
+    // editing the form or a successful submission starts a new one
+    private String requestKey = UUID.randomUUID().toString();
 
     public TransferView(AccountController accountController, TransactionController transactionController) {
         this.accountController = accountController;
@@ -82,6 +88,11 @@ public class TransferView extends VBox {
         Label amountLabel = new Label("Transfer Amount (BWP):");
         amountField.setPromptText("Enter amount to transfer");
         amountField.setPrefWidth(200);
+        amountField.textProperty().addListener((obs, oldText, newText) -> requestKey = UUID.randomUUID().toString());
+        fromAccountCombo.valueProperty().addListener((obs, oldValue, newValue) -> requestKey = UUID.randomUUID().toString());
+        toAccountCombo.valueProperty().addListener((obs, oldValue, newValue) -> requestKey = UUID.randomUUID().toString());
+        toAccountNumberField.textProperty().addListener((obs, oldText, newText) -> requestKey = UUID.randomUUID().toString());
+        transferTypeGroup.selectedToggleProperty().addListener((obs, oldToggle, newToggle) -> requestKey = UUID.randomUUID().toString());
 
         // Buttons
         Button transferBtn = new Button("Transfer");
@@ -169,11 +180,12 @@ public class TransferView extends VBox {
         }
 
         // Perform transfer via TransactionController
-        String result = transactionController.transfer(fromAccountNumber, toAccountNumber, amount);
-        messageLabel.setText(result);
+        PostingResult result = transactionController.postTransfer(fromAccountNumber, toAccountNumber, amount, requestKey);
+        messageLabel.setText(result.getMessage());
 
         // Clear amount field on success
-        if (result.contains("Successfully")) {
+        if (result.isApplied()) {
+            requestKey = UUID.randomUUID().toString();
             amountField.clear();
         }
     }
@@ -2,6 +2,7 @@ package com.bankingsystem.view;
 
 import com.bankingsystem.Account;
 import com.bankingsystem.controller.AccountController;
+import com.bankingsystem.controller.PostingResult;
 import com.bankingsystem.controller.TransactionController;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
@@ -9,6 +10,8 @@ import javafx.scene.layout.*;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
+import java.util.UUID;
+
 /**
  * View for withdrawing money from an account.
  * Note: Savings accounts do not allow withdrawals.
@@ -20,6 +23,9 @@ public class WithdrawView extends VBox {
     private final TextField amountField = new TextField();
     private final Label balanceLabel = new Label();
     private final Label messageLabel = new Label();
+    // Idempotency key of the request being filled in: a double-click resubmits the same key,
+    // editing the form or a successful submission starts a new one
+    private String requestKey = UUID.randomUUID().toString();
 
     public WithdrawView(AccountController accountController, TransactionController transactionController) {
         this.accountController = accountController;
@@ -66,6 +72,8 @@ public class WithdrawView extends VBox {
         Label amountLabel = new Label("Withdrawal Amount (BWP):");
         amountField.setPromptText("Enter amount to withdraw");
         amountField.setPrefWidth(200);
+        amountField.textProperty().addListener((obs, oldText, newText) -> requestKey = UUID.randomUUID().toString());
+        accountCombo.valueProperty().addListener((obs, oldValue, newValue) -> requestKey = UUID.randomUUID().toString());
 
         // Buttons
         Button withdrawBtn = new Button("Withdraw");
@@ -141,11 +149,12 @@ public class WithdrawView extends VBox {
         }
 
         // Perform withdrawal via TransactionController
-        String result = transactionController.withdraw(accountNumber, amount);
-        messageLabel.setText(result);
+        PostingResult result = transactionController.postWithdrawal(accountNumber, amount, requestKey);
+        messageLabel.setText(result.getMessage());
 
         // Update balance display and clear amount field on success
-        if (result.contains("Successfully")) {
+        if (result.isApplied()) {
+            requestKey = UUID.randomUUID().toString();
             updateBalanceDisplay();
             amountField.clear();
             // Refresh account combo
@@ -0,0 +1,7 @@
+-- V10__Ledger_Sequence.sql
+-- Insertion order of ledger rows. transaction_id is not ordered and transaction_timestamp is
+-- set by the application, so incremental readers of the ledger (LedgerColumnSnapshot) keep a
+-- high-water mark on this sequence instead; existing rows are numbered when it is added.
+-- DatabaseConnection.initializeSchema adds the column the same way when it is missing.
+
+ALTER TABLE transactions ADD COLUMN ledger_seq BIGINT NOT NULL AUTO_INCREMENT UNIQUE;
@@ -0,0 +1,12 @@
+-- V11__Disbursement_Line_Status.sql
+-- Settlement status of each staged payroll line, changed in the same transaction as the money
+-- it describes, so interrupted disbursements can be resumed and refunded from the table:
+-- STAGED, PENDING (debited from the source), CREDITED, FAILED (owed back), REFUNDED, REJECTED.
+-- Lines staged before this migration were settled by their run and are marked CREDITED.
+-- DatabaseConnection.initializeSchema adds the columns the same way when they are missing.
+
+ALTER TABLE disbursement_lines ADD COLUMN status VARCHAR(16) NOT NULL DEFAULT 'STAGED';
+ALTER TABLE disbursement_lines ADD COLUMN message VARCHAR(255);
+UPDATE disbursement_lines SET status = 'CREDITED';
+
+CREATE INDEX idx_disbursement_lines_status ON disbursement_lines(status);
@@ -0,0 +1,11 @@
+-- V12__Transaction_Direction.sql
+-- Whether each ledger row credited or debited its account, stored when the row is written
+-- instead of being read back out of the description. Existing rows get the direction the
+-- descriptions written until now imply: withdrawals, the sending leg of a transfer
+-- ("Transfer to ...") and payroll debits ("Payroll disbursement ...") are debits.
+-- DatabaseConnection.initializeSchema adds the column the same way when it is missing.
+
+ALTER TABLE transactions ADD COLUMN direction VARCHAR(6) NOT NULL DEFAULT 'CREDIT';
+UPDATE transactions SET direction = 'DEBIT' WHERE transaction_type = 'WITHDRAW'
+    OR (transaction_type = 'TRANSFER' AND (description LIKE 'Transfer to %' OR description LIKE 'Payroll disbursement%'));
+ALTER TABLE transactions ALTER COLUMN direction DROP DEFAULT;
@@ -0,0 +1,7 @@
+-- V2__Id_Sequences.sql
+-- Hi/lo sequence table used by IDGenerator to reserve blocks of IDs
+
+CREATE TABLE IF NOT EXISTS id_sequences (
+  sequence_name VARCHAR(64) PRIMARY KEY,
+  next_value BIGINT NOT NULL
+);
@@ -0,0 +1,11 @@
+-- V3__Balance_Stripes.sql
+-- Sub-balance slots for striped hot accounts; credits land on one slot,
+-- and the slots are folded back into accounts.balance by readers, debits and the folder
+
+CREATE TABLE IF NOT EXISTS account_balance_stripes (
+  account_number VARCHAR(64) NOT NULL,
+  stripe INT NOT NULL,
+  delta DOUBLE NOT NULL DEFAULT 0,
+  PRIMARY KEY (account_number, stripe),
+  FOREIGN KEY (account_number) REFERENCES accounts(account_number) ON DELETE CASCADE
+);
@@ -0,0 +1,14 @@
+-- V4__Disbursement_Lines.sql
+-- Staged instruction lines of bulk payroll disbursements; recipients are validated
+-- with one join against accounts, and the rows remain as the audit trail of each file
+
+CREATE TABLE IF NOT EXISTS disbursement_lines (
+  batch_id VARCHAR(64) NOT NULL,
+  line_no INT NOT NULL,
+  source_account VARCHAR(64) NOT NULL,
+  account_number VARCHAR(64) NOT NULL,
+  amount DOUBLE NOT NULL,
+  reference VARCHAR(255),
+  staged_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (batch_id, line_no)
+);
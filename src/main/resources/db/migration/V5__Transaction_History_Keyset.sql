@@ -0,0 +1,9 @@
+-- V5__Transaction_History_Keyset.sql
+-- Composite indexes for keyset-paged transaction history: each page is an ordered range scan
+-- on (account, sort column, transaction_id) that starts after the previous page's last row and
+-- stops at the page size. H2 does not scan indexes backwards, so the newest-first default
+-- and largest-amount-first orders get descending indexes; amount ascending falls back to a sort.
+
+CREATE INDEX IF NOT EXISTS idx_transactions_account_ts_desc ON transactions(account_number, transaction_timestamp DESC, transaction_id DESC);
+CREATE INDEX IF NOT EXISTS idx_transactions_account_ts ON transactions(account_number, transaction_timestamp, transaction_id);
+CREATE INDEX IF NOT EXISTS idx_transactions_account_amount_desc ON transactions(account_number, amount DESC, transaction_id DESC);
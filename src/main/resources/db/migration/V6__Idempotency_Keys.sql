@@ -0,0 +1,13 @@
+-- V6__Idempotency_Keys.sql
+-- Money movements already applied under a client-supplied idempotency key. The row is written
+-- in the same transaction as the ledger rows, so a retried request finds the original result
+-- instead of posting again; old keys are purged by created_at
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+  idempotency_key VARCHAR(64) PRIMARY KEY,
+  request VARCHAR(255) NOT NULL,
+  result VARCHAR(512) NOT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys(created_at);
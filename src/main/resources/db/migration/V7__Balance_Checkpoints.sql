@@ -0,0 +1,14 @@
+-- V7__Balance_Checkpoints.sql
+-- Balance of every approved account at the start of each day, so a balance as of a past
+-- moment is the nearest checkpoint plus the ledger rows after it, not a replay of the history
+
+CREATE TABLE IF NOT EXISTS balance_checkpoints (
+  account_number VARCHAR(64) NOT NULL,
+  checkpoint_at TIMESTAMP NOT NULL,
+  balance DOUBLE NOT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (account_number, checkpoint_at),
+  FOREIGN KEY (account_number) REFERENCES accounts(account_number) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_balance_checkpoints_checkpoint_at ON balance_checkpoints(checkpoint_at);
@@ -0,0 +1,10 @@
+-- V8__Approval_Claims.sql
+-- Leases on pending accounts for the staff approval work queue. A claimed account belongs to
+-- claimed_by until claim_expires_at; after that any staff member may claim it again.
+-- DatabaseConnection.initializeSchema adds the columns the same way when they are missing.
+
+ALTER TABLE accounts ADD COLUMN claimed_by VARCHAR(100);
+ALTER TABLE accounts ADD COLUMN claim_expires_at TIMESTAMP;
+
+CREATE INDEX idx_accounts_status_date_opened ON accounts(status, date_opened);
+CREATE INDEX idx_accounts_claimed_by ON accounts(claimed_by);
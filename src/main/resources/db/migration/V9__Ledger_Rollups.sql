@@ -0,0 +1,34 @@
+-- V9__Ledger_Rollups.sql
+-- Daily ledger totals per branch, account type and transaction type, kept up to date as ledger
+-- rows are written, so staff analytics never scan the transactions table. Rows of the current
+-- day are spread over a few stripes so concurrent postings do not queue on one row; closed days
+-- are folded into stripe 0. The same totals are kept per month as well, for reports over years
+
+CREATE TABLE IF NOT EXISTS ledger_rollups (
+  rollup_day DATE NOT NULL,
+  branch VARCHAR(64) NOT NULL,
+  account_type VARCHAR(32) NOT NULL,
+  transaction_type VARCHAR(32) NOT NULL,
+  stripe INT NOT NULL,
+  txn_count BIGINT NOT NULL DEFAULT 0,
+  credit_amount DOUBLE NOT NULL DEFAULT 0,
+  debit_amount DOUBLE NOT NULL DEFAULT 0,
+  PRIMARY KEY (rollup_day, branch, account_type, transaction_type, stripe)
+);
+
+CREATE TABLE IF NOT EXISTS ledger_rollups_monthly (
+  rollup_day DATE NOT NULL,
+  branch VARCHAR(64) NOT NULL,
+  account_type VARCHAR(32) NOT NULL,
+  transaction_type VARCHAR(32) NOT NULL,
+  stripe INT NOT NULL,
+  txn_count BIGINT NOT NULL DEFAULT 0,
+  credit_amount DOUBLE NOT NULL DEFAULT 0,
+  debit_amount DOUBLE NOT NULL DEFAULT 0,
+  PRIMARY KEY (rollup_day, branch, account_type, transaction_type, stripe)
+);
+
+CREATE TABLE IF NOT EXISTS ledger_rollup_backfills (
+  completed_at TIMESTAMP NOT NULL PRIMARY KEY,
+  rebuilt_through DATE NOT NULL
+);